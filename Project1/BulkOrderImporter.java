@@ -0,0 +1,450 @@
+/*
+    Name : Colin Kirby
+    Course : CNT 4714 - Spring 2025
+    Assignment Title : Project 1 - An Event-driven Enterprise Simulation
+    Date : Monday, January 20, 2025
+*/
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Places many orders at once from a file, for business customers who send their
+ * orders in bulk instead of using the GUI.
+ *
+ * The order file has one line per order line:
+ *   Order reference, Item ID, Quantity
+ * Lines with the same order reference form one order, wherever they are in the
+ * file, and lines for the same item in one order are added together. Blank lines
+ * and lines starting with # are ignored. Bulk orders are not limited to
+ * OrderEngine.MAX_CART_SIZE lines.
+ *
+ * Orders are processed in parallel on a ForkJoinPool. Each order is checked
+ * against the engine's inventory, priced with its promotions and reserved all or
+ * nothing; an order with an unknown item, a bad line or too little stock is
+ * rejected as a whole. Accepted orders are queued on the transaction log together,
+ * so its writer thread writes them in batches of up to 4,096 orders with one
+ * write (and one fsync) each. The stock of an order is committed as sold before
+ * the order is queued, and returned if the order cannot be written.
+ *
+ * Orders compete for stock in no particular order, so when stock runs short it is
+ * not defined which of the competing orders is rejected.
+ */
+public class BulkOrderImporter {
+    /** Number of columns in an order line */
+    private static final int COLUMNS = 3;
+
+    /** Chunks of orders per pool thread, so a slow chunk does not hold up the others */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    /**
+     * An order that was not placed, and why
+     */
+    public static final class Rejection {
+        private final String reference;
+        private final int lineNumber;
+        private final String reason;
+
+        Rejection(String reference, int lineNumber, String reason) {
+            this.reference = reference;
+            this.lineNumber = lineNumber;
+            this.reason = reason;
+        }
+
+        /**
+         * @return The order reference, or an empty string for a line without one
+         */
+        public String getReference() { return reference; }
+
+        /**
+         * @return The line of the file where the order starts
+         */
+        public int getLineNumber() { return lineNumber; }
+
+        /**
+         * @return Why the order was rejected
+         */
+        public String getReason() { return reason; }
+
+        @Override
+        public String toString() {
+            return "line " + lineNumber + (reference.isEmpty() ? "" : ", order " + reference) + ": " + reason;
+        }
+    }
+
+    /**
+     * The outcome of one import
+     */
+    public static final class Report {
+        private int ordersRead;
+        private int ordersPlaced;
+        private long lines;
+        private long units;
+        private long subtotalCents;
+        private long taxCents;
+        private long elapsedNanos;
+        private final List<Rejection> rejections = new ArrayList<>();
+
+        /**
+         * @return The number of orders in the file, including rejected ones
+         */
+        public int getOrdersRead() { return ordersRead; }
+
+        /**
+         * @return The number of orders placed and recorded
+         */
+        public int getOrdersPlaced() { return ordersPlaced; }
+
+        /**
+         * @return The number of order lines placed
+         */
+        public long getLines() { return lines; }
+
+        /**
+         * @return The number of units sold
+         */
+        public long getUnits() { return units; }
+
+        /**
+         * @return The sum of the placed orders' subtotals, in cents
+         */
+        public long getSubtotalCents() { return subtotalCents; }
+
+        /**
+         * @return The sum of the placed orders' tax, in cents
+         */
+        public long getTaxCents() { return taxCents; }
+
+        /**
+         * @return The time the import took, in nanoseconds
+         */
+        public long getElapsedNanos() { return elapsedNanos; }
+
+        /**
+         * @return The rejected orders, by line number
+         */
+        public List<Rejection> getRejections() { return Collections.unmodifiableList(rejections); }
+
+        /**
+         * @return Orders read per second
+         */
+        public double getOrdersPerSecond() {
+            return elapsedNanos == 0 ? 0 : ordersRead / (elapsedNanos / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%,d orders read, %,d placed, %,d rejected; %,d lines, %,d units, subtotal %s, tax %s;"
+                    + " %.0f ms, %,.0f orders/s, %,.0f lines/s",
+                ordersRead, ordersPlaced, rejections.size(), lines, units, Money.format(subtotalCents),
+                Money.format(taxCents), elapsedNanos / 1e6, getOrdersPerSecond(),
+                elapsedNanos == 0 ? 0 : lines / (elapsedNanos / 1e9));
+        }
+    }
+
+    /**
+     * One order as read from the file
+     */
+    private static class Request {
+        final String reference;
+        final int lineNumber;
+
+        /** Units per Item ID, in the order the items first appear */
+        final LinkedHashMap<String, Integer> quantities = new LinkedHashMap<>();
+
+        /** The first problem found in the order's lines, or null */
+        String error;
+
+        Request(String reference, int lineNumber) {
+            this.reference = reference;
+            this.lineNumber = lineNumber;
+        }
+    }
+
+    /**
+     * An order reserved and queued for the transaction log
+     */
+    private static class Pending {
+        final Request request;
+        final Order order;
+        final CompletableFuture<Void> recorded;
+
+        Pending(Request request, Order order, CompletableFuture<Void> recorded) {
+            this.request = request;
+            this.order = order;
+            this.recorded = recorded;
+        }
+    }
+
+    /** What one chunk of orders produced */
+    private static class ChunkResult {
+        final List<Pending> pending = new ArrayList<>();
+        final List<Rejection> rejections = new ArrayList<>();
+    }
+
+    /** The engine orders are placed through */
+    private final OrderEngine engine;
+
+    /** The pool that checks and reserves orders */
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates an importer that works on the common pool.
+     *
+     * @param engine The engine orders are placed through
+     */
+    public BulkOrderImporter(OrderEngine engine) {
+        this(engine, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates an importer.
+     *
+     * @param engine The engine orders are placed through
+     * @param pool The pool that checks and reserves orders
+     */
+    public BulkOrderImporter(OrderEngine engine, ForkJoinPool pool) {
+        this.engine = engine;
+        this.pool = pool;
+    }
+
+    /**
+     * Places every order in a file and waits until they are recorded.
+     *
+     * @param file The order file
+     * @return What was placed and what was rejected
+     * @throws IOException If the file cannot be read
+     */
+    public Report importOrders(Path file) throws IOException {
+        long start = System.nanoTime();
+        Report report = new Report();
+        List<Request> requests = read(file, report.rejections);
+        report.ordersRead = requests.size();
+
+        // Check, price and reserve the orders in parallel chunks
+        int chunkCount = Math.max(1, Math.min(requests.size(), pool.getParallelism() * CHUNKS_PER_THREAD));
+        List<Callable<ChunkResult>> tasks = new ArrayList<>();
+        for (int i = 0; i < chunkCount; i++) {
+            List<Request> chunk = requests.subList(
+                (int) ((long) requests.size() * i / chunkCount), (int) ((long) requests.size() * (i + 1) / chunkCount));
+            tasks.add(() -> place(chunk));
+        }
+        List<Pending> pending = new ArrayList<>();
+        try {
+            for (Future<ChunkResult> future : pool.invokeAll(tasks)) {
+                ChunkResult result = future.get();
+                pending.addAll(result.pending);
+                report.rejections.addAll(result.rejections);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Order import interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Error placing orders: " + e.getCause().getMessage(), e.getCause());
+        }
+
+        // Count each order once it is durable, and return the stock of those that are not
+        for (Pending order : pending) {
+            try {
+                order.recorded.join();
+            } catch (CompletionException e) {
+                engine.uncommitOrder(order.order.getItems());
+                engine.releaseOrder(order.order.getItems());
+                report.rejections.add(new Rejection(order.request.reference, order.request.lineNumber,
+                    "transaction log could not be written: " + e.getCause().getMessage()));
+                continue;
+            }
+            report.ordersPlaced++;
+            report.subtotalCents += order.order.getSubtotalCents();
+            report.taxCents += order.order.getTaxCents();
+            for (CartItem cartItem : order.order.getItems()) {
+                report.lines++;
+                report.units += cartItem.getQuantity();
+            }
+        }
+        report.rejections.sort(Comparator.comparingInt(Rejection::getLineNumber));
+        report.elapsedNanos = System.nanoTime() - start;
+        return report;
+    }
+
+    /**
+     * Checks, prices and reserves a chunk of orders, and sells and queues the
+     * reserved ones for the transaction log.
+     */
+    private ChunkResult place(List<Request> requests) {
+        ChunkResult result = new ChunkResult();
+        for (Request request : requests) {
+            if (request.error != null) {
+                result.rejections.add(new Rejection(request.reference, request.lineNumber, request.error));
+                continue;
+            }
+            List<CartItem> cart = new ArrayList<>(request.quantities.size());
+            String error = null;
+            for (Map.Entry<String, Integer> line : request.quantities.entrySet()) {
+                InventoryItem item = engine.findItem(line.getKey());
+                if (item == null) {
+                    error = "item " + line.getKey() + " not found";
+                    break;
+                }
+                cart.add(new CartItem(item, line.getValue(), cart.size() + 1));
+            }
+            if (error == null && !engine.reserveOrder(cart)) {
+                error = shortage(cart);
+            }
+            if (error != null) {
+                result.rejections.add(new Rejection(request.reference, request.lineNumber, error));
+                continue;
+            }
+            LocalDateTime now = LocalDateTime.now();
+            engine.getPromotions().apply(cart, now);
+            Order order = new Order(cart, now);
+            if (!engine.commitOrder(order.getItems())) {
+                engine.releaseOrder(cart);
+                result.rejections.add(new Rejection(request.reference, request.lineNumber,
+                    "inventory log could not be written"));
+                continue;
+            }
+            result.pending.add(new Pending(request, order, engine.recordOrder(order)));
+        }
+        return result;
+    }
+
+    /**
+     * @return Why an order could not be reserved, naming the first line that is short
+     */
+    private static String shortage(List<CartItem> cart) {
+        for (CartItem cartItem : cart) {
+            InventoryItem item = cartItem.getItem();
+            if (!item.isInStock()) {
+                return "item " + item.getItemID() + " is out of stock";
+            }
+            if (item.getQuantity() < cartItem.getQuantity()) {
+                return "item " + item.getItemID() + " has only " + item.getQuantity() + " of "
+                    + cartItem.getQuantity() + " units";
+            }
+        }
+        return "not enough stock";
+    }
+
+    /**
+     * Reads an order file, grouping its lines into orders.
+     *
+     * @param file The order file
+     * @param rejections Receives lines that belong to no order
+     * @return The orders, in the order their first lines appear
+     */
+    private static List<Request> read(Path file, List<Rejection> rejections) throws IOException {
+        LinkedHashMap<String, Request> requests = new LinkedHashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = trimmed.split(",", -1);
+                String reference = fields[0].trim();
+                if (reference.isEmpty()) {
+                    rejections.add(new Rejection("", lineNumber, "missing order reference"));
+                    continue;
+                }
+                Request request = requests.get(reference);
+                if (request == null) {
+                    request = new Request(reference, lineNumber);
+                    requests.put(reference, request);
+                }
+                if (request.error != null) {
+                    continue;
+                }
+                if (fields.length != COLUMNS || fields[1].trim().isEmpty()) {
+                    request.error = "line " + lineNumber + " is not: Order reference, Item ID, Quantity";
+                    continue;
+                }
+                int quantity;
+                try {
+                    quantity = Integer.parseInt(fields[2].trim());
+                } catch (NumberFormatException e) {
+                    quantity = 0;
+                }
+                if (quantity <= 0) {
+                    request.error = "line " + lineNumber + " has an invalid quantity: " + fields[2].trim();
+                    continue;
+                }
+                int merged = request.quantities.merge(fields[1].trim(), quantity, (a, b) -> a + b < 0 ? -1 : a + b);
+                if (merged < 0) {
+                    request.error = "line " + lineNumber + " brings item " + fields[1].trim() + " over "
+                        + Integer.MAX_VALUE + " units";
+                }
+            }
+        }
+        return new ArrayList<>(requests.values());
+    }
+
+    /**
+     * Imports an order file into the store: the inventory is loaded and its stock
+     * logged as in Main, and the orders are recorded in transactions.csv.
+     *
+     * Usage: java BulkOrderImporter orders.csv
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: java BulkOrderImporter <order file>");
+            return;
+        }
+        InventoryLoader loader = new InventoryLoader();
+        loader.loadInventoryWithSnapshot("inventory.csv", "inventory.snapshot");
+        if (!loader.recoverStock("inventory")) {
+            // Selling from unrecovered stock would oversell, and no log could keep the orders
+            System.err.println("Error: Inventory stock not recovered; no orders imported.");
+            return;
+        }
+
+        OrderEngine engine = new OrderEngine(loader);
+        InventoryWal wal = null;
+        try {
+            wal = new InventoryWal(Paths.get("inventory"), loader, true);
+            engine.setStockLog(wal);
+        } catch (IOException e) {
+            System.err.println("Error opening inventory log: " + e.getMessage());
+        }
+        if (Files.exists(Paths.get("promotions.csv"))) {
+            try {
+                engine.getPromotions().loadRules(Paths.get("promotions.csv"));
+            } catch (IOException e) {
+                System.err.println("Error loading promotions: " + e.getMessage());
+            }
+        }
+
+        try {
+            Report report = new BulkOrderImporter(engine).importOrders(Paths.get(args[0]));
+            System.out.println(report);
+            for (Rejection rejection : report.getRejections()) {
+                System.out.println("  Rejected " + rejection);
+            }
+        } finally {
+            engine.close();
+            if (wal != null) {
+                wal.close();
+            }
+        }
+    }
+}
@@ -19,8 +19,18 @@ public class CartItem {
     /** The position/number of this item in the cart (1-based indexing) */
     private int itemNumber;
 
+    /** The unit price in cents when the item was added; later price changes do not affect the cart */
+    private final long unitPriceCents;
+
+    /** The item description when the item was added, decoded once for the cart's receipts and views */
+    private final String description;
+
+    /** The discount in whole percent, as last priced by the PromotionEngine */
+    private volatile int discountPercentage;
+
     /**
-     * Creates a new cart item with the specified inventory item, quantity, and position.
+     * Creates a new cart item with the specified inventory item, quantity, and position,
+     * at the item's current price.
      * 
      * @param item The inventory item to add to the cart
      * @param quantity The quantity of the item being added
@@ -30,6 +40,9 @@ public class CartItem {
         this.item = item;
         this.quantity = quantity;
         this.itemNumber = itemNumber;
+        this.unitPriceCents = item.getPriceCents();
+        this.description = item.getDescription();
+        this.discountPercentage = getDiscountPercentage(quantity);
     }
 
     /**
@@ -54,8 +67,22 @@ public class CartItem {
     }
 
     /**
-     * Calculates the discount percentage based on the quantity ordered.
-     * Discount tiers:
+     * @return The item description as of when the item was added to the cart
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * @return The unit price in cents the item was added to the cart at
+     */
+    public long getUnitPriceCents() {
+        return unitPriceCents;
+    }
+
+    /**
+     * Calculates the discount percentage of the store's default quantity tiers,
+     * see PromotionEngine.DEFAULT_RULES:
      * - 20% off for 15 or more items
      * - 15% off for 10-14 items
      * - 10% off for 5-9 items
@@ -64,11 +91,62 @@ public class CartItem {
      * @param quantity The number of items ordered
      * @return The discount percentage (0, 10, 15, or 20)
      */
-    private int getDiscountPercentage(int quantity) {
-        if (quantity >= 15) return 20;
-        if (quantity >= 10) return 15;
-        if (quantity >= 5) return 10;
-        return 0;
+    public static int getDiscountPercentage(int quantity) {
+        return PromotionEngine.defaultQuantityDiscount(quantity);
+    }
+
+    /**
+     * @return The discount percentage that applies to this cart item: the default
+     *         quantity tier until the cart is priced by a PromotionEngine
+     */
+    public int getDiscountPercentage() {
+        return discountPercentage;
+    }
+
+    /**
+     * Sets the discount of this line; used by PromotionEngine when pricing the cart.
+     *
+     * @param discountPercentage The discount in whole percent
+     */
+    void setDiscountPercentage(int discountPercentage) {
+        this.discountPercentage = discountPercentage;
+    }
+
+    /**
+     * Calculates the price of a number of units after the quantity discount,
+     * rounded half up to the cent.
+     *
+     * @param unitCents The price of one unit in cents
+     * @param quantity The number of units
+     * @return The discounted total price in cents
+     */
+    public static long getTotalCents(long unitCents, int quantity) {
+        return Money.discount(unitCents * quantity, getDiscountPercentage(quantity));
+    }
+
+    /**
+     * Calculates the price of a number of units after the quantity discount.
+     *
+     * @param unitPrice The price of one unit
+     * @param quantity The number of units
+     * @return The discounted total price, rounded to the cent
+     */
+    public static double getTotalPrice(double unitPrice, int quantity) {
+        return Money.toDollars(getTotalCents(Money.ofDollars(unitPrice), quantity));
+    }
+
+    /**
+     * @return The total price of this cart item in cents after its discount
+     */
+    public long getTotalCents() {
+        return Money.discount(unitPriceCents * quantity, discountPercentage);
+    }
+
+    /**
+     * @return The total price of this cart item after its discount
+     */
+    public double getTotalPrice() {
+        return Money.toDollars(getTotalCents());
     }
 
     /**
@@ -78,22 +156,20 @@ public class CartItem {
      * - Description
      * - Unit price
      * - Quantity
-     * - Total price (after applying any quantity-based discounts)
+     * - Total price (after applying its discount)
      *
      * @return A formatted string containing all item details
      */
     @Override
     public String toString() {
-        double unitPrice = item.getPrice();
-        int discountPercent = getDiscountPercentage(quantity);
-        double totalPrice = quantity * unitPrice * (1 - discountPercent/100.0);
-        
-        return String.format("Item %d - SKU: %s, Desc: %s, Price Ea. $%.2f, Qty: %d, Total: $%.2f",
-            itemNumber,
-            item.getItemID(),
-            item.getDescription(),
-            unitPrice,
-            quantity,
-            totalPrice);
+        StringBuilder text = new StringBuilder(128);
+        text.append("Item ").append(itemNumber)
+            .append(" - SKU: ").append(item.getItemID())
+            .append(", Desc: ").append(description)
+            .append(", Price Ea. ");
+        Money.appendCurrency(text, unitPriceCents);
+        text.append(", Qty: ").append(quantity).append(", Total: ");
+        Money.appendCurrency(text, getTotalCents());
+        return text.toString();
     }
 }
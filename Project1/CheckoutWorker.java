@@ -0,0 +1,96 @@
+/*
+    Name : Colin Kirby
+    Course : CNT 4714 - Spring 2025
+    Assignment Title : Project 1 - An Event-driven Enterprise Simulation
+    Date : Monday, January 20, 2025
+*/
+
+import javax.swing.SwingWorker;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Checks out a session in the background so the Swing event dispatch thread never
+ * waits on the transaction log.
+ *
+ * The worker thread queues the order, waits until it is durable in the
+ * transaction log and builds the invoice text. The listener is then called on
+ * the event dispatch thread with either the order and its invoice or the
+ * failure. Start it with execute() from the event dispatch thread.
+ */
+public class CheckoutWorker extends SwingWorker<Order, Void> {
+    /**
+     * Receives the outcome of a checkout on the event dispatch thread.
+     */
+    public interface Listener {
+        /**
+         * Called once the order is durable.
+         *
+         * @param order The checked-out order, or null if there was nothing to check out
+         * @param invoice The invoice text, or null if there was nothing to check out
+         */
+        void checkedOut(Order order, String invoice);
+
+        /**
+         * Called if the order could not be recorded; the cart is unchanged and can
+         * be checked out again.
+         *
+         * @param cause What went wrong
+         */
+        void checkoutFailed(Throwable cause);
+    }
+
+    /** The session to check out */
+    private final OrderSession session;
+
+    /** Receives the outcome */
+    private final Listener listener;
+
+    /** The invoice built in the background; read in done() after get() */
+    private String invoice;
+
+    /**
+     * @param session The session to check out
+     * @param listener Receives the outcome on the event dispatch thread
+     */
+    public CheckoutWorker(OrderSession session, Listener listener) {
+        this.session = session;
+        this.listener = listener;
+    }
+
+    @Override
+    protected Order doInBackground() {
+        Order order = session.checkout().join();
+        if (order != null) {
+            invoice = order.toInvoice();
+        }
+        return order;
+    }
+
+    @Override
+    protected void done() {
+        Order order;
+        try {
+            order = get();
+        } catch (ExecutionException e) {
+            listener.checkoutFailed(rootCause(e));
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            listener.checkoutFailed(e);
+            return;
+        }
+        listener.checkedOut(order, invoice);
+    }
+
+    /**
+     * @return The failure behind the executor and future wrappers
+     */
+    private static Throwable rootCause(Throwable error) {
+        while ((error instanceof ExecutionException || error instanceof CompletionException)
+                && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+}
@@ -0,0 +1,367 @@
+/*
+    Name : Colin Kirby
+    Course : CNT 4714 - Spring 2025
+    Assignment Title : Project 1 - An Event-driven Enterprise Simulation
+    Date : Monday, January 20, 2025
+*/
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A compact, column-oriented alternative to the HashMap&lt;String, InventoryItem&gt;
+ * held by InventoryLoader, meant for very large catalogs.
+ *
+ * Every item lives in a numbered slot. Its fields are stored in parallel primitive
+ * arrays, and descriptions are packed as UTF-8 into one shared byte array. Item IDs
+ * are stored as long keys:
+ * - All-digit IDs without leading zeros (e.g. 22345532) are stored as their numeric value
+ * - Any other ID (e.g. 3030BX) is dictionary-encoded as a negative key
+ *
+ * An open-addressing table maps keys to slots, so find() is O(1) like HashMap.get,
+ * but there is no per-item object, key String or hash entry for the GC to trace.
+ */
+public class ColumnarInventory {
+    /** Marks an unused position in the index table */
+    private static final int NO_SLOT = -1;
+
+    /** Longest ID (in digits) that is always safe to store as a long */
+    private static final int MAX_NUMERIC_DIGITS = 18;
+
+    /** Item key of each slot */
+    private long[] keys;
+
+    /** Unit price of each slot */
+    private double[] prices;
+
+    /** Quantity on hand of each slot */
+    private int[] quantities;
+
+    /** In-stock flag of each slot, one bit per slot */
+    private long[] inStockBits;
+
+    /** Start of each slot's description in descriptionBytes */
+    private int[] descriptionOffsets;
+
+    /** Length in bytes of each slot's description */
+    private int[] descriptionLengths;
+
+    /** UTF-8 bytes of all descriptions, back to back */
+    private byte[] descriptionBytes;
+
+    /** Number of bytes used in descriptionBytes */
+    private int descriptionLength;
+
+    /** Number of slots in use */
+    private int size;
+
+    /** Open-addressing table of slot numbers; its length is always a power of two */
+    private int[] index;
+
+    /** Dictionary for IDs that are not plain numbers: ID to code, and code to ID */
+    private final HashMap<String, Integer> idCodes = new HashMap<>();
+    private final ArrayList<String> codeIds = new ArrayList<>();
+
+    /**
+     * Creates an empty store sized for the expected number of items.
+     *
+     * @param expectedItems The number of items the store should hold without resizing
+     */
+    public ColumnarInventory(int expectedItems) {
+        int capacity = Math.max(16, expectedItems);
+        keys = new long[capacity];
+        prices = new double[capacity];
+        quantities = new int[capacity];
+        inStockBits = new long[(capacity + 63) >>> 6];
+        descriptionOffsets = new int[capacity];
+        descriptionLengths = new int[capacity];
+        descriptionBytes = new byte[(int) Math.min(Integer.MAX_VALUE - 8, capacity * 32L)];
+        index = new int[tableSizeFor(capacity)];
+        Arrays.fill(index, NO_SLOT);
+    }
+
+    /**
+     * Builds a store straight from an inventory CSV file, without creating any
+     * InventoryItem objects.
+     *
+     * @param filePath The path to the CSV file containing inventory data
+     * @return The loaded store
+     * @throws IOException If the file cannot be read
+     */
+    public static ColumnarInventory load(String filePath) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            // Roughly 50 bytes per line in a typical inventory file
+            ColumnarInventory store = new ColumnarInventory((int) Math.min(Integer.MAX_VALUE - 8, channel.size() / 50));
+            new InventoryCsvParser().parse(channel, 0, channel.size(), store::put);
+            store.trimToSize();
+            return store;
+        }
+    }
+
+    /**
+     * Builds a store holding a copy of an existing inventory map.
+     *
+     * @param inventory The inventory to copy
+     * @return The new store
+     */
+    public static ColumnarInventory from(Map<String, InventoryItem> inventory) {
+        ColumnarInventory store = new ColumnarInventory(inventory.size());
+        for (InventoryItem item : inventory.values()) {
+            store.put(item.getItemID(), item.getDescription(), item.isInStock(), item.getQuantity(), item.getPrice());
+        }
+        return store;
+    }
+
+    /**
+     * Adds an item, or replaces every field of an item that is already present.
+     * A replaced description is not reclaimed until the store is rebuilt.
+     *
+     * @param itemID The unique identifier (SKU) for the item
+     * @param description The descriptive name/title of the item
+     * @param inStock Whether the item is in stock
+     * @param quantity The quantity available
+     * @param price The unit price of the item
+     */
+    public void put(String itemID, String description, boolean inStock, int quantity, double price) {
+        long key = encodeKey(itemID, true);
+        int slot = findSlot(key);
+        if (slot == NO_SLOT) {
+            slot = newSlot(key);
+        }
+
+        prices[slot] = price;
+        quantities[slot] = quantity;
+        setInStock(slot, inStock);
+
+        byte[] bytes = description.getBytes(StandardCharsets.UTF_8);
+        descriptionOffsets[slot] = descriptionLength;
+        descriptionLengths[slot] = bytes.length;
+        appendDescription(bytes);
+    }
+
+    /**
+     * Releases spare capacity in the columns and the description bytes, for use once
+     * a bulk load is finished.
+     */
+    public void trimToSize() {
+        int capacity = Math.max(size, 1);
+        keys = Arrays.copyOf(keys, capacity);
+        prices = Arrays.copyOf(prices, capacity);
+        quantities = Arrays.copyOf(quantities, capacity);
+        inStockBits = Arrays.copyOf(inStockBits, (capacity + 63) >>> 6);
+        descriptionOffsets = Arrays.copyOf(descriptionOffsets, capacity);
+        descriptionLengths = Arrays.copyOf(descriptionLengths, capacity);
+        descriptionBytes = Arrays.copyOf(descriptionBytes, descriptionLength);
+        if (tableSizeFor(size) < index.length) {
+            rehash(tableSizeFor(size));
+        }
+    }
+
+    /**
+     * Looks up the slot holding an item. This is the columnar equivalent of
+     * inventory.get(itemID).
+     *
+     * @param itemID The Item ID to find
+     * @return The item's slot, or -1 if the ID is not in the store
+     */
+    public int find(String itemID) {
+        long key = encodeKey(itemID, false);
+        return key == Long.MIN_VALUE ? NO_SLOT : findSlot(key);
+    }
+
+    /**
+     * @return The number of items in the store
+     */
+    public int size() { return size; }
+
+    /**
+     * @param slot A slot returned by find()
+     * @return The unique identifier (SKU) of the item
+     */
+    public String getItemID(int slot) {
+        long key = keys[slot];
+        return key >= 0 ? Long.toString(key) : codeIds.get((int) (-key - 1));
+    }
+
+    /**
+     * @param slot A slot returned by find()
+     * @return The descriptive name/title of the item
+     */
+    public String getDescription(int slot) {
+        return new String(descriptionBytes, descriptionOffsets[slot], descriptionLengths[slot], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param slot A slot returned by find()
+     * @return True if the item is currently in stock, false otherwise
+     */
+    public boolean isInStock(int slot) {
+        return (inStockBits[slot >>> 6] & (1L << slot)) != 0;
+    }
+
+    /**
+     * @param slot A slot returned by find()
+     * @return The current quantity available in inventory
+     */
+    public int getQuantity(int slot) { return quantities[slot]; }
+
+    /**
+     * @param slot A slot returned by find()
+     * @return The unit price of the item
+     */
+    public double getPrice(int slot) { return prices[slot]; }
+
+    /**
+     * Updates the quantity of an item and sets its inStock flag the same way
+     * InventoryItem.setQuantity does.
+     *
+     * @param slot A slot returned by find()
+     * @param quantity The new quantity to set
+     */
+    public void setQuantity(int slot, int quantity) {
+        quantities[slot] = quantity;
+        setInStock(slot, quantity > 0);
+    }
+
+    /**
+     * Turns an Item ID into its long key.
+     *
+     * @param itemID The Item ID
+     * @param assign Whether a dictionary code may be assigned to a new non-numeric ID
+     * @return The key, or Long.MIN_VALUE for an unknown non-numeric ID when assign is false
+     */
+    private long encodeKey(String itemID, boolean assign) {
+        int length = itemID.length();
+        if (length > 0 && length <= MAX_NUMERIC_DIGITS && (length == 1 || itemID.charAt(0) != '0')) {
+            long value = 0;
+            int i = 0;
+            for (; i < length; i++) {
+                char c = itemID.charAt(i);
+                if (c < '0' || c > '9') {
+                    break;
+                }
+                value = value * 10 + (c - '0');
+            }
+            if (i == length) {
+                return value;
+            }
+        }
+
+        Integer code = idCodes.get(itemID);
+        if (code == null) {
+            if (!assign) {
+                return Long.MIN_VALUE;
+            }
+            code = codeIds.size();
+            idCodes.put(itemID, code);
+            codeIds.add(itemID);
+        }
+        return -(long) code - 1;
+    }
+
+    /**
+     * @return The slot for a key, or NO_SLOT
+     */
+    private int findSlot(long key) {
+        int mask = index.length - 1;
+        for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+            int slot = index[i];
+            if (slot == NO_SLOT) {
+                return NO_SLOT;
+            }
+            if (keys[slot] == key) {
+                return slot;
+            }
+        }
+    }
+
+    /**
+     * Allocates the next slot for a new key and records it in the index table.
+     */
+    private int newSlot(long key) {
+        if (size == keys.length) {
+            growColumns();
+        }
+        if ((size + 1) * 4L > index.length * 3L) {
+            rehash(index.length * 2);
+        }
+
+        int slot = size++;
+        keys[slot] = key;
+        insertIntoIndex(key, slot);
+        return slot;
+    }
+
+    private void insertIntoIndex(long key, int slot) {
+        int mask = index.length - 1;
+        int i = hash(key) & mask;
+        while (index[i] != NO_SLOT) {
+            i = (i + 1) & mask;
+        }
+        index[i] = slot;
+    }
+
+    private void rehash(int tableSize) {
+        index = new int[tableSize];
+        Arrays.fill(index, NO_SLOT);
+        for (int slot = 0; slot < size; slot++) {
+            insertIntoIndex(keys[slot], slot);
+        }
+    }
+
+    private void growColumns() {
+        int capacity = Math.max(16, keys.length + (keys.length >> 1));
+        keys = Arrays.copyOf(keys, capacity);
+        prices = Arrays.copyOf(prices, capacity);
+        quantities = Arrays.copyOf(quantities, capacity);
+        inStockBits = Arrays.copyOf(inStockBits, (capacity + 63) >>> 6);
+        descriptionOffsets = Arrays.copyOf(descriptionOffsets, capacity);
+        descriptionLengths = Arrays.copyOf(descriptionLengths, capacity);
+    }
+
+    private void setInStock(int slot, boolean inStock) {
+        if (inStock) {
+            inStockBits[slot >>> 6] |= 1L << slot;
+        } else {
+            inStockBits[slot >>> 6] &= ~(1L << slot);
+        }
+    }
+
+    private void appendDescription(byte[] bytes) {
+        if (descriptionLength + bytes.length > descriptionBytes.length) {
+            long grown = Math.max((long) descriptionBytes.length * 3 / 2, (long) descriptionLength + bytes.length);
+            descriptionBytes = Arrays.copyOf(descriptionBytes, (int) Math.min(Integer.MAX_VALUE - 8, grown));
+        }
+        System.arraycopy(bytes, 0, descriptionBytes, descriptionLength, bytes.length);
+        descriptionLength += bytes.length;
+    }
+
+    private static int hash(long key) {
+        // MurmurHash3 finalizer
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb3fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    /**
+     * @return The smallest power-of-two table size that keeps the load factor at or below 0.75
+     */
+    private static int tableSizeFor(int items) {
+        long minimum = items * 4L / 3 + 1;
+        int size = 16;
+        while (size < minimum) {
+            size <<= 1;
+        }
+        return size;
+    }
+}
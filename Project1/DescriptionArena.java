@@ -0,0 +1,469 @@
+/*
+    Name : Colin Kirby
+    Course : CNT 4714 - Spring 2025
+    Assignment Title : Project 1 - An Event-driven Enterprise Simulation
+    Date : Monday, January 20, 2025
+*/
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Deduplicated storage for the item descriptions of one store.
+ *
+ * A catalog's descriptions repeat the same words over and over (product lines,
+ * sizes, colors, "model"), so they are stored as words: every distinct word is
+ * kept once as UTF-8, and a description is the list of its word numbers, written
+ * as varints. A description that is already stored is not stored again. An item
+ * keeps the int reference returned by intern() in place of a String, and the
+ * String is only rebuilt when get() is called to display or write it.
+ *
+ * Words are split at single spaces, so get() returns exactly the text that was
+ * interned, including repeated, leading or trailing spaces.
+ *
+ * intern() takes the arena's lock; get() takes none. Bytes are only ever
+ * appended, and an array that grows is copied before the copy is published, so a
+ * reader holding a reference always finds its bytes. A description that is no
+ * longer used stays until its store moves its items to a new arena: every full
+ * load starts one, and InventoryLoader.compactDescriptions() and TieredCatalog
+ * start one once most of the old one is unused. A reference is only meaningful
+ * with the arena that returned it, which is why an InventoryItem.State keeps both.
+ *
+ * Rebuilding a String costs several times a field read, so get() keeps the most
+ * recently rebuilt descriptions in a small table, and the items that pricing and
+ * search read over and over are rebuilt once.
+ */
+public final class DescriptionArena {
+    /** Marks an unused position in the lookup tables */
+    private static final int EMPTY = -1;
+
+    /** Slots in the table of rebuilt descriptions; a power of two */
+    private static final int DECODED_SLOTS = 512;
+
+    /** A rebuilt description; immutable, so the table can be read without locks */
+    private static final class Decoded {
+        final int reference;
+        final String text;
+
+        Decoded(int reference, String text) {
+            this.reference = reference;
+            this.text = text;
+        }
+    }
+
+    /**
+     * The arrays readers decode from, replaced together whenever one of them grows.
+     * Positions past the used counts are written under the lock before any
+     * reference to them is handed out.
+     */
+    private static final class Storage {
+        /** UTF-8 bytes of all words, back to back */
+        final byte[] wordBytes;
+
+        /** Start of each word in wordBytes; word w ends where word w + 1 starts */
+        final int[] wordStarts;
+
+        /** Each description: its word count, then its word numbers, as varints */
+        final byte[] descriptions;
+
+        Storage(byte[] wordBytes, int[] wordStarts, byte[] descriptions) {
+            this.wordBytes = wordBytes;
+            this.wordStarts = wordStarts;
+            this.descriptions = descriptions;
+        }
+    }
+
+    /** The arrays readers use */
+    private volatile Storage storage = new Storage(new byte[64], new int[16], new byte[64]);
+
+    /** Number of distinct words; wordStarts[words] is the end of the last one */
+    private int words;
+
+    /** Bytes used in wordBytes */
+    private int wordBytesUsed;
+
+    /** Bytes used in descriptions */
+    private int descriptionBytesUsed;
+
+    /** Number of distinct descriptions */
+    private int descriptionCount;
+
+    /** Open-addressing table of word numbers by content; its length is a power of two */
+    private int[] wordTable = filled(16);
+
+    /** Open-addressing table of description references by content; its length is a power of two */
+    private int[] descriptionTable = filled(16);
+
+    /** The word numbers of the description being interned; used under the lock */
+    private int[] codes = new int[16];
+
+    /** Recently rebuilt descriptions by reference, created on the first get() */
+    private Decoded[] decoded;
+
+    /**
+     * Creates an empty arena; it starts small and grows as descriptions are added.
+     */
+    public DescriptionArena() {}
+
+    /**
+     * Stores a description, or finds the identical one already stored.
+     *
+     * @param description The description
+     * @return The reference to pass to get()
+     */
+    public int intern(String description) {
+        byte[] utf8 = description.getBytes(StandardCharsets.UTF_8); // Encode outside the lock
+        return intern(utf8, 0, utf8.length);
+    }
+
+    /**
+     * Stores a description given as UTF-8 bytes, such as a field of a file being
+     * parsed, without making a String of it. The bytes are copied.
+     *
+     * @param utf8 Holds the description
+     * @param from The first byte of the description
+     * @param to The byte just past the description
+     * @return The reference to pass to get()
+     */
+    synchronized int intern(byte[] utf8, int from, int to) {
+        // Split and number the words without allocating
+        int count = 0;
+        int hash = 1; // Arrays.hashCode of the word numbers, as descriptionHash() computes it
+        for (int start = from, end = from; end <= to; end++) {
+            if (end == to || utf8[end] == ' ') {
+                if (count == codes.length) {
+                    codes = Arrays.copyOf(codes, count * 2);
+                }
+                int code = wordNumber(utf8, start, end);
+                codes[count++] = code;
+                hash = 31 * hash + code;
+                start = end + 1;
+            }
+        }
+        return descriptionReference(codes, count, hash);
+    }
+
+    /**
+     * Rebuilds a stored description, or finds it among the recently rebuilt ones.
+     *
+     * @param reference A reference returned by this arena's intern()
+     * @return The description
+     */
+    public String get(int reference) {
+        Decoded[] recent = decoded;
+        if (recent == null) {
+            recent = new Decoded[DECODED_SLOTS];
+            decoded = recent;
+        }
+        int slot = mix(reference) & (DECODED_SLOTS - 1);
+        Decoded found = recent[slot];
+        if (found == null || found.reference != reference) {
+            found = new Decoded(reference, decode(reference));
+            recent[slot] = found; // A racing get() may overwrite it; either entry is correct
+        }
+        return found.text;
+    }
+
+    /**
+     * Reads the word numbers of a stored description, for callers that work word
+     * by word and want to handle each distinct word once.
+     *
+     * @param reference A reference returned by this arena's intern()
+     * @param into Receives the word numbers, as many as fit
+     * @return The number of words in the description, which may be more than fit
+     */
+    int words(int reference, int[] into) {
+        byte[] data = storage.descriptions;
+        int position = reference;
+        int count = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = data[position++];
+            count |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                break;
+            }
+        }
+        for (int i = 0; i < count && i < into.length; i++) {
+            int code = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = data[position++];
+                code |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    break;
+                }
+            }
+            into[i] = code;
+        }
+        return count;
+    }
+
+    /**
+     * @param word A word number read with words()
+     * @return The word
+     */
+    String word(int word) {
+        Storage current = storage;
+        int start = current.wordStarts[word];
+        return new String(current.wordBytes, start, current.wordStarts[word + 1] - start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Rebuilds a stored description from its words.
+     */
+    private String decode(int reference) {
+        Storage current = storage;
+        byte[] data = current.descriptions;
+        int[] wordStarts = current.wordStarts;
+
+        // Add up the length, then copy the words
+        int position = reference;
+        int count = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = data[position++];
+            count |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                break;
+            }
+        }
+        int first = position;
+        int length = count - 1;
+        for (int i = 0; i < count; i++) {
+            int code = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = data[position++];
+                code |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    break;
+                }
+            }
+            length += wordStarts[code + 1] - wordStarts[code];
+        }
+        byte[] utf8 = new byte[length];
+        position = first;
+        int at = 0;
+        for (int i = 0; i < count; i++) {
+            int code = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = data[position++];
+                code |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    break;
+                }
+            }
+            if (i > 0) {
+                utf8[at++] = ' ';
+            }
+            int start = wordStarts[code];
+            System.arraycopy(current.wordBytes, start, utf8, at, wordStarts[code + 1] - start);
+            at += wordStarts[code + 1] - start;
+        }
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return The number of distinct descriptions stored
+     */
+    public synchronized int getDescriptionCount() { return descriptionCount; }
+
+    /**
+     * @return The number of distinct words stored
+     */
+    public synchronized int getWordCount() { return words; }
+
+    /**
+     * @return The bytes allocated for the arena's arrays and lookup tables
+     */
+    public synchronized long getAllocatedBytes() {
+        Storage current = storage;
+        return current.wordBytes.length + 4L * current.wordStarts.length + current.descriptions.length
+            + 4L * wordTable.length + 4L * descriptionTable.length
+            + (decoded != null ? 4L * DECODED_SLOTS : 0);
+    }
+
+    /**
+     * @return The number of the word utf8[from, to), adding it if it is new
+     */
+    private int wordNumber(byte[] utf8, int from, int to) {
+        int hash = 1;
+        for (int i = from; i < to; i++) {
+            hash = 31 * hash + utf8[i];
+        }
+        Storage current = storage;
+        int mask = wordTable.length - 1;
+        int slot = mix(hash) & mask;
+        while (wordTable[slot] != EMPTY) {
+            int word = wordTable[slot];
+            int start = current.wordStarts[word];
+            if (Arrays.equals(current.wordBytes, start, current.wordStarts[word + 1], utf8, from, to)) {
+                return word;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        // A new word
+        int length = to - from;
+        byte[] wordBytes = current.wordBytes;
+        int[] wordStarts = current.wordStarts;
+        if (wordBytesUsed + length > wordBytes.length) {
+            wordBytes = Arrays.copyOf(wordBytes, Math.max(wordBytes.length * 2, wordBytesUsed + length));
+        }
+        if (words + 2 > wordStarts.length) {
+            wordStarts = Arrays.copyOf(wordStarts, wordStarts.length * 2);
+        }
+        System.arraycopy(utf8, from, wordBytes, wordBytesUsed, length);
+        wordBytesUsed += length;
+        wordStarts[words + 1] = wordBytesUsed;
+        if (wordBytes != current.wordBytes || wordStarts != current.wordStarts) {
+            storage = new Storage(wordBytes, wordStarts, current.descriptions);
+        }
+        wordTable[slot] = words;
+        words++;
+        if (words * 2 > wordTable.length) {
+            wordTable = rehash(wordTable, this::wordHash);
+        }
+        return words - 1;
+    }
+
+    /**
+     * @return The reference of the description made of codes[0, count), adding it if it is new
+     */
+    private int descriptionReference(int[] codes, int count, int hash) {
+        byte[] data = storage.descriptions;
+        int mask = descriptionTable.length - 1;
+        int slot = mix(hash) & mask;
+        while (descriptionTable[slot] != EMPTY) {
+            int reference = descriptionTable[slot];
+            if (matches(data, reference, codes, count)) {
+                return reference;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        // A new description
+        if (descriptionBytesUsed + 5L * (count + 1) > data.length) {
+            long grown = Math.max(data.length * 2L, descriptionBytesUsed + 5L * (count + 1));
+            if (grown > Integer.MAX_VALUE - 8) {
+                throw new IllegalStateException("Description arena is full");
+            }
+            data = Arrays.copyOf(data, (int) grown);
+        }
+        int reference = descriptionBytesUsed;
+        int position = writeVarint(data, reference, count);
+        for (int i = 0; i < count; i++) {
+            position = writeVarint(data, position, codes[i]);
+        }
+        descriptionBytesUsed = position;
+        Storage current = storage;
+        if (data != current.descriptions) {
+            storage = new Storage(current.wordBytes, current.wordStarts, data);
+        }
+        descriptionTable[slot] = reference;
+        descriptionCount++;
+        if (descriptionCount * 2 > descriptionTable.length) {
+            descriptionTable = rehash(descriptionTable, this::descriptionHash);
+        }
+        return reference;
+    }
+
+    /**
+     * @return Whether the description stored at reference is made of codes[0, count);
+     *         compared in place, since most descriptions interned during a load are
+     *         repeats
+     */
+    private static boolean matches(byte[] data, int reference, int[] codes, int count) {
+        int position = reference;
+        for (int i = -1; i < count; i++) {
+            int value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = data[position++];
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    break;
+                }
+            }
+            if (value != (i < 0 ? count : codes[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return The word numbers of the description stored at reference
+     */
+    private static int[] wordsOf(byte[] data, int reference) {
+        int position = reference;
+        int[] codes = null;
+        for (int i = -1; codes == null || i < codes.length; i++) {
+            int value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = data[position++];
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    break;
+                }
+            }
+            if (i < 0) {
+                codes = new int[value];
+            } else {
+                codes[i] = value;
+            }
+        }
+        return codes;
+    }
+
+    private int wordHash(int word) {
+        Storage current = storage;
+        int hash = 1;
+        for (int i = current.wordStarts[word]; i < current.wordStarts[word + 1]; i++) {
+            hash = 31 * hash + current.wordBytes[i];
+        }
+        return hash;
+    }
+
+    private int descriptionHash(int reference) {
+        return Arrays.hashCode(wordsOf(storage.descriptions, reference));
+    }
+
+    /**
+     * Doubles an open-addressing table, placing each entry again by its hash.
+     */
+    private static int[] rehash(int[] table, IntUnaryOperator hashOf) {
+        int[] grown = filled(table.length * 2);
+        int mask = grown.length - 1;
+        for (int entry : table) {
+            if (entry != EMPTY) {
+                int slot = mix(hashOf.applyAsInt(entry)) & mask;
+                while (grown[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                grown[slot] = entry;
+            }
+        }
+        return grown;
+    }
+
+    /**
+     * Spreads a hash over the low bits used to pick a slot.
+     */
+    private static int mix(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private static int writeVarint(byte[] data, int position, int value) {
+        while ((value & ~0x7F) != 0) {
+            data[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data[position++] = (byte) value;
+        return position;
+    }
+
+    private static int[] filled(int length) {
+        int[] table = new int[length];
+        Arrays.fill(table, EMPTY);
+        return table;
+    }
+}
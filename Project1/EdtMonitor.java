@@ -0,0 +1,132 @@
+/*
+    Name : Colin Kirby
+    Course : CNT 4714 - Spring 2025
+    Assignment Title : Project 1 - An Event-driven Enterprise Simulation
+    Date : Monday, January 20, 2025
+*/
+
+import java.awt.AWTEvent;
+import java.awt.EventQueue;
+import java.awt.Toolkit;
+import java.awt.event.ActionEvent;
+import java.awt.event.InvocationEvent;
+
+/**
+ * Measures how long the Swing event dispatch thread is blocked.
+ *
+ * Installed on top of the system event queue, the monitor notes when each event
+ * is handed to the dispatch thread and when the thread next asks for an event.
+ * The time in between is time the user interface could not repaint or react.
+ * Because modal dialogs pump events through the same queue, a dialog that is
+ * open and idle does not count as blocking; only work done between two events
+ * does.
+ *
+ * Any single block longer than the threshold is reported on System.err along
+ * with the event that caused it.
+ */
+public class EdtMonitor extends EventQueue {
+    /** Blocks at least this long are reported by default */
+    public static final long DEFAULT_THRESHOLD_MILLIS = 100;
+
+    /** Blocks at least this long are reported */
+    private final long thresholdNanos;
+
+    /** The event being dispatched and when it was handed out; used on the dispatch thread only */
+    private AWTEvent current;
+    private long busySince;
+
+    /** Statistics, read from any thread */
+    private volatile long events;
+    private volatile long busyNanos;
+    private volatile long maxNanos;
+    private volatile long stalls;
+
+    private EdtMonitor(long thresholdMillis) {
+        this.thresholdNanos = thresholdMillis * 1_000_000;
+    }
+
+    /**
+     * Installs a monitor on the system event queue.
+     *
+     * @param thresholdMillis Blocks at least this long are reported
+     * @return The installed monitor
+     */
+    public static EdtMonitor install(long thresholdMillis) {
+        EdtMonitor monitor = new EdtMonitor(thresholdMillis);
+        Toolkit.getDefaultToolkit().getSystemEventQueue().push(monitor);
+        return monitor;
+    }
+
+    @Override
+    public AWTEvent getNextEvent() throws InterruptedException {
+        if (current != null) {
+            record(current, System.nanoTime() - busySince);
+            current = null;
+        }
+        AWTEvent event = super.getNextEvent();
+        current = event;
+        busySince = System.nanoTime();
+        return event;
+    }
+
+    /**
+     * Adds one block of the dispatch thread to the statistics.
+     */
+    private void record(AWTEvent event, long nanos) {
+        events++;
+        busyNanos += nanos;
+        if (nanos > maxNanos) {
+            maxNanos = nanos;
+        }
+        if (nanos >= thresholdNanos) {
+            stalls++;
+            System.err.printf("EDT blocked for %d ms by %s%n", nanos / 1_000_000, describe(event));
+        }
+    }
+
+    private static String describe(AWTEvent event) {
+        if (event instanceof ActionEvent) {
+            return "action \"" + ((ActionEvent) event).getActionCommand() + "\"";
+        }
+        if (event instanceof InvocationEvent) {
+            return "invokeLater task";
+        }
+        return event.getClass().getSimpleName();
+    }
+
+    /**
+     * @return The number of events dispatched
+     */
+    public long getEventCount() { return events; }
+
+    /**
+     * @return The total time the dispatch thread spent handling events, in nanoseconds
+     */
+    public long getBusyNanos() { return busyNanos; }
+
+    /**
+     * @return The longest time the dispatch thread spent on one event, in nanoseconds
+     */
+    public long getMaxNanos() { return maxNanos; }
+
+    /**
+     * @return The number of blocks at least as long as the threshold
+     */
+    public long getStallCount() { return stalls; }
+
+    /**
+     * Clears the statistics; call on the dispatch thread.
+     */
+    public void reset() {
+        events = 0;
+        busyNanos = 0;
+        maxNanos = 0;
+        stalls = 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("EDT: %d events, %.1f ms busy, longest %.1f ms, %d over %d ms",
+            events, busyNanos / 1e6, maxNanos / 1e6, stalls, thresholdNanos / 1_000_000);
+    }
+}
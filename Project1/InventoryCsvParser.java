@@ -0,0 +1,437 @@
+/*
+    Name : Colin Kirby
+    Course : CNT 4714 - Spring 2025
+    Assignment Title : Project 1 - An Event-driven Enterprise Simulation
+    Date : Monday, January 20, 2025
+*/
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Streaming parser for the inventory CSV format.
+ * Reads raw bytes from a FileChannel and walks each line with a cursor instead of
+ * splitting it, so no regex, field array or per-field substring is created. Only the
+ * item ID and description Strings are allocated for each row, and a parse that
+ * interns the descriptions into a DescriptionArena skips the description String.
+ *
+ * Line format (whitespace around fields is ignored):
+ * ItemID, "Description", InStock, Quantity, Price
+ *
+ * Quoted descriptions may contain commas, and a doubled quote ("") inside a quoted
+ * description is read as a single literal quote.
+ */
+public class InventoryCsvParser {
+    /**
+     * Receives the fields of each parsed row in file order.
+     */
+    public interface RowHandler {
+        void row(String itemID, String description, boolean inStock, int quantity, double price);
+    }
+
+    /**
+     * Receives the fields of each parsed row in file order, with the description
+     * interned into the arena given to parse().
+     */
+    public interface InternedRowHandler {
+        void row(String itemID, int description, boolean inStock, int quantity, double price);
+    }
+
+    /**
+     * A malformed line; the line number counts from the start of the parsed range
+     */
+    public static class MalformedLineException extends IllegalArgumentException {
+        private static final long serialVersionUID = 1L;
+
+        private final long line;
+        private final String reason;
+
+        MalformedLineException(long line, String reason) {
+            super("line " + line + ": " + reason);
+            this.line = line;
+            this.reason = reason;
+        }
+
+        /**
+         * @return The number of the malformed line within the parsed range, from 1
+         */
+        public long getLine() { return line; }
+
+        /**
+         * @return What is wrong with the line
+         */
+        public String getReason() { return reason; }
+    }
+
+    /** Default size of the read buffer; grows if a single line is longer than this */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** Exact powers of ten used to turn a decimal mantissa into a double */
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+        1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18
+    };
+
+    /** Read buffer; bytes of a line that straddles two reads are carried over */
+    private byte[] buffer = new byte[BUFFER_SIZE];
+
+    /** Scratch space for descriptions that contain escaped quotes */
+    private byte[] scratch = new byte[256];
+
+    /** The bytes of the description last read: the line buffer, or scratch when it had escaped quotes */
+    private byte[] descriptionBytes;
+
+    /** Start of the description last read in descriptionBytes */
+    private int descriptionStart;
+
+    /** Length of the description last read */
+    private int descriptionLength;
+
+    /** Current read position inside the line being parsed */
+    private int pos;
+
+    /** Number of lines handled so far, used in error messages */
+    private long lineNumber;
+
+    /**
+     * Parses every line in the byte range [start, end) of the channel.
+     * The range is expected to begin at the start of a line; a final line without
+     * a trailing newline is still parsed. Blank lines are skipped.
+     *
+     * @param channel The channel to read from (positional reads, the channel position is untouched)
+     * @param start The first byte of the range
+     * @param end The byte just past the range
+     * @param handler Receives each parsed row in order
+     * @throws IOException If the channel cannot be read
+     * @throws MalformedLineException If a line is malformed
+     */
+    public void parse(FileChannel channel, long start, long end, RowHandler handler) throws IOException {
+        parse(channel, start, end, handler, null, null);
+    }
+
+    /**
+     * Parses every line in the byte range [start, end) of the channel like
+     * parse(channel, start, end, handler), interning each description straight
+     * from the read buffer.
+     *
+     * @param channel The channel to read from (positional reads, the channel position is untouched)
+     * @param start The first byte of the range
+     * @param end The byte just past the range
+     * @param arena The arena to intern the descriptions into
+     * @param handler Receives each parsed row in order
+     * @throws IOException If the channel cannot be read
+     * @throws MalformedLineException If a line is malformed
+     */
+    public void parse(FileChannel channel, long start, long end, DescriptionArena arena, InternedRowHandler handler)
+            throws IOException {
+        parse(channel, start, end, null, arena, handler);
+    }
+
+    /**
+     * Parses the range, passing each row to handler, or to interned with its
+     * description interned into arena.
+     */
+    private void parse(FileChannel channel, long start, long end, RowHandler handler,
+                       DescriptionArena arena, InternedRowHandler interned) throws IOException {
+        long filePos = start;
+        int filled = 0;
+        lineNumber = 0;
+
+        while (filePos < end) {
+            // Grow the buffer when one line fills it entirely
+            if (filled == buffer.length) {
+                byte[] bigger = new byte[buffer.length * 2];
+                System.arraycopy(buffer, 0, bigger, 0, filled);
+                buffer = bigger;
+            }
+
+            int toRead = (int) Math.min(buffer.length - filled, end - filePos);
+            int read = channel.read(ByteBuffer.wrap(buffer, filled, toRead), filePos);
+            if (read < 0) {
+                break;
+            }
+            filePos += read;
+            filled += read;
+
+            // Parse every complete line in the buffer
+            int lineStart = 0;
+            for (int i = 0; i < filled; i++) {
+                if (buffer[i] == '\n') {
+                    parseLine(buffer, lineStart, i, handler, arena, interned);
+                    lineStart = i + 1;
+                }
+            }
+
+            // Carry the partial line over to the next read
+            filled -= lineStart;
+            System.arraycopy(buffer, lineStart, buffer, 0, filled);
+        }
+
+        if (filled > 0) {
+            parseLine(buffer, 0, filled, handler, arena, interned);
+        }
+    }
+
+    /**
+     * Parses a single line held in bytes [from, to) and passes its fields to the handler.
+     *
+     * @param b The buffer holding the line
+     * @param from The first byte of the line
+     * @param to The byte just past the line (the newline itself is excluded)
+     * @param handler Receives the parsed row
+     */
+    void parseLine(byte[] b, int from, int to, RowHandler handler) {
+        parseLine(b, from, to, handler, null, null);
+    }
+
+    /**
+     * Parses a single line, passing its fields to handler, or to interned with its
+     * description interned into arena.
+     */
+    private void parseLine(byte[] b, int from, int to, RowHandler handler,
+                           DescriptionArena arena, InternedRowHandler interned) {
+        lineNumber++;
+
+        // Drop a Windows line ending
+        if (to > from && b[to - 1] == '\r') {
+            to--;
+        }
+
+        pos = skipSpaces(b, from, to);
+        if (pos == to) {
+            return; // Blank line
+        }
+
+        String itemID = readPlainField(b, to);
+        readDescription(b, to);
+        boolean inStock = readBoolean(b, to);
+        int quantity = readInt(b, to);
+        double price = readDouble(b, to);
+
+        if (interned != null) {
+            interned.row(itemID, arena.intern(descriptionBytes, descriptionStart, descriptionStart + descriptionLength),
+                inStock, quantity, price);
+        } else {
+            handler.row(itemID, new String(descriptionBytes, descriptionStart, descriptionLength,
+                StandardCharsets.UTF_8), inStock, quantity, price);
+        }
+    }
+
+    /**
+     * Reads an unquoted field as a trimmed String and moves past its comma.
+     */
+    private String readPlainField(byte[] b, int to) {
+        int start = skipSpaces(b, pos, to);
+        int end = findComma(b, start, to);
+        pos = end < to ? end + 1 : to;
+        end = trimEnd(b, start, end);
+        return new String(b, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Finds the description field, which may be quoted and may contain commas,
+     * leaving its bytes in descriptionBytes, and moves past its comma.
+     */
+    private void readDescription(byte[] b, int to) {
+        int start = skipSpaces(b, pos, to);
+        if (start == to || b[start] != '"') {
+            int end = findComma(b, start, to);
+            pos = end < to ? end + 1 : to;
+            setDescription(b, start, trimEnd(b, start, end) - start);
+            return;
+        }
+
+        int i = start + 1;
+        int length = 0;
+        boolean escaped = false;
+        while (i < to) {
+            if (b[i] == '"') {
+                if (i + 1 < to && b[i + 1] == '"') {
+                    // Doubled quote inside a quoted field
+                    if (!escaped) {
+                        escaped = true;
+                        length = copyToScratch(b, start + 1, i - start - 1, 0);
+                    }
+                    length = copyToScratch(b, i, 1, length);
+                    i += 2;
+                    continue;
+                }
+                break;
+            }
+            if (escaped) {
+                length = copyToScratch(b, i, 1, length);
+            }
+            i++;
+        }
+        if (i == to) {
+            throw malformed("unterminated quoted description");
+        }
+
+        if (escaped) {
+            setDescription(scratch, 0, length);
+        } else {
+            setDescription(b, start + 1, i - start - 1);
+        }
+
+        int comma = findComma(b, i + 1, to);
+        pos = comma < to ? comma + 1 : to;
+    }
+
+    private void setDescription(byte[] bytes, int start, int length) {
+        descriptionBytes = bytes;
+        descriptionStart = start;
+        descriptionLength = length;
+    }
+
+    /**
+     * Reads a boolean field with the same rules as Boolean.parseBoolean:
+     * only "true" (any case) is true.
+     */
+    private boolean readBoolean(byte[] b, int to) {
+        int start = skipSpaces(b, pos, to);
+        int end = findComma(b, start, to);
+        pos = end < to ? end + 1 : to;
+        end = trimEnd(b, start, end);
+
+        return end - start == 4
+            && (b[start] | 0x20) == 't'
+            && (b[start + 1] | 0x20) == 'r'
+            && (b[start + 2] | 0x20) == 'u'
+            && (b[start + 3] | 0x20) == 'e';
+    }
+
+    /**
+     * Reads a signed decimal int field.
+     */
+    private int readInt(byte[] b, int to) {
+        int start = skipSpaces(b, pos, to);
+        int end = findComma(b, start, to);
+        pos = end < to ? end + 1 : to;
+        end = trimEnd(b, start, end);
+
+        int i = start;
+        boolean negative = false;
+        if (i < end && (b[i] == '-' || b[i] == '+')) {
+            negative = b[i] == '-';
+            i++;
+        }
+        if (i == end) {
+            throw malformed("missing quantity");
+        }
+
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = b[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw malformed("invalid quantity");
+            }
+            value = value * 10 + digit;
+            if (value > Integer.MAX_VALUE + 1L) {
+                throw malformed("quantity out of range");
+            }
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) {
+            throw malformed("quantity out of range");
+        }
+        return (int) value;
+    }
+
+    /**
+     * Reads a plain decimal number such as 4.50. The digits are collected into a long
+     * mantissa and divided by an exact power of ten, which gives the same correctly
+     * rounded result as Double.parseDouble. Anything unusual (exponents, very long
+     * values) falls back to Double.parseDouble.
+     */
+    private double readDouble(byte[] b, int to) {
+        int start = skipSpaces(b, pos, to);
+        int end = findComma(b, start, to);
+        pos = end < to ? end + 1 : to;
+        end = trimEnd(b, start, end);
+
+        int i = start;
+        boolean negative = false;
+        if (i < end && (b[i] == '-' || b[i] == '+')) {
+            negative = b[i] == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int scale = -1;
+        for (; i < end; i++) {
+            byte c = b[i];
+            if (c >= '0' && c <= '9') {
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+                if (scale >= 0) {
+                    scale++;
+                }
+            } else if (c == '.' && scale < 0) {
+                scale = 0;
+            } else {
+                break;
+            }
+        }
+
+        if (i != end || digits == 0 || digits > 15) {
+            try {
+                return Double.parseDouble(new String(b, start, end - start, StandardCharsets.UTF_8));
+            } catch (NumberFormatException e) {
+                throw malformed("invalid price");
+            }
+        }
+
+        double value = scale > 0 ? mantissa / POWERS_OF_TEN[scale] : mantissa;
+        return negative ? -value : value;
+    }
+
+    /**
+     * Appends bytes to the scratch buffer, growing it as needed.
+     *
+     * @return The new length of the scratch contents
+     */
+    private int copyToScratch(byte[] b, int from, int count, int length) {
+        if (length + count > scratch.length) {
+            byte[] bigger = new byte[Math.max(scratch.length * 2, length + count)];
+            System.arraycopy(scratch, 0, bigger, 0, length);
+            scratch = bigger;
+        }
+        System.arraycopy(b, from, scratch, length, count);
+        return length + count;
+    }
+
+    private static int skipSpaces(byte[] b, int i, int to) {
+        while (i < to && (b[i] == ' ' || b[i] == '\t')) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int trimEnd(byte[] b, int from, int end) {
+        while (end > from && (b[end - 1] == ' ' || b[end - 1] == '\t')) {
+            end--;
+        }
+        return end;
+    }
+
+    private static int findComma(byte[] b, int i, int to) {
+        while (i < to && b[i] != ',') {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * @return The number of lines handled by the last parse(), blank lines included
+     */
+    public long getLineCount() {
+        return lineNumber;
+    }
+
+    private IllegalArgumentException malformed(String reason) {
+        return new MalformedLineException(lineNumber, reason);
+    }
+}
@@ -9,10 +9,7 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.io.BufferedWriter;
-import java.io.FileWriter;
-import java.io.IOException;
-import java.util.ArrayList;
+import java.util.List;
 import java.awt.GridBagLayout;
 import java.awt.GridBagConstraints;
 import java.awt.Insets;
@@ -27,9 +24,14 @@ import javax.swing.event.DocumentEvent;
  * - Item entry and search functionality
  * - Shopping cart management
  * - Order processing and checkout
- * - Transaction logging
+ *
+ * The store logic itself lives in OrderEngine; this class is a client of one
+ * OrderSession and only handles input and display.
  */
 public class InventoryGUI implements ActionListener {
+    /** Most description matches suggested when an Item ID is not found */
+    private static final int MAX_SUGGESTIONS = 5;
+
     /** The main application window */
     private JFrame frame;
     
@@ -42,14 +44,11 @@ public class InventoryGUI implements ActionListener {
     /** Text areas for displaying item details and cart contents */
     private JTextArea resultArea, cartArea;
     
-    /** Manages the inventory data and operations */
-    private InventoryLoader inventoryLoader;
-    
-    /** List to store items currently in the shopping cart */
-    private ArrayList<CartItem> cart;
+    /** The order engine that holds the store logic */
+    private OrderEngine engine;
     
-    /** Tax rate constant for price calculations */
-    private static final double TAX_RATE = 0.06; // 6% tax rate
+    /** The shopper's session, holding the shopping cart */
+    private OrderSession session;
     
     /** Tracks the current item number being processed */
     private int currentItemNumber = 1;
@@ -65,9 +64,6 @@ public class InventoryGUI implements ActionListener {
     
     /** Labels for input fields and details section */
     private JLabel itemIdLabel, quantityLabel, detailsLabel;
-    
-    /** Maximum number of items allowed in the cart */
-    private static final int MAX_CART_SIZE = 5;
 
     /**
      * Constructs the main GUI window and initializes all components.
@@ -81,8 +77,18 @@ public class InventoryGUI implements ActionListener {
      * @param loader The InventoryLoader instance containing the store's inventory data
      */
     public InventoryGUI(InventoryLoader loader) {
-        this.inventoryLoader = loader;
-        this.cart = new ArrayList<>();
+        this(new OrderEngine(loader));
+    }
+
+    /**
+     * Constructs the main GUI window as a client of an existing order engine,
+     * with its own shopping session.
+     *
+     * @param engine The order engine that holds the store logic
+     */
+    public InventoryGUI(OrderEngine engine) {
+        this.engine = engine;
+        this.session = engine.openSession();
 
         // Set up the main frame
         frame = new JFrame("Nile.Com - Spring 2025");
@@ -305,99 +311,96 @@ public class InventoryGUI implements ActionListener {
                 return;
             }
 
-            InventoryItem item = inventoryLoader.getInventory().get(itemId);
-
-            if (item != null) {
-                if (!item.isInStock() || item.getQuantity() <= 0) {
-                    // Show error dialog for out of stock items
-                    JOptionPane.showMessageDialog(
-                        frame,
-                        "Sorry... that item is out of stock, please try another item",
-                        "Nile Dot Com - ERROR",
-                        JOptionPane.ERROR_MESSAGE
-                    );
-                    
-                    // Clear only the item ID and quantity fields
-                    itemIdField.setText("");
-                    quantityField.setText("");
-                    searchSuccessful = false;
-                    updateButtonStates();
-                    return;
-                }
-                
-                // Check if requested quantity exceeds available stock
-                try {
-                    int requestedQuantity = Integer.parseInt(quantityField.getText().trim());
-                    if (requestedQuantity > item.getQuantity()) {
-                        // Show insufficient stock dialog
-                        JOptionPane.showMessageDialog(
-                            frame,
-                            String.format("Insufficient stock. Only %d on hand. Please reduce the quantity.", 
-                                item.getQuantity()),
-                            "Nile Dot Com - ERROR",
-                            JOptionPane.ERROR_MESSAGE
-                        );
-                        
-                        // Clear only the quantity field
-                        quantityField.setText("");
-                        searchSuccessful = false;
-                        updateButtonStates();
-                        return;
+            // Get quantity (if entered)
+            int quantity = 0;
+            try {
+                quantity = Integer.parseInt(quantityField.getText().trim());
+            } catch (NumberFormatException ex) {
+                // If no quantity entered or invalid, just show item details without quantity-specific info
+            }
+
+            LookupResult lookup = engine.search(itemId, quantity);
+            InventoryItem item = lookup.getItem();
+
+            if (lookup.getStatus() == LookupResult.Status.NOT_FOUND) {
+                // Show error dialog for items not found in inventory, suggesting items
+                // whose descriptions match what was typed
+                StringBuilder message = new StringBuilder("Item ID " + itemId + " not in file");
+                List<InventoryItem> matches = engine.searchDescriptions(itemId, MAX_SUGGESTIONS);
+                if (!matches.isEmpty()) {
+                    message.append("\n\nItems matching \"").append(itemId).append("\":");
+                    try (InventoryVersions.Snapshot snapshot = engine.getVersions().snapshot()) {
+                        for (InventoryItem match : matches) {
+                            message.append("\n").append(match.getItemID()).append("  ")
+                                .append(match.at(snapshot).getDescription());
+                        }
                     }
-                } catch (NumberFormatException ex) {
-                    // If quantity field is empty or invalid, proceed with showing item details
                 }
+                JOptionPane.showMessageDialog(
+                    frame,
+                    message.toString(),
+                    "Nile Dot Com - ERROR",
+                    JOptionPane.ERROR_MESSAGE
+                );
                 
-                searchSuccessful = true;
+                // Clear only the item ID field
+                itemIdField.setText("");
+                searchSuccessful = false;
+                updateButtonStates();
+            } else if (lookup.getStatus() == LookupResult.Status.OUT_OF_STOCK) {
+                // Show error dialog for out of stock items
+                JOptionPane.showMessageDialog(
+                    frame,
+                    "Sorry... that item is out of stock, please try another item",
+                    "Nile Dot Com - ERROR",
+                    JOptionPane.ERROR_MESSAGE
+                );
                 
-                // Get quantity (if entered)
-                int quantity = 0;
-                try {
-                    quantity = Integer.parseInt(quantityField.getText().trim());
-                } catch (NumberFormatException ex) {
-                    // If no quantity entered or invalid, just show item details without quantity-specific info
-                }
-
-                double unitPrice = item.getPrice();
-                int discountPercent = getDiscountPercentage(quantity);
-                double finalPrice = quantity * unitPrice * (1 - discountPercent/100.0);
+                // Clear only the item ID and quantity fields
+                itemIdField.setText("");
+                quantityField.setText("");
+                searchSuccessful = false;
+                updateButtonStates();
+            } else if (lookup.getStatus() == LookupResult.Status.INSUFFICIENT_STOCK) {
+                // Show insufficient stock dialog
+                JOptionPane.showMessageDialog(
+                    frame,
+                    String.format("Insufficient stock. Only %d on hand. Please reduce the quantity.", 
+                        item.getQuantity()),
+                    "Nile Dot Com - ERROR",
+                    JOptionPane.ERROR_MESSAGE
+                );
+                
+                // Clear only the quantity field
+                quantityField.setText("");
+                searchSuccessful = false;
+                updateButtonStates();
+            } else {
+                searchSuccessful = true;
                 
                 // Format the result string with all required information
                 StringBuilder result = new StringBuilder();
                 result.append(String.format("%s \"%s\" %s", 
                     itemId,
-                    item.getDescription(),
-                    formatCurrency(unitPrice)));
+                    lookup.getState().getDescription(),
+                    OrderEngine.formatCents(lookup.getState().getPriceCents())));
                 
-                if (quantity > 0) {
+                if (lookup.getQuantity() > 0) {
                     result.append(String.format(" %d %d%% %s",
-                        quantity,
-                        discountPercent,
-                        formatCurrency(finalPrice)));
+                        lookup.getQuantity(),
+                        lookup.getDiscountPercentage(),
+                        OrderEngine.formatCents(lookup.getTotalCents())));
                 }
                 
                 resultArea.setText(result.toString());
                 updateButtonStates();
 
                 // On successful search, increment the item number for details label
-                currentItemNumber = cart.size() + 1;
+                currentItemNumber = session.getCartSize() + 1;
                 updateLabels();
-            } else {
-                // Show error dialog for items not found in inventory
-                JOptionPane.showMessageDialog(
-                    frame,
-                    "Item ID " + itemId + " not in file",
-                    "Nile Dot Com - ERROR",
-                    JOptionPane.ERROR_MESSAGE
-                );
-                
-                // Clear only the item ID field
-                itemIdField.setText("");
-                searchSuccessful = false;
-                updateButtonStates();
             }
         } else if (e.getSource() == addToCartButton) {
-            if (cart.size() >= MAX_CART_SIZE) {
+            if (session.isCartFull()) {
                 JOptionPane.showMessageDialog(
                     frame,
                     "Cart is full (5 items maximum). Please checkout, delete items, or start a new order.",
@@ -412,42 +415,83 @@ public class InventoryGUI implements ActionListener {
 
             try {
                 int quantity = Integer.parseInt(quantityText);
-                InventoryItem item = inventoryLoader.getInventory().get(itemId);
+                LookupResult added = session.addToCart(itemId, quantity);
+
+                switch (added.getStatus()) {
+                    case OK:
+                        // Update displays
+                        updateCartDisplay();
+                        updateSubtotalLabel();
 
-                if (item != null && item.isInStock()) {
-                    // Check if requested quantity exceeds available stock
-                    if (quantity > item.getQuantity()) {
+                        // Clear only input fields, keep the result area (details) displayed
+                        itemIdField.setText("");
+                        quantityField.setText("");
+
+                        // Reset search status
+                        searchSuccessful = false;
+                        updateButtonStates();
+
+                        // Update labels after adding item
+                        updateLabels();
+                        break;
+                    case INSUFFICIENT_STOCK:
                         JOptionPane.showMessageDialog(
                             frame,
                             String.format("Insufficient stock. Only %d left. Please reduce the quantity.", 
-                                item.getQuantity()),
+                                added.getState().getQuantity()),
                             "Nile Dot Com - ERROR",
                             JOptionPane.ERROR_MESSAGE
                         );
-                        
+
                         // Clear only the quantity field
                         quantityField.setText("");
-                        return;
-                    }
+                        break;
+                    case OUT_OF_STOCK:
+                        JOptionPane.showMessageDialog(
+                            frame,
+                            "Sorry... that item is out of stock, please try another item",
+                            "Nile Dot Com - ERROR",
+                            JOptionPane.ERROR_MESSAGE
+                        );
 
-                    // Add item to cart with current cart size + 1 as the item number
-                    cart.add(new CartItem(item, quantity, cart.size() + 1));
-                    item.setQuantity(item.getQuantity() - quantity);
-
-                    // Update displays
-                    updateCartDisplay();
-                    updateSubtotalLabel();
-                    
-                    // Clear only input fields, keep the result area (details) displayed
-                    itemIdField.setText("");
-                    quantityField.setText("");
-                    
-                    // Reset search status
-                    searchSuccessful = false;
-                    updateButtonStates();
-                    
-                    // Update labels after adding item
-                    updateLabels();
+                        // Clear only the item ID and quantity fields
+                        itemIdField.setText("");
+                        quantityField.setText("");
+                        searchSuccessful = false;
+                        updateButtonStates();
+                        break;
+                    case NOT_FOUND:
+                        JOptionPane.showMessageDialog(
+                            frame,
+                            "Item ID " + itemId + " not in file",
+                            "Nile Dot Com - ERROR",
+                            JOptionPane.ERROR_MESSAGE
+                        );
+
+                        // Clear only the item ID field
+                        itemIdField.setText("");
+                        searchSuccessful = false;
+                        updateButtonStates();
+                        break;
+                    case INVALID_QUANTITY:
+                        resultArea.setText("Error: Invalid quantity. Please enter a positive number.");
+                        break;
+                    case CART_FULL:
+                        JOptionPane.showMessageDialog(
+                            frame,
+                            "Cart is full (5 items maximum). Please checkout, delete items, or start a new order.",
+                            "Nile Dot Com - Cart Full",
+                            JOptionPane.WARNING_MESSAGE
+                        );
+                        break;
+                    case ORDER_CLOSED:
+                        JOptionPane.showMessageDialog(
+                            frame,
+                            "This order is closed. Please start a new order.",
+                            "Nile Dot Com - ERROR",
+                            JOptionPane.ERROR_MESSAGE
+                        );
+                        break;
                 }
             } catch (NumberFormatException ex) {
                 resultArea.setText("Error: Invalid quantity. Please enter a valid number.");
@@ -467,10 +511,12 @@ public class InventoryGUI implements ActionListener {
      * Updates the shopping cart display panel.
      * - Updates the header to show current item count
      * - Displays each item in the cart with full details
-     * - Maintains empty slots up to MAX_CART_SIZE
+     * - Maintains empty slots up to OrderEngine.MAX_CART_SIZE
      * - Updates button states based on cart contents
      */
     private void updateCartDisplay() {
+        List<CartItem> cart = session.getCart();
+
         // Get the cart items panel
         JPanel cartPanel = (JPanel) mainPanel.getComponent(1);
         JPanel cartWrapperPanel = (JPanel) cartPanel.getComponent(0);
@@ -500,17 +546,14 @@ public class InventoryGUI implements ActionListener {
             if (i < cart.size()) {
                 CartItem cartItem = cart.get(i);
                 InventoryItem item = cartItem.getItem();
-                double unitPrice = item.getPrice();
-                int quantity = cartItem.getQuantity();
-                double totalPrice = quantity * unitPrice * (1 - getDiscountPercentage(quantity)/100.0);
                 
-                String itemText = String.format("Item %d - SKU: %s, Desc: \"%s\", Price Ea. $%.2f, Qty: %d, Total: $%.2f",
+                String itemText = String.format("Item %d - SKU: %s, Desc: \"%s\", Price Ea. %s, Qty: %d, Total: %s",
                     i + 1,
                     item.getItemID(),
-                    item.getDescription(),
-                    unitPrice,
-                    quantity,
-                    totalPrice);
+                    cartItem.getDescription(),
+                    OrderEngine.formatCents(cartItem.getUnitPriceCents()),
+                    cartItem.getQuantity(),
+                    OrderEngine.formatCents(cartItem.getTotalCents()));
                 
                 JLabel itemLabel = new JLabel(itemText);
                 itemLabel.setBorder(BorderFactory.createEmptyBorder(0, 5, 0, 5));
@@ -526,101 +569,70 @@ public class InventoryGUI implements ActionListener {
     }
 
     /**
-     * Processes the checkout operation.
-     * - Generates a unique transaction ID
-     * - Creates an invoice with all items and totals
-     * - Logs the transaction to transactions.csv
-     * - Displays the final invoice to the user
-     * - Disables appropriate UI elements after checkout
+     * Processes the checkout operation without blocking the event dispatch thread:
+     * - Shows that checkout is in progress and locks the controls
+     * - Checks out the session in the background, which logs the transaction to
+     *   transactions.csv and builds the invoice
+     * - On success, displays the final invoice and disables the order controls
+     * - On failure, reports the error and unlocks the controls so the unchanged
+     *   cart can be checked out again
      */
     private void handleCheckout() {
-        if (cart.isEmpty()) {
-            return;
-        }
+        showCheckoutInProgress();
+        new CheckoutWorker(session, new CheckoutWorker.Listener() {
+            @Override
+            public void checkedOut(Order order, String invoice) {
+                frame.setCursor(Cursor.getDefaultCursor());
+                if (order == null) {
+                    resultArea.setText("");
+                    updateButtonStates();
+                    return;
+                }
+                showCheckoutComplete(invoice);
+            }
 
-        // Get current date and time
-        java.time.LocalDateTime now = java.time.LocalDateTime.now();
-        
-        // Format for invoice display (January 8, 2025, 3:28:45 PM EST)
-        String invoiceDateTime = now.format(java.time.format.DateTimeFormatter
-            .ofPattern("MMMM d, yyyy, h:mm:ss a")) + " EST";
-        
-        // Format for transaction ID (DDMMYYYYHHMMSS)
-        String transactionId = now.format(java.time.format.DateTimeFormatter.ofPattern("ddMMyyyyHHmmss"));
-        
-        // Format date and time components for transaction log
-        String transactionDate = now.format(java.time.format.DateTimeFormatter.ofPattern("MMMM d"));
-        String transactionYear = now.format(java.time.format.DateTimeFormatter.ofPattern("yyyy"));
-        String transactionTime = now.format(java.time.format.DateTimeFormatter.ofPattern("h:mm:ss a")) + " EST";
-        
-        // Create invoice message
-        StringBuilder invoice = new StringBuilder();
-        invoice.append("Date: ").append(invoiceDateTime).append("\n\n");
-        invoice.append("Number of line items: ").append(cart.size()).append("\n\n");
-        invoice.append("Item# / ID / Title / Price / Qty / Disc % / Subtotal:\n\n");
-
-        // Add each item
-        double orderSubtotal = 0.0;
-        int itemNumber = 1;
-        
-        // Write to transaction.csv
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter("transactions.csv", true))) {
-            for (CartItem cartItem : cart) {
-                InventoryItem item = cartItem.getItem();
-                int quantity = cartItem.getQuantity();
-                double unitPrice = item.getPrice();
-                int discountPercent = getDiscountPercentage(quantity);
-                double itemTotal = quantity * unitPrice * (1 - discountPercent/100.0);
-                orderSubtotal += itemTotal;
-
-                // Write transaction entry with date and time
-                writer.write(String.format("%s, %s, \"%s\", %.2f, %d, %.1f, $%.2f, %s, %s, %s\n",
-                    transactionId,
-                    item.getItemID(),
-                    item.getDescription(),
-                    unitPrice,
-                    quantity,
-                    discountPercent/100.0,
-                    itemTotal,
-                    transactionDate,
-                    transactionYear,
-                    transactionTime));
-
-                // Add to invoice display
-                invoice.append(String.format("%d. %s \"%s\" %s %d %d%% %s\n",
-                    itemNumber++,
-                    item.getItemID(),
-                    item.getDescription(),
-                    formatCurrency(unitPrice),
-                    quantity,
-                    discountPercent,
-                    formatCurrency(itemTotal)));
+            @Override
+            public void checkoutFailed(Throwable cause) {
+                frame.setCursor(Cursor.getDefaultCursor());
+                resultArea.setText("Checkout failed. Your cart is unchanged; please try again.");
+                updateButtonStates();
+                JOptionPane.showMessageDialog(
+                    frame,
+                    "Error writing to transaction file: " + cause.getMessage(),
+                    "Error",
+                    JOptionPane.ERROR_MESSAGE
+                );
             }
-            // Add an extra newline to separate orders
-            writer.write("\n");
-        } catch (IOException ex) {
-            JOptionPane.showMessageDialog(
-                frame,
-                "Error writing to transaction file: " + ex.getMessage(),
-                "Error",
-                JOptionPane.ERROR_MESSAGE
-            );
-        }
+        }).execute();
+    }
 
-        // Add totals to invoice
-        double taxAmount = orderSubtotal * TAX_RATE;
-        double orderTotal = orderSubtotal + taxAmount;
+    /**
+     * Locks every control while a checkout is being saved.
+     */
+    private void showCheckoutInProgress() {
+        resultArea.setText("Checking out... saving your order.");
+        frame.setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        itemIdField.setEnabled(false);
+        quantityField.setEnabled(false);
+        for (JButton button : new JButton[] {searchButton, addToCartButton, deleteLastItemButton,
+                                             checkoutButton, emptyCartButton, exitButton}) {
+            button.setEnabled(false);
+            button.setBackground(new Color(200, 200, 200));
+        }
+    }
 
-        invoice.append("\n\nOrder subtotal: ").append(formatCurrency(orderSubtotal)).append("\n\n");
-        invoice.append("Tax rate: ").append(String.format("%.0f%%", TAX_RATE * 100)).append("\n\n");
-        invoice.append("Tax amount: ").append(formatCurrency(taxAmount)).append("\n\n");
-        invoice.append("ORDER TOTAL: ").append(formatCurrency(orderTotal)).append("\n\n");
-        invoice.append("Thanks for shopping at Nile Dot Com!");
+    /**
+     * Displays the final invoice and leaves only New Order and Exit enabled.
+     *
+     * @param invoice The invoice text
+     */
+    private void showCheckoutComplete(String invoice) {
+        resultArea.setText("Order complete.");
 
         // Show invoice
         JOptionPane.showMessageDialog(
             frame,
-            invoice.toString(),
+            invoice,
             "Nile Dot Com - FINAL INVOICE",
             JOptionPane.INFORMATION_MESSAGE
         );
@@ -658,95 +670,13 @@ public class InventoryGUI implements ActionListener {
         searchSuccessful = false;
     }
 
-    /**
-     * Calculates the current subtotal of all items in the cart.
-     * 
-     * @return The sum of all item prices multiplied by their quantities
-     */
-    private double calculateSubtotal() {
-        double subtotal = 0;
-        for (CartItem item : cart) {
-            subtotal += item.getItem().getPrice() * item.getQuantity();
-        }
-        return subtotal;
-    }
-
-    /**
-     * Calculates any applicable discount based on the subtotal.
-     * 
-     * @param subtotal The current cart subtotal
-     * @return The discount amount (10% for purchases over $100)
-     */
-    private double calculateDiscount(double subtotal) {
-        // Simple discount rule: 10% off for purchases over $100
-        return subtotal >= 100 ? subtotal * 0.10 : 0;
-    }
-
-    /**
-     * Generates a formatted invoice string containing all order details.
-     * 
-     * @param subtotal The order subtotal
-     * @param discount Any applicable discount
-     * @param tax The calculated tax amount
-     * @param total The final total including tax and discounts
-     * @return A formatted string containing the complete invoice
-     */
-    private String generateInvoice(double subtotal, double discount, double tax, double total) {
-        StringBuilder invoice = new StringBuilder("=== INVOICE ===\n\n");
-        invoice.append("Items:\n");
-        for (CartItem item : cart) {
-            invoice.append(String.format("%s x%d: $%.2f\n", 
-                item.getItem().getDescription(),
-                item.getQuantity(),
-                item.getItem().getPrice() * item.getQuantity()));
-        }
-        invoice.append(String.format("\nSubtotal: $%.2f\n", subtotal));
-        invoice.append(String.format("Discount: $%.2f\n", discount));
-        invoice.append(String.format("Tax (6%%): $%.2f\n", tax));
-        invoice.append(String.format("Total: $%.2f", total));
-        return invoice.toString();
-    }
-
-    /**
-     * Logs the transaction details to the transactions.csv file.
-     * 
-     * @param subtotal The order subtotal
-     * @param discount Any applied discount
-     * @param tax The tax amount
-     * @param total The final total
-     */
-    private void logTransaction(double subtotal, double discount, double tax, double total) {
-        String timestamp = String.valueOf(System.currentTimeMillis());
-        try (FileWriter fw = new FileWriter("transactions.csv", true);
-             BufferedWriter bw = new BufferedWriter(fw)) {
-            
-            StringBuilder transaction = new StringBuilder();
-            transaction.append(timestamp).append(",");
-            // Add items
-            for (CartItem item : cart) {
-                transaction.append(item.getItem().getItemID())
-                          .append(":").append(item.getQuantity()).append(";");
-            }
-            transaction.append(",")
-                      .append(String.format("%.2f", subtotal)).append(",")
-                      .append(String.format("%.2f", discount)).append(",")
-                      .append(String.format("%.2f", tax)).append(",")
-                      .append(String.format("%.2f", total)).append("\n");
-            
-            bw.write(transaction.toString());
-            
-        } catch (IOException e) {
-            resultArea.setText("Error logging transaction: " + e.getMessage());
-        }
-    }
-
     /**
      * Updates all input field labels to reflect the current item number.
      * Ensures labels stay synchronized with the current operation.
      */
     private void updateLabels() {
         // Update input field labels based on cart size + 1, but never exceed 5
-        int nextItemNumber = Math.min(cart.size() + 1, 5);
+        int nextItemNumber = Math.min(session.getCartSize() + 1, 5);
         itemIdLabel.setText(String.format("Enter Item ID for Item #%d:", nextItemNumber));
         quantityLabel.setText(String.format("Enter Quantity for Item #%d:", nextItemNumber));
         searchButton.setText(String.format("Search for Item #%d", nextItemNumber));
@@ -761,16 +691,8 @@ public class InventoryGUI implements ActionListener {
      * Includes the item count and formatted currency amount.
      */
     private void updateSubtotalLabel() {
-        double subtotal = 0.0;
-        for (CartItem item : cart) {
-            double unitPrice = item.getItem().getPrice();
-            int quantity = item.getQuantity();
-            int discountPercent = getDiscountPercentage(quantity);
-            double itemTotal = quantity * unitPrice * (1 - discountPercent/100.0);
-            subtotal += itemTotal;
-        }
         subtotalLabel.setText(String.format("Current Subtotal for %d Item(s): %s", 
-            cart.size(), formatCurrency(subtotal)));
+            session.getCartSize(), OrderEngine.formatCents(session.getSubtotalCents())));
     }
 
     /**
@@ -781,7 +703,7 @@ public class InventoryGUI implements ActionListener {
      * - Re-enables input fields and buttons
      */
     private void handleEmptyCart() {
-        if (!cart.isEmpty() || !itemIdField.isEnabled()) {
+        if (session.getCartSize() > 0 || !itemIdField.isEnabled()) {
             int result = JOptionPane.showConfirmDialog(
                 frame,
                 "Are you sure you want to empty the cart and start a new order?",
@@ -790,8 +712,8 @@ public class InventoryGUI implements ActionListener {
             );
             
             if (result == JOptionPane.YES_OPTION) {
-                // Clear cart and reset everything
-                cart.clear();
+                // Clear cart (returning any stock it still holds) and reset everything
+                session.emptyCart();
                 currentItemNumber = 1;
                 
                 // Clear and re-enable input fields
@@ -839,12 +761,9 @@ public class InventoryGUI implements ActionListener {
      * - Updates button states
      */
     private void handleDeleteLastItem() {
-        if (!cart.isEmpty()) {
-            CartItem lastItem = cart.remove(cart.size() - 1);
-            // Restore the quantity to inventory
-            InventoryItem item = lastItem.getItem();
-            item.setQuantity(item.getQuantity() + lastItem.getQuantity());
-            
+        // Removing the item restores its quantity to inventory
+        CartItem lastItem = session.deleteLastItem();
+        if (lastItem != null) {
             // Update displays
             updateCartDisplay();
             updateSubtotalLabel();
@@ -853,7 +772,7 @@ public class InventoryGUI implements ActionListener {
             resultArea.setText("");
             
             // Update currentItemNumber to match cart size + 1
-            currentItemNumber = cart.size() + 1;
+            currentItemNumber = session.getCartSize() + 1;
             updateLabels();
             
             searchSuccessful = false;
@@ -890,8 +809,8 @@ public class InventoryGUI implements ActionListener {
      * Also updates button appearances to reflect their states.
      */
     private void updateButtonStates() {
-        boolean cartHasItems = !cart.isEmpty();
-        boolean cartIsFull = cart.size() >= MAX_CART_SIZE;
+        boolean cartHasItems = session.getCartSize() > 0;
+        boolean cartIsFull = session.isCartFull();
         
         // Search and Add buttons are only enabled if cart isn't full
         searchButton.setEnabled(!searchSuccessful && !cartIsFull);
@@ -917,27 +836,4 @@ public class InventoryGUI implements ActionListener {
         itemIdField.setEnabled(!cartIsFull);
         quantityField.setEnabled(!cartIsFull);
     }
-
-    /**
-     * Calculates the discount percentage based on quantity ordered.
-     * 
-     * @param quantity The number of items ordered
-     * @return The discount percentage (0, 10, 15, or 20)
-     */
-    private int getDiscountPercentage(int quantity) {
-        if (quantity >= 15) return 20;
-        if (quantity >= 10) return 15;
-        if (quantity >= 5) return 10;
-        return 0;
-    }
-
-    /**
-     * Formats a number as a currency string with $ and 2 decimal places.
-     * 
-     * @param amount The amount to format
-     * @return A formatted currency string (e.g., "$10.99")
-     */
-    private String formatCurrency(double amount) {
-        return String.format("$%.2f", amount);
-    }
 }
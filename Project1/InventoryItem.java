@@ -5,41 +5,196 @@
     Date : Monday, January 20, 2025
 */
 
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
 /**
  * Represents an item in the inventory system with its associated properties.
  * This class manages the core item data including stock status, quantity, and pricing.
+ *
+ * The item's changing fields (stock, price, description and the listed in-stock
+ * flag) live together in an immutable State. Every change installs a new State
+ * with a compare-and-set, stamps it with a version from the item's
+ * InventoryVersions, and keeps the older ones that open snapshots still read: the
+ * getters read the newest State, and at(snapshot) reads the one a snapshot sees,
+ * without locks. reserve() checks and takes the available quantity in one
+ * compare-and-set, so it can never take it below zero.
+ *
+ * Descriptions are kept in the DescriptionArena of the item's store, so a State
+ * holds the arena and an int reference instead of a String; getDescription()
+ * rebuilds the String, or finds it among the arena's recently rebuilt ones.
  */
 public class InventoryItem {
+    /** Atomic access to the newest state */
+    private static final AtomicReferenceFieldUpdater<InventoryItem, State> STATE =
+        AtomicReferenceFieldUpdater.newUpdater(InventoryItem.class, State.class, "state");
+
     /** The unique identifier (SKU) for this item */
     private String itemID;
-    
-    /** The descriptive name/title of the item */
-    private String description;
-    
-    /** Flag indicating whether the item is currently in stock */
-    private boolean inStock;
-    
-    /** The current quantity available in inventory */
-    private int quantity;
-    
-    /** The unit price of the item */
-    private double price;
-
-    /**
-     * Creates a new inventory item with the specified properties.
+
+    /** The version clock of the store the item belongs to */
+    private final InventoryVersions versions;
+
+    /** The newest state of the item; older states hang off it */
+    private volatile State state;
+
+    /** The description words, as last tokenized for the promotion rules, or null */
+    private volatile Words words;
+
+    /** The lower-case words of one description */
+    private static final class Words {
+        /** The arena and reference the words were taken from; another arena reuses the same references */
+        final DescriptionArena descriptions;
+        final int description;
+
+        final List<String> tokens;
+
+        Words(DescriptionArena descriptions, int description, List<String> tokens) {
+            this.descriptions = descriptions;
+            this.description = description;
+            this.tokens = tokens;
+        }
+    }
+
+    /**
+     * The item's changing fields as of one version. States are never modified,
+     * so a reader can hold one and see a consistent item.
+     */
+    public static final class State {
+        /** The change that wrote this state (InventoryVersions.ORIGIN for the item's first state) */
+        private final InventoryVersions.Change change;
+
+        /** Units available to reserve */
+        private final int available;
+
+        /** Units reserved by carts that have not checked out */
+        private final int reserved;
+
+        /** The unit price in cents */
+        private final long priceCents;
+
+        /** The arena holding the description */
+        private final DescriptionArena descriptions;
+
+        /** The descriptive name/title, as a reference into descriptions */
+        private final int description;
+
+        /** The in-stock flag as listed in the inventory file */
+        private final boolean listedInStock;
+
+        /**
+         * The state this one replaced, or null once no snapshot can read it. Only
+         * ever cleared, so a racy read at worst keeps a state alive a little longer.
+         */
+        private State older;
+
+        private State(InventoryVersions.Change change, int available, int reserved, long priceCents,
+                      DescriptionArena descriptions, int description, boolean listedInStock, State older) {
+            this.change = change;
+            this.available = available;
+            this.reserved = reserved;
+            this.priceCents = priceCents;
+            this.descriptions = descriptions;
+            this.description = description;
+            this.listedInStock = listedInStock;
+            this.older = older;
+        }
+
+        /**
+         * @return The version that wrote this state, or a negative number while the
+         *         change that wrote it is still being made
+         */
+        public long getVersion() { return change.getVersion(); }
+
+        /**
+         * @return The descriptive name/title of the item
+         */
+        public String getDescription() { return descriptions.get(description); }
+
+        /**
+         * @return The arena holding the description
+         */
+        DescriptionArena getDescriptionArena() { return descriptions; }
+
+        /**
+         * @return The description's reference into getDescriptionArena()
+         */
+        int getDescriptionReference() { return description; }
+
+        /**
+         * @return True if the item was in stock
+         */
+        public boolean isInStock() { return listedInStock && available > 0; }
+
+        /**
+         * @return The quantity available
+         */
+        public int getQuantity() { return available; }
+
+        /**
+         * @return The quantity reserved by carts that had not checked out
+         */
+        public int getReservedQuantity() { return reserved; }
+
+        /**
+         * @return The unit price of the item in cents
+         */
+        public long getPriceCents() { return priceCents; }
+
+        /**
+         * @return The unit price of the item in dollars
+         */
+        public double getPrice() { return Money.toDollars(priceCents); }
+    }
+
+    /**
+     * Creates a new inventory item with the specified properties, and a version
+     * clock and description arena of its own.
      * 
      * @param itemID The unique identifier (SKU) for the item
      * @param description The descriptive name/title of the item
      * @param inStock Whether the item is initially in stock
      * @param quantity The initial quantity available
-     * @param price The unit price of the item
+     * @param price The unit price of the item, rounded to the cent
      */
     public InventoryItem(String itemID, String description, boolean inStock, int quantity, double price) {
+        this(new InventoryVersions(), new DescriptionArena(), itemID, description, inStock, quantity,
+             Money.ofDollars(price));
+    }
+
+    /**
+     * Creates a new inventory item of a store, whose price is already in cents.
+     *
+     * @param versions The version clock of the store
+     * @param descriptions The description arena of the store
+     * @param itemID The unique identifier (SKU) for the item
+     * @param description The descriptive name/title of the item
+     * @param inStock Whether the item is initially in stock
+     * @param quantity The initial quantity available
+     * @param priceCents The unit price of the item in cents
+     */
+    InventoryItem(InventoryVersions versions, DescriptionArena descriptions, String itemID, String description,
+                  boolean inStock, int quantity, long priceCents) {
+        this(versions, descriptions, itemID, descriptions.intern(description), inStock, quantity, priceCents);
+    }
+
+    /**
+     * Creates a new inventory item of a store, whose description is already interned.
+     *
+     * @param versions The version clock of the store
+     * @param descriptions The description arena of the store
+     * @param itemID The unique identifier (SKU) for the item
+     * @param description The description's reference into the arena
+     * @param inStock Whether the item is initially in stock
+     * @param quantity The initial quantity available
+     * @param priceCents The unit price of the item in cents
+     */
+    InventoryItem(InventoryVersions versions, DescriptionArena descriptions, String itemID, int description,
+                  boolean inStock, int quantity, long priceCents) {
         this.itemID = itemID;
-        this.description = description;
-        this.inStock = inStock;
-        this.quantity = quantity;
-        this.price = price;
+        this.versions = versions;
+        this.state = new State(InventoryVersions.ORIGIN, quantity, 0, priceCents, descriptions, description,
+            inStock, null);
     }
 
     /**
@@ -50,22 +205,71 @@ public class InventoryItem {
     /**
      * @return The descriptive name/title of the item
      */
-    public String getDescription() { return description; }
+    public String getDescription() { return state.getDescription(); }
 
     /**
      * @return True if the item is currently in stock, false otherwise
      */
-    public boolean isInStock() { return inStock; }
+    public boolean isInStock() { return state.isInStock(); }
 
     /**
      * @return The current quantity available in inventory
      */
-    public int getQuantity() { return quantity; }
+    public int getQuantity() { return state.available; }
+
+    /**
+     * @return The quantity currently reserved by carts that have not checked out
+     */
+    public int getReservedQuantity() { return state.reserved; }
 
     /**
-     * @return The unit price of the item
+     * @return The unit price of the item in dollars
      */
-    public double getPrice() { return price; }
+    public double getPrice() { return Money.toDollars(state.priceCents); }
+
+    /**
+     * @return The unit price of the item in cents
+     */
+    public long getPriceCents() { return state.priceCents; }
+
+    /**
+     * @return The newest state of the item, whose fields all belong together; it
+     *         may belong to a change still being made
+     */
+    public State current() { return state; }
+
+    /**
+     * @return The lower-case words of the current description, tokenized once per
+     *         description and reused until the listing changes
+     */
+    List<String> descriptionWords() {
+        State current = state;
+        Words cached = words;
+        if (cached == null || cached.descriptions != current.descriptions || cached.description != current.description) {
+            cached = new Words(current.descriptions, current.description,
+                List.copyOf(InventorySearchIndex.tokenize(current.getDescription())));
+            words = cached;
+        }
+        return cached.tokens;
+    }
+
+    /**
+     * Reads the item as it was at a snapshot's version.
+     *
+     * @param snapshot An open snapshot of the item's store
+     * @return The state the snapshot sees
+     * @throws IllegalArgumentException If the snapshot is from another store
+     */
+    public State at(InventoryVersions.Snapshot snapshot) {
+        if (snapshot.getVersions() != versions) {
+            throw new IllegalArgumentException("Snapshot of another store for item " + itemID);
+        }
+        State found = state;
+        while (!found.change.visibleAt(snapshot.getVersion())) {
+            found = found.older;
+        }
+        return found;
+    }
 
     /**
      * Updates the quantity of the item in inventory and automatically
@@ -74,10 +278,287 @@ public class InventoryItem {
      * @param quantity The new quantity to set
      */
     public void setQuantity(int quantity) {
-        this.quantity = quantity;
+        InventoryVersions.Change change = versions.begin();
+        State current;
+        do {
+            current = state;
+        } while (!install(change, current, quantity, current.reserved, current.priceCents, current.descriptions, current.description,
+            quantity > 0));
+        versions.publish(change);
+    }
+
+    /**
+     * @return The in-stock flag as listed in the inventory file, regardless of the
+     *         current quantity
+     */
+    boolean isListedInStock() { return state.listedInStock; }
+
+    /**
+     * Resets the item to a recovered state: the given available quantity, nothing
+     * reserved, and the given listed in-stock flag. Used when rebuilding stock from
+     * a checkpoint and the inventory log, before any session is running.
+     *
+     * @param quantity The recovered quantity
+     * @param listedInStock The recovered in-stock flag
+     */
+    void restore(int quantity, boolean listedInStock) {
+        InventoryVersions.Change change = versions.begin();
+        State current;
+        do {
+            current = state;
+        } while (!install(change, current, quantity, 0, current.priceCents, current.descriptions, current.description, listedInStock));
+        versions.publish(change);
+    }
+
+    /**
+     * Atomically adds a restock (or removes a correction) to the available quantity,
+     * leaving reserved units alone, and sets the listed in-stock flag. The available
+     * quantity never goes below zero.
+     *
+     * @param delta The change in units on hand
+     * @param listedInStock The in-stock flag as now listed in the inventory file
+     */
+    void adjustQuantity(int delta, boolean listedInStock) {
+        InventoryVersions.Change change = versions.begin();
+        State current;
+        long adjusted;
+        do {
+            current = state;
+            adjusted = Math.max(0L, Math.min(Integer.MAX_VALUE, (long) current.available + delta));
+        } while (!install(change, current, (int) adjusted, current.reserved, current.priceCents, current.descriptions, current.description,
+            listedInStock));
+        versions.publish(change);
+    }
+
+    /**
+     * Updates the price and description together, for example when the inventory
+     * file is edited, so no reader sees one without the other. Carts already
+     * holding the item keep the price it was added at.
+     *
+     * @param priceCents The new unit price in cents
+     * @param description The new description
+     */
+    void updateListing(long priceCents, String description) {
+        InventoryVersions.Change change = versions.begin();
+        DescriptionArena arena = null;
+        int stored = 0;
+        State current;
+        do {
+            current = state;
+            if (current.descriptions != arena) {
+                arena = current.descriptions;
+                stored = arena.intern(description);
+            }
+        } while (!install(change, current, current.available, current.reserved, priceCents, arena, stored,
+            current.listedInStock));
+        versions.publish(change);
+    }
+
+    /**
+     * Moves the description to another arena, leaving everything else as it is,
+     * so the item stops holding on to the old arena once no snapshot reads it.
+     *
+     * @param arena The new arena
+     */
+    void moveDescription(DescriptionArena arena) {
+        InventoryVersions.Change change = versions.begin();
+        State current;
+        int stored = 0;
+        do {
+            current = state;
+            if (current.descriptions == arena) {
+                break;
+            }
+            stored = arena.intern(current.getDescription());
+        } while (!install(change, current, current.available, current.reserved, current.priceCents, arena, stored,
+            current.listedInStock));
+        versions.publish(change);
+    }
+
+    /**
+     * Atomically moves units from the available quantity to the reserved quantity.
+     * Fails without changing anything if the item is not in stock or fewer than
+     * the requested units are available.
+     *
+     * @param amount The number of units to reserve (must be positive)
+     * @return True if the units were reserved, false if there was not enough stock
+     */
+    public boolean reserve(int amount) {
+        checkAmount(amount);
+        InventoryVersions.Change change = versions.begin();
+        State current;
+        do {
+            current = state;
+            if (!current.listedInStock || current.available < amount) {
+                return false;
+            }
+        } while (!install(change, current, current.available - amount, current.reserved + amount,
+            current.priceCents, current.descriptions, current.description, current.listedInStock));
+        versions.publish(change);
+        return true;
+    }
+
+    /**
+     * Atomically returns reserved units to the available quantity, for example
+     * when an item is removed from a cart.
+     *
+     * @param amount The number of units to release (must be positive)
+     * @throws IllegalStateException If fewer units than this are reserved
+     */
+    public void release(int amount) {
+        checkAmount(amount);
+        InventoryVersions.Change change = versions.begin();
+        State current;
+        do {
+            current = state;
+            if (current.reserved < amount) {
+                throw new IllegalStateException("Cannot release " + amount + " of item " + itemID
+                    + ", only " + current.reserved + " reserved");
+            }
+        } while (!install(change, current, current.available + amount, current.reserved - amount,
+            current.priceCents, current.descriptions, current.description, current.listedInStock));
+        versions.publish(change);
+    }
+
+    /**
+     * Atomically marks reserved units as sold, removing them from the reserved
+     * quantity for good. Called when an order is checked out.
+     *
+     * @param amount The number of units sold (must be positive)
+     * @throws IllegalStateException If fewer units than this are reserved
+     */
+    public void commit(int amount) {
+        InventoryVersions.Change change = versions.begin();
+        commit(amount, change);
+        versions.publish(change);
+    }
+
+    /**
+     * Marks reserved units as sold as part of a change.
+     */
+    private void commit(int amount, InventoryVersions.Change change) {
+        checkAmount(amount);
+        State current;
+        do {
+            current = state;
+            if (current.reserved < amount) {
+                throw new IllegalStateException("Cannot commit " + amount + " of item " + itemID
+                    + ", only " + current.reserved + " reserved");
+            }
+        } while (!install(change, current, current.available, current.reserved - amount, current.priceCents,
+            current.descriptions, current.description, current.listedInStock));
+    }
+
+    /**
+     * Atomically puts sold units back in the reserved quantity, undoing commit()
+     * for an order whose stock was sold but which could not be recorded.
+     *
+     * @param amount The number of units to put back (must be positive)
+     */
+    public void uncommit(int amount) {
+        InventoryVersions.Change change = versions.begin();
+        uncommit(amount, change);
+        versions.publish(change);
+    }
+
+    /**
+     * Puts sold units back in reserve as part of a change.
+     */
+    private void uncommit(int amount, InventoryVersions.Change change) {
+        checkAmount(amount);
+        State current;
+        do {
+            current = state;
+        } while (!install(change, current, current.available, current.reserved + amount, current.priceCents,
+            current.descriptions, current.description, current.listedInStock));
+    }
+
+    /**
+     * Commits reserved units of several items as one change, so snapshot readers
+     * see all of them sold or none. If one item has too few units reserved, the
+     * ones already committed are put back in the same change before it throws.
+     *
+     * @param items Items of one store; an item may appear more than once
+     * @param amounts The units sold, parallel to items
+     * @throws IllegalStateException If an item has fewer units reserved
+     */
+    static void commitAll(List<InventoryItem> items, int[] amounts) {
+        InventoryVersions versions = versionsOf(items);
+        InventoryVersions.Change change = versions.begin();
+        int committed = 0;
+        try {
+            for (; committed < items.size(); committed++) {
+                items.get(committed).commit(amounts[committed], change);
+            }
+        } catch (RuntimeException e) {
+            for (int i = committed - 1; i >= 0; i--) {
+                items.get(i).uncommit(amounts[i], change);
+            }
+            throw e;
+        } finally {
+            versions.publish(change);
+        }
+    }
+
+    /**
+     * Puts sold units of the first count items back in reserve as one change.
+     *
+     * @param items Items of one store; an item may appear more than once
+     * @param amounts The units to put back, parallel to items
+     * @param count The number of items to change
+     */
+    static void uncommitAll(List<InventoryItem> items, int[] amounts, int count) {
+        InventoryVersions versions = versionsOf(items);
+        InventoryVersions.Change change = versions.begin();
+        for (int i = 0; i < count; i++) {
+            items.get(i).uncommit(amounts[i], change);
+        }
+        versions.publish(change);
+    }
+
+    /**
+     * @return The version clock all the items share
+     * @throws IllegalArgumentException If the items belong to different stores
+     */
+    private static InventoryVersions versionsOf(List<InventoryItem> items) {
+        InventoryVersions versions = items.isEmpty() ? new InventoryVersions() : items.get(0).versions;
+        for (InventoryItem item : items) {
+            if (item.versions != versions) {
+                throw new IllegalArgumentException("Item " + item.itemID + " belongs to another store");
+            }
+        }
+        return versions;
+    }
+
+    /**
+     * Installs a new state on top of the one it was computed from, failing if
+     * another writer got there first. A second state of the same change replaces
+     * the first, and states older than any snapshot can read are dropped.
+     *
+     * @return True if the state was installed
+     */
+    private boolean install(InventoryVersions.Change change, State current, int available, int reserved,
+                            long priceCents, DescriptionArena descriptions, int description,
+                            boolean listedInStock) {
+        State older = current.change == change ? current.older : current;
+        if (older != null) {
+            change.dependOn(older.change);
+        }
+        long oldest = versions.oldestReadable();
+        for (State kept = older; kept != null; kept = kept.older) {
+            if (kept.change.stampedBy(oldest)) {
+                kept.older = null;
+                break;
+            }
+        }
+        return STATE.compareAndSet(this, current,
+            new State(change, available, reserved, priceCents, descriptions, description, listedInStock, older));
+    }
 
-        // Update inStock based on quantity
-        this.inStock = quantity > 0;
+    private static void checkAmount(int amount) {
+        if (amount <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive: " + amount);
+        }
     }
 
     /**
@@ -88,7 +569,8 @@ public class InventoryItem {
      */
     @Override
     public String toString() {
-        return "ID: " + itemID + ", Description: " + description + ", In Stock: " + inStock +
-               ", Quantity: " + quantity + ", Price: $" + price;
+        State current = state;
+        return "ID: " + itemID + ", Description: " + current.getDescription() + ", In Stock: " + current.isInStock() +
+               ", Quantity: " + current.available + ", Price: $" + current.getPrice();
     }
 }
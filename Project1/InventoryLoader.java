@@ -6,63 +6,107 @@
 */
 
 import java.io.*;
-import java.util.HashMap;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 /**
  * Manages the loading and storage of inventory data from external files.
  * This class handles reading inventory items from a CSV file and maintains them in memory
- * for quick access using a HashMap data structure.
+ * for quick access using a ConcurrentHashMap data structure.
  */
 public class InventoryLoader {
+    /** Smallest chunk handed to a parser thread by the parallel loader */
+    private static final long MIN_CHUNK_SIZE = 1 << 20;
+
+    /** Chunks per pool thread, so a slow chunk does not leave other threads idle */
+    private static final int CHUNKS_PER_THREAD = 4;
+
     /** 
      * Stores inventory items with their Item ID as the key for efficient lookup.
-     * The HashMap provides O(1) access time when searching for items by their ID.
+     * The ConcurrentHashMap provides O(1) access time when searching for items by
+     * their ID, and lets items be added or removed in place while other threads
+     * read it. A full load publishes a new map.
      */
-    private HashMap<String, InventoryItem> inventory;
+    private volatile ConcurrentHashMap<String, InventoryItem> inventory;
 
     /**
-     * Creates a new InventoryLoader instance with an empty inventory HashMap.
+     * Keyword and prefix index over the item descriptions, or null until the first
+     * getSearchIndex() after a load builds it; a load does not wait for the index.
+     */
+    private volatile InventorySearchIndex searchIndex = new InventorySearchIndex();
+
+    /** The inventory file the items were loaded from, or null if they were not loaded from one */
+    private volatile Path sourcePath;
+
+    /** The version clock of the items, kept across loads */
+    private final InventoryVersions versions;
+
+    /** The descriptions of the items; every full load starts a new arena */
+    private volatile DescriptionArena descriptions = new DescriptionArena();
+
+    /**
+     * Creates a new InventoryLoader instance with an empty inventory map.
      * The inventory will be populated when loadInventory() is called.
      */
     public InventoryLoader() {
-        inventory = new HashMap<>();
+        this(new InventoryVersions());
+    }
+
+    /**
+     * Creates an empty inventory whose items share another store's version clock.
+     *
+     * @param versions The version clock
+     */
+    InventoryLoader(InventoryVersions versions) {
+        this.versions = versions;
+        inventory = new ConcurrentHashMap<>();
     }
 
     /**
-     * Loads inventory data from a CSV file into the inventory HashMap.
+     * Loads inventory data from a CSV file into the inventory map.
      * The CSV file should have the following format per line:
      * ItemID, "Description", InStock, Quantity, Price
      * 
      * Example: 22345532, "3 ft mini USB cable M-F", true, 444, 4.50
      * 
-     * The method handles:
-     * - Removing quotes from description fields
-     * - Converting string values to appropriate data types
-     * - Creating InventoryItem objects for each valid line
+     * The file is read as raw bytes through a FileChannel by InventoryCsvParser, which
+     * handles:
+     * - Quoted description fields, including embedded commas
+     * - Converting field bytes directly to the appropriate data types
+     * - Interning descriptions into a new DescriptionArena straight from the read buffer
+     * - Creating InventoryItem objects for each non-blank line
      * - Basic error handling for file operations
      *
+     * If an Item ID appears more than once, the last line wins.
+     *
      * @param filePath The path to the CSV file containing inventory data
      */
     public void loadInventory(String filePath) {
-        try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                // Split the line into fields by commas
-                String[] fields = line.split(",");
-                
-                // Parse fields
-                String itemID = fields[0].trim();
-                String description = fields[1].trim().replaceAll("\"", ""); // Remove quotes
-                boolean inStock = Boolean.parseBoolean(fields[2].trim());
-                int quantity = Integer.parseInt(fields[3].trim());
-                double price = Double.parseDouble(fields[4].trim());
-                
-                // Create an InventoryItem object and store it
-                InventoryItem item = new InventoryItem(itemID, description, inStock, quantity, price);
-                inventory.put(itemID, item);
-            }
-            System.out.println("Inventory loaded successfully.");
-        } catch (FileNotFoundException e) {
+        sourcePath = Paths.get(filePath);
+        DescriptionArena arena = new DescriptionArena();
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            new InventoryCsvParser().parse(channel, 0, channel.size(), arena,
+                (itemID, description, inStock, quantity, price) ->
+                    inventory.put(itemID, new InventoryItem(versions, arena, itemID, description, inStock, quantity,
+                        Money.ofDollars(price))));
+            published(arena);
+        } catch (NoSuchFileException e) {
             System.err.println("Error: Inventory file not found.");
         } catch (IOException e) {
             System.err.println("Error reading inventory file.");
@@ -72,12 +116,370 @@ public class InventoryLoader {
     }
 
     /**
-     * Returns the complete inventory HashMap containing all loaded items.
-     * The returned HashMap maps item IDs (String) to InventoryItem objects.
+     * Loads inventory data like loadInventory, but parses the file in parallel on the
+     * common fork-join pool.
+     *
+     * @param filePath The path to the CSV file containing inventory data
+     */
+    public void loadInventoryParallel(String filePath) {
+        loadInventoryParallel(filePath, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Loads inventory data by splitting the file into line-aligned chunks and parsing
+     * each chunk on the given pool. The chunk results are merged into the inventory
+     * in file order, so a duplicate Item ID resolves exactly as in loadInventory:
+     * the last line wins.
      *
-     * @return HashMap containing all inventory items with their IDs as keys
+     * @param filePath The path to the CSV file containing inventory data
+     * @param pool The pool that runs the chunk parsers
      */
-    public HashMap<String, InventoryItem> getInventory() {
+    public void loadInventoryParallel(String filePath, ForkJoinPool pool) {
+        sourcePath = Paths.get(filePath);
+        DescriptionArena arena = new DescriptionArena();
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            long[] bounds = splitIntoChunks(channel, pool.getParallelism());
+
+            // Parse each chunk into its own list; positional reads let the tasks share the channel
+            List<Callable<List<InventoryItem>>> tasks = new ArrayList<>();
+            long[] lineCounts = new long[bounds.length - 1];
+            for (int i = 0; i + 1 < bounds.length; i++) {
+                int chunk = i;
+                long start = bounds[i];
+                long end = bounds[i + 1];
+                tasks.add(() -> {
+                    List<InventoryItem> items = new ArrayList<>();
+                    InventoryCsvParser parser = new InventoryCsvParser();
+                    parser.parse(channel, start, end, arena,
+                        (itemID, description, inStock, quantity, price) ->
+                            items.add(new InventoryItem(versions, arena, itemID, description, inStock, quantity,
+                                Money.ofDollars(price))));
+                    lineCounts[chunk] = parser.getLineCount();
+                    return items;
+                });
+            }
+
+            // Merge in chunk order so later lines overwrite earlier ones
+            List<List<InventoryItem>> results = new ArrayList<>();
+            List<Future<List<InventoryItem>>> futures = pool.invokeAll(tasks);
+            int total = 0;
+            long linesBefore = 0;
+            for (int i = 0; i < futures.size(); i++) {
+                List<InventoryItem> items;
+                try {
+                    items = futures.get(i).get();
+                } catch (ExecutionException e) {
+                    // Number the bad line from the start of the file, not of its chunk
+                    if (e.getCause() instanceof InventoryCsvParser.MalformedLineException) {
+                        InventoryCsvParser.MalformedLineException malformed =
+                            (InventoryCsvParser.MalformedLineException) e.getCause();
+                        throw new IllegalArgumentException("line " + (linesBefore + malformed.getLine()) + ": "
+                            + malformed.getReason());
+                    }
+                    throw e;
+                }
+                results.add(items);
+                total += items.size();
+                linesBefore += lineCounts[i];
+            }
+            ConcurrentHashMap<String, InventoryItem> loaded = new ConcurrentHashMap<>(Math.max(16, total + inventory.size()));
+            loaded.putAll(inventory);
+            for (List<InventoryItem> items : results) {
+                for (InventoryItem item : items) {
+                    loaded.put(item.getItemID(), item);
+                }
+            }
+            inventory = loaded;
+            published(arena);
+        } catch (NoSuchFileException e) {
+            System.err.println("Error: Inventory file not found.");
+        } catch (IOException e) {
+            System.err.println("Error reading inventory file.");
+        } catch (ExecutionException e) {
+            System.err.println("Error processing inventory file: " + e.getCause().getMessage());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error processing inventory file: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Error: Inventory load interrupted.");
+        }
+    }
+
+    /**
+     * Loads inventory data from a binary snapshot when one exists and is at least as new
+     * as the CSV file; otherwise parses the CSV in parallel and writes a fresh snapshot
+     * for the next start. Any problem with the snapshot falls back to the CSV.
+     *
+     * @param filePath The path to the CSV file containing inventory data
+     * @param snapshotPath The path of the binary snapshot kept next to it
+     */
+    public void loadInventoryWithSnapshot(String filePath, String snapshotPath) {
+        Path csv = Paths.get(filePath);
+        Path snapshot = Paths.get(snapshotPath);
+
+        try {
+            if (Files.exists(snapshot) && Files.exists(csv)
+                    && Files.getLastModifiedTime(snapshot).compareTo(Files.getLastModifiedTime(csv)) >= 0) {
+                DescriptionArena arena = new DescriptionArena();
+                inventory = InventorySnapshot.read(snapshot, versions, arena);
+                published(arena);
+                sourcePath = csv;
+                return;
+            }
+        } catch (IOException e) {
+            System.err.println("Ignoring inventory snapshot: " + e.getMessage());
+        }
+
+        inventory = new ConcurrentHashMap<>();
+        loadInventoryParallel(filePath);
+        if (!inventory.isEmpty()) {
+            writeSnapshot(snapshotPath);
+        }
+    }
+
+    /**
+     * Writes the current inventory to a binary snapshot file.
+     *
+     * @param snapshotPath The snapshot file to create or replace
+     */
+    public void writeSnapshot(String snapshotPath) {
+        try {
+            InventorySnapshot.write(inventory, Paths.get(snapshotPath));
+        } catch (IOException e) {
+            System.err.println("Error writing inventory snapshot: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Restores the stock levels left by the previous run from its inventory
+     * checkpoint and write-ahead log. Call this after loading the inventory and
+     * before opening a new InventoryWal, and open one only if this succeeds: a new
+     * InventoryWal replaces the old checkpoint and logs with the current stock.
+     *
+     * @param walBasePath Path prefix of the log and checkpoint files, e.g. "inventory"
+     * @return Whether the stock was restored, or there was nothing to restore
+     * @see InventoryWal
+     */
+    public boolean recoverStock(String walBasePath) {
+        try {
+            recoverStock(walBasePath, Collections.emptySet());
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error recovering inventory stock: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Restores stock levels like recoverStock(walBasePath), for a log that holds
+     * prepared batches of transactions spanning several logs.
+     *
+     * @param walBasePath Path prefix of the log and checkpoint files
+     * @param committed The IDs of the transactions whose prepared batches are applied
+     * @throws IOException If the checkpoint or log cannot be read
+     */
+    void recoverStock(String walBasePath, Set<Long> committed) throws IOException {
+        long replayed = InventoryWal.recover(Paths.get(walBasePath), inventory, sourcePath, committed);
+        if (replayed > 0) {
+            System.out.println("Replayed " + replayed + " stock changes from the inventory log.");
+        }
+    }
+
+    /**
+     * Computes chunk boundaries for the parallel loader. Every boundary except the
+     * first and last is moved forward to the byte after a newline, so each chunk
+     * holds only whole lines.
+     *
+     * @param channel The inventory file
+     * @param parallelism The number of threads that will parse the chunks
+     * @return Ascending chunk boundaries, starting at 0 and ending at the file size
+     * @throws IOException If the file cannot be read
+     */
+    private static long[] splitIntoChunks(FileChannel channel, int parallelism) throws IOException {
+        long size = channel.size();
+        long chunkSize = Math.max(MIN_CHUNK_SIZE, size / ((long) parallelism * CHUNKS_PER_THREAD));
+
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        long next = chunkSize;
+        while (next < size) {
+            long lineEnd = findLineEnd(channel, next, probe);
+            if (lineEnd >= size) {
+                break;
+            }
+            bounds.add(lineEnd);
+            next = lineEnd + chunkSize;
+        }
+        bounds.add(size);
+
+        long[] result = new long[bounds.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = bounds.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * @return The position just past the first newline at or after the given position,
+     *         or the file size if there is none
+     */
+    private static long findLineEnd(FileChannel channel, long position, ByteBuffer probe) throws IOException {
+        while (true) {
+            probe.clear();
+            int read = channel.read(probe, position);
+            if (read <= 0) {
+                return channel.size();
+            }
+            for (int i = 0; i < read; i++) {
+                if (probe.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * Returns the complete inventory map containing all loaded items.
+     * The returned map maps item IDs (String) to InventoryItem objects.
+     *
+     * @return Map containing all inventory items with their IDs as keys
+     */
+    public Map<String, InventoryItem> getInventory() {
         return inventory;
     }
+
+    /**
+     * @return The version clock to take snapshots of the items from
+     */
+    public InventoryVersions getVersions() {
+        return versions;
+    }
+
+    /**
+     * @return The arena to intern the descriptions of new items into
+     */
+    DescriptionArena getDescriptions() {
+        return descriptions;
+    }
+
+    /**
+     * Moves the item descriptions into a new arena once the current one holds more
+     * than twice as many descriptions as there are items, dropping the ones left
+     * behind by replaced, removed and edited items. Items keep working while they
+     * are moved; each move is a new version of the item.
+     */
+    synchronized void compactDescriptions() {
+        Map<String, InventoryItem> items = inventory;
+        if (descriptions.getDescriptionCount() <= 2L * items.size() + 64) {
+            return;
+        }
+        DescriptionArena arena = new DescriptionArena();
+        descriptions = arena;
+        for (InventoryItem item : items.values()) {
+            item.moveDescription(arena);
+        }
+    }
+
+    /**
+     * @return The inventory file the items were loaded from, or null if they were not
+     *         loaded from one
+     */
+    public Path getSourcePath() {
+        return sourcePath;
+    }
+
+    /**
+     * Replaces the whole inventory with the given items, whose search index is
+     * built on the next getSearchIndex(); used to fill an inventory from items
+     * loaded elsewhere, such as a shard of a ShardedInventory.
+     *
+     * @param items The items keyed by Item ID; the map is kept, not copied
+     * @param source The inventory file the items were loaded from, or null
+     * @param arena The arena the item descriptions were interned into
+     */
+    synchronized void setInventory(ConcurrentHashMap<String, InventoryItem> items, Path source,
+            DescriptionArena arena) {
+        inventory = items;
+        published(arena);
+        sourcePath = source;
+    }
+
+    /**
+     * Records a newly published inventory: its descriptions arena, and a search
+     * index to be built from it on the next getSearchIndex(). Holding the lock
+     * keeps an index built from the previous inventory from being stored after.
+     *
+     * @param arena The arena the item descriptions were interned into
+     */
+    private synchronized void published(DescriptionArena arena) {
+        descriptions = arena;
+        searchIndex = null;
+    }
+
+    /**
+     * Adds or replaces an item, keeping the search index in sync.
+     *
+     * @param item The item to store under its Item ID; snapshots of getVersions()
+     *             read only items made with it
+     */
+    public void putItem(InventoryItem item) {
+        updateItems(Collections.singletonList(item), Collections.emptyList());
+    }
+
+    /**
+     * Removes an item, keeping the search index in sync. Carts already holding the
+     * item can still check it out.
+     *
+     * @param itemID The Item ID
+     */
+    public void removeItem(String itemID) {
+        updateItems(Collections.emptyList(), Collections.singletonList(itemID));
+    }
+
+    /**
+     * Adds, replaces and removes items in place, at a cost that depends only on the
+     * number of items changed, and keeps the search index in sync. Safe to call
+     * while other threads read the inventory, which see each item change on its
+     * own; concurrent calls to this method are serialized.
+     *
+     * @param added The items to store under their Item IDs
+     * @param removed The Item IDs to remove
+     */
+    public synchronized void updateItems(Collection<InventoryItem> added, Collection<String> removed) {
+        Map<String, InventoryItem> items = inventory;
+        InventorySearchIndex index = searchIndex; // Null until built; the build then sees these changes
+        for (String itemID : removed) {
+            items.remove(itemID);
+            if (index != null) {
+                index.remove(itemID);
+            }
+        }
+        for (InventoryItem item : added) {
+            items.put(item.getItemID(), item);
+            if (index != null) {
+                index.add(item);
+            }
+        }
+    }
+
+    /**
+     * Returns the search index, building it from the inventory on the first call
+     * after a load, so loading does not pay for it and only the first search does.
+     *
+     * @return The keyword and prefix index over the item descriptions
+     */
+    public InventorySearchIndex getSearchIndex() {
+        InventorySearchIndex index = searchIndex;
+        if (index != null) {
+            return index;
+        }
+        synchronized (this) {
+            if (searchIndex == null) {
+                searchIndex = InventorySearchIndex.build(inventory.values());
+            }
+            return searchIndex;
+        }
+    }
 }
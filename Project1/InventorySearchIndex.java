@@ -0,0 +1,571 @@
+/*
+    Name : Colin Kirby
+    Course : CNT 4714 - Spring 2025
+    Assignment Title : Project 1 - An Event-driven Enterprise Simulation
+    Date : Monday, January 20, 2025
+*/
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over item descriptions for keyword and prefix search.
+ *
+ * Descriptions are split into lower-case words of letters and digits. Each word
+ * maps to the ascending list of documents (items) that contain it, and the words
+ * are kept in a sorted map so a prefix covers a contiguous range of words.
+ *
+ * A query matches the items that contain every query word; the last word also
+ * matches as a prefix, so "campagnolo cr" finds "Campagnolo 12 spd crankset". Results
+ * are ranked by the inverse document frequency of the matched words, favoring
+ * shorter descriptions.
+ *
+ * The index is safe for concurrent searches and updates. A changed or removed
+ * item leaves a tombstone in the posting lists, which searches skip.
+ */
+public class InventorySearchIndex {
+    /** The postings of one word: ascending document numbers */
+    private static class Postings {
+        int[] docs = new int[2];
+        int size;
+
+        void add(int doc) {
+            if (size > 0 && docs[size - 1] == doc) {
+                return; // Word repeated within one description
+            }
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+            }
+            docs[size++] = doc;
+        }
+    }
+
+    /** Marks an unused position in documentTable */
+    private static final int NO_DOCUMENT = -1;
+
+    /** Prefix expansions up to this many words are probed list by list instead of merged */
+    private static final int MAX_PROBED_EXPANSIONS = 16;
+
+    /** Guards all fields below: searches share it, updates take it exclusively */
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** Words in sorted order, each with its postings */
+    private final TreeMap<String, Postings> words = new TreeMap<>();
+
+    /** Items by document number */
+    private final ArrayList<InventoryItem> documents = new ArrayList<>();
+
+    /** Number of words in each document's description, by document number */
+    private int[] lengths = new int[16];
+
+    /**
+     * Open-addressing table of the live document numbers, found by the Item ID of
+     * their item, so no ID key or boxed number is kept per item; its length is
+     * always a power of two
+     */
+    private int[] documentTable = emptyTable(16);
+
+    /** Number of live documents */
+    private int liveDocuments;
+
+    /** Document numbers whose item was changed or removed */
+    private final BitSet deleted = new BitSet();
+
+    /** Total number of words over all live documents, for the average length */
+    private long totalLength;
+
+    /**
+     * Builds an index over the given items. Descriptions are read as the word
+     * numbers of their DescriptionArena and each distinct word is tokenized once,
+     * so a catalog that repeats the same words costs little more than appending
+     * document numbers to posting lists.
+     *
+     * @param items The items to index
+     * @return The new index
+     */
+    public static InventorySearchIndex build(Collection<InventoryItem> items) {
+        InventorySearchIndex index = new InventorySearchIndex();
+        index.lengths = new int[Math.max(16, items.size())];
+        index.documents.ensureCapacity(items.size());
+
+        HashMap<String, Postings> postings = new HashMap<>();
+        IdentityHashMap<DescriptionArena, Postings[][]> arenas = new IdentityHashMap<>();
+        DescriptionArena arena = null;
+        Postings[][] byWord = null; // The postings of each of the arena's words' tokens
+        int[] wordNumbers = new int[32];
+        for (InventoryItem item : items) {
+            InventoryItem.State state = item.current();
+            if (state.getDescriptionArena() != arena) {
+                arena = state.getDescriptionArena();
+                byWord = arenas.computeIfAbsent(arena, key -> new Postings[64][]);
+            }
+            int count = arena.words(state.getDescriptionReference(), wordNumbers);
+            if (count > wordNumbers.length) {
+                wordNumbers = new int[count];
+                arena.words(state.getDescriptionReference(), wordNumbers);
+            }
+
+            int doc = index.documents.size();
+            int length = 0;
+            for (int i = 0; i < count; i++) {
+                int word = wordNumbers[i];
+                if (word >= byWord.length) {
+                    byWord = Arrays.copyOf(byWord, Math.max(word + 1, byWord.length * 2));
+                    arenas.put(arena, byWord);
+                }
+                Postings[] tokens = byWord[word];
+                if (tokens == null) {
+                    List<String> words = tokenize(arena.word(word));
+                    tokens = new Postings[words.size()];
+                    for (int t = 0; t < tokens.length; t++) {
+                        tokens[t] = postings.computeIfAbsent(words.get(t), key -> new Postings());
+                    }
+                    byWord[word] = tokens;
+                }
+                for (Postings token : tokens) {
+                    token.add(doc);
+                }
+                length += tokens.length;
+            }
+            index.addDocument(item, length);
+        }
+        index.words.putAll(postings);
+        return index;
+    }
+
+    /**
+     * Adds an item, replacing any item with the same ID.
+     *
+     * @param item The item to index
+     */
+    public void add(InventoryItem item) {
+        List<String> tokens = tokenize(item.getDescription());
+        lock.writeLock().lock();
+        try {
+            int doc = addDocument(item, tokens.size());
+            for (String token : tokens) {
+                words.computeIfAbsent(token, word -> new Postings()).add(doc);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Gives an item the next document number, replacing any item with the same
+     * ID; the caller adds the document to the postings of its words.
+     *
+     * @param item The item
+     * @param length The number of words in its description
+     * @return The document number
+     */
+    private int addDocument(InventoryItem item, int length) {
+        removeLocked(item.getItemID());
+        int doc = documents.size();
+        documents.add(item);
+        documentTable[slotOf(item.getItemID())] = doc;
+        if (++liveDocuments * 2 > documentTable.length) {
+            growDocumentTable();
+        }
+        if (doc == lengths.length) {
+            lengths = Arrays.copyOf(lengths, doc * 2);
+        }
+        lengths[doc] = length;
+        totalLength += length;
+        return doc;
+    }
+
+    /**
+     * Removes an item from the index.
+     *
+     * @param itemID The Item ID
+     */
+    public void remove(String itemID) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(itemID);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeLocked(String itemID) {
+        int slot = slotOf(itemID);
+        int doc = documentTable[slot];
+        if (doc == NO_DOCUMENT) {
+            return;
+        }
+        deleted.set(doc);
+        totalLength -= lengths[doc];
+        liveDocuments--;
+
+        // Close the gap: move back each following entry whose probe passed the slot
+        int mask = documentTable.length - 1;
+        int hole = slot;
+        for (int next = (hole + 1) & mask; documentTable[next] != NO_DOCUMENT; next = (next + 1) & mask) {
+            int home = homeSlot(documents.get(documentTable[next]).getItemID(), mask);
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                documentTable[hole] = documentTable[next];
+                hole = next;
+            }
+        }
+        documentTable[hole] = NO_DOCUMENT;
+    }
+
+    /**
+     * @return The slot of documentTable holding the live document of the Item ID,
+     *         or the empty slot where it would go
+     */
+    private int slotOf(String itemID) {
+        int mask = documentTable.length - 1;
+        int slot = homeSlot(itemID, mask);
+        while (documentTable[slot] != NO_DOCUMENT && !documents.get(documentTable[slot]).getItemID().equals(itemID)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void growDocumentTable() {
+        int[] grown = emptyTable(documentTable.length * 2);
+        int mask = grown.length - 1;
+        for (int doc : documentTable) {
+            if (doc != NO_DOCUMENT) {
+                int slot = homeSlot(documents.get(doc).getItemID(), mask);
+                while (grown[slot] != NO_DOCUMENT) {
+                    slot = (slot + 1) & mask;
+                }
+                grown[slot] = doc;
+            }
+        }
+        documentTable = grown;
+    }
+
+    private static int homeSlot(String itemID, int mask) {
+        int hash = itemID.hashCode() * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private static int[] emptyTable(int length) {
+        int[] table = new int[length];
+        Arrays.fill(table, NO_DOCUMENT);
+        return table;
+    }
+
+    /**
+     * Finds the items whose descriptions contain every word of the query, the
+     * last word as a prefix, best match first.
+     *
+     * @param query The words to look for, e.g. "usb cab"
+     * @param limit The most items to return
+     * @return The matching items, best first; empty if the query has no words
+     */
+    public List<InventoryItem> search(String query, int limit) {
+        List<String> tokens = tokenize(query);
+        List<InventoryItem> results = new ArrayList<>();
+        if (tokens.isEmpty() || limit <= 0) {
+            return results;
+        }
+
+        lock.readLock().lock();
+        try {
+            if (liveDocuments == 0) {
+                return results;
+            }
+            double averageLength = (double) totalLength / liveDocuments;
+
+            // The posting lists of each query word; the last word may expand to several
+            Postings[][] parts = new Postings[tokens.size()][];
+            int[] totals = new int[tokens.size()];
+            double weight = 0;
+            int driver = 0;
+            for (int t = 0; t < tokens.size(); t++) {
+                if (t == tokens.size() - 1) {
+                    parts[t] = prefixRange(tokens.get(t)).values().toArray(new Postings[0]);
+                } else {
+                    Postings postings = words.get(tokens.get(t));
+                    parts[t] = postings == null ? new Postings[0] : new Postings[] {postings};
+                }
+                for (Postings postings : parts[t]) {
+                    totals[t] += postings.size;
+                }
+                if (totals[t] == 0) {
+                    return results;
+                }
+                weight += Math.log(1.0 + (double) liveDocuments / totals[t]);
+                if (totals[t] < totals[driver]) {
+                    driver = t;
+                }
+            }
+
+            // Walk the shortest word's documents; a prefix with many words is merged first
+            for (int t = 0; t < parts.length; t++) {
+                if (parts[t].length > 1 && (t == driver || parts[t].length > MAX_PROBED_EXPANSIONS)) {
+                    parts[t] = new Postings[] {merge(parts[t], totals[t])};
+                }
+            }
+            Postings candidates = parts[driver][0];
+            int[][] cursors = new int[parts.length][];
+            for (int t = 0; t < parts.length; t++) {
+                cursors[t] = new int[parts[t].length];
+            }
+
+            // Min-heap of the best results so far, by score
+            int[] heapDocs = new int[limit];
+            double[] heapScores = new double[limit];
+            int heapSize = 0;
+            for (int i = 0; i < candidates.size; i++) {
+                int doc = candidates.docs[i];
+                if (deleted.get(doc) || !containsAll(parts, cursors, driver, doc)) {
+                    continue;
+                }
+
+                double score = weight / (0.25 + 0.75 * lengths[doc] / averageLength);
+                if (heapSize < limit) {
+                    heapDocs[heapSize] = doc;
+                    heapScores[heapSize] = score;
+                    siftUp(heapDocs, heapScores, heapSize++);
+                } else if (score > heapScores[0]) {
+                    heapDocs[0] = doc;
+                    heapScores[0] = score;
+                    siftDown(heapDocs, heapScores, heapSize);
+                }
+            }
+
+            // Drain the heap, worst first, into the result from the back
+            InventoryItem[] ranked = new InventoryItem[heapSize];
+            for (int i = heapSize - 1; i >= 0; i--) {
+                ranked[i] = documents.get(heapDocs[0]);
+                heapDocs[0] = heapDocs[i];
+                heapScores[0] = heapScores[i];
+                siftDown(heapDocs, heapScores, i);
+            }
+            results.addAll(Arrays.asList(ranked));
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Checks whether a document contains every query word other than the driver.
+     * Candidates arrive in ascending order, so each cursor only moves forward.
+     */
+    private static boolean containsAll(Postings[][] parts, int[][] cursors, int driver, int doc) {
+        for (int t = 0; t < parts.length; t++) {
+            if (t == driver) {
+                continue;
+            }
+            boolean found = false;
+            for (int p = 0; p < parts[t].length; p++) {
+                Postings postings = parts[t][p];
+                cursors[t][p] = advance(postings.docs, postings.size, cursors[t][p], doc);
+                found |= cursors[t][p] < postings.size && postings.docs[cursors[t][p]] == doc;
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Lists the indexed words that start with a prefix, for type-ahead.
+     *
+     * @param prefix The start of a word
+     * @param limit The most words to return
+     * @return The words in alphabetical order
+     */
+    public List<String> complete(String prefix, int limit) {
+        List<String> tokens = tokenize(prefix);
+        List<String> completions = new ArrayList<>();
+        if (tokens.size() != 1) {
+            return completions;
+        }
+        lock.readLock().lock();
+        try {
+            for (String word : prefixRange(tokens.get(0)).keySet()) {
+                if (completions.size() >= limit) {
+                    break;
+                }
+                completions.add(word);
+            }
+            return completions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return The number of items in the index
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveDocuments;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Merges several posting lists into one ascending list without duplicates.
+     *
+     * @param lists The lists to merge
+     * @param total The sum of their sizes
+     * @return The merged postings
+     */
+    private static Postings merge(Postings[] lists, int total) {
+        // K-way merge over a min-heap of list numbers, keyed by each list's current document
+        int[] positions = new int[lists.length];
+        int[] heap = new int[lists.length];
+        int heapSize = 0;
+        for (int i = 0; i < lists.length; i++) {
+            if (lists[i].size > 0) {
+                heap[heapSize] = i;
+                heapSize++;
+                for (int c = heapSize - 1; c > 0 && head(lists, positions, heap[(c - 1) / 2]) > head(lists, positions, heap[c]); c = (c - 1) / 2) {
+                    int swap = heap[c];
+                    heap[c] = heap[(c - 1) / 2];
+                    heap[(c - 1) / 2] = swap;
+                }
+            }
+        }
+
+        Postings merged = new Postings();
+        merged.docs = new int[total];
+        while (heapSize > 0) {
+            int list = heap[0];
+            int doc = head(lists, positions, list);
+            if (merged.size == 0 || merged.docs[merged.size - 1] != doc) {
+                merged.docs[merged.size++] = doc;
+            }
+            if (++positions[list] == lists[list].size) {
+                heap[0] = heap[--heapSize];
+            }
+
+            // Restore the heap from the root
+            int i = 0;
+            while (true) {
+                int smallest = i;
+                int left = 2 * i + 1;
+                int right = left + 1;
+                if (left < heapSize && head(lists, positions, heap[left]) < head(lists, positions, heap[smallest])) {
+                    smallest = left;
+                }
+                if (right < heapSize && head(lists, positions, heap[right]) < head(lists, positions, heap[smallest])) {
+                    smallest = right;
+                }
+                if (smallest == i) {
+                    break;
+                }
+                int swap = heap[i];
+                heap[i] = heap[smallest];
+                heap[smallest] = swap;
+                i = smallest;
+            }
+        }
+        return merged;
+    }
+
+    private static int head(Postings[] lists, int[] positions, int list) {
+        return lists[list].docs[positions[list]];
+    }
+
+    private NavigableMap<String, Postings> prefixRange(String prefix) {
+        return words.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+    }
+
+    /**
+     * @return The first position at or after from whose document is at least doc
+     */
+    private static int advance(int[] docs, int size, int from, int doc) {
+        // Gallop forward, then binary search the last step
+        int step = 1;
+        int low = from;
+        int high = from;
+        while (high < size && docs[high] < doc) {
+            low = high + 1;
+            high = from + step;
+            step <<= 1;
+        }
+        high = Math.min(high, size);
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (docs[mid] < doc) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static void siftUp(int[] docs, double[] scores, int i) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (scores[parent] <= scores[i]) {
+                break;
+            }
+            swap(docs, scores, i, parent);
+            i = parent;
+        }
+    }
+
+    private static void siftDown(int[] docs, double[] scores, int size) {
+        int i = 0;
+        while (true) {
+            int smallest = i;
+            int left = 2 * i + 1;
+            int right = left + 1;
+            if (left < size && scores[left] < scores[smallest]) {
+                smallest = left;
+            }
+            if (right < size && scores[right] < scores[smallest]) {
+                smallest = right;
+            }
+            if (smallest == i) {
+                return;
+            }
+            swap(docs, scores, i, smallest);
+            i = smallest;
+        }
+    }
+
+    private static void swap(int[] docs, double[] scores, int a, int b) {
+        int doc = docs[a];
+        docs[a] = docs[b];
+        docs[b] = doc;
+        double score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+    }
+
+    /**
+     * Splits text into lower-case words of letters and digits.
+     *
+     * @param text The text to split
+     * @return The words, in order
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase());
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+}
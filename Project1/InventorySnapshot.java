@@ -0,0 +1,160 @@
+/*
+    Name : Colin Kirby
+    Course : CNT 4714 - Spring 2025
+    Assignment Title : Project 1 - An Event-driven Enterprise Simulation
+    Date : Monday, January 20, 2025
+*/
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reads and writes a compact binary snapshot of the inventory.
+ * Loading a snapshot skips all text parsing: the file is memory-mapped and each
+ * record is decoded straight into an InventoryItem.
+ *
+ * File layout (big-endian):
+ * - int magic ("NILE"), int version, int item count
+ * - per item: short ID length, ID bytes (UTF-8), int description length,
+ *   description bytes (UTF-8), byte in-stock flag, int quantity, long price in cents
+ */
+public class InventorySnapshot {
+    /** Identifies a snapshot file */
+    private static final int MAGIC = 0x4E494C45; // "NILE"
+
+    /** Current format version; snapshots with any other version except VERSION_DOUBLE_PRICE are rejected */
+    static final int VERSION = 2;
+
+    /** Longest Item ID, in UTF-8 bytes, that fits the ID length field */
+    static final int MAX_ID_BYTES = 0xFFFF;
+
+    /** Earlier version that stored the price as a double in dollars; still readable */
+    private static final int VERSION_DOUBLE_PRICE = 1;
+
+    /**
+     * Writes the inventory to a snapshot file. The data is written and synced to a
+     * temporary file first and then moved into place, so a crash never leaves a
+     * half-written snapshot.
+     *
+     * @param inventory The items to write
+     * @param path The snapshot file to create or replace
+     * @throws IOException If the snapshot cannot be written
+     */
+    public static void write(Map<String, InventoryItem> inventory, Path path) throws IOException {
+        write(inventory, path, false);
+    }
+
+    /**
+     * Writes the inventory to a snapshot file, optionally counting stock that is
+     * reserved by open carts as still on hand. Checkpoints use this, because open
+     * carts do not survive a restart.
+     *
+     * @param inventory The items to write
+     * @param path The snapshot file to create or replace
+     * @param includeReserved Whether reserved units are added to each item's quantity
+     * @throws IOException If the snapshot cannot be written, or an Item ID is longer
+     *         than MAX_ID_BYTES
+     */
+    public static void write(Map<String, InventoryItem> inventory, Path path, boolean includeReserved)
+            throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            writeTo(inventory, temp, includeReserved);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeTo(Map<String, InventoryItem> inventory, Path temp, boolean includeReserved)
+            throws IOException {
+        try (FileOutputStream file = new FileOutputStream(temp.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(inventory.size());
+            for (InventoryItem item : inventory.values()) {
+                byte[] id = item.getItemID().getBytes(StandardCharsets.UTF_8);
+                if (id.length > MAX_ID_BYTES) {
+                    throw new IOException("Item ID too long for a snapshot (" + id.length + " bytes): "
+                        + item.getItemID().substring(0, 32) + "...");
+                }
+                byte[] description = item.getDescription().getBytes(StandardCharsets.UTF_8);
+                out.writeShort(id.length);
+                out.write(id);
+                out.writeInt(description.length);
+                out.write(description);
+                out.writeByte(item.isListedInStock() ? 1 : 0);
+                out.writeInt(includeReserved ? item.getQuantity() + item.getReservedQuantity() : item.getQuantity());
+                out.writeLong(item.getPriceCents());
+            }
+            out.flush();
+            file.getFD().sync();
+        }
+    }
+
+    /**
+     * Reads a snapshot file into a new inventory map.
+     *
+     * @param path The snapshot file
+     * @param versions The version clock of the store the items are read into
+     * @param descriptions The description arena of the store the items are read into
+     * @return The items in the snapshot keyed by Item ID
+     * @throws IOException If the file cannot be read, is not a snapshot, or has an unknown version
+     */
+    public static ConcurrentHashMap<String, InventoryItem> read(Path path, InventoryVersions versions, DescriptionArena descriptions)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < 12 || buffer.getInt() != MAGIC) {
+                throw new IOException("Not an inventory snapshot: " + path);
+            }
+            int version = buffer.getInt();
+            if (version != VERSION && version != VERSION_DOUBLE_PRICE) {
+                throw new IOException("Unsupported inventory snapshot version " + version);
+            }
+
+            int count = buffer.getInt();
+            ConcurrentHashMap<String, InventoryItem> inventory = new ConcurrentHashMap<>(Math.max(16, count));
+            byte[] scratch = new byte[256];
+            try {
+                for (int i = 0; i < count; i++) {
+                    int idLength = buffer.getShort() & 0xFFFF;
+                    scratch = ensureCapacity(scratch, idLength);
+                    buffer.get(scratch, 0, idLength);
+                    String itemID = new String(scratch, 0, idLength, StandardCharsets.UTF_8);
+
+                    int descriptionLength = buffer.getInt();
+                    scratch = ensureCapacity(scratch, descriptionLength);
+                    buffer.get(scratch, 0, descriptionLength);
+                    String description = new String(scratch, 0, descriptionLength, StandardCharsets.UTF_8);
+
+                    boolean inStock = buffer.get() != 0;
+                    int quantity = buffer.getInt();
+                    long priceCents = version == VERSION_DOUBLE_PRICE ? Money.ofDollars(buffer.getDouble())
+                                                                      : buffer.getLong();
+                    inventory.put(itemID, new InventoryItem(versions, descriptions, itemID, description, inStock, quantity, priceCents));
+                }
+            } catch (RuntimeException e) {
+                throw new IOException("Truncated inventory snapshot: " + path, e);
+            }
+            return inventory;
+        }
+    }
+
+    private static byte[] ensureCapacity(byte[] buffer, int length) {
+        return buffer.length >= length ? buffer : new byte[Math.max(length, buffer.length * 2)];
+    }
+}
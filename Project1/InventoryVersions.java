@@ -0,0 +1,305 @@
+/*
+    Name : Colin Kirby
+    Course : CNT 4714 - Spring 2025
+    Assignment Title : Project 1 - An Event-driven Enterprise Simulation
+    Date : Monday, January 20, 2025
+*/
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * The version clock behind a store's snapshot reads. Each InventoryLoader (and
+ * each ShardedInventory or TieredCatalog) has its own.
+ *
+ * Every change to an InventoryItem (stock, price, description) installs a new
+ * immutable InventoryItem.State with a compare-and-set, and keeps the older
+ * states the readers still need. A reader takes a Snapshot, which fixes a
+ * version, and reads each item as it was at that version with
+ * InventoryItem.at(snapshot): many items, read one after the other, are seen at
+ * one point in time. Neither readers nor writers take a lock or wait.
+ *
+ * A Change is stamped with a version only after all of its states are
+ * installed, by incrementing the clock. Until then it is pending, and a reader
+ * that meets one of its states raises the change's floor above its own version,
+ * so the change can never become visible part way through that reader's
+ * snapshot. Several item changes made under one Change (an order's checkout)
+ * therefore appear to every reader together or not at all.
+ *
+ * A writer does not wait for a pending change on the same item: it builds on
+ * the pending state, and its change then depends on the pending one, being
+ * visible only to snapshots that see both. Once every change it depends on is
+ * stamped, a change settles to the newest of their versions. So a state is seen
+ * only with everything beneath it, and a reader takes the newest state it sees.
+ *
+ * Open snapshots are counted per version. When a writer adds a state it drops
+ * the states older than any open snapshot can see, so an item keeps at most its
+ * newest state and the one before it when nothing reads the past, and closed
+ * snapshots cost nothing.
+ */
+public final class InventoryVersions {
+    /** Atomic access to a change's stamp */
+    private static final AtomicLongFieldUpdater<Change> STAMP =
+        AtomicLongFieldUpdater.newUpdater(Change.class, "version");
+
+    /** The change that wrote every item's first state, visible to all snapshots */
+    static final Change ORIGIN = new Change(0);
+
+    /** The newest version stamped; snapshots read at it */
+    private final AtomicLong clock = new AtomicLong();
+
+    /** Open snapshots per version */
+    private final ConcurrentSkipListMap<Long, Integer> readers = new ConcurrentSkipListMap<>();
+
+    /**
+     * One writer's changes to one or more items, stamped together.
+     */
+    static final class Change {
+        /**
+         * The version the change was stamped with, or once settled the newest
+         * version of it and the changes it depends on; while the change is
+         * pending, the negated lowest version it may still be stamped with
+         */
+        private volatile long version;
+
+        /**
+         * Unsettled changes this one's states were built on, or null; added to only
+         * by the writer before publish(), and cleared when the change settles
+         */
+        private volatile Change[] after;
+
+        private Change(long version) {
+            this.version = version;
+        }
+
+        /**
+         * Records that one of this change's states was built on another change's
+         * state; a no-op if that change is this one or has settled, since this
+         * change will then be stamped after it.
+         */
+        void dependOn(Change other) {
+            if (other == this || other.settle()) {
+                return;
+            }
+            Change[] before = after;
+            if (before == null) {
+                after = new Change[] {other};
+            } else if (!Arrays.asList(before).contains(other)) {
+                Change[] grown = Arrays.copyOf(before, before.length + 1);
+                grown[before.length] = other;
+                after = grown;
+            }
+        }
+
+        /**
+         * @return True if a snapshot at this version sees the change and every
+         *         change it depends on. A pending change is not seen, and can no
+         *         longer be stamped at or below the version afterwards.
+         */
+        boolean visibleAt(long snapshot) {
+            Change[] none = after;
+            long stamped = version;
+            if (none == null && stamped >= 0 && after == null) {
+                return stamped <= snapshot;
+            }
+            Set<Change> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+            ArrayDeque<Change> next = new ArrayDeque<>();
+            next.push(this);
+            while (!next.isEmpty()) {
+                Change change = next.pop();
+                if (!seen.add(change)) {
+                    continue;
+                }
+                Change[] depends;
+                long stamp;
+                do {
+                    // Read the dependencies on both sides of the stamp, so none
+                    // added before stamping, or cleared by settling, is missed
+                    depends = change.after;
+                    stamp = change.version;
+                } while (depends != change.after);
+                if (stamp < 0) {
+                    if (-stamp > snapshot || STAMP.compareAndSet(change, stamp, -(snapshot + 1))) {
+                        return false;
+                    }
+                    next.push(change);
+                    seen.remove(change);
+                    continue;
+                }
+                if (stamp > snapshot) {
+                    return false;
+                }
+                if (depends != null) {
+                    for (Change depend : depends) {
+                        next.push(depend);
+                    }
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @return True if the change and every change it depends on are stamped at
+         *         or below the version, so every snapshot from then on sees it
+         */
+        boolean stampedBy(long oldest) {
+            return settle() && version <= oldest;
+        }
+
+        /**
+         * Settles the change once it and every change it depends on are stamped:
+         * its version becomes the newest of theirs and its dependencies are dropped.
+         *
+         * @return True if the change has settled
+         */
+        boolean settle() {
+            Change[] none = after;
+            long stamped = version;
+            if (none == null && after == null) {
+                return stamped >= 0;
+            }
+            Set<Change> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+            ArrayDeque<Change> next = new ArrayDeque<>();
+            next.push(this);
+            long newest = 0;
+            while (!next.isEmpty()) {
+                Change change = next.pop();
+                if (!seen.add(change)) {
+                    continue;
+                }
+                Change[] depends;
+                long stamp;
+                do {
+                    depends = change.after;
+                    stamp = change.version;
+                } while (depends != change.after);
+                if (stamp < 0) {
+                    return false;
+                }
+                newest = Math.max(newest, stamp);
+                if (depends != null) {
+                    for (Change depend : depends) {
+                        next.push(depend);
+                    }
+                }
+            }
+            // Every stamp is final, so racing threads settle on the same version
+            version = newest;
+            after = null;
+            return true;
+        }
+
+        /**
+         * @return The stamp, or a negative number while the change is pending
+         */
+        long getVersion() {
+            return version;
+        }
+    }
+
+    /**
+     * An open view of the inventory at one version. Close it when done, so the
+     * states only it needed can be dropped.
+     */
+    public static final class Snapshot implements AutoCloseable {
+        private final InventoryVersions versions;
+        private final long registered;
+        private final long version;
+        private boolean closed;
+
+        private Snapshot(InventoryVersions versions, long registered, long version) {
+            this.versions = versions;
+            this.registered = registered;
+            this.version = version;
+        }
+
+        /**
+         * @return The version this snapshot reads
+         */
+        public long getVersion() { return version; }
+
+        /**
+         * @return The clock the snapshot was taken from
+         */
+        InventoryVersions getVersions() { return versions; }
+
+        @Override
+        public synchronized void close() {
+            if (!closed) {
+                closed = true;
+                versions.readers.computeIfPresent(registered, (v, count) -> count == 1 ? null : count - 1);
+            }
+        }
+    }
+
+    /**
+     * Opens a snapshot of the newest stamped version.
+     *
+     * @return The snapshot; close it when done
+     */
+    public Snapshot snapshot() {
+        // Count the reader before reading its version, so a writer dropping old
+        // states either sees the count or read the clock before this version
+        long registered = clock.get();
+        readers.merge(registered, 1, Integer::sum);
+        return new Snapshot(this, registered, clock.get());
+    }
+
+    /**
+     * @return The newest stamped version
+     */
+    public long getPublished() {
+        return clock.get();
+    }
+
+    /**
+     * @return The number of open snapshots
+     */
+    public int getOpenSnapshots() {
+        int open = 0;
+        for (int count : readers.values()) {
+            open += count;
+        }
+        return open;
+    }
+
+    /**
+     * Starts a change; its states stay invisible to snapshots until publish().
+     *
+     * @return The pending change
+     */
+    Change begin() {
+        return new Change(-1);
+    }
+
+    /**
+     * Stamps a change with the next version once all its states are installed,
+     * making it visible to every snapshot opened from then on. Retried while
+     * readers raise its floor.
+     *
+     * @param change A change from begin(), published once
+     */
+    void publish(Change change) {
+        long pending;
+        do {
+            pending = change.version;
+        } while (!STAMP.compareAndSet(change, pending, clock.incrementAndGet()));
+    }
+
+    /**
+     * @return The oldest version an open snapshot, or a snapshot opened from now
+     *         on, may read
+     */
+    long oldestReadable() {
+        long newest = clock.get();
+        Map.Entry<Long, Integer> oldest = readers.firstEntry();
+        return oldest == null ? newest : Math.min(oldest.getKey(), newest);
+    }
+}
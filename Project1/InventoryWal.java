@@ -0,0 +1,698 @@
+/*
+    Name : Colin Kirby
+    Course : CNT 4714 - Spring 2025
+    Assignment Title : Project 1 - An Event-driven Enterprise Simulation
+    Date : Monday, January 20, 2025
+*/
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead log of inventory stock changes, with periodic checkpoints.
+ *
+ * Every reserve, release, commit, quantity change and restock made through this class is
+ * applied to the InventoryItem and appended to the log. A checkpoint writes the
+ * whole inventory as a snapshot and starts a new log file, so recovery only has to
+ * replay the changes made since the last checkpoint.
+ *
+ * Files, for a base path such as "inventory":
+ * - inventory.wal.N: log generation N
+ * - inventory.checkpoint.N: snapshot that includes every change in generations up to N
+ *
+ * Each log record is: byte type, short ID length, ID bytes (UTF-8), int amount,
+ * int CRC32 of the preceding bytes. A torn record at the end of a log is ignored.
+ *
+ * A batch that is one part of a transaction spanning several logs (see
+ * ShardedInventory) starts with a prepare record holding the transaction ID in
+ * place of the Item ID and the number of records in the batch as its amount.
+ * Recovery applies the batch only if it is told the transaction was committed.
+ *
+ * Reserve and release records are buffered. Commit, uncommit, set and adjust records flush
+ * the buffer (and fsync it when syncing is on), because only those change recovered stock:
+ * open carts do not survive a restart, so their reservations are returned on recovery.
+ *
+ * Every generation starts with a source record holding the size and modification
+ * time of the inventory file the logged stock is based on, and InventoryWatcher
+ * logs a new one whenever it applies an edit. If the file was edited while the
+ * store was down, recovery finds a different file and takes its quantities as
+ * they are, ignoring the checkpoint and log.
+ */
+public class InventoryWal implements Closeable {
+    /** Record types */
+    static final byte RESERVE = 1;
+    static final byte RELEASE = 2;
+    static final byte COMMIT = 3;
+    static final byte SET = 4;
+    static final byte ADJUST_LISTED = 5;
+    static final byte ADJUST_UNLISTED = 6;
+    static final byte UNCOMMIT = 7;
+    static final byte SOURCE = 8;
+    static final byte PREPARE = 9;
+
+    /** Size of the in-memory record buffer */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** Directory holding the log and checkpoint files */
+    private final Path directory;
+
+    /** File name prefix of the log and checkpoint files */
+    private final String baseName;
+
+    /** The inventory whose changes are logged */
+    private final InventoryLoader inventoryLoader;
+
+    /** Whether commit and set records are forced to disk */
+    private final boolean syncWrites;
+
+    /** Fingerprint of the inventory file the logged stock is based on, or null if it is unknown */
+    private String sourceFingerprint;
+
+    /**
+     * Held (shared) while a change is applied and logged, and held exclusively by a
+     * checkpoint, so every change lands either in the checkpoint or in the new log.
+     */
+    private final ReentrantReadWriteLock checkpointLock = new ReentrantReadWriteLock();
+
+    /** Records waiting to be written; guarded by this */
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+    /** Checksum helper; guarded by this */
+    private final CRC32 crc = new CRC32();
+
+    /** The current log generation */
+    private long generation;
+
+    /** The current log file */
+    private FileChannel channel;
+
+    /** Runs periodic checkpoints, if started */
+    private ScheduledExecutorService checkpointer;
+
+    /**
+     * Opens a new log generation after any existing ones. Call
+     * InventoryLoader.recoverStock first, and do not open a log if it fails: the
+     * loader's stock is written as a checkpoint and the existing logs are deleted.
+     *
+     * @param basePath Path prefix of the log and checkpoint files, e.g. "inventory"
+     * @param loader The inventory whose changes are logged
+     * @param syncWrites Whether to fsync commit and set records
+     * @throws IOException If the log file cannot be created
+     */
+    public InventoryWal(Path basePath, InventoryLoader loader, boolean syncWrites) throws IOException {
+        Path absolute = basePath.toAbsolutePath();
+        this.directory = absolute.getParent();
+        this.baseName = absolute.getFileName().toString();
+        this.inventoryLoader = loader;
+        this.syncWrites = syncWrites;
+        this.sourceFingerprint = loader.getSourcePath() != null ? fingerprint(loader.getSourcePath()) : null;
+
+        long last = Math.max(latestGeneration(directory, baseName, ".wal."),
+                             latestGeneration(directory, baseName, ".checkpoint."));
+        if (last >= 0) {
+            // Fold the recovered state into a checkpoint, so reservations left open by
+            // the previous run are never replayed against this run's changes
+            InventorySnapshot.write(loader.getInventory(), checkpointPath(last), true);
+            deleteObsolete(last);
+        }
+        openGeneration(last + 1);
+    }
+
+    /**
+     * Reserves stock and logs it.
+     *
+     * @see InventoryItem#reserve(int)
+     */
+    public boolean reserve(InventoryItem item, int amount) throws IOException {
+        checkpointLock.readLock().lock();
+        try {
+            if (!item.reserve(amount)) {
+                return false;
+            }
+            try {
+                append(RESERVE, item.getItemID(), amount);
+            } catch (IOException e) {
+                item.release(amount); // Unlogged, so the reservation must not stand
+                throw e;
+            }
+            return true;
+        } finally {
+            checkpointLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Releases reserved stock and logs it.
+     *
+     * @see InventoryItem#release(int)
+     */
+    public void release(InventoryItem item, int amount) throws IOException {
+        checkpointLock.readLock().lock();
+        try {
+            item.release(amount);
+            append(RELEASE, item.getItemID(), amount);
+        } finally {
+            checkpointLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Commits reserved stock as sold and logs it durably.
+     *
+     * @see InventoryItem#commit(int)
+     */
+    public void commit(InventoryItem item, int amount) throws IOException {
+        checkpointLock.readLock().lock();
+        try {
+            item.commit(amount);
+            append(COMMIT, item.getItemID(), amount);
+        } finally {
+            checkpointLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Commits reserved stock of several items as sold, as one inventory version,
+     * and logs it durably as one batch, with a single flush and fsync. Either the
+     * whole batch is committed and logged or none of it is.
+     *
+     * @param items The items
+     * @param amounts The units to commit, parallel to items
+     * @throws IOException If the batch cannot be logged; the stock is then still reserved
+     * @throws IllegalStateException If an item has fewer units reserved than its
+     *         amount; the stock is then unchanged
+     * @see InventoryItem#commit(int)
+     */
+    public void commitAll(List<InventoryItem> items, int[] amounts) throws IOException {
+        commitBatch(null, items, amounts);
+    }
+
+    /**
+     * Commits reserved stock of several items as sold, like commitAll, as one log's
+     * part of a transaction that spans several logs. The batch is logged after a
+     * prepare record for the transaction, and recovery applies it only if the
+     * transaction's commit decision was made durable as well.
+     *
+     * @param transaction The transaction ID
+     * @param items The items
+     * @param amounts The units to commit, parallel to items
+     * @throws IOException If the batch cannot be logged; the stock is then still reserved
+     */
+    public void prepareCommit(long transaction, List<InventoryItem> items, int[] amounts) throws IOException {
+        commitBatch(Long.toString(transaction), items, amounts);
+    }
+
+    /**
+     * Puts sold stock of several items back in reserve, like uncommitAll, as one
+     * log's part of a transaction that spans several logs.
+     *
+     * @param transaction The transaction ID
+     * @param items The items
+     * @param amounts The units to put back, parallel to items
+     * @throws IOException If the batch cannot be logged; the stock is then still sold
+     */
+    public void prepareUncommit(long transaction, List<InventoryItem> items, int[] amounts) throws IOException {
+        uncommitBatch(Long.toString(transaction), items, amounts);
+    }
+
+    /**
+     * Commits and logs a batch, after a prepare record if it is part of a transaction.
+     */
+    private void commitBatch(String transaction, List<InventoryItem> items, int[] amounts) throws IOException {
+        checkpointLock.readLock().lock();
+        try {
+            synchronized (this) {
+                // Change the stock as one version, so readers see the whole batch or none of it
+                InventoryItem.commitAll(items, amounts);
+                try {
+                    if (transaction != null) {
+                        append(PREPARE, transaction, items.size(), false);
+                    }
+                    for (int i = 0; i < items.size(); i++) {
+                        append(COMMIT, items.get(i).getItemID(), amounts[i], false);
+                    }
+                    flush(syncWrites);
+                } catch (IOException e) {
+                    InventoryItem.uncommitAll(items, amounts, items.size()); // Unlogged, so the sale must not stand
+                    throw e;
+                }
+            }
+        } finally {
+            checkpointLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Puts sold stock of several items back in reserve, as one inventory version,
+     * and logs it durably: used when an order's stock was committed but the order
+     * could not be recorded.
+     *
+     * @param items The items
+     * @param amounts The units to put back, parallel to items
+     * @throws IOException If the batch cannot be logged; the stock is reserved in memory all the same
+     * @see InventoryItem#uncommit(int)
+     */
+    public void uncommitAll(List<InventoryItem> items, int[] amounts) throws IOException {
+        uncommitBatch(null, items, amounts);
+    }
+
+    /**
+     * Uncommits and logs a batch, after a prepare record if it is part of a transaction.
+     */
+    private void uncommitBatch(String transaction, List<InventoryItem> items, int[] amounts) throws IOException {
+        checkpointLock.readLock().lock();
+        try {
+            synchronized (this) {
+                InventoryItem.uncommitAll(items, amounts, items.size());
+                try {
+                    if (transaction != null) {
+                        append(PREPARE, transaction, items.size(), false);
+                    }
+                    for (int i = 0; i < items.size(); i++) {
+                        append(UNCOMMIT, items.get(i).getItemID(), amounts[i], false);
+                    }
+                    flush(syncWrites);
+                } catch (IOException e) {
+                    if (transaction != null) {
+                        InventoryItem.commitAll(items, amounts); // A prepared part is undone, like a failed commit
+                    }
+                    throw e;
+                }
+            }
+        } finally {
+            checkpointLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Records that the logged stock now reflects the inventory file with the given
+     * fingerprint, after its edits were applied, and logs it durably.
+     *
+     * @param fingerprint The file's fingerprint from fingerprint(), taken before it was read
+     * @throws IOException If the record cannot be logged
+     */
+    public void sourceApplied(String fingerprint) throws IOException {
+        checkpointLock.readLock().lock();
+        try {
+            synchronized (this) {
+                sourceFingerprint = fingerprint;
+                append(SOURCE, fingerprint, 0, true);
+            }
+        } finally {
+            checkpointLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Sets the available quantity of an item (for restocks) and logs it durably.
+     *
+     * @see InventoryItem#setQuantity(int)
+     */
+    public void setQuantity(InventoryItem item, int quantity) throws IOException {
+        checkpointLock.readLock().lock();
+        try {
+            item.setQuantity(quantity);
+            append(SET, item.getItemID(), quantity);
+        } finally {
+            checkpointLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a restock delta to the available quantity, sets the listed in-stock
+     * flag, and logs both durably.
+     *
+     * @see InventoryItem#adjustQuantity(int, boolean)
+     */
+    public void adjustQuantity(InventoryItem item, int delta, boolean listedInStock) throws IOException {
+        checkpointLock.readLock().lock();
+        try {
+            item.adjustQuantity(delta, listedInStock);
+            append(listedInStock ? ADJUST_LISTED : ADJUST_UNLISTED, item.getItemID(), delta);
+        } finally {
+            checkpointLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Writes a checkpoint of the whole inventory and deletes the log generations and
+     * older checkpoints it makes obsolete. Changes wait while the checkpoint runs.
+     *
+     * @throws IOException If the checkpoint cannot be written
+     */
+    public void checkpoint() throws IOException {
+        long covered;
+        checkpointLock.writeLock().lock();
+        try {
+            synchronized (this) {
+                flush(true);
+                covered = generation;
+                channel.close();
+                openGeneration(covered + 1);
+            }
+            InventorySnapshot.write(inventoryLoader.getInventory(), checkpointPath(covered), true);
+        } finally {
+            checkpointLock.writeLock().unlock();
+        }
+
+        deleteObsolete(covered);
+    }
+
+    /**
+     * Starts writing a checkpoint at a fixed interval on a background thread.
+     * Recovery then never replays more than about one interval of changes.
+     *
+     * @param interval The time between checkpoints
+     * @param unit The unit of the interval
+     */
+    public synchronized void startCheckpoints(long interval, TimeUnit unit) {
+        if (checkpointer != null) {
+            return;
+        }
+        checkpointer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "inventory-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        checkpointer.scheduleWithFixedDelay(() -> {
+            try {
+                checkpoint();
+            } catch (IOException e) {
+                System.err.println("Error writing inventory checkpoint: " + e.getMessage());
+            }
+        }, interval, interval, unit);
+    }
+
+    /**
+     * Stops periodic checkpoints, writes any buffered records and closes the log.
+     *
+     * @throws IOException If the log cannot be written or closed
+     */
+    @Override
+    public void close() throws IOException {
+        ScheduledExecutorService scheduler;
+        synchronized (this) {
+            scheduler = checkpointer;
+            checkpointer = null;
+        }
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+        synchronized (this) {
+            flush(true);
+            channel.close();
+        }
+    }
+
+    /**
+     * Appends one record to the buffer, flushing it for all but reserve and release records.
+     */
+    private synchronized void append(byte type, String itemID, int amount) throws IOException {
+        append(type, itemID, amount, type != RESERVE && type != RELEASE);
+    }
+
+    /**
+     * Appends one record to the buffer.
+     *
+     * @param flush Whether to flush the buffer (and fsync it when syncing is on) afterwards
+     */
+    private synchronized void append(byte type, String itemID, int amount, boolean flush) throws IOException {
+        byte[] id = itemID.getBytes(StandardCharsets.UTF_8);
+        int size = 1 + 2 + id.length + 4 + 4;
+        if (buffer.remaining() < size) {
+            flush(false);
+        }
+
+        int start = buffer.position();
+        buffer.put(type);
+        buffer.putShort((short) id.length);
+        buffer.put(id);
+        buffer.putInt(amount);
+        crc.reset();
+        crc.update(buffer.array(), start, buffer.position() - start);
+        buffer.putInt((int) crc.getValue());
+
+        if (flush) {
+            flush(syncWrites);
+        }
+    }
+
+    /**
+     * Writes the buffered records to the log file.
+     *
+     * @param force Whether to also force them to disk
+     */
+    private void flush(boolean force) throws IOException {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } finally {
+            buffer.clear();
+        }
+        if (force) {
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Deletes the log generations and older checkpoints that a durable checkpoint
+     * makes obsolete.
+     *
+     * @param covered The generation of the checkpoint
+     */
+    private void deleteObsolete(long covered) throws IOException {
+        for (long old : generations(directory, baseName, ".wal.")) {
+            if (old <= covered) {
+                Files.deleteIfExists(walPath(old));
+            }
+        }
+        for (long old : generations(directory, baseName, ".checkpoint.")) {
+            if (old < covered) {
+                Files.deleteIfExists(checkpointPath(old));
+            }
+        }
+    }
+
+    private void openGeneration(long newGeneration) throws IOException {
+        generation = newGeneration;
+        channel = FileChannel.open(walPath(newGeneration),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        if (sourceFingerprint != null) {
+            append(SOURCE, sourceFingerprint, 0, true);
+        }
+    }
+
+    /**
+     * Identifies a version of the inventory file by its size and modification time.
+     *
+     * @param source The inventory file
+     * @return The fingerprint, or null if the file does not exist
+     * @throws IOException If the file's attributes cannot be read
+     */
+    static String fingerprint(Path source) throws IOException {
+        try {
+            return Files.size(source) + "@" + Files.getLastModifiedTime(source).toMillis();
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    private Path walPath(long gen) {
+        return directory.resolve(baseName + ".wal." + gen);
+    }
+
+    private Path checkpointPath(long gen) {
+        return directory.resolve(baseName + ".checkpoint." + gen);
+    }
+
+    /**
+     * Rebuilds stock levels from the latest checkpoint and the log generations
+     * written after it. Quantities and in-stock flags of items in the checkpoint are
+     * taken from it; all other item fields stay as loaded from the inventory file.
+     * Reservations of carts that were still open when the process stopped are
+     * returned to stock.
+     *
+     * If the inventory file is not the one the log was last based on, it was edited
+     * while the store was down: its quantities are kept and nothing is restored.
+     *
+     * @param basePath Path prefix of the log and checkpoint files
+     * @param inventory The freshly loaded inventory to update
+     * @param source The inventory file it was loaded from, or null to not check it
+     * @return The number of log records replayed
+     * @throws IOException If a checkpoint or log cannot be read
+     */
+    static long recover(Path basePath, Map<String, InventoryItem> inventory, Path source) throws IOException {
+        return recover(basePath, inventory, source, Collections.emptySet());
+    }
+
+    /**
+     * Rebuilds stock levels like recover(basePath, inventory, source), applying the
+     * prepared batches of the given committed transactions and skipping all others.
+     *
+     * @param committed The IDs of the transactions whose commit decision is durable
+     */
+    static long recover(Path basePath, Map<String, InventoryItem> inventory, Path source, Set<Long> committed)
+            throws IOException {
+        Path absolute = basePath.toAbsolutePath();
+        Path directory = absolute.getParent();
+        String baseName = absolute.getFileName().toString();
+
+        // Start from the latest checkpoint, if there is one
+        long checkpoint = latestGeneration(directory, baseName, ".checkpoint.");
+        Map<String, InventoryItem> saved = checkpoint >= 0
+            ? InventorySnapshot.read(directory.resolve(baseName + ".checkpoint." + checkpoint), new InventoryVersions(),
+                new DescriptionArena())
+            : Collections.emptyMap();
+
+        // Replay the later generations; each entry holds {available, reserved}
+        Map<String, long[]> stock = new HashMap<>();
+        Map<String, Boolean> listed = new HashMap<>();
+        String[] loggedSource = new String[1];
+        long replayed = 0;
+        for (long gen : generations(directory, baseName, ".wal.")) {
+            if (gen > checkpoint) {
+                replayed += replay(directory.resolve(baseName + ".wal." + gen), inventory, saved, stock, listed,
+                    loggedSource, committed);
+            }
+        }
+
+        if (source != null && loggedSource[0] != null && !loggedSource[0].equals(fingerprint(source))) {
+            System.out.println(source.getFileName() + " was edited while the store was stopped;"
+                + " its quantities replace the logged stock.");
+            return 0;
+        }
+        for (InventoryItem savedItem : saved.values()) {
+            InventoryItem item = inventory.get(savedItem.getItemID());
+            if (item != null && !stock.containsKey(savedItem.getItemID())) {
+                item.restore(savedItem.getQuantity(), savedItem.isListedInStock());
+            }
+        }
+
+        // Open carts did not survive, so their reservations count as available again
+        for (Map.Entry<String, long[]> entry : stock.entrySet()) {
+            InventoryItem item = inventory.get(entry.getKey());
+            InventoryItem savedItem = saved.get(entry.getKey());
+            long quantity = entry.getValue()[0] + entry.getValue()[1];
+            boolean inStock = listed.containsKey(entry.getKey()) ? listed.get(entry.getKey())
+                : savedItem != null ? savedItem.isListedInStock() : item.isListedInStock();
+            item.restore((int) Math.max(0, Math.min(Integer.MAX_VALUE, quantity)), inStock);
+        }
+        return replayed;
+    }
+
+    /**
+     * Applies the records of one log file to the running totals. An item's totals
+     * start from its checkpoint quantity, or its loaded quantity if it has none.
+     *
+     * @param source Receives the fingerprint of the last source record
+     * @param committed The transactions whose prepared batches are applied
+     * @return The number of records applied
+     */
+    private static long replay(Path wal, Map<String, InventoryItem> inventory, Map<String, InventoryItem> saved,
+                               Map<String, long[]> stock, Map<String, Boolean> listed, String[] source,
+                               Set<Long> committed) throws IOException {
+        byte[] bytes = Files.readAllBytes(wal);
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        CRC32 crc = new CRC32();
+        long applied = 0;
+        int skipped = 0; // Records left in the batch of a transaction that was not committed
+
+        while (in.remaining() >= 1 + 2 + 4 + 4) {
+            int start = in.position();
+            byte type = in.get();
+            int idLength = in.getShort() & 0xFFFF;
+            if (in.remaining() < idLength + 8) {
+                break; // Torn record at the end of the log
+            }
+            String itemID = new String(bytes, in.position(), idLength, StandardCharsets.UTF_8);
+            in.position(in.position() + idLength);
+            int amount = in.getInt();
+            crc.reset();
+            crc.update(bytes, start, in.position() - start);
+            if (in.getInt() != (int) crc.getValue()) {
+                break; // Corrupt or torn record; nothing after it can be trusted
+            }
+
+            if (skipped > 0) {
+                skipped--;
+                continue;
+            }
+            if (type == PREPARE) {
+                skipped = committed.contains(Long.parseLong(itemID)) ? 0 : amount;
+                continue;
+            }
+            if (type == SOURCE) {
+                source[0] = itemID;
+                continue;
+            }
+            InventoryItem item = inventory.get(itemID);
+            if (item == null) {
+                continue; // The item is no longer in the inventory file
+            }
+            long[] totals = stock.computeIfAbsent(itemID, id -> new long[] {
+                saved.containsKey(id) ? saved.get(id).getQuantity() : item.getQuantity(), 0});
+            switch (type) {
+                case RESERVE: totals[0] -= amount; totals[1] += amount; break;
+                case RELEASE: totals[0] += amount; totals[1] -= amount; break;
+                case COMMIT:  totals[1] -= amount; break;
+                case UNCOMMIT: totals[1] += amount; break;
+                case SET:     totals[0] = amount; listed.put(itemID, amount > 0); break;
+                case ADJUST_LISTED:
+                case ADJUST_UNLISTED:
+                    totals[0] = Math.max(0, totals[0] + amount);
+                    listed.put(itemID, type == ADJUST_LISTED);
+                    break;
+                default:      continue;
+            }
+            applied++;
+        }
+        return applied;
+    }
+
+    /**
+     * @return The highest generation number of the given file kind, or -1 if there is none
+     */
+    private static long latestGeneration(Path directory, String baseName, String kind) throws IOException {
+        List<Long> all = generations(directory, baseName, kind);
+        return all.isEmpty() ? -1 : all.get(all.size() - 1);
+    }
+
+    /**
+     * @return The generation numbers of the given file kind, in ascending order
+     */
+    private static List<Long> generations(Path directory, String baseName, String kind) throws IOException {
+        List<Long> result = new ArrayList<>();
+        String prefix = baseName + kind;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, prefix + "*")) {
+            for (Path file : files) {
+                String suffix = file.getFileName().toString().substring(prefix.length());
+                if (!suffix.isEmpty() && suffix.chars().allMatch(Character::isDigit)) {
+                    result.add(Long.parseLong(suffix));
+                }
+            }
+        }
+        Collections.sort(result);
+        return result;
+    }
+}
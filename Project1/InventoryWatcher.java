@@ -0,0 +1,472 @@
+/*
+    Name : Colin Kirby
+    Course : CNT 4714 - Spring 2025
+    Assignment Title : Project 1 - An Event-driven Enterprise Simulation
+    Date : Monday, January 20, 2025
+*/
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches inventory.csv and applies edits to the live inventory without a restart.
+ *
+ * The watcher remembers a 64-bit hash of every line it has applied. On a reload it
+ * hashes each line of the file again, and only lines with a new hash are parsed;
+ * lines whose hash is gone belong to changed or removed items. The file is still
+ * read once per reload, but parsing and applying cost only as much as the change.
+ *
+ * Changes are applied to the live items so open carts are not disturbed:
+ * - a quantity change is added to the available stock as a delta (a restock of
+ *   +40 adds 40), so reserved units and sales since the last load are kept
+ * - price, description and in-stock flag are updated in place; carts keep the
+ *   price each line was added at
+ * - new items are added to and removed items dropped from the inventory map in
+ *   place; carts that already hold a removed item can still check it out
+ * Each item changes atomically; a reload as a whole is not one atomic step. Once
+ * a reload is applied, the stock log records which version of the file it reflects.
+ *
+ * A reload that finds a malformed line (for example a file caught mid-save)
+ * changes nothing and is retried on the next change event.
+ */
+public class InventoryWatcher implements Closeable {
+    /** Time to let an editor finish saving before reading the file */
+    private static final long SETTLE_MILLIS = 200;
+
+    /** The watched inventory file */
+    private final Path file;
+
+    /** The live inventory */
+    private final InventoryLoader inventoryLoader;
+
+    /** Stock log for restocks, or null if stock is not logged */
+    private final InventoryWal stockLog;
+
+    /** Hashes of the applied lines, with each line's Item ID and quantity */
+    private final LineTable lines = new LineTable();
+
+    /** Reload counter, used to mark the lines seen by a reload */
+    private int generation;
+
+    /** The watch service, once started */
+    private WatchService watchService;
+
+    /** The thread waiting for file changes, once started */
+    private Thread watcherThread;
+
+    /**
+     * Creates a watcher and records the current contents of the file as applied.
+     * Call this right after the inventory was loaded from the same file.
+     *
+     * @param file The inventory file
+     * @param loader The live inventory
+     * @param stockLog Log for restocks, or null
+     * @throws IOException If the file cannot be read
+     * @throws IllegalArgumentException If the file has a malformed line
+     */
+    public InventoryWatcher(Path file, InventoryLoader loader, InventoryWal stockLog) throws IOException {
+        this.file = file.toAbsolutePath();
+        this.inventoryLoader = loader;
+        this.stockLog = stockLog;
+        scan(true);
+    }
+
+    /**
+     * Starts watching the file's directory on a background thread.
+     *
+     * @throws IOException If the directory cannot be watched
+     */
+    public synchronized void start() throws IOException {
+        if (watcherThread != null) {
+            return;
+        }
+        watchService = FileSystems.getDefault().newWatchService();
+        file.getParent().register(watchService,
+            StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        watcherThread = new Thread(this::watchLoop, "inventory-watcher");
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+    }
+
+    /**
+     * Stops watching the file.
+     *
+     * @throws IOException If the watch service cannot be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+            watchService = null;
+            watcherThread = null;
+        }
+    }
+
+    /**
+     * Body of the watcher thread: waits for change events on the file and reloads.
+     */
+    private void watchLoop() {
+        WatchService service = watchService;
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                boolean changed = isOurFile(key);
+                key.reset();
+                if (!changed) {
+                    continue;
+                }
+
+                // Editors often save in several steps; wait until they are done
+                WatchKey more;
+                while ((more = service.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    isOurFile(more);
+                    more.reset();
+                }
+                try {
+                    reload();
+                } catch (IOException | IllegalArgumentException e) {
+                    System.err.println("Error reloading inventory file: " + e.getMessage());
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Watching stopped
+        }
+    }
+
+    private boolean isOurFile(WatchKey key) {
+        boolean ours = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            ours |= file.getFileName().equals(event.context());
+        }
+        return ours;
+    }
+
+    /**
+     * Re-reads the file and applies every changed line to the live inventory.
+     *
+     * @return The number of items updated, added or removed
+     * @throws IOException If the file cannot be read
+     * @throws IllegalArgumentException If a changed line is malformed; nothing is applied
+     */
+    public synchronized int reload() throws IOException {
+        return scan(false);
+    }
+
+    /**
+     * Reads the file, finds the new and vanished lines and, unless this is the
+     * initial scan, applies them.
+     */
+    private int scan(boolean initial) throws IOException {
+        // Taken before reading, so an edit saved during the read is applied again next time
+        String fingerprint = stockLog != null && !initial ? InventoryWal.fingerprint(file) : null;
+        int mark = ++generation;
+        List<Row> newRows = new ArrayList<>();
+        InventoryCsvParser parser = new InventoryCsvParser();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            forEachLine(channel, (bytes, from, to) -> {
+                long hash = hash(bytes, from, to);
+                int slot = lines.find(hash);
+                if (slot >= 0) {
+                    lines.seen[slot] = mark;
+                    return;
+                }
+                parser.parseLine(bytes, from, to, (itemID, description, inStock, quantity, price) ->
+                    newRows.add(new Row(hash, itemID, description, inStock, quantity, Money.ofDollars(price))));
+            });
+        }
+
+        // Lines not seen this time were changed or deleted: remember their file quantities
+        Map<String, Integer> vanished = new HashMap<>();
+        for (int slot = 0; slot < lines.ids.length; slot++) {
+            if (lines.ids[slot] != null && lines.seen[slot] != mark) {
+                vanished.put(lines.ids[slot], lines.quantities[slot]);
+            }
+        }
+        lines.removeUnseen(mark);
+        Map<String, InventoryItem> inventory = inventoryLoader.getInventory();
+        for (Row row : newRows) {
+            // Share the item's own ID String, or the one a new item will be created with
+            InventoryItem item = inventory.get(row.itemID);
+            lines.insert(row.hash, item != null ? item.getItemID() : row.itemID, row.quantity, mark);
+        }
+        if (initial) {
+            return 0;
+        }
+
+        // Apply new and changed lines; a later line for the same item wins
+        Map<String, InventoryItem> added = new HashMap<>();
+        int updated = 0;
+        for (Row row : newRows) {
+            InventoryItem item = inventory.get(row.itemID);
+            if (item == null) {
+                added.put(row.itemID, new InventoryItem(inventoryLoader.getVersions(), inventoryLoader.getDescriptions(),
+                    row.itemID, row.description, row.inStock, row.quantity, row.priceCents));
+                continue;
+            }
+
+            Integer previous = vanished.remove(row.itemID);
+            int delta = previous != null ? row.quantity - previous
+                                         : row.quantity - item.getQuantity() - item.getReservedQuantity();
+            adjust(item, delta, row.inStock);
+            boolean renamed = !item.getDescription().equals(row.description);
+            item.updateListing(row.priceCents, row.description);
+            if (renamed) {
+                inventoryLoader.getSearchIndex().add(item); // Re-index under the new words
+            }
+            updated++;
+        }
+
+        // Items whose line vanished and did not come back are gone from the file
+        Set<String> removed = new HashSet<>();
+        for (String itemID : vanished.keySet()) {
+            if (inventory.containsKey(itemID)) {
+                removed.add(itemID);
+            }
+        }
+        lines.retainUnlisted(removed);
+        inventoryLoader.updateItems(added.values(), removed);
+        inventoryLoader.compactDescriptions();
+        if (fingerprint != null) {
+            try {
+                stockLog.sourceApplied(fingerprint);
+            } catch (IOException e) {
+                System.err.println("Error writing inventory log: " + e.getMessage());
+            }
+        }
+
+        int total = updated + added.size() + removed.size();
+        if (total > 0) {
+            System.out.println("Inventory reloaded: " + updated + " updated, " + added.size() + " added, "
+                + removed.size() + " removed.");
+        }
+        return total;
+    }
+
+    private void adjust(InventoryItem item, int delta, boolean inStock) {
+        if (stockLog == null) {
+            item.adjustQuantity(delta, inStock);
+            return;
+        }
+        try {
+            stockLog.adjustQuantity(item, delta, inStock);
+        } catch (IOException e) {
+            System.err.println("Error writing inventory log: " + e.getMessage());
+        }
+    }
+
+    /**
+     * A new or changed line of the file, parsed
+     */
+    private static class Row {
+        final long hash;
+        final String itemID;
+        final String description;
+        final boolean inStock;
+        final int quantity;
+        final long priceCents;
+
+        Row(long hash, String itemID, String description, boolean inStock, int quantity, long priceCents) {
+            this.hash = hash;
+            this.itemID = itemID;
+            this.description = description;
+            this.inStock = inStock;
+            this.quantity = quantity;
+            this.priceCents = priceCents;
+        }
+    }
+
+    /**
+     * Receives each non-blank line of the file.
+     */
+    private interface LineVisitor {
+        void line(byte[] bytes, int from, int to);
+    }
+
+    /**
+     * Reads the file in large blocks and passes each non-blank line, without its
+     * line ending, to the visitor.
+     */
+    private static void forEachLine(FileChannel channel, LineVisitor visitor) throws IOException {
+        byte[] buffer = new byte[1 << 16];
+        int filled = 0;
+        long position = 0;
+        while (true) {
+            if (filled == buffer.length) {
+                buffer = java.util.Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            int read = channel.read(ByteBuffer.wrap(buffer, filled, buffer.length - filled), position);
+            if (read < 0) {
+                break;
+            }
+            position += read;
+            filled += read;
+
+            int lineStart = 0;
+            for (int i = 0; i < filled; i++) {
+                if (buffer[i] == '\n') {
+                    visitLine(buffer, lineStart, i, visitor);
+                    lineStart = i + 1;
+                }
+            }
+            filled -= lineStart;
+            System.arraycopy(buffer, lineStart, buffer, 0, filled);
+        }
+        if (filled > 0) {
+            visitLine(buffer, 0, filled, visitor);
+        }
+    }
+
+    private static void visitLine(byte[] buffer, int from, int to, LineVisitor visitor) {
+        if (to > from && buffer[to - 1] == '\r') {
+            to--;
+        }
+        for (int i = from; i < to; i++) {
+            if (buffer[i] != ' ' && buffer[i] != '\t') {
+                visitor.line(buffer, from, to);
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return A 64-bit FNV-1a hash of bytes [from, to), finished with a mixing step
+     */
+    private static long hash(byte[] bytes, int from, int to) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = from; i < to; i++) {
+            h ^= bytes[i];
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Open-addressing table from line hash to the line's Item ID and quantity,
+     * with the reload that last saw the line. Linear probing, backward-shift deletion.
+     */
+    private static class LineTable {
+        long[] hashes = new long[16];
+        String[] ids = new String[16];
+        int[] quantities = new int[16];
+        int[] seen = new int[16];
+        int size;
+
+        int find(long hash) {
+            int mask = ids.length - 1;
+            for (int slot = (int) hash & mask; ids[slot] != null; slot = (slot + 1) & mask) {
+                if (hashes[slot] == hash) {
+                    return slot;
+                }
+            }
+            return -1;
+        }
+
+        /** Keeps only the Item IDs that no line in the table has, in one pass */
+        void retainUnlisted(Set<String> itemIDs) {
+            for (int slot = 0; slot < ids.length && !itemIDs.isEmpty(); slot++) {
+                if (ids[slot] != null) {
+                    itemIDs.remove(ids[slot]);
+                }
+            }
+        }
+
+        void insert(long hash, String itemID, int quantity, int mark) {
+            if (find(hash) >= 0) {
+                return; // Identical line seen twice
+            }
+            if ((size + 1) * 4 > ids.length * 3) {
+                grow();
+            }
+            int mask = ids.length - 1;
+            int slot = (int) hash & mask;
+            while (ids[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            hashes[slot] = hash;
+            ids[slot] = itemID;
+            quantities[slot] = quantity;
+            seen[slot] = mark;
+            size++;
+        }
+
+        /** Deletes every line not seen by the given reload */
+        void removeUnseen(int mark) {
+            int mask = ids.length - 1;
+            int slot = 0;
+            while (slot < ids.length) {
+                if (ids[slot] == null || seen[slot] == mark) {
+                    slot++;
+                    continue;
+                }
+                size--;
+
+                // Backward-shift deletion keeps probe chains intact
+                int hole = slot;
+                int next = (hole + 1) & mask;
+                while (ids[next] != null) {
+                    int home = (int) hashes[next] & mask;
+                    if (((next - home) & mask) >= ((next - hole) & mask)) {
+                        move(next, hole);
+                        hole = next;
+                    }
+                    next = (next + 1) & mask;
+                }
+                ids[hole] = null;
+                // Re-examine this slot: an entry may have shifted into it
+            }
+        }
+
+        private void move(int from, int to) {
+            hashes[to] = hashes[from];
+            ids[to] = ids[from];
+            quantities[to] = quantities[from];
+            seen[to] = seen[from];
+        }
+
+        private void grow() {
+            long[] oldHashes = hashes;
+            String[] oldIds = ids;
+            int[] oldQuantities = quantities;
+            int[] oldSeen = seen;
+            int capacity = ids.length * 2;
+            hashes = new long[capacity];
+            ids = new String[capacity];
+            quantities = new int[capacity];
+            seen = new int[capacity];
+            int mask = capacity - 1;
+            for (int i = 0; i < oldIds.length; i++) {
+                if (oldIds[i] != null) {
+                    int slot = (int) oldHashes[i] & mask;
+                    while (ids[slot] != null) {
+                        slot = (slot + 1) & mask;
+                    }
+                    hashes[slot] = oldHashes[i];
+                    ids[slot] = oldIds[i];
+                    quantities[slot] = oldQuantities[i];
+                    seen[slot] = oldSeen[i];
+                }
+            }
+        }
+    }
+}
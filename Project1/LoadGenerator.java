@@ -0,0 +1,668 @@
+/*
+    Name : Colin Kirby
+    Course : CNT 4714 - Spring 2025
+    Assignment Title : Project 1 - An Event-driven Enterprise Simulation
+    Date : Monday, January 20, 2025
+*/
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Load generator that replays shopper sessions against the order logic and
+ * reports how many sessions and orders per second it sustains.
+ *
+ * Each simulated shopper follows the same steps as a user of the GUI:
+ * - searches for a few items by Item ID
+ * - adds one to five items to the cart, each with a quantity
+ * - sometimes deletes the last item again
+ * - checks out, or sometimes abandons the cart
+ * - empties the cart to start a new order
+ *
+ * Items are drawn from the inventory with a Zipf popularity distribution: the item
+ * of rank k is picked with a weight of 1 / k^s, so a few items get most of the
+ * traffic. An exponent of 0 picks every item equally often.
+ *
+ * A fixed number of sessions run concurrently. On Java 21 and later each one gets
+ * a virtual thread, so hundreds of thousands of shoppers can be in flight at once;
+ * older runtimes fall back to platform threads, capped at MAX_PLATFORM_THREADS.
+ *
+ * For every operation the tool reports its count, throughput and p50, p99 and
+ * p99.9 latency, plus the outcome of each add-to-cart. Orders go to a temporary
+ * transaction log, without fsync unless asked for.
+ *
+ * With --http the shoppers go through a StorefrontServer started on a free
+ * loopback port, one HTTP request per step, so the figures include the HTTP
+ * server, the JSON and the client.
+ *
+ * Usage:
+ *   java LoadGenerator [options]
+ *     --inventory file     inventory to sell from (default inventory.csv)
+ *     --generate rows      generate an inventory of this many items instead
+ *     --sessions n         sessions to run in total (default 100000)
+ *     --concurrency n      sessions in flight at once (default 1000)
+ *     --zipf s             popularity exponent, 0 for uniform (default 1.0)
+ *     --stock n            units on hand for every item before the run (default 1000000, -1 keeps the file's)
+ *     --think ms           mean pause between a shopper's steps (default 0)
+ *     --warmup n           sessions run before measuring (default 10000)
+ *     --transactions file  keep the transaction log in this file
+ *     --sync               fsync each batch of orders
+ *     --platform           use platform threads even when virtual threads exist
+ *     --http               shop through an embedded StorefrontServer over HTTP
+ *     --seed n             random seed (default 42)
+ */
+public class LoadGenerator {
+    /** Most platform threads started when virtual threads are not available */
+    private static final int MAX_PLATFORM_THREADS = 2000;
+
+    /** Chance that a shopper deletes the last item added */
+    private static final double DELETE_RATE = 0.2;
+
+    /** Chance that a shopper abandons the cart instead of checking out */
+    private static final double ABANDON_RATE = 0.1;
+
+    /**
+     * The measured operations
+     */
+    enum Operation {
+        SEARCH("search"),
+        ADD_TO_CART("add to cart"),
+        DELETE_LAST_ITEM("delete last item"),
+        CHECKOUT("checkout"),
+        EMPTY_CART("empty cart"),
+        SESSION("whole session");
+
+        final String label;
+
+        Operation(String label) {
+            this.label = label;
+        }
+    }
+
+    /**
+     * One shopper's view of the store: a cart and the steps of a session
+     */
+    interface Shopper {
+        LookupResult.Status search(String itemId, int quantity) throws Exception;
+
+        LookupResult.Status addToCart(String itemId, int quantity) throws Exception;
+
+        /** @return Whether an item was removed */
+        boolean deleteLastItem() throws Exception;
+
+        /** @return Whether an order was placed; throws if it could not be recorded */
+        boolean checkout() throws Exception;
+
+        void emptyCart() throws Exception;
+    }
+
+    /**
+     * Shops in process, straight through the OrderEngine
+     */
+    static class LocalShopper implements Shopper {
+        private final OrderEngine engine;
+        private final OrderSession session;
+
+        LocalShopper(OrderEngine engine) {
+            this.engine = engine;
+            this.session = engine.openSession();
+        }
+
+        public LookupResult.Status search(String itemId, int quantity) {
+            return engine.search(itemId, quantity).getStatus();
+        }
+
+        public LookupResult.Status addToCart(String itemId, int quantity) {
+            return session.addToCart(itemId, quantity).getStatus();
+        }
+
+        public boolean deleteLastItem() {
+            return session.deleteLastItem() != null;
+        }
+
+        public boolean checkout() {
+            return session.checkout().join() != null;
+        }
+
+        public void emptyCart() {
+            session.emptyCart();
+        }
+    }
+
+    /**
+     * Shops through a StorefrontServer with one HTTP request per step
+     */
+    static class HttpShopper implements Shopper {
+        private final HttpClient client;
+        private final String base;
+        private final String cart;
+
+        HttpShopper(HttpClient client, String base) throws Exception {
+            this.client = client;
+            this.base = base;
+            HttpResponse<String> response = send("POST", "/carts");
+            if (response.statusCode() != 201) {
+                throw new IOException("Could not open a cart: HTTP " + response.statusCode());
+            }
+            this.cart = "/carts/" + field(response.body(), "cart");
+        }
+
+        public LookupResult.Status search(String itemId, int quantity) throws Exception {
+            return status(send("GET", "/items/" + itemId + "?quantity=" + quantity));
+        }
+
+        public LookupResult.Status addToCart(String itemId, int quantity) throws Exception {
+            return status(send("POST", cart + "/items?item=" + itemId + "&quantity=" + quantity));
+        }
+
+        public boolean deleteLastItem() throws Exception {
+            return send("DELETE", cart + "/items/last").statusCode() == 200;
+        }
+
+        public boolean checkout() throws Exception {
+            int code = send("POST", cart + "/checkout").statusCode();
+            if (code != 200 && code != 409) {
+                throw new IOException("Checkout failed: HTTP " + code);
+            }
+            return code == 200;
+        }
+
+        public void emptyCart() throws Exception {
+            send("POST", cart + "/empty");
+        }
+
+        private HttpResponse<String> send(String method, String path) throws Exception {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(base + path))
+                .method(method, HttpRequest.BodyPublishers.noBody())
+                .build();
+            return client.send(request, HttpResponse.BodyHandlers.ofString());
+        }
+
+        private static LookupResult.Status status(HttpResponse<String> response) throws IOException {
+            try {
+                return LookupResult.Status.valueOf(field(response.body(), "status"));
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Unexpected response: HTTP " + response.statusCode() + " " + response.body());
+            }
+        }
+
+        /**
+         * @return The value of a string field in a flat JSON response
+         */
+        private static String field(String json, String name) {
+            String key = "\"" + name + "\":\"";
+            int start = json.indexOf(key);
+            if (start < 0) {
+                return "";
+            }
+            start += key.length();
+            return json.substring(start, json.indexOf('"', start));
+        }
+    }
+
+    /**
+     * Counters and latency histograms of one run; shared by all shopper threads
+     */
+    static class Stats {
+        final LatencyHistogram[] latencies = new LatencyHistogram[Operation.values().length];
+        final AtomicLongArray outcomes = new AtomicLongArray(LookupResult.Status.values().length);
+        final AtomicLong orders = new AtomicLong();
+        final AtomicLong failedCheckouts = new AtomicLong();
+
+        Stats() {
+            for (int i = 0; i < latencies.length; i++) {
+                latencies[i] = new LatencyHistogram();
+            }
+        }
+
+        void record(Operation operation, long nanos) {
+            latencies[operation.ordinal()].record(nanos);
+        }
+    }
+
+    /** Opens a shopper for each worker */
+    private final ShopperFactory shoppers;
+
+    /** Item IDs in popularity order, most popular first */
+    private final String[] itemIds;
+
+    /** Cumulative Zipf probabilities, parallel to itemIds */
+    private final double[] popularity;
+
+    /** Mean think time between steps, in milliseconds */
+    private final double thinkMillis;
+
+    /**
+     * Opens the shoppers a run's workers use
+     */
+    interface ShopperFactory {
+        Shopper open() throws Exception;
+    }
+
+    private LoadGenerator(ShopperFactory shoppers, String[] itemIds, double zipfExponent, double thinkMillis) {
+        this.shoppers = shoppers;
+        this.itemIds = itemIds;
+        this.popularity = zipfCumulative(itemIds.length, zipfExponent);
+        this.thinkMillis = thinkMillis;
+    }
+
+    /**
+     * Runs the load test.
+     *
+     * @param args Options, see the class description
+     */
+    public static void main(String[] args) throws Exception {
+        String inventoryPath = "inventory.csv";
+        int generate = 0;
+        long sessions = 100_000;
+        int concurrency = 1000;
+        double zipf = 1.0;
+        int stock = 1_000_000;
+        double think = 0;
+        long warmup = 10_000;
+        String transactionsPath = null;
+        boolean sync = false;
+        boolean platform = false;
+        boolean http = false;
+        long seed = 42;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--inventory":    inventoryPath = args[++i]; break;
+                case "--generate":     generate = Integer.parseInt(args[++i]); break;
+                case "--sessions":     sessions = Long.parseLong(args[++i]); break;
+                case "--concurrency":  concurrency = Integer.parseInt(args[++i]); break;
+                case "--zipf":         zipf = Double.parseDouble(args[++i]); break;
+                case "--stock":        stock = Integer.parseInt(args[++i]); break;
+                case "--think":        think = Double.parseDouble(args[++i]); break;
+                case "--warmup":       warmup = Long.parseLong(args[++i]); break;
+                case "--transactions": transactionsPath = args[++i]; break;
+                case "--sync":         sync = true; break;
+                case "--platform":     platform = true; break;
+                case "--http":         http = true; break;
+                case "--seed":         seed = Long.parseLong(args[++i]); break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(2);
+            }
+        }
+
+        // Load the inventory to sell from
+        InventoryLoader loader = new InventoryLoader();
+        if (generate > 0) {
+            File file = NileBenchmark.generateInventory(generate);
+            loader.loadInventory(file.getPath());
+            file.delete();
+        } else {
+            loader.loadInventory(inventoryPath);
+        }
+        Map<String, InventoryItem> inventory = loader.getInventory();
+        if (inventory.isEmpty()) {
+            System.err.println("Error: No inventory to sell from.");
+            System.exit(1);
+        }
+        if (stock >= 0) {
+            for (InventoryItem item : inventory.values()) {
+                item.setQuantity(stock);
+            }
+        }
+
+        // Rank the items in a random but repeatable order of popularity
+        List<String> ids = new ArrayList<>(inventory.keySet());
+        Collections.sort(ids);
+        Collections.shuffle(ids, new Random(seed));
+
+        boolean temporary = transactionsPath == null;
+        Path transactions = temporary ? Files.createTempFile("nile-load", ".csv") : Paths.get(transactionsPath);
+        OrderEngine engine = new OrderEngine(loader, transactions.toString(), sync);
+        SessionStore carts = null;
+        StorefrontServer server = null;
+        ShopperFactory shoppers = () -> new LocalShopper(engine);
+        if (http) {
+            carts = new SessionStore(engine, StorefrontServer.CART_TIME_TO_LIVE);
+            carts.start();
+            server = new StorefrontServer(engine, carts, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            server.start();
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            String base = "http://" + InetAddress.getLoopbackAddress().getHostAddress() + ":" + server.getPort();
+            shoppers = () -> new HttpShopper(client, base);
+        }
+        LoadGenerator generator = new LoadGenerator(shoppers, ids.toArray(new String[0]), zipf, think);
+
+        ExecutorService executor = newExecutor(platform, concurrency);
+        boolean virtual = !(executor instanceof ThreadPoolExecutor);
+        int workers = virtual ? concurrency : Math.min(concurrency, MAX_PLATFORM_THREADS);
+        try {
+            System.out.printf("%d items, Zipf exponent %.2f, %d concurrent sessions on %s threads%s%n",
+                ids.size(), zipf, workers, virtual ? "virtual" : "platform",
+                http ? ", over HTTP to port " + server.getPort() : "");
+            if (warmup > 0) {
+                generator.run(executor, workers, warmup, seed - 1);
+                System.out.println("Warmed up with " + warmup + " sessions.");
+            }
+            long start = System.nanoTime();
+            Stats stats = generator.run(executor, workers, sessions, seed);
+            long elapsed = System.nanoTime() - start;
+            printReport(stats, sessions, elapsed);
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+            if (server != null) {
+                server.stop(0);
+                carts.stop();
+            }
+            engine.close();
+            if (temporary) {
+                deleteLog(transactions);
+            }
+        }
+    }
+
+    /**
+     * Runs sessions until the given number has completed, with the given number in
+     * flight at once.
+     *
+     * @return The counters and latencies of the run
+     */
+    private Stats run(ExecutorService executor, int workers, long sessions, long seed) throws Exception {
+        Stats stats = new Stats();
+        AtomicLong next = new AtomicLong();
+        SplittableRandom seeds = new SplittableRandom(seed);
+        List<Future<?>> running = new ArrayList<>(workers);
+        for (int w = 0; w < workers; w++) {
+            SplittableRandom random = seeds.split();
+            running.add(executor.submit(() -> {
+                Shopper shopper = shoppers.open();
+                while (next.getAndIncrement() < sessions) {
+                    shop(shopper, random, stats);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> worker : running) {
+            worker.get();
+        }
+        return stats;
+    }
+
+    /**
+     * Plays one shopper session from the first search to the emptied cart.
+     */
+    private void shop(Shopper shopper, SplittableRandom random, Stats stats) throws Exception {
+        long sessionStart = System.nanoTime();
+
+        // Look a few items up, as the GUI does before adding one
+        int searches = 1 + random.nextInt(3);
+        for (int i = 0; i < searches; i++) {
+            String itemId = pickItem(random);
+            int quantity = pickQuantity(random);
+            long start = System.nanoTime();
+            shopper.search(itemId, quantity);
+            stats.record(Operation.SEARCH, System.nanoTime() - start);
+            think(random);
+        }
+
+        // Fill the cart
+        int items = 1 + random.nextInt(OrderEngine.MAX_CART_SIZE);
+        int inCart = 0;
+        for (int i = 0; i < items; i++) {
+            String itemId = pickItem(random);
+            int quantity = pickQuantity(random);
+            long start = System.nanoTime();
+            LookupResult.Status status = shopper.addToCart(itemId, quantity);
+            stats.record(Operation.ADD_TO_CART, System.nanoTime() - start);
+            stats.outcomes.incrementAndGet(status.ordinal());
+            if (status == LookupResult.Status.OK) {
+                inCart++;
+            }
+            think(random);
+        }
+        if (random.nextDouble() < DELETE_RATE) {
+            long start = System.nanoTime();
+            if (shopper.deleteLastItem()) {
+                inCart--;
+            }
+            stats.record(Operation.DELETE_LAST_ITEM, System.nanoTime() - start);
+            think(random);
+        }
+
+        // Check out, unless the shopper walks away
+        if (random.nextDouble() >= ABANDON_RATE && inCart > 0) {
+            long start = System.nanoTime();
+            try {
+                if (shopper.checkout()) {
+                    stats.orders.incrementAndGet();
+                }
+            } catch (RuntimeException | IOException e) {
+                stats.failedCheckouts.incrementAndGet();
+            }
+            stats.record(Operation.CHECKOUT, System.nanoTime() - start);
+            think(random);
+        }
+
+        long start = System.nanoTime();
+        shopper.emptyCart();
+        long end = System.nanoTime();
+        stats.record(Operation.EMPTY_CART, end - start);
+        stats.record(Operation.SESSION, end - sessionStart);
+    }
+
+    /**
+     * @return An Item ID drawn from the popularity distribution
+     */
+    private String pickItem(SplittableRandom random) {
+        int index = Arrays.binarySearch(popularity, random.nextDouble());
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return itemIds[Math.min(index, itemIds.length - 1)];
+    }
+
+    /**
+     * @return A quantity where small orders are common and bulk orders rare,
+     *         spread over every discount tier
+     */
+    private static int pickQuantity(SplittableRandom random) {
+        double roll = random.nextDouble();
+        if (roll < 0.70) return 1 + random.nextInt(4);
+        if (roll < 0.90) return 5 + random.nextInt(5);
+        if (roll < 0.97) return 10 + random.nextInt(5);
+        return 15 + random.nextInt(10);
+    }
+
+    /**
+     * Pauses for an exponentially distributed think time, if one is configured.
+     */
+    private void think(SplittableRandom random) throws InterruptedException {
+        if (thinkMillis > 0) {
+            long nanos = (long) (-Math.log(1 - random.nextDouble()) * thinkMillis * 1_000_000);
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        }
+    }
+
+    /**
+     * Computes the cumulative Zipf distribution over the given number of ranks.
+     *
+     * @param n The number of items
+     * @param exponent The Zipf exponent s; rank k has weight 1 / k^s
+     * @return The cumulative probability of each rank, ending at 1
+     */
+    static double[] zipfCumulative(int n, double exponent) {
+        double[] cumulative = new double[n];
+        double sum = 0;
+        for (int k = 0; k < n; k++) {
+            sum += 1 / Math.pow(k + 1, exponent);
+            cumulative[k] = sum;
+        }
+        for (int k = 0; k < n; k++) {
+            cumulative[k] /= sum;
+        }
+        return cumulative;
+    }
+
+    /**
+     * Creates the executor that runs the sessions: one virtual thread per task when
+     * the runtime has them, a fixed pool of platform threads otherwise.
+     */
+    private static ExecutorService newExecutor(boolean platform, int concurrency) {
+        if (!platform) {
+            try {
+                Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                return (ExecutorService) factory.invoke(null);
+            } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+                System.err.println("Virtual threads are not available, using platform threads.");
+            }
+        }
+        return Executors.newFixedThreadPool(Math.min(concurrency, MAX_PLATFORM_THREADS));
+    }
+
+    /**
+     * Prints the throughput of the run and the latency of each operation.
+     */
+    private static void printReport(Stats stats, long sessions, long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        System.out.printf("%nSessions: %,d in %.2f s = %,.0f sessions/s%n", sessions, seconds, sessions / seconds);
+        System.out.printf("Orders: %,d = %,.0f orders/s (%,d failed checkouts)%n%n",
+            stats.orders.get(), stats.orders.get() / seconds, stats.failedCheckouts.get());
+
+        System.out.printf("%-18s %12s %12s %10s %10s %10s %10s %10s%n",
+            "Operation", "count", "ops/s", "mean us", "p50 us", "p99 us", "p999 us", "max us");
+        for (Operation operation : Operation.values()) {
+            LatencyHistogram histogram = stats.latencies[operation.ordinal()];
+            if (histogram.count() == 0) {
+                continue;
+            }
+            System.out.printf("%-18s %,12d %,12.0f %10.1f %10.1f %10.1f %10.1f %10.1f%n",
+                operation.label,
+                histogram.count(),
+                histogram.count() / seconds,
+                histogram.mean() / 1000,
+                histogram.percentile(0.50) / 1000.0,
+                histogram.percentile(0.99) / 1000.0,
+                histogram.percentile(0.999) / 1000.0,
+                histogram.max() / 1000.0);
+        }
+
+        System.out.println();
+        System.out.println("Add to cart outcomes:");
+        for (LookupResult.Status status : LookupResult.Status.values()) {
+            long count = stats.outcomes.get(status.ordinal());
+            if (count > 0) {
+                System.out.printf("  %-20s %,12d%n", status, count);
+            }
+        }
+    }
+
+    /**
+     * Deletes a temporary transaction log with its index and any rotated segments.
+     */
+    private static void deleteLog(Path transactions) {
+        try {
+            for (Path segment : TransactionJournal.sealedSegments(transactions).values()) {
+                Files.deleteIfExists(TransactionIndex.indexPath(segment));
+                Files.deleteIfExists(segment);
+            }
+            Files.deleteIfExists(TransactionIndex.indexPath(transactions));
+            Files.deleteIfExists(transactions);
+        } catch (IOException e) {
+            System.err.println("Error deleting temporary transaction log: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Lock-free latency histogram with log-linear buckets: every power of two is
+     * split into 64 equal buckets, so any recorded value is reported within about
+     * 1.6% of its true value, from nanoseconds to minutes.
+     */
+    static class LatencyHistogram {
+        /** Values below SUB_BUCKETS get exact buckets; each power of two above gets SUB_BUCKETS / 2 */
+        private static final int SUB_BUCKET_BITS = 7;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+        private final AtomicLongArray counts = new AtomicLongArray((64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS);
+        private final AtomicLong total = new AtomicLong();
+        private final AtomicLong sum = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        void record(long nanos) {
+            long value = Math.max(0, nanos);
+            counts.incrementAndGet(bucketOf(value));
+            total.incrementAndGet();
+            sum.addAndGet(value);
+            long current;
+            while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+                // Retry until the larger value is stored
+            }
+        }
+
+        long count() { return total.get(); }
+
+        long max() { return max.get(); }
+
+        double mean() {
+            long n = total.get();
+            return n == 0 ? 0 : (double) sum.get() / n;
+        }
+
+        /**
+         * @param fraction The percentile as a fraction, e.g. 0.99
+         * @return The upper edge of the bucket holding that percentile, in nanoseconds
+         */
+        long percentile(double fraction) {
+            long rank = (long) Math.ceil(fraction * total.get());
+            long seen = 0;
+            for (int bucket = 0; bucket < counts.length(); bucket++) {
+                seen += counts.get(bucket);
+                if (seen >= rank && seen > 0) {
+                    return Math.min(upperEdge(bucket), max.get());
+                }
+            }
+            return max.get();
+        }
+
+        /**
+         * Values below SUB_BUCKETS get a bucket each; above that, the bucket is found
+         * from the position of the highest set bit and the SUB_BUCKET_BITS below it.
+         */
+        private static int bucketOf(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS + 1;
+            int subBucket = (int) (value >>> exponent) - SUB_BUCKETS / 2;
+            return exponent * SUB_BUCKETS / 2 + SUB_BUCKETS / 2 + subBucket;
+        }
+
+        private static long upperEdge(int bucket) {
+            if (bucket < SUB_BUCKETS) {
+                return bucket;
+            }
+            int exponent = (bucket - SUB_BUCKETS / 2) / (SUB_BUCKETS / 2);
+            long subBucket = (bucket - SUB_BUCKETS / 2) % (SUB_BUCKETS / 2) + SUB_BUCKETS / 2;
+            return ((subBucket + 1) << exponent) - 1;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+    Name : Colin Kirby
+    Course : CNT 4714 - Spring 2025
+    Assignment Title : Project 1 - An Event-driven Enterprise Simulation
+    Date : Monday, January 20, 2025
+*/
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * The stock of a single InventoryLoader. Stock changes go through the atomic
+ * operations of InventoryItem, and through an InventoryWal when one is set so
+ * they survive a restart.
+ */
+class LoaderStockStore implements StockStore {
+    /** The inventory */
+    private final InventoryLoader loader;
+
+    /** Write-ahead log for stock changes, or null to keep stock in memory only */
+    private volatile InventoryWal wal;
+
+    /**
+     * @param loader The inventory
+     */
+    LoaderStockStore(InventoryLoader loader) {
+        this.loader = loader;
+    }
+
+    /**
+     * @return The inventory
+     */
+    InventoryLoader getLoader() {
+        return loader;
+    }
+
+    /**
+     * Routes every later stock change through a write-ahead log.
+     *
+     * @param wal The log, or null to stop logging stock changes
+     */
+    void setWal(InventoryWal wal) {
+        this.wal = wal;
+    }
+
+    @Override
+    public InventoryVersions getVersions() {
+        return loader.getVersions();
+    }
+
+    @Override
+    public InventoryItem get(String itemID) {
+        return loader.getInventory().get(itemID);
+    }
+
+    @Override
+    public List<InventoryItem> searchDescriptions(String query, int limit) {
+        return loader.getSearchIndex().search(query, limit);
+    }
+
+    @Override
+    public boolean reserve(InventoryItem item, int amount) throws IOException {
+        InventoryWal log = wal;
+        return log != null ? log.reserve(item, amount) : item.reserve(amount);
+    }
+
+    @Override
+    public void release(InventoryItem item, int amount) throws IOException {
+        InventoryWal log = wal;
+        if (log != null) {
+            log.release(item, amount);
+        } else {
+            item.release(amount);
+        }
+    }
+
+    /**
+     * Reserves the items in turn; if one is short or cannot be logged, the ones
+     * already reserved are returned.
+     */
+    @Override
+    public boolean reserveAll(List<InventoryItem> items, int[] amounts) throws IOException {
+        int reserved = 0;
+        try {
+            for (; reserved < items.size(); reserved++) {
+                if (!reserve(items.get(reserved), amounts[reserved])) {
+                    break;
+                }
+            }
+        } finally {
+            if (reserved < items.size()) {
+                for (int i = reserved - 1; i >= 0; i--) {
+                    try {
+                        release(items.get(i), amounts[i]);
+                    } catch (IOException e) {
+                        // The release is applied in memory even when it cannot be logged
+                        System.err.println("Error writing inventory log: " + e.getMessage());
+                    }
+                }
+            }
+        }
+        return reserved == items.size();
+    }
+
+    @Override
+    public void releaseAll(List<InventoryItem> items, int[] amounts) throws IOException {
+        IOException failure = null;
+        for (int i = 0; i < items.size(); i++) {
+            try {
+                release(items.get(i), amounts[i]);
+            } catch (IOException e) {
+                failure = failure == null ? e : failure;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Commits the items as one inventory version, so snapshot readers see the
+     * whole order or none of it, and logs them as one batch with one fsync if a
+     * log is set.
+     */
+    @Override
+    public void commitAll(List<InventoryItem> items, int[] amounts) throws IOException {
+        InventoryWal log = wal;
+        if (log != null) {
+            log.commitAll(items, amounts);
+            return;
+        }
+        InventoryItem.commitAll(items, amounts);
+    }
+
+    @Override
+    public void uncommitAll(List<InventoryItem> items, int[] amounts) throws IOException {
+        InventoryWal log = wal;
+        if (log != null) {
+            log.uncommitAll(items, amounts);
+            return;
+        }
+        InventoryItem.uncommitAll(items, amounts, items.size());
+    }
+}
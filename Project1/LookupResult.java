@@ -0,0 +1,136 @@
+/*
+    Name : Colin Kirby
+    Course : CNT 4714 - Spring 2025
+    Assignment Title : Project 1 - An Event-driven Enterprise Simulation
+    Date : Monday, January 20, 2025
+*/
+
+/**
+ * The outcome of looking up an item or adding it to a cart through the OrderEngine.
+ * On success it also carries the price quote for the requested quantity, priced
+ * from the item's state at the lookup, so the quote matches the stock that was
+ * checked even if the item changes afterwards.
+ */
+public class LookupResult {
+    /**
+     * Why a lookup or cart operation succeeded or failed.
+     */
+    public enum Status {
+        /** The item was found (and added, for cart operations) */
+        OK,
+        /** The Item ID is not in the inventory */
+        NOT_FOUND,
+        /** The item exists but is not in stock */
+        OUT_OF_STOCK,
+        /** Fewer units are available than were requested */
+        INSUFFICIENT_STOCK,
+        /** The cart already holds the maximum number of items */
+        CART_FULL,
+        /** The requested quantity is not a positive number */
+        INVALID_QUANTITY,
+        /** The order has been checked out and must be emptied before adding items, or the session expired */
+        ORDER_CLOSED
+    }
+
+    /** The outcome of the operation */
+    private final Status status;
+
+    /** The item that was looked up, or null if it was not found */
+    private final InventoryItem item;
+
+    /** The item's state when it was looked up, or null if it was not found */
+    private final InventoryItem.State state;
+
+    /** The requested quantity (0 if none was given) */
+    private final int quantity;
+
+    /** The discount quoted for the requested quantity, in whole percent */
+    private final int discountPercentage;
+
+    /**
+     * Creates a result quoting the default quantity discount.
+     *
+     * @param status The outcome of the operation
+     * @param item The item that was looked up, or null if it was not found
+     * @param quantity The requested quantity (0 if none was given)
+     */
+    public LookupResult(Status status, InventoryItem item, int quantity) {
+        this(status, item, quantity, CartItem.getDiscountPercentage(quantity));
+    }
+
+    /**
+     * Creates a result quoting the given discount, as priced by the promotions.
+     *
+     * @param status The outcome of the operation
+     * @param item The item that was looked up, or null if it was not found
+     * @param quantity The requested quantity (0 if none was given)
+     * @param discountPercentage The discount for the quantity, in whole percent
+     */
+    public LookupResult(Status status, InventoryItem item, int quantity, int discountPercentage) {
+        this(status, item, item == null ? null : item.current(), quantity, discountPercentage);
+    }
+
+    /**
+     * Creates a result from the item state the outcome was decided on.
+     *
+     * @param status The outcome of the operation
+     * @param item The item that was looked up, or null if it was not found
+     * @param state The item's state that was checked, or null if it was not found
+     * @param quantity The requested quantity (0 if none was given)
+     * @param discountPercentage The discount for the quantity, in whole percent
+     */
+    LookupResult(Status status, InventoryItem item, InventoryItem.State state, int quantity, int discountPercentage) {
+        this.status = status;
+        this.item = item;
+        this.state = state;
+        this.quantity = quantity;
+        this.discountPercentage = discountPercentage;
+    }
+
+    /**
+     * @return The outcome of the operation
+     */
+    public Status getStatus() { return status; }
+
+    /**
+     * @return True if the operation succeeded
+     */
+    public boolean isOk() { return status == Status.OK; }
+
+    /**
+     * @return The item that was looked up, or null if it was not found
+     */
+    public InventoryItem getItem() { return item; }
+
+    /**
+     * @return The item's description, price and stock as they were when it was
+     *         looked up, or null if it was not found
+     */
+    public InventoryItem.State getState() { return state; }
+
+    /**
+     * @return The requested quantity (0 if none was given)
+     */
+    public int getQuantity() { return quantity; }
+
+    /**
+     * @return The discount percentage for the requested quantity
+     */
+    public int getDiscountPercentage() {
+        return discountPercentage;
+    }
+
+    /**
+     * @return The discounted price of the requested quantity in cents, or 0 if the item was not found
+     */
+    public long getTotalCents() {
+        return state == null ? 0 : Money.discount(state.getPriceCents() * quantity, discountPercentage);
+    }
+
+    /**
+     * @return The discounted price of the requested quantity, or 0 if the item was not found
+     */
+    public double getTotalPrice() {
+        return Money.toDollars(getTotalCents());
+    }
+}
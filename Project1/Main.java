@@ -5,26 +5,154 @@
     Date : Monday, January 20, 2025
 */
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
 /**
  * Entry point for the Nile Dot Com e-store application.
  * This class initializes the inventory system and launches the graphical user interface.
  */
 public class Main {
+    /** Most items kept on the heap when selling from inventory.catalog */
+    static final int HOT_ITEMS = 100_000;
+
     /**
      * The main method that starts the application.
      * It performs two main tasks:
-     * 1. Loads the inventory data from the CSV file into memory
-     * 2. Initializes and displays the graphical user interface
+     * 1. Loads the inventory data into memory, from the binary snapshot when it is
+     *    up to date and from the CSV file otherwise. If there is an inventory.catalog
+     *    file, the store sells from it instead, with at most HOT_ITEMS items on the
+     *    heap; its stock is kept in the catalog file, forced to disk on every sale,
+     *    and steps 2 and 3 are skipped. If a shard count above 1 is given, the
+     *    inventory is split into a ShardedInventory with a log per shard, and step 3
+     *    is skipped
+     * 2. Restores stock levels from the inventory log and keeps logging stock changes,
+     *    with a checkpoint every minute
+     * 3. Watches inventory.csv and applies edits (restocks, prices, new items) live
+     * 4. Loads the promotions from promotions.csv, if there is one
+     * 5. Initializes and displays the graphical user interface, with a monitor that
+     *    reports any event handler blocking it for longer than 100 ms
      *
-     * @param args Command line arguments (not used in this application)
+     * @param args Optionally, the number of inventory shards (default 1)
      */
     public static void main(String[] args) {
+        int shardCount;
+        try {
+            shardCount = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+        } catch (NumberFormatException e) {
+            System.err.println("Usage: java Main [shards]");
+            return;
+        }
+
+        if (Files.exists(Paths.get("inventory.catalog"))) {
+            try {
+                TieredCatalog catalog = new TieredCatalog(Paths.get("inventory.catalog"), HOT_ITEMS);
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    try {
+                        catalog.close();
+                    } catch (IOException e) {
+                        System.err.println("Error closing inventory catalog: " + e.getMessage());
+                    }
+                }));
+                start(new OrderEngine(catalog, OrderEngine.TRANSACTIONS_FILE, true));
+                return;
+            } catch (IOException e) {
+                System.err.println("Error opening inventory catalog: " + e.getMessage());
+            }
+        }
+
+        if (shardCount > 1) {
+            start(new OrderEngine(openShards(shardCount), OrderEngine.TRANSACTIONS_FILE, true));
+            return;
+        }
+
         // Load the inventory data
         InventoryLoader loader = new InventoryLoader();
-        loader.loadInventory("inventory.csv"); // Load data from the inventory file
+        loader.loadInventoryWithSnapshot("inventory.csv", "inventory.snapshot");
+        if (!loader.getInventory().isEmpty()) {
+            System.out.println("Inventory loaded successfully.");
+        }
+        boolean stockRecovered = loader.recoverStock("inventory");
+
+        OrderEngine engine = new OrderEngine(loader);
+        InventoryWal wal = null;
+        if (stockRecovered) {
+            try {
+                wal = new InventoryWal(Paths.get("inventory"), loader, true);
+                wal.startCheckpoints(1, TimeUnit.MINUTES);
+                engine.setStockLog(wal);
+            } catch (IOException e) {
+                System.err.println("Error opening inventory log: " + e.getMessage());
+            }
+        } else {
+            // A new log would replace the old one, and the sales it holds, with the file's stock
+            System.err.println("Error: Inventory stock not recovered; the inventory log is kept and stock changes are not logged.");
+        }
+
+        // Pick up edits to the inventory file without a restart
+        try {
+            new InventoryWatcher(Paths.get("inventory.csv"), loader, wal).start();
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Error watching inventory file: " + e.getMessage());
+        }
+
+        start(engine);
+    }
+
+    /**
+     * Loads inventory.csv into a sharded inventory, restores its stock from the
+     * shards' logs and keeps logging stock changes, with a checkpoint every minute.
+     * The logs are closed on exit.
+     *
+     * @param shardCount The number of shards
+     * @return The inventory
+     */
+    static ShardedInventory openShards(int shardCount) {
+        ShardedInventory inventory = new ShardedInventory(shardCount);
+        inventory.load("inventory.csv");
+        if (inventory.size() > 0) {
+            System.out.println("Inventory loaded successfully.");
+        }
+        try {
+            inventory.openLogs(Paths.get("inventory"), true);
+            inventory.startCheckpoints(1, TimeUnit.MINUTES);
+        } catch (IOException e) {
+            System.err.println("Error opening inventory log: " + e.getMessage());
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                inventory.close();
+            } catch (IOException e) {
+                System.err.println("Error closing inventory log: " + e.getMessage());
+            }
+        }));
+        return inventory;
+    }
+
+    /**
+     * Loads the promotions, installs the event dispatch thread monitor and shows
+     * the user interface.
+     *
+     * @param engine The engine the store sells through
+     */
+    private static void start(OrderEngine engine) {
+        // Replace the default quantity tiers with the store's promotions
+        if (Files.exists(Paths.get("promotions.csv"))) {
+            try {
+                engine.getPromotions().loadRules(Paths.get("promotions.csv"));
+            } catch (IOException e) {
+                System.err.println("Error loading promotions: " + e.getMessage());
+            }
+        }
+
+        // Report event handlers that block the user interface, and a summary on exit
+        EdtMonitor monitor = EdtMonitor.install(EdtMonitor.DEFAULT_THRESHOLD_MILLIS);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> System.out.println(monitor)));
 
         // Initialize and display the GUI
-        new InventoryGUI(loader);
+        new InventoryGUI(engine);
     }
 }
 
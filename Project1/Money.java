@@ -0,0 +1,137 @@
+/*
+    Name : Colin Kirby
+    Course : CNT 4714 - Spring 2025
+    Assignment Title : Project 1 - An Event-driven Enterprise Simulation
+    Date : Monday, January 20, 2025
+*/
+
+/**
+ * Fixed-point money arithmetic and formatting. Amounts are plain longs holding a
+ * whole number of cents, so pricing never allocates and totals are exact: a cart
+ * line, the subtotal and the tax each round once, half up, to the cent.
+ *
+ * The append methods write straight into a caller's StringBuilder without creating
+ * intermediate strings, and produce the same text as String.format("%.2f") for
+ * any amount of whole cents.
+ */
+public final class Money {
+    /** Cents in one dollar */
+    public static final long CENTS_PER_DOLLAR = 100;
+
+    /** Basis points (hundredths of a percent) in a whole */
+    public static final long BASIS_POINTS = 10_000;
+
+    private Money() {}
+
+    /**
+     * Converts a dollar amount, such as a price read from the inventory file, to
+     * cents, rounding half up.
+     *
+     * @param dollars The amount in dollars
+     * @return The amount in cents
+     */
+    public static long ofDollars(double dollars) {
+        return Math.round(dollars * CENTS_PER_DOLLAR);
+    }
+
+    /**
+     * @param cents An amount in cents
+     * @return The amount in dollars, for display code that still works in doubles
+     */
+    public static double toDollars(long cents) {
+        return (double) cents / CENTS_PER_DOLLAR;
+    }
+
+    /**
+     * Applies a percentage discount, rounding the result half up to the cent.
+     *
+     * @param cents The undiscounted amount
+     * @param percent The discount in whole percent (0 to 100)
+     * @return The discounted amount in cents
+     */
+    public static long discount(long cents, int percent) {
+        return divideHalfUp(cents * (100 - percent), 100);
+    }
+
+    /**
+     * Computes a share of an amount given in basis points, such as a tax rate,
+     * rounding half up to the cent.
+     *
+     * @param cents The amount
+     * @param basisPoints The rate in hundredths of a percent (600 is 6%)
+     * @return The share in cents
+     */
+    public static long percentOf(long cents, long basisPoints) {
+        return divideHalfUp(cents * basisPoints, BASIS_POINTS);
+    }
+
+    /**
+     * Divides, rounding halves away from zero.
+     */
+    private static long divideHalfUp(long value, long divisor) {
+        return value >= 0 ? (value + divisor / 2) / divisor : -((-value + divisor / 2) / divisor);
+    }
+
+    /**
+     * Appends an amount as dollars with two decimals and no currency sign, e.g. "1234.50".
+     * Any long is valid, Long.MIN_VALUE included: the sign is split off after
+     * dividing, so the amount itself is never negated.
+     *
+     * @param out The builder to append to
+     * @param cents The amount in cents
+     * @return The builder
+     */
+    public static StringBuilder append(StringBuilder out, long cents) {
+        long dollars = cents / CENTS_PER_DOLLAR;
+        long fraction = Math.abs(cents % CENTS_PER_DOLLAR);
+        if (cents < 0) {
+            out.append('-');
+            dollars = -dollars;
+        }
+        return out.append(dollars)
+                  .append('.')
+                  .append((char) ('0' + fraction / 10))
+                  .append((char) ('0' + fraction % 10));
+    }
+
+    /**
+     * Appends an amount as a currency string, e.g. "$1234.50".
+     *
+     * @param out The builder to append to
+     * @param cents The amount in cents
+     * @return The builder
+     */
+    public static StringBuilder appendCurrency(StringBuilder out, long cents) {
+        return append(out.append('$'), cents);
+    }
+
+    /**
+     * Appends a rate given in basis points as a percentage without trailing zeros,
+     * e.g. "6%" for 600 or "6.25%" for 625.
+     *
+     * @param out The builder to append to
+     * @param basisPoints The rate in hundredths of a percent
+     * @return The builder
+     */
+    public static StringBuilder appendPercent(StringBuilder out, long basisPoints) {
+        out.append(basisPoints / 100);
+        long fraction = Math.abs(basisPoints % 100);
+        if (fraction != 0) {
+            out.append('.').append((char) ('0' + fraction / 10));
+            if (fraction % 10 != 0) {
+                out.append((char) ('0' + fraction % 10));
+            }
+        }
+        return out.append('%');
+    }
+
+    /**
+     * Formats an amount as a currency string, e.g. "$10.99".
+     *
+     * @param cents The amount in cents
+     * @return The formatted amount
+     */
+    public static String format(long cents) {
+        return appendCurrency(new StringBuilder(16), cents).toString();
+    }
+}
@@ -0,0 +1,1580 @@
+/*
+    Name : Colin Kirby
+    Course : CNT 4714 - Spring 2025
+    Assignment Title : Project 1 - An Event-driven Enterprise Simulation
+    Date : Monday, January 20, 2025
+*/
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Command line micro-benchmarks for the Nile Dot Com inventory code.
+ * Each benchmark reports wall time and the bytes allocated by the benchmark thread.
+ *
+ * Usage:
+ *   java NileBenchmark load [rows]
+ *   java NileBenchmark parallel [rows]
+ *   java NileBenchmark snapshot [rows]
+ *   java NileBenchmark columnar [rows]
+ *   java NileBenchmark reserve [threads]
+ *   java NileBenchmark journal [orders]
+ *   java NileBenchmark recovery [changes]
+ *   java NileBenchmark transactions [lines]
+ *   java NileBenchmark search [rows]
+ *   java NileBenchmark reload [rows]
+ *   java NileBenchmark edt [orders] [log directory]
+ *   java NileBenchmark sharded [threads] [log directory]
+ *   java NileBenchmark tiered [rows] [hot items]
+ *   java NileBenchmark sessions [sessions]
+ *   java NileBenchmark analytics [orders]
+ *   java NileBenchmark archive [orders]
+ *   java NileBenchmark bulk [orders]
+ *   java NileBenchmark mvcc [rows]
+ *   java NileBenchmark heap [rows]
+ */
+public class NileBenchmark {
+    /** Number of untimed runs before measuring */
+    private static final int WARMUP_RUNS = 3;
+
+    /** Number of timed runs */
+    private static final int MEASURED_RUNS = 5;
+
+    /**
+     * Runs the benchmark named by the first argument.
+     *
+     * @param args The benchmark name followed by its options
+     */
+    public static void main(String[] args) throws Exception {
+        String benchmark = args.length > 0 ? args[0] : "load";
+        switch (benchmark) {
+            case "load":
+                benchmarkLoad(args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000);
+                break;
+            case "parallel":
+                benchmarkParallelLoad(args.length > 1 ? Integer.parseInt(args[1]) : 5_000_000);
+                break;
+            case "snapshot":
+                benchmarkSnapshot(args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000);
+                break;
+            case "columnar":
+                benchmarkColumnar(args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000);
+                break;
+            case "reserve":
+                benchmarkReserve(args.length > 1 ? Integer.parseInt(args[1]) : 2000);
+                break;
+            case "journal":
+                benchmarkJournal(args.length > 1 ? Integer.parseInt(args[1]) : 200_000);
+                break;
+            case "recovery":
+                benchmarkRecovery(args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000);
+                break;
+            case "reload":
+                benchmarkReload(args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000);
+                break;
+            case "search":
+                benchmarkSearch(args.length > 1 ? Integer.parseInt(args[1]) : 2_000_000);
+                break;
+            case "transactions":
+                benchmarkTransactions(args.length > 1 ? Long.parseLong(args[1]) : 100_000_000L);
+                break;
+            case "edt":
+                benchmarkEdt(args.length > 1 ? Integer.parseInt(args[1]) : 500,
+                             args.length > 2 ? Paths.get(args[2]) : Paths.get(System.getProperty("java.io.tmpdir")));
+                break;
+            case "sharded":
+                benchmarkSharded(args.length > 1 ? Integer.parseInt(args[1]) : 16,
+                                 args.length > 2 ? Paths.get(args[2]) : Paths.get(System.getProperty("java.io.tmpdir")));
+                break;
+            case "tiered":
+                benchmarkTiered(args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000,
+                                args.length > 2 ? Integer.parseInt(args[2]) : 10_000);
+                break;
+            case "sessions":
+                benchmarkSessions(args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000);
+                break;
+            case "analytics":
+                benchmarkAnalytics(args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000);
+                break;
+            case "archive":
+                benchmarkArchive(args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000);
+                break;
+            case "bulk":
+                benchmarkBulkImport(args.length > 1 ? Integer.parseInt(args[1]) : 100_000);
+                break;
+            case "mvcc":
+                benchmarkSnapshotReads(args.length > 1 ? Integer.parseInt(args[1]) : 100_000);
+                break;
+            case "heap":
+                benchmarkHeap(args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000);
+                break;
+            default:
+                System.err.println("Unknown benchmark: " + benchmark);
+                System.err.println("Usage: java NileBenchmark load|parallel|snapshot|columnar [rows]");
+                System.err.println("       java NileBenchmark reserve [threads]");
+                System.err.println("       java NileBenchmark journal [orders]");
+                System.err.println("       java NileBenchmark recovery [changes]");
+                System.err.println("       java NileBenchmark transactions [lines]");
+                System.err.println("       java NileBenchmark search [rows]");
+                System.err.println("       java NileBenchmark reload [rows]");
+                System.err.println("       java NileBenchmark edt [orders] [log directory]");
+                System.err.println("       java NileBenchmark sharded [threads] [log directory]");
+                System.err.println("       java NileBenchmark tiered [rows] [hot items]");
+                System.err.println("       java NileBenchmark sessions [sessions]");
+                System.err.println("       java NileBenchmark analytics [orders]");
+                System.err.println("       java NileBenchmark archive [orders]");
+                System.err.println("       java NileBenchmark bulk [orders]");
+                System.err.println("       java NileBenchmark mvcc [rows]");
+                System.err.println("       java NileBenchmark heap [rows]");
+        }
+    }
+
+    /**
+     * Compares the original split/regex loader against the streaming byte parser
+     * on a generated inventory file, and shows what the first search adds by
+     * building the search index.
+     *
+     * @param rows The number of inventory lines to generate
+     */
+    private static void benchmarkLoad(int rows) throws IOException {
+        File file = generateInventory(rows);
+        try {
+            System.out.printf("Inventory load, %,d rows (%,d bytes)%n", rows, file.length());
+            measure("split + regex (original)", rows, () -> loadWithSplit(file.getPath()));
+            measure("streaming byte parser", rows, () -> {
+                InventoryLoader loader = new InventoryLoader();
+                loader.loadInventory(file.getPath());
+                return loader.getInventory().size();
+            });
+            measure("parser, then search index", rows, () -> {
+                InventoryLoader loader = new InventoryLoader();
+                loader.loadInventory(file.getPath());
+                return loader.getSearchIndex().size();
+            });
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Measures the parallel chunked loader with pools of increasing size, up to the
+     * number of available cores, against the single-threaded loader.
+     * Allocation figures only count the calling thread, not the pool workers.
+     *
+     * @param rows The number of inventory lines to generate
+     */
+    private static void benchmarkParallelLoad(int rows) throws IOException {
+        File file = generateInventory(rows);
+        try {
+            System.out.printf("Parallel inventory load, %,d rows (%,d bytes)%n", rows, file.length());
+            measure("single thread", rows, () -> {
+                InventoryLoader loader = new InventoryLoader();
+                loader.loadInventory(file.getPath());
+                return loader.getInventory().size();
+            });
+
+            int cores = Runtime.getRuntime().availableProcessors();
+            for (int threads = 1; threads <= cores; threads = threads < cores ? Math.min(threads * 2, cores) : cores + 1) {
+                ForkJoinPool pool = new ForkJoinPool(threads);
+                try {
+                    measure(threads + " thread pool", rows, () -> {
+                        InventoryLoader loader = new InventoryLoader();
+                        loader.loadInventoryParallel(file.getPath(), pool);
+                        return loader.getInventory().size();
+                    });
+                } finally {
+                    pool.shutdown();
+                }
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Compares a CSV load against reading the binary snapshot of the same inventory.
+     *
+     * @param rows The number of inventory lines to generate
+     */
+    private static void benchmarkSnapshot(int rows) throws IOException {
+        File file = generateInventory(rows);
+        File snapshot = new File(file.getPath() + ".snapshot");
+        try {
+            InventoryLoader source = new InventoryLoader();
+            source.loadInventory(file.getPath());
+            source.writeSnapshot(snapshot.getPath());
+            System.out.printf("Snapshot load, %,d rows (CSV %,d bytes, snapshot %,d bytes)%n",
+                rows, file.length(), snapshot.length());
+
+            measure("CSV parse", rows, () -> {
+                InventoryLoader loader = new InventoryLoader();
+                loader.loadInventory(file.getPath());
+                return loader.getInventory().size();
+            });
+            measure("snapshot read", rows, () -> InventorySnapshot.read(snapshot.toPath(), new InventoryVersions(),
+                new DescriptionArena()).size());
+        } finally {
+            file.delete();
+            snapshot.delete();
+        }
+    }
+
+    /**
+     * Compares the retained heap and lookup cost of the ConcurrentHashMap inventory with
+     * ColumnarInventory holding the same items.
+     *
+     * @param rows The number of inventory lines to generate
+     */
+    private static void benchmarkColumnar(int rows) throws IOException {
+        File file = generateInventory(rows);
+        try {
+            System.out.printf("Inventory store, %,d rows%n", rows);
+
+            long before = usedHeap();
+            InventoryLoader loader = new InventoryLoader();
+            loader.loadInventory(file.getPath());
+            Map<String, InventoryItem> map = loader.getInventory();
+            long mapBytes = usedHeap() - before;
+
+            before = usedHeap();
+            ColumnarInventory columnar = ColumnarInventory.load(file.getPath());
+            long columnarBytes = usedHeap() - before;
+
+            System.out.printf("  %-28s %,14d bytes retained (%.1f B/item)%n", "ConcurrentHashMap inventory",
+                mapBytes, (double) mapBytes / map.size());
+            System.out.printf("  %-28s %,14d bytes retained (%.1f B/item)%n", "ColumnarInventory",
+                columnarBytes, (double) columnarBytes / columnar.size());
+
+            String[] ids = new String[1 << 16];
+            Random random = new Random(7);
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = String.valueOf(100000 + random.nextInt(rows));
+            }
+            measure("ConcurrentHashMap.get", ids.length, () -> {
+                int found = 0;
+                for (String id : ids) {
+                    found += map.get(id).getQuantity();
+                }
+                return found;
+            });
+            measure("ColumnarInventory.find", ids.length, () -> {
+                int found = 0;
+                for (String id : ids) {
+                    found += columnar.getQuantity(columnar.find(id));
+                }
+                return found;
+            });
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Stress test for concurrent stock reservation. Many threads reserve, release and
+     * commit random amounts of a few hot items at once. Afterwards the stock of each
+     * item must add up exactly: nothing sold beyond the starting quantity and no
+     * negative quantity. The same workload is then run with the old unsynchronized
+     * read-modify-write to show how much it oversells.
+     *
+     * @param threads The number of concurrent reserving threads
+     */
+    private static void benchmarkReserve(int threads) throws InterruptedException {
+        final int hotItems = 4;
+        final int startingStock = 1_000_000;
+        final int operationsPerThread = 5_000;
+
+        InventoryItem[] items = new InventoryItem[hotItems];
+        for (int i = 0; i < hotItems; i++) {
+            items[i] = new InventoryItem("HOT" + i, "Hot item " + i, true, startingStock, 9.99);
+        }
+        AtomicLongArray sold = new AtomicLongArray(hotItems);
+        AtomicLong operations = new AtomicLong();
+
+        long elapsed = runConcurrently(threads, random -> {
+            for (int op = 0; op < operationsPerThread; op++) {
+                int i = random.nextInt(hotItems);
+                int amount = 1 + random.nextInt(5);
+                if (items[i].reserve(amount)) {
+                    if (random.nextInt(4) == 0) {
+                        items[i].release(amount);
+                    } else {
+                        items[i].commit(amount);
+                        sold.addAndGet(i, amount);
+                    }
+                }
+                operations.incrementAndGet();
+            }
+        });
+
+        System.out.printf("Concurrent reservation, %,d threads x %,d operations on %d hot items%n",
+            threads, operationsPerThread, hotItems);
+        boolean consistent = true;
+        for (int i = 0; i < hotItems; i++) {
+            int available = items[i].getQuantity();
+            int reserved = items[i].getReservedQuantity();
+            boolean ok = available >= 0 && reserved == 0 && available + sold.get(i) == startingStock;
+            consistent &= ok;
+            System.out.printf("  %s: sold %,d, available %,d, reserved %d %s%n",
+                items[i].getItemID(), sold.get(i), available, reserved, ok ? "OK" : "MISMATCH");
+        }
+        System.out.printf("  reserve/release/commit: %,.0f ops/s, %s%n",
+            operations.get() / (elapsed / 1e9), consistent ? "no oversell" : "STOCK MISMATCH");
+
+        // The same demand against scarce stock, using the unsynchronized update InventoryGUI used before
+        InventoryItem legacy = new InventoryItem("LEGACY", "Legacy item", true, threads, 9.99);
+        AtomicLong legacySold = new AtomicLong();
+        runConcurrently(threads, random -> {
+            for (int op = 0; op < 10; op++) {
+                int quantity = legacy.getQuantity();
+                if (quantity >= 1) {
+                    Thread.yield();
+                    legacy.setQuantity(quantity - 1);
+                    legacySold.incrementAndGet();
+                }
+            }
+        });
+        InventoryItem atomic = new InventoryItem("ATOMIC", "Atomic item", true, threads, 9.99);
+        AtomicLong atomicSold = new AtomicLong();
+        runConcurrently(threads, random -> {
+            for (int op = 0; op < 10; op++) {
+                if (atomic.reserve(1)) {
+                    Thread.yield();
+                    atomic.commit(1);
+                    atomicSold.incrementAndGet();
+                }
+            }
+        });
+        System.out.printf("  scarce stock of %,d: read-modify-write sold %,d, reserve() sold %,d%n",
+            threads, legacySold.get(), atomicSold.get());
+    }
+
+    /**
+     * Measures checkout logging throughput from many concurrent threads: the old
+     * open/append/close per order against the group-commit TransactionJournal,
+     * with and without an fsync per batch.
+     *
+     * @param orders The total number of orders to log
+     */
+    private static void benchmarkJournal(int orders) throws Exception {
+        final int threads = 64;
+        final int perThread = orders / threads;
+        final String record = "20012025231055, 14, \"Stanley #2 Philips Screwdriver\", 6.95, 5, 0.1, $31.28, "
+            + "January 20, 2025, 11:10:55 PM EST\n\n";
+        System.out.printf("Transaction logging, %,d orders from %d threads%n", perThread * threads, threads);
+
+        File file = File.createTempFile("transactions", ".csv");
+        try {
+            // Only a slice of the orders for the slow path; it is orders of magnitude slower
+            int legacyPerThread = Math.max(1, perThread / 20);
+            Object lock = new Object();
+            long elapsed = runConcurrently(threads, random -> {
+                for (int i = 0; i < legacyPerThread; i++) {
+                    synchronized (lock) {
+                        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file, true))) {
+                            writer.write(record);
+                        } catch (IOException e) {
+                            throw new RuntimeException(e);
+                        }
+                    }
+                }
+            });
+            System.out.printf("  %-34s %,12.0f orders/s%n", "FileWriter per order",
+                legacyPerThread * threads / (elapsed / 1e9));
+
+            for (boolean sync : new boolean[] {false, true}) {
+                file.delete();
+                try (TransactionJournal journal = new TransactionJournal(file.getPath(), sync)) {
+                    elapsed = runConcurrently(threads, random -> {
+                        CompletableFuture<?>[] pending = new CompletableFuture<?>[perThread];
+                        for (int i = 0; i < perThread; i++) {
+                            pending[i] = journal.append(record);
+                        }
+                        CompletableFuture.allOf(pending).join();
+                    });
+                }
+                System.out.printf("  %-34s %,12.0f orders/s%n",
+                    sync ? "group commit, fsync per batch" : "group commit, no fsync",
+                    perThread * threads / (elapsed / 1e9));
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Measures logging stock changes through the inventory WAL, then the time to
+     * recover from the log alone and from a checkpoint plus an empty log.
+     *
+     * @param changes The number of reserve/commit pairs to log
+     */
+    private static void benchmarkRecovery(int changes) throws Exception {
+        int rows = 100_000;
+        File csv = generateInventory(rows);
+        Path directory = Files.createTempDirectory("nile-wal");
+        Path base = directory.resolve("inventory");
+        System.out.printf("Inventory WAL, %,d reserve/commit pairs over %,d items%n", changes, rows);
+        try {
+            InventoryLoader loader = new InventoryLoader();
+            loader.loadInventory(csv.getPath());
+            List<InventoryItem> items = new ArrayList<>(loader.getInventory().values());
+
+            long begin = System.nanoTime();
+            try (InventoryWal wal = new InventoryWal(base, loader, false)) {
+                Random random = new Random(42);
+                for (int i = 0; i < changes; i++) {
+                    InventoryItem item = items.get(random.nextInt(items.size()));
+                    if (wal.reserve(item, 1)) {
+                        wal.commit(item, 1);
+                    }
+                }
+            }
+            long elapsed = System.nanoTime() - begin;
+            System.out.printf("  %-34s %,12.0f changes/s%n", "log, no fsync", 2L * changes / (elapsed / 1e9));
+
+            measure("recover from log only", 1, () -> {
+                InventoryLoader fresh = new InventoryLoader();
+                fresh.loadInventory(csv.getPath());
+                return (int) InventoryWal.recover(base, fresh.getInventory(), null);
+            });
+
+            try (InventoryWal wal = new InventoryWal(base, loader, false)) {
+                wal.checkpoint();
+            }
+            measure("recover from checkpoint", 1, () -> {
+                InventoryLoader fresh = new InventoryLoader();
+                fresh.loadInventory(csv.getPath());
+                return (int) InventoryWal.recover(base, fresh.getInventory(), null);
+            });
+        } finally {
+            try (java.util.stream.Stream<Path> files = Files.list(directory)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.deleteIfExists(file);
+                }
+            }
+            Files.deleteIfExists(directory);
+            csv.delete();
+        }
+    }
+
+    /**
+     * Writes a transaction log of the given number of lines through a rotating,
+     * indexed TransactionJournal, then compares looking up orders and reading a
+     * one-hour range by scanning the log against seeking through the indexes.
+     *
+     * @param lines The number of transaction lines to write (two items per order)
+     */
+    private static void benchmarkTransactions(long lines) throws Exception {
+        final int lookups = 100;
+        long orders = lines / 2;
+        Path directory = Files.createTempDirectory("nile-transactions");
+        String active = directory.resolve("transactions.csv").toString();
+        java.time.format.DateTimeFormatter idFormat = java.time.format.DateTimeFormatter.ofPattern("ddMMyyyyHHmmss");
+        LocalDateTime start = LocalDateTime.of(2025, 1, 20, 0, 0, 0);
+        System.out.printf("Transaction log, %,d lines (%,d orders)%n", orders * 2, orders);
+
+        try {
+            long begin = System.nanoTime();
+            try (TransactionJournal journal = new TransactionJournal(active, false,
+                    OrderEngine.TRANSACTIONS_SEGMENT_BYTES, null)) {
+                CompletableFuture<Void> last = null;
+                for (long i = 0; i < orders; i++) {
+                    String id = start.plusSeconds(i).format(idFormat);
+                    last = journal.append(id + ", 14, \"Stanley #2 Philips Screwdriver\", 6.95, 5, 0.1, $31.28, "
+                        + "January 20, 2025, 11:10:55 PM EST\n"
+                        + id + ", 97634, \"Campagnolo 12 spd crankset - 53/39 175mm\", 750.00, 1, 0.0, $750.00, "
+                        + "January 20, 2025, 11:10:55 PM EST\n\n", TransactionIndex.key(id));
+                }
+                if (last != null) {
+                    last.join();
+                }
+            }
+            System.out.printf("  %-34s %,12.0f orders/s%n", "write with rotation and index",
+                orders / ((System.nanoTime() - begin) / 1e9));
+
+            // Rebuild every index from its segment, as after a crash that lost them
+            List<Path> logSegments = new ArrayList<>(TransactionJournal.sealedSegments(Paths.get(active)).values());
+            logSegments.add(Paths.get(active));
+            long logBytes = 0;
+            for (Path segment : logSegments) {
+                Files.deleteIfExists(TransactionIndex.indexPath(segment));
+                logBytes += Files.size(segment);
+            }
+            long rebuildBegin = System.nanoTime();
+            for (Path segment : logSegments) {
+                TransactionIndex.repair(segment);
+            }
+            double rebuildSeconds = (System.nanoTime() - rebuildBegin) / 1e9;
+            System.out.printf("  %-34s %,12.0f lines/s %8.1f MB/s (%.1f s)%n", "rebuild indexes by scanning",
+                orders * 2 / rebuildSeconds, logBytes / 1e6 / rebuildSeconds, rebuildSeconds);
+
+            Random random = new Random(42);
+            String[] ids = new String[lookups];
+            for (int i = 0; i < lookups; i++) {
+                ids[i] = start.plusSeconds((long) (random.nextDouble() * orders)).format(idFormat);
+            }
+            LocalDateTime rangeStart = start.plusSeconds(orders / 2);
+            LocalDateTime rangeEnd = rangeStart.plusHours(1);
+
+            try (TransactionReader reader = new TransactionReader(active)) {
+                System.out.printf("  %,d segments%n", reader.getSegmentCount());
+                measure("indexed find", lookups, () -> {
+                    int found = 0;
+                    for (String id : ids) {
+                        found += reader.find(id).size();
+                    }
+                    return found;
+                });
+                measure("indexed one-hour range", 1, () -> reader.read(rangeStart, rangeEnd).size());
+            }
+
+            // A full scan reads every line; only a few lookups, or it would take hours
+            String[] scanIds = java.util.Arrays.copyOf(ids, 2);
+            long scanBegin = System.nanoTime();
+            int found = 0;
+            for (String id : scanIds) {
+                for (Path segment : logSegments) {
+                    try (BufferedReader reader = Files.newBufferedReader(segment)) {
+                        String line;
+                        while ((line = reader.readLine()) != null) {
+                            if (line.startsWith(id)) {
+                                found++;
+                            }
+                        }
+                    }
+                }
+            }
+            System.out.printf("  %-28s %10.2f ms/op (%d)%n", "full scan find",
+                (System.nanoTime() - scanBegin) / 1e6 / scanIds.length, found);
+        } finally {
+            try (java.util.stream.Stream<Path> files = Files.list(directory)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.deleteIfExists(file);
+                }
+            }
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    /**
+     * Compares picking up a 100-line restock with a full reload of the inventory
+     * file against an incremental InventoryWatcher reload.
+     *
+     * @param rows The number of inventory lines
+     */
+    private static void benchmarkReload(int rows) throws Exception {
+        final int changes = 100;
+        File file = generateInventory(rows);
+        try {
+            InventoryLoader loader = new InventoryLoader();
+            loader.loadInventory(file.getPath());
+            InventoryWatcher watcher = new InventoryWatcher(file.toPath(), loader, null);
+            List<String> lines = Files.readAllLines(file.toPath());
+            System.out.printf("Inventory reload, %,d items, %d changed lines%n", rows, changes);
+
+            measure("full reload", rows, () -> {
+                InventoryLoader fresh = new InventoryLoader();
+                fresh.loadInventory(file.getPath());
+                return fresh.getInventory().size();
+            });
+
+            // Each run restocks a different set of lines by one unit; only reload() is timed
+            Random random = new Random(42);
+            long reloadNanos = 0;
+            int applied = 0;
+            for (int run = 0; run < WARMUP_RUNS + MEASURED_RUNS; run++) {
+                for (int i = 0; i < changes; i++) {
+                    int line = random.nextInt(lines.size());
+                    String[] fields = lines.get(line).split(", ");
+                    fields[fields.length - 2] = String.valueOf(Integer.parseInt(fields[fields.length - 2]) + 1);
+                    lines.set(line, String.join(", ", fields));
+                }
+                Files.write(file.toPath(), lines);
+                long begin = System.nanoTime();
+                applied = watcher.reload();
+                if (run >= WARMUP_RUNS) {
+                    reloadNanos += System.nanoTime() - begin;
+                }
+            }
+            System.out.printf("  %-28s %10.2f ms/run (%d items updated)%n", "incremental reload",
+                reloadNanos / 1e6 / MEASURED_RUNS, applied);
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Measures how long each checkout keeps the Swing event dispatch thread busy,
+     * first with the order written and the invoice built on that thread, as the
+     * GUI used to do, then with CheckoutWorker doing both in the background. Each
+     * checkout forces the transaction log to disk, so pointing the log directory at
+     * slow or shared storage shows what its stalls cost the user interface.
+     *
+     * @param orders The number of checkouts per variant
+     * @param directory Where the transaction log is written
+     */
+    private static void benchmarkEdt(int orders, Path directory) throws Exception {
+        File file = generateInventory(1000);
+        EdtMonitor monitor = EdtMonitor.install(Long.MAX_VALUE / 1_000_000); // Count, never report
+        System.out.printf("EDT time per checkout, %,d orders, fsync on, log in %s%n", orders, directory);
+        try {
+            InventoryLoader loader = new InventoryLoader();
+            loader.loadInventory(file.getPath());
+            for (InventoryItem item : loader.getInventory().values()) {
+                item.setQuantity(Integer.MAX_VALUE / 2);
+            }
+
+            for (boolean background : new boolean[] {false, true}) {
+                Path log = Files.createTempFile(directory, "nile-edt", ".csv");
+                OrderEngine engine = new OrderEngine(loader, log.toString(), true);
+                OrderSession session = engine.openSession();
+                Random random = new Random(42);
+                long elapsed = 0;
+                for (int run = 0; run < 2; run++) {
+                    // The first run warms up; the second is measured
+                    long start = System.nanoTime();
+                    java.awt.EventQueue.invokeAndWait(monitor::reset);
+                    for (int i = 0; i < orders; i++) {
+                        session.emptyCart();
+                        for (int line = 0; line < OrderEngine.MAX_CART_SIZE; line++) {
+                            session.addToCart(String.valueOf(100000 + random.nextInt(1000)), 1 + random.nextInt(20));
+                        }
+                        checkoutFromEdt(session, background);
+                    }
+                    java.awt.EventQueue.invokeAndWait(() -> { });
+                    elapsed = System.nanoTime() - start;
+                }
+                System.out.printf("  %-28s %10.1f us EDT/checkout, longest %8.2f ms, %6.0f checkouts/s%n",
+                    background ? "CheckoutWorker" : "checkout on the EDT",
+                    monitor.getBusyNanos() / 1e3 / orders, monitor.getMaxNanos() / 1e6, orders / (elapsed / 1e9));
+                engine.close();
+                Files.deleteIfExists(TransactionIndex.indexPath(log));
+                Files.deleteIfExists(log);
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Checks a session out from the event dispatch thread and waits until the
+     * order is durable: either on that thread, or through a CheckoutWorker.
+     */
+    private static void checkoutFromEdt(OrderSession session, boolean background) throws Exception {
+        if (!background) {
+            java.awt.EventQueue.invokeAndWait(() -> session.checkout().join().toInvoice());
+            return;
+        }
+        CountDownLatch done = new CountDownLatch(1);
+        java.awt.EventQueue.invokeAndWait(() -> new CheckoutWorker(session, new CheckoutWorker.Listener() {
+            public void checkedOut(Order order, String invoice) { done.countDown(); }
+            public void checkoutFailed(Throwable cause) { done.countDown(); }
+        }).execute());
+        done.await();
+    }
+
+    /**
+     * Measures multi-item orders against a ShardedInventory with logged, fsynced
+     * stock changes, for 1 to 16 shards. Each order reserves three random items on
+     * whichever shards they fall and commits them; with one shard every order
+     * waits for the same lock and the same fsync, with more shards orders on
+     * different shards run in parallel. After each run the stock is checked.
+     *
+     * @param threads The number of threads placing orders
+     * @param directory Where the shard logs are written
+     */
+    private static void benchmarkSharded(int threads, Path directory) throws Exception {
+        final int items = 10_000;
+        final int startingStock = 1_000_000;
+        final int ordersPerThread = 200;
+        File file = generateInventory(items);
+        System.out.printf("Sharded inventory, %,d threads x %,d orders of 3 items, fsync on, logs in %s%n",
+            threads, ordersPerThread, directory);
+        try {
+            for (int shardCount : new int[] {1, 2, 4, 8, 16}) {
+                Path logs = Files.createTempDirectory(directory, "nile-shards");
+                ShardedInventory inventory = new ShardedInventory(shardCount);
+                inventory.load(file.getPath());
+                for (InventoryItem item : inventory.items()) {
+                    item.setQuantity(startingStock);
+                }
+                inventory.openLogs(logs.resolve("inventory"), true);
+                List<InventoryItem> all = inventory.items();
+                AtomicLong sold = new AtomicLong();
+
+                long elapsed = runConcurrently(threads, random -> {
+                    List<InventoryItem> order = new ArrayList<>(3);
+                    int[] amounts = new int[3];
+                    for (int i = 0; i < ordersPerThread; i++) {
+                        order.clear();
+                        for (int line = 0; line < 3; line++) {
+                            order.add(all.get(random.nextInt(all.size())));
+                            amounts[line] = 1 + random.nextInt(5);
+                        }
+                        try {
+                            if (inventory.reserveAll(order, amounts)) {
+                                inventory.commitAll(order, amounts);
+                                sold.addAndGet(amounts[0] + amounts[1] + amounts[2]);
+                            }
+                        } catch (IOException e) {
+                            throw new java.io.UncheckedIOException(e);
+                        }
+                    }
+                });
+                inventory.close();
+
+                long remaining = 0;
+                boolean reserved = false;
+                for (InventoryItem item : all) {
+                    remaining += item.getQuantity();
+                    reserved |= item.getReservedQuantity() != 0;
+                }
+                boolean consistent = !reserved && remaining + sold.get() == (long) startingStock * items;
+                System.out.printf("  %2d shards: %,8.0f orders/s, %s%n", shardCount,
+                    (double) threads * ordersPerThread / (elapsed / 1e9), consistent ? "stock OK" : "STOCK MISMATCH");
+                try (java.util.stream.Stream<Path> files = Files.list(logs)) {
+                    for (Path log : (Iterable<Path>) files::iterator) {
+                        Files.delete(log);
+                    }
+                }
+                Files.delete(logs);
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Compares finding items by description words with a scan over every item
+     * against the inverted index.
+     *
+     * @param rows The number of inventory items
+     */
+    private static void benchmarkSearch(int rows) throws Exception {
+        final String[] queries = {"usb cable", "campagnolo", "colnago frame", "blue helm", "stapler model 42",
+                                  "ream", "crank", "box of 10", "lg", "model 999"};
+        File file = generateInventory(rows);
+        try {
+            InventoryLoader loader = new InventoryLoader();
+            long begin = System.nanoTime();
+            loader.loadInventory(file.getPath());
+            long loaded = System.nanoTime();
+            InventorySearchIndex index = loader.getSearchIndex();
+            System.out.printf("Description search, %,d items (load %.0f ms, index %.0f ms)%n",
+                rows, (loaded - begin) / 1e6, (System.nanoTime() - loaded) / 1e6);
+            java.util.Collection<InventoryItem> items = loader.getInventory().values();
+
+            measure("scan descriptions", queries.length, () -> {
+                int found = 0;
+                for (String query : queries) {
+                    List<String> words = java.util.Arrays.asList(query.toLowerCase().split(" "));
+                    int matches = 0;
+                    for (InventoryItem item : items) {
+                        String description = item.getDescription().toLowerCase();
+                        boolean all = true;
+                        for (String word : words) {
+                            all &= description.contains(word);
+                        }
+                        if (all) {
+                            matches++; // Ranking needs every match, not just the first few
+                        }
+                    }
+                    found += matches;
+                }
+                return found;
+            });
+            measure("inverted index, top 20", queries.length, () -> {
+                int found = 0;
+                for (String query : queries) {
+                    found += index.search(query, 20).size();
+                }
+                return found;
+            });
+            measure("inverted index, selective", 1000, () -> {
+                int found = 0;
+                for (int i = 0; i < 1000; i++) {
+                    found += index.search("stapler model 999", 20).size();
+                }
+                return found;
+            });
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Compares the heap held by a fully loaded inventory with a TieredCatalog that
+     * keeps only its hot items on the heap, then measures lookups on the catalog:
+     * skewed lookups where most hit a small set of popular items, uniform lookups
+     * that mostly read the file, and lookups of Item IDs that do not exist.
+     *
+     * @param rows The number of inventory items
+     * @param hotItems The most catalog items kept on the heap
+     */
+    private static void benchmarkTiered(int rows, int hotItems) throws IOException {
+        File file = generateInventory(rows);
+        Path catalogPath = Files.createTempFile("nile-catalog", ".bin");
+        try {
+            System.out.printf("Tiered catalog, %,d rows, %,d hot items%n", rows, hotItems);
+
+            long before = usedHeap();
+            InventoryLoader loader = new InventoryLoader();
+            loader.loadInventory(file.getPath());
+            long mapBytes = usedHeap() - before;
+            System.out.printf("  %-28s %,14d bytes retained%n", "InventoryLoader", mapBytes);
+            loader = null;
+
+            long begin = System.nanoTime();
+            TieredCatalog.build(file.toPath(), catalogPath);
+            System.out.printf("  %-28s %,14.0f ms, %,d bytes on disk%n", "build catalog",
+                (System.nanoTime() - begin) / 1e6, Files.size(catalogPath));
+
+            before = usedHeap();
+            try (TieredCatalog catalog = new TieredCatalog(catalogPath, hotItems)) {
+                Random random = new Random(7);
+                for (int i = 0; i < hotItems * 2; i++) {
+                    catalog.get(String.valueOf(100000 + random.nextInt(rows)));
+                }
+                long catalogBytes = usedHeap() - before;
+                System.out.printf("  %-28s %,14d bytes retained, %,d items on the heap%n", "TieredCatalog",
+                    catalogBytes, catalog.getHotSize());
+
+                // 90% of lookups go to a popular tenth of the hot tier's capacity
+                String[] skewed = new String[1 << 16];
+                String[] uniform = new String[1 << 16];
+                String[] absent = new String[1 << 16];
+                for (int i = 0; i < skewed.length; i++) {
+                    int popular = Math.max(1, Math.min(rows, hotItems / 10));
+                    skewed[i] = String.valueOf(100000 + (random.nextInt(10) < 9 ? random.nextInt(popular) : random.nextInt(rows)));
+                    uniform[i] = String.valueOf(100000 + random.nextInt(rows));
+                    absent[i] = "X" + random.nextInt(rows);
+                }
+                measure("skewed lookups", skewed.length, () -> {
+                    int found = 0;
+                    for (String id : skewed) {
+                        found += catalog.get(id).getQuantity();
+                    }
+                    return found;
+                });
+                measure("uniform lookups", uniform.length, () -> {
+                    int found = 0;
+                    for (String id : uniform) {
+                        found += catalog.get(id).getQuantity();
+                    }
+                    return found;
+                });
+                measure("unknown Item IDs", absent.length, () -> {
+                    int found = 0;
+                    for (String id : absent) {
+                        found += catalog.contains(id) ? 1 : 0;
+                    }
+                    return found;
+                });
+                System.out.println("  " + catalog);
+            }
+        } finally {
+            file.delete();
+            Files.deleteIfExists(catalogPath);
+        }
+    }
+
+    /**
+     * Opens many shopping sessions in a SessionStore, half of them holding one item,
+     * lets a simulated clock run past their time to live and checks that expiry
+     * returned every reserved unit. Reports the heap held per session and the cost
+     * of opening, touching and expiring sessions.
+     *
+     * @param count The number of sessions
+     */
+    private static void benchmarkSessions(int count) throws IOException {
+        File file = generateInventory(1000);
+        try {
+            InventoryLoader loader = new InventoryLoader();
+            loader.loadInventory(file.getPath());
+            for (InventoryItem item : loader.getInventory().values()) {
+                item.setQuantity(1_000_000);
+            }
+            OrderEngine engine = new OrderEngine(loader, "unused.csv", false);
+            long[] clock = {0};
+            System.out.printf("Session store, %,d sessions, 30 minute time to live, 1 s ticks%n", count);
+
+            long before = usedHeap();
+            SessionStore store = new SessionStore(engine, Duration.ofMinutes(30), SessionStore.DEFAULT_TICK,
+                () -> clock[0]);
+            long[] handles = new long[count];
+            long begin = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                handles[i] = store.open();
+                clock[0] += 1; // Sessions arrive over about 17 minutes per million
+            }
+            long openNanos = System.nanoTime() - begin;
+            long emptyBytes = usedHeap() - before;
+
+            Random random = new Random(11);
+            begin = System.nanoTime();
+            for (int i = 0; i < count; i += 2) {
+                store.get(handles[i]).addToCart(String.valueOf(100000 + random.nextInt(1000)), 1);
+            }
+            long cartNanos = System.nanoTime() - begin;
+
+            begin = System.nanoTime();
+            for (int i = 0; i < count; i++) {
+                store.get(handles[random.nextInt(count)]);
+            }
+            long touchNanos = System.nanoTime() - begin;
+
+            begin = System.nanoTime();
+            int expired = 0;
+            long end = clock[0] + Duration.ofMinutes(31).toMillis();
+            for (; clock[0] < end; clock[0] += 1000) {
+                expired += store.advance();
+            }
+            long expireNanos = System.nanoTime() - begin;
+
+            int reserved = 0;
+            for (InventoryItem item : loader.getInventory().values()) {
+                reserved += item.getReservedQuantity();
+            }
+            System.out.printf("  %-28s %,10.0f ns/session, %.0f bytes/session held%n", "open",
+                (double) openNanos / count, (double) emptyBytes / count);
+            System.out.printf("  %-28s %,10.0f ns/session%n", "get and add one item", (double) cartNanos / (count / 2));
+            System.out.printf("  %-28s %,10.0f ns/session%n", "get (touch)", (double) touchNanos / count);
+            System.out.printf("  %-28s %,10.0f ns/session, %,d expired, %,d left, %s%n", "expire",
+                (double) expireNanos / Math.max(1, expired), expired, store.size(),
+                reserved == 0 ? "all stock returned" : reserved + " UNITS STILL RESERVED");
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Writes a transaction log of the given number of orders, then compares
+     * building SalesAnalytics by reading the whole log with resuming from its
+     * checkpoint and reading only the orders added since, and times its queries.
+     *
+     * @param orders The number of orders in the log
+     */
+    private static void benchmarkAnalytics(int orders) throws Exception {
+        File file = generateInventory(10_000);
+        Path directory = Files.createTempDirectory("nile-analytics");
+        Path log = directory.resolve("transactions.csv");
+        Path checkpoint = directory.resolve("transactions.analytics");
+        try {
+            InventoryLoader loader = new InventoryLoader();
+            loader.loadInventory(file.getPath());
+            List<InventoryItem> items = new ArrayList<>(loader.getInventory().values());
+            Random random = new Random(5);
+            LocalDateTime time = LocalDateTime.of(2020, 1, 1, 0, 0);
+            try (TransactionJournal journal = new TransactionJournal(log.toString(), false,
+                    OrderEngine.TRANSACTIONS_SEGMENT_BYTES, OrderEngine.TRANSACTIONS_SEGMENT_AGE)) {
+                CompletableFuture<Void> last = null;
+                for (int i = 0; i < orders; i++) {
+                    List<CartItem> cart = new ArrayList<>();
+                    for (int line = 1 + random.nextInt(OrderEngine.MAX_CART_SIZE); line > 0; line--) {
+                        // Skewed towards the first items, so there are clear best sellers
+                        int index = (int) (items.size() * Math.pow(random.nextDouble(), 3));
+                        cart.add(new CartItem(items.get(index), 1 + random.nextInt(20), cart.size() + 1));
+                    }
+                    time = time.plusSeconds(random.nextInt(300));
+                    Order order = new Order(cart, time);
+                    last = journal.append(order.toTransactionLines(), TransactionIndex.key(order.getTransactionId()));
+                }
+                last.join();
+            }
+            long bytes = 0;
+            try (java.util.stream.Stream<Path> files = Files.list(directory)) {
+                for (Path segment : (Iterable<Path>) files::iterator) {
+                    bytes += Files.size(segment);
+                }
+            }
+            System.out.printf("Sales analytics, %,d orders, %,d MB of log%n", orders, bytes >> 20);
+
+            long begin = System.nanoTime();
+            SalesAnalytics analytics = new SalesAnalytics(log.toString(), checkpoint.toString(),
+                SalesAnalytics.DEFAULT_TOP_ITEMS);
+            long lines = analytics.poll();
+            long scanNanos = System.nanoTime() - begin;
+            begin = System.nanoTime();
+            analytics.close();
+            System.out.printf("  %-28s %,10.0f ms, %,.0f lines/s%n", "read the whole log",
+                scanNanos / 1e6, lines / (scanNanos / 1e9));
+            System.out.printf("  %-28s %,10.0f ms, %,d bytes%n", "save checkpoint",
+                (System.nanoTime() - begin) / 1e6, Files.size(checkpoint));
+
+            // 1,000 more orders, then resume
+            try (TransactionJournal journal = new TransactionJournal(log.toString(), false,
+                    OrderEngine.TRANSACTIONS_SEGMENT_BYTES, OrderEngine.TRANSACTIONS_SEGMENT_AGE)) {
+                CompletableFuture<Void> last = null;
+                for (int i = 0; i < 1000; i++) {
+                    List<CartItem> cart = new ArrayList<>();
+                    cart.add(new CartItem(items.get(random.nextInt(items.size())), 1, 1));
+                    time = time.plusSeconds(1);
+                    Order order = new Order(cart, time);
+                    last = journal.append(order.toTransactionLines(), TransactionIndex.key(order.getTransactionId()));
+                }
+                last.join();
+            }
+            begin = System.nanoTime();
+            SalesAnalytics resumed = new SalesAnalytics(log.toString(), checkpoint.toString(),
+                SalesAnalytics.DEFAULT_TOP_ITEMS);
+            long added = resumed.poll();
+            System.out.printf("  %-28s %,10.1f ms, %,d new lines%n", "resume from checkpoint",
+                (System.nanoTime() - begin) / 1e6, added);
+
+            LocalDate firstDay = LocalDate.of(2020, 1, 1);
+            measure("query top 10 items", 10_000, () -> {
+                int found = 0;
+                for (int i = 0; i < 10_000; i++) {
+                    found += resumed.getTopItems(10).size();
+                }
+                return found;
+            });
+            measure("query a month by day", 10_000, () -> {
+                int found = 0;
+                for (int i = 0; i < 10_000; i++) {
+                    found += resumed.getDailyTotals(firstDay.plusDays(i % 365), firstDay.plusDays(i % 365 + 30)).size();
+                }
+                return found;
+            });
+            measure("query discount tiers", 10_000, () -> {
+                int found = 0;
+                for (int i = 0; i < 10_000; i++) {
+                    found += resumed.getDiscountTotals().size();
+                }
+                return found;
+            });
+            System.out.println("  " + resumed);
+            resumed.close();
+        } finally {
+            file.delete();
+            try (java.util.stream.Stream<Path> files = Files.list(directory)) {
+                for (Path leftover : (Iterable<Path>) files::iterator) {
+                    Files.delete(leftover);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+
+    /**
+     * Exports a year of generated orders to a columnar archive and compares
+     * scanning it against scanning the text log, for one item over the year and
+     * for every item over one week.
+     *
+     * @param orders The number of orders to generate
+     */
+    private static void benchmarkArchive(int orders) throws Exception {
+        File file = generateInventory(10_000);
+        Path directory = Files.createTempDirectory("nile-archive");
+        Path log = directory.resolve("transactions.csv");
+        Path archive = directory.resolve("transactions.archive");
+        try {
+            InventoryLoader loader = new InventoryLoader();
+            loader.loadInventory(file.getPath());
+            List<InventoryItem> items = new ArrayList<>(loader.getInventory().values());
+            Random random = new Random(6);
+            LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+            int spacing = Math.max(1, (int) (2 * 365 * 86_400L / orders));
+            LocalDateTime time = start;
+            try (TransactionJournal journal = new TransactionJournal(log.toString(), false,
+                    OrderEngine.TRANSACTIONS_SEGMENT_BYTES, OrderEngine.TRANSACTIONS_SEGMENT_AGE)) {
+                CompletableFuture<Void> last = null;
+                for (int i = 0; i < orders; i++) {
+                    List<CartItem> cart = new ArrayList<>();
+                    for (int line = 1 + random.nextInt(OrderEngine.MAX_CART_SIZE); line > 0; line--) {
+                        int index = (int) (items.size() * Math.pow(random.nextDouble(), 3));
+                        cart.add(new CartItem(items.get(index), 1 + random.nextInt(20), cart.size() + 1));
+                    }
+                    time = time.plusSeconds(random.nextInt(spacing));
+                    Order order = new Order(cart, time);
+                    last = journal.append(order.toTransactionLines(), TransactionIndex.key(order.getTransactionId()));
+                }
+                last.join();
+            }
+            long bytes = 0;
+            try (java.util.stream.Stream<Path> files = Files.list(directory)) {
+                for (Path segment : (Iterable<Path>) files::iterator) {
+                    if (segment.toString().endsWith(".csv")) {
+                        bytes += Files.size(segment);
+                    }
+                }
+            }
+            System.out.printf("Transaction archive, %,d orders to %s, %,d MB of log%n", orders, time.toLocalDate(), bytes >> 20);
+
+            long begin = System.nanoTime();
+            long rows = TransactionArchive.export(log.toString(), archive);
+            System.out.printf("  %-28s %,10.0f ms, %,d rows, %,d bytes (%.1f%% of the log)%n", "export",
+                (System.nanoTime() - begin) / 1e6, rows, Files.size(archive), 100.0 * Files.size(archive) / bytes);
+
+            String sku = items.get(0).getItemID();
+            LocalDateTime yearEnd = start.plusYears(1);
+            LocalDateTime weekEnd = start.plusMonths(6).plusWeeks(1);
+            try (TransactionArchive reader = new TransactionArchive(archive)) {
+                long[] textTotal = new long[1];
+                measure("text scan, one item, a year", 1, () -> {
+                    textTotal[0] = scanTransactionText(log, sku, start, yearEnd);
+                    return 1;
+                });
+                long[] archiveTotal = new long[1];
+                long blocksBefore = reader.getBlocksRead();
+                measure("archive scan, one item, a year", 1, () -> {
+                    long[] total = new long[1];
+                    reader.scan(sku, start, yearEnd, (t, id, text, price, quantity, discount, cents) -> total[0] += cents);
+                    archiveTotal[0] = total[0];
+                    return 1;
+                });
+                System.out.printf("  %-28s %,d of %,d blocks per scan; totals %s and %s%n", "",
+                    (reader.getBlocksRead() - blocksBefore) / (WARMUP_RUNS + MEASURED_RUNS), reader.getBlockCount(),
+                    Money.format(textTotal[0]), Money.format(archiveTotal[0]));
+
+                measure("text scan, all items, a week", 1,
+                    () -> (int) scanTransactionText(log, null, start.plusMonths(6), weekEnd));
+                blocksBefore = reader.getBlocksRead();
+                measure("archive scan, all items, a week", 1, () -> {
+                    long[] total = new long[1];
+                    reader.scan(null, start.plusMonths(6), weekEnd,
+                        (t, id, text, price, quantity, discount, cents) -> total[0] += cents);
+                    return (int) total[0];
+                });
+                System.out.printf("  %-28s %,d of %,d blocks per scan%n", "",
+                    (reader.getBlocksRead() - blocksBefore) / (WARMUP_RUNS + MEASURED_RUNS), reader.getBlockCount());
+            }
+        } finally {
+            file.delete();
+            try (java.util.stream.Stream<Path> files = Files.list(directory)) {
+                for (Path leftover : (Iterable<Path>) files::iterator) {
+                    Files.delete(leftover);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+
+    /**
+     * Sums the line totals of one item, or all items, over a time range by reading
+     * every segment of the text log, the way a report would without the archive.
+     */
+    private static long scanTransactionText(Path log, String itemID, LocalDateTime from, LocalDateTime to)
+            throws IOException {
+        List<Path> files = new ArrayList<>(TransactionJournal.sealedSegments(log).values());
+        files.add(log);
+        long fromKey = TransactionIndex.key(from);
+        long toKey = TransactionIndex.key(to);
+        long total = 0;
+        for (Path segment : files) {
+            try (BufferedReader reader = Files.newBufferedReader(segment)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isEmpty()) {
+                        continue;
+                    }
+                    String[] fields = line.split(", ");
+                    long key = TransactionIndex.key(fields[0]);
+                    if (key < fromKey || key >= toKey || (itemID != null && !fields[1].equals(itemID))) {
+                        continue;
+                    }
+                    String amount = fields[fields.length - 4];
+                    total += Money.ofDollars(Double.parseDouble(amount.substring(1)));
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Places the same generated orders once through BulkOrderImporter and once
+     * through one OrderSession after another, as the GUI would, with every
+     * transaction log batch forced to disk. Each run starts from a fresh inventory.
+     *
+     * @param orders The number of orders to generate
+     */
+    private static void benchmarkBulkImport(int orders) throws Exception {
+        File file = generateInventory(10_000);
+        Path directory = Files.createTempDirectory("nile-bulk");
+        Path orderFile = directory.resolve("orders.csv");
+        try {
+            Random random = new Random(7);
+            List<List<String[]>> generated = new ArrayList<>();
+            try (BufferedWriter writer = Files.newBufferedWriter(orderFile)) {
+                for (int i = 0; i < orders; i++) {
+                    List<String[]> lines = new ArrayList<>();
+                    for (int line = 1 + random.nextInt(OrderEngine.MAX_CART_SIZE); line > 0; line--) {
+                        String[] fields = {"PO-" + i, String.valueOf(100000 + random.nextInt(10_000)),
+                            String.valueOf(1 + random.nextInt(20))};
+                        lines.add(fields);
+                        writer.write(String.join(", ", fields));
+                        writer.write('\n');
+                    }
+                    generated.add(lines);
+                }
+            }
+            System.out.printf("Bulk order import, %,d orders (%,d bytes)%n", orders, Files.size(orderFile));
+
+            InventoryLoader loader = new InventoryLoader();
+            loader.loadInventory(file.getPath());
+            OrderEngine engine = new OrderEngine(loader, directory.resolve("bulk.csv").toString(), true);
+            BulkOrderImporter.Report report = new BulkOrderImporter(engine).importOrders(orderFile);
+            engine.close();
+            System.out.printf("  %-28s %,10.0f ms, %,.0f orders/s, %,d placed, %,d rejected%n", "bulk import",
+                report.getElapsedNanos() / 1e6, report.getOrdersPerSecond(), report.getOrdersPlaced(),
+                report.getRejections().size());
+
+            loader = new InventoryLoader();
+            loader.loadInventory(file.getPath());
+            engine = new OrderEngine(loader, directory.resolve("sessions.csv").toString(), true);
+            long begin = System.nanoTime();
+            int placed = 0;
+            for (List<String[]> lines : generated) {
+                OrderSession session = engine.openSession();
+                boolean complete = true;
+                for (String[] fields : lines) {
+                    complete &= session.addToCart(fields[1], Integer.parseInt(fields[2])).getStatus()
+                        == LookupResult.Status.OK;
+                }
+                if (complete && session.checkout().join() != null) {
+                    placed++;
+                } else {
+                    session.emptyCart();
+                }
+            }
+            long nanos = System.nanoTime() - begin;
+            engine.close();
+            System.out.printf("  %-28s %,10.0f ms, %,.0f orders/s, %,d placed, %,d rejected%n", "one session at a time",
+                nanos / 1e6, orders / (nanos / 1e9), placed, orders - placed);
+            System.out.println("  " + report);
+        } finally {
+            file.delete();
+            try (java.util.stream.Stream<Path> files = Files.list(directory)) {
+                for (Path leftover : (Iterable<Path>) files::iterator) {
+                    Files.delete(leftover);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+
+    /**
+     * Measures a page of search results read at one point in time while more and
+     * more threads reserve and return stock: once from an InventoryVersions
+     * snapshot, and once under a read-write lock that the writers also take, the
+     * usual way to get a consistent read without versions.
+     *
+     * @param rows The number of inventory lines to generate
+     */
+    private static void benchmarkSnapshotReads(int rows) throws Exception {
+        File file = generateInventory(rows);
+        try {
+            InventoryLoader loader = new InventoryLoader();
+            loader.loadInventory(file.getPath());
+            List<InventoryItem> items = new ArrayList<>(loader.getInventory().values());
+            for (InventoryItem item : items) {
+                item.setQuantity(1_000_000);
+            }
+            System.out.printf("Snapshot reads, %,d items, pages of 20 items, 1 reader thread%n", rows);
+            java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            java.util.concurrent.locks.ReentrantReadWriteLock lock = new java.util.concurrent.locks.ReentrantReadWriteLock();
+            for (boolean locked : new boolean[] {false, true}) {
+                for (int writers : new int[] {0, 1, 2, 4, 8}) {
+                    long deadline = System.nanoTime() + 1_000_000_000L;
+                    AtomicLong reads = new AtomicLong();
+                    AtomicLong readCpu = new AtomicLong();
+                    AtomicLong writes = new AtomicLong();
+                    AtomicLong worst = new AtomicLong();
+                    AtomicLong checksum = new AtomicLong();
+                    java.util.concurrent.atomic.AtomicInteger started = new java.util.concurrent.atomic.AtomicInteger();
+                    runConcurrently(writers + 1, random -> {
+                        boolean reader = started.getAndIncrement() == 0;
+                        long count = 0;
+                        long value = 0;
+                        long cpu = threads.getCurrentThreadCpuTime();
+                        while (System.nanoTime() < deadline) {
+                            if (reader) {
+                                long begin = System.nanoTime();
+                                if (locked) {
+                                    lock.readLock().lock();
+                                    try {
+                                        for (int i = 0; i < 20; i++) {
+                                            InventoryItem.State state = items.get(random.nextInt(items.size())).current();
+                                            value += state.getPriceCents() * state.getQuantity();
+                                        }
+                                    } finally {
+                                        lock.readLock().unlock();
+                                    }
+                                } else {
+                                    try (InventoryVersions.Snapshot snapshot = loader.getVersions().snapshot()) {
+                                        for (int i = 0; i < 20; i++) {
+                                            InventoryItem.State state = items.get(random.nextInt(items.size())).at(snapshot);
+                                            value += state.getPriceCents() * state.getQuantity();
+                                        }
+                                    }
+                                }
+                                worst.accumulateAndGet(System.nanoTime() - begin, Math::max);
+                            } else {
+                                InventoryItem item = items.get(random.nextInt(items.size()));
+                                if (locked) {
+                                    lock.writeLock().lock();
+                                }
+                                try {
+                                    item.reserve(1);
+                                    item.release(1);
+                                } finally {
+                                    if (locked) {
+                                        lock.writeLock().unlock();
+                                    }
+                                }
+                            }
+                            count++;
+                        }
+                        (reader ? reads : writes).addAndGet(count);
+                        checksum.addAndGet(value);
+                        if (reader) {
+                            readCpu.set(threads.getCurrentThreadCpuTime() - cpu);
+                        }
+                    });
+                    System.out.printf("  %-16s %d writers: %,10.0f ns CPU per page, worst %,8.1f ms, %,10d pages/s, %,10d writes/s%n",
+                        locked ? "read-write lock" : "snapshot", writers, (double) readCpu.get() / reads.get(),
+                        worst.get() / 1e6, reads.get(), writes.get() * 2);
+                }
+            }
+            System.out.println("  open snapshots after the runs: " + loader.getVersions().getOpenSnapshots());
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Heap retained by a loaded inventory, with the largest classes of a heap
+     * histogram. The descriptions, kept in the loader's DescriptionArena, are then
+     * rebuilt as Strings to show what holding them as Strings would retain, and
+     * how long rebuilding one takes.
+     *
+     * @param rows The number of items to load
+     */
+    private static void benchmarkHeap(int rows) throws IOException, JMException {
+        File file = generateInventory(rows);
+        try {
+            System.out.printf("Inventory heap, %,d rows%n", rows);
+
+            long before = usedHeap();
+            InventoryLoader loader = new InventoryLoader();
+            loader.loadInventory(file.getPath());
+            loader.getSearchIndex();
+            long retained = usedHeap() - before;
+            DescriptionArena arena = loader.getDescriptions();
+            long arenaBytes = arena.getAllocatedBytes();
+            List<InventoryItem> items = new ArrayList<>(loader.getInventory().values());
+
+            System.out.printf("  %-28s %,14d bytes retained (%.1f B/item)%n", "Inventory and search index",
+                retained, (double) retained / items.size());
+            System.out.printf("  %-28s %,14d bytes (%.1f B/item), %,d descriptions, %,d words%n",
+                "DescriptionArena", arenaBytes, (double) arenaBytes / items.size(),
+                arena.getDescriptionCount(), arena.getWordCount());
+
+            System.out.println();
+            String histogram = (String) ManagementFactory.getPlatformMBeanServer().invoke(
+                new ObjectName("com.sun.management:type=DiagnosticCommand"), "gcClassHistogram",
+                new Object[] {new String[0]}, new String[] {String[].class.getName()});
+            String[] lines = histogram.split("\n");
+            for (int i = 0; i < Math.min(lines.length, 12); i++) {
+                System.out.println("  " + lines[i]);
+            }
+            System.out.println();
+
+            before = usedHeap();
+            String[] descriptions = new String[items.size()];
+            for (int i = 0; i < descriptions.length; i++) {
+                descriptions[i] = items.get(i).getDescription();
+            }
+            long stringBytes = usedHeap() - before - 16L - 4L * descriptions.length;
+            System.out.printf("  %-28s %,14d bytes retained (%.1f B/item)%n", "Descriptions as Strings",
+                stringBytes, (double) stringBytes / descriptions.length);
+
+            InventoryItem[] sample = new InventoryItem[1 << 16];
+            Random random = new Random(7);
+            for (int i = 0; i < sample.length; i++) {
+                sample[i] = loader.getInventory().get(String.valueOf(100000 + random.nextInt(rows)));
+            }
+            measure("getDescription", sample.length, () -> {
+                int length = 0;
+                for (InventoryItem item : sample) {
+                    length += item.getDescription().length();
+                }
+                return length;
+            });
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Starts the given number of threads together and waits for all of them.
+     *
+     * @param threads The number of threads
+     * @param body The work each thread performs, given its own random generator
+     * @return The elapsed time in nanoseconds
+     */
+    static long runConcurrently(int threads, java.util.function.Consumer<Random> body) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            long seed = t;
+            workers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                    body.accept(new Random(seed));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            workers[t].start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return System.nanoTime() - begin;
+    }
+
+    /**
+     * @return The heap in use after a full collection
+     */
+    static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * The original line-by-line loader, kept here as the baseline.
+     */
+    private static int loadWithSplit(String filePath) throws IOException {
+        HashMap<String, InventoryItem> inventory = new HashMap<>();
+        InventoryVersions versions = new InventoryVersions();
+        DescriptionArena descriptions = new DescriptionArena();
+        try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                String[] fields = line.split(",");
+                String itemID = fields[0].trim();
+                String description = fields[1].trim().replaceAll("\"", "");
+                boolean inStock = Boolean.parseBoolean(fields[2].trim());
+                int quantity = Integer.parseInt(fields[3].trim());
+                double price = Double.parseDouble(fields[4].trim());
+                inventory.put(itemID, new InventoryItem(versions, descriptions, itemID, description, inStock, quantity,
+                    Money.ofDollars(price)));
+            }
+        }
+        return inventory.size();
+    }
+
+    /**
+     * A unit of benchmarked work; returns a value so the JIT cannot discard it.
+     */
+    interface Task {
+        int run() throws Exception;
+    }
+
+    /**
+     * Runs a task through warm-up and measured rounds and prints the averages.
+     *
+     * @param label The name printed for this task
+     * @param operations The number of operations one run performs, for per-op figures
+     * @param task The work to measure
+     */
+    static void measure(String label, long operations, Task task) {
+        try {
+            int sink = 0;
+            for (int i = 0; i < WARMUP_RUNS; i++) {
+                sink += task.run();
+            }
+            System.gc();
+
+            long startBytes = allocatedBytes();
+            long start = System.nanoTime();
+            for (int i = 0; i < MEASURED_RUNS; i++) {
+                sink += task.run();
+            }
+            long elapsed = (System.nanoTime() - start) / MEASURED_RUNS;
+            long allocated = (allocatedBytes() - startBytes) / MEASURED_RUNS;
+
+            System.out.printf("  %-28s %10.2f ms/run %10.1f ns/op %10.1f B/op %8.1f MB/s alloc (%d)%n",
+                label,
+                elapsed / 1e6,
+                (double) elapsed / operations,
+                (double) allocated / operations,
+                allocated / 1e6 / (elapsed / 1e9),
+                sink);
+        } catch (Exception e) {
+            System.err.println(label + " failed: " + e);
+        }
+    }
+
+    /**
+     * @return The total bytes allocated so far by the current thread
+     */
+    static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+
+    /**
+     * Writes a temporary inventory file with realistic looking rows.
+     *
+     * @param rows The number of lines to write
+     * @return The generated file
+     */
+    static File generateInventory(int rows) throws IOException {
+        File file = File.createTempFile("inventory", ".csv");
+        Random random = new Random(42);
+        String[] words = {"USB", "cable", "Campagnolo", "crankset", "helmet", "size", "Lg", "blue",
+                          "paper", "ream", "Colnago", "frame", "stapler", "3 ft", "box of 10"};
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
+            for (int i = 0; i < rows; i++) {
+                int quantity = random.nextInt(5000);
+                writer.write(String.valueOf(100000 + i));
+                writer.write(", \"");
+                writer.write(words[random.nextInt(words.length)]);
+                writer.write(' ');
+                writer.write(words[random.nextInt(words.length)]);
+                writer.write(" - model ");
+                writer.write(String.valueOf(random.nextInt(1000)));
+                writer.write("\", ");
+                writer.write(quantity > 0 ? "true" : "false");
+                writer.write(", ");
+                writer.write(String.valueOf(quantity));
+                writer.write(", ");
+                writer.write(String.format("%.2f", random.nextInt(100000) / 100.0));
+                writer.write('\n');
+            }
+        }
+        return file;
+    }
+}
@@ -0,0 +1,199 @@
+/*
+    Name : Colin Kirby
+    Course : CNT 4714 - Spring 2025
+    Assignment Title : Project 1 - An Event-driven Enterprise Simulation
+    Date : Monday, January 20, 2025
+*/
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A checked-out order: the cart items at checkout time and the computed totals.
+ * Knows how to render itself as transaction log lines and as the customer invoice.
+ */
+public class Order {
+    /** Format for the transaction ID (DDMMYYYYHHMMSS) */
+    private static final DateTimeFormatter TRANSACTION_ID_FORMAT = DateTimeFormatter.ofPattern("ddMMyyyyHHmmss");
+
+    /** Format for invoice display (January 8, 2025, 3:28:45 PM) */
+    private static final DateTimeFormatter INVOICE_FORMAT = DateTimeFormatter.ofPattern("MMMM d, yyyy, h:mm:ss a");
+
+    /** Formats for the date and time columns of the transaction log */
+    private static final DateTimeFormatter LOG_DATE_FORMAT = DateTimeFormatter.ofPattern("MMMM d");
+    private static final DateTimeFormatter LOG_YEAR_FORMAT = DateTimeFormatter.ofPattern("yyyy");
+    private static final DateTimeFormatter LOG_TIME_FORMAT = DateTimeFormatter.ofPattern("h:mm:ss a");
+
+    /** The time the order was checked out */
+    private final LocalDateTime time;
+
+    /** The transaction ID derived from the checkout time */
+    private final String transactionId;
+
+    /** The items in the order */
+    private final List<CartItem> items;
+
+    /** The sum of the discounted line totals, in cents */
+    private final long subtotalCents;
+
+    /** The tax on the subtotal, in cents */
+    private final long taxCents;
+
+    /**
+     * Creates an order from the given cart items and computes its totals.
+     *
+     * @param items The items in the order, in cart order
+     * @param time The checkout time
+     */
+    public Order(List<CartItem> items, LocalDateTime time) {
+        this.time = time;
+        this.transactionId = time.format(TRANSACTION_ID_FORMAT);
+        this.items = Collections.unmodifiableList(new ArrayList<>(items));
+
+        long sum = 0;
+        for (CartItem cartItem : items) {
+            sum += cartItem.getTotalCents();
+        }
+        this.subtotalCents = sum;
+        this.taxCents = Money.percentOf(sum, OrderEngine.TAX_RATE_BASIS_POINTS);
+    }
+
+    /**
+     * @return The transaction ID (DDMMYYYYHHMMSS)
+     */
+    public String getTransactionId() { return transactionId; }
+
+    /**
+     * @return The time the order was checked out
+     */
+    public LocalDateTime getTime() { return time; }
+
+    /**
+     * @return The items in the order
+     */
+    public List<CartItem> getItems() { return items; }
+
+    /**
+     * @return The sum of the discounted line totals, in cents
+     */
+    public long getSubtotalCents() { return subtotalCents; }
+
+    /**
+     * @return The tax on the subtotal, rounded to the cent, in cents
+     */
+    public long getTaxCents() { return taxCents; }
+
+    /**
+     * @return The order total including tax, in cents
+     */
+    public long getTotalCents() { return subtotalCents + taxCents; }
+
+    /**
+     * @return The sum of the discounted line totals
+     */
+    public double getSubtotal() { return Money.toDollars(subtotalCents); }
+
+    /**
+     * @return The tax on the subtotal, rounded to the cent
+     */
+    public double getTax() { return Money.toDollars(taxCents); }
+
+    /**
+     * @return The order total including tax
+     */
+    public double getTotal() { return Money.toDollars(getTotalCents()); }
+
+    /**
+     * Formats the order as lines for transactions.csv, one per item, followed by
+     * an empty line that separates orders. Descriptions are quoted as in
+     * inventory.csv, with any embedded quote doubled. The discount rate is exact:
+     * 10% is written as 0.1 and 15% as 0.15 (the log once rounded it to 0.2).
+     *
+     * @return The transaction log text for this order
+     */
+    public String toTransactionLines() {
+        String transactionDate = time.format(LOG_DATE_FORMAT);
+        String transactionYear = time.format(LOG_YEAR_FORMAT);
+        String transactionTime = time.format(LOG_TIME_FORMAT) + " EST";
+
+        StringBuilder lines = new StringBuilder(160 * items.size() + 1);
+        for (CartItem cartItem : items) {
+            InventoryItem item = cartItem.getItem();
+            lines.append(transactionId).append(", ")
+                 .append(item.getItemID()).append(", ");
+            appendQuoted(lines, cartItem.getDescription()).append(", ");
+            Money.append(lines, cartItem.getUnitPriceCents()).append(", ")
+                 .append(cartItem.getQuantity()).append(", ");
+            appendDiscountRate(lines, cartItem.getDiscountPercentage()).append(", ");
+            Money.appendCurrency(lines, cartItem.getTotalCents()).append(", ")
+                 .append(transactionDate).append(", ")
+                 .append(transactionYear).append(", ")
+                 .append(transactionTime).append('\n');
+        }
+        lines.append("\n");
+        return lines.toString();
+    }
+
+    /**
+     * Formats the customer invoice shown after checkout.
+     *
+     * @return The invoice text
+     */
+    public String toInvoice() {
+        StringBuilder invoice = new StringBuilder(512);
+        invoice.append("Date: ").append(time.format(INVOICE_FORMAT)).append(" EST").append("\n\n");
+        invoice.append("Number of line items: ").append(items.size()).append("\n\n");
+        invoice.append("Item# / ID / Title / Price / Qty / Disc % / Subtotal:\n\n");
+
+        int itemNumber = 1;
+        for (CartItem cartItem : items) {
+            InventoryItem item = cartItem.getItem();
+            invoice.append(itemNumber++).append(". ")
+                   .append(item.getItemID()).append(' ');
+            appendQuoted(invoice, cartItem.getDescription()).append(' ');
+            Money.appendCurrency(invoice, cartItem.getUnitPriceCents()).append(' ')
+                   .append(cartItem.getQuantity()).append(' ')
+                   .append(cartItem.getDiscountPercentage()).append("% ");
+            Money.appendCurrency(invoice, cartItem.getTotalCents()).append('\n');
+        }
+
+        Money.appendCurrency(invoice.append("\n\nOrder subtotal: "), subtotalCents).append("\n\n");
+        Money.appendPercent(invoice.append("Tax rate: "), OrderEngine.TAX_RATE_BASIS_POINTS).append("\n\n");
+        Money.appendCurrency(invoice.append("Tax amount: "), taxCents).append("\n\n");
+        Money.appendCurrency(invoice.append("ORDER TOTAL: "), getTotalCents()).append("\n\n");
+        invoice.append("Thanks for shopping at Nile Dot Com!");
+        return invoice.toString();
+    }
+
+    /**
+     * Appends text between double quotes, doubling any quote inside it, as
+     * inventory.csv quotes descriptions.
+     */
+    private static StringBuilder appendQuoted(StringBuilder out, String text) {
+        out.append('"');
+        if (text.indexOf('"') < 0) {
+            out.append(text);
+        } else {
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c == '"') {
+                    out.append('"');
+                }
+                out.append(c);
+            }
+        }
+        return out.append('"');
+    }
+
+    /**
+     * Appends a discount percentage as a fraction, with one decimal when that is
+     * exact (10% is 0.1) and two otherwise (15% is 0.15).
+     */
+    private static StringBuilder appendDiscountRate(StringBuilder out, int percent) {
+        out.append(percent / 100).append('.').append((char) ('0' + percent / 10 % 10));
+        return percent % 10 == 0 ? out : out.append((char) ('0' + percent % 10));
+    }
+}
@@ -0,0 +1,403 @@
+/*
+    Name : Colin Kirby
+    Course : CNT 4714 - Spring 2025
+    Assignment Title : Project 1 - An Event-driven Enterprise Simulation
+    Date : Monday, January 20, 2025
+*/
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Headless order-processing engine for the Nile Dot Com store.
+ * Holds the store rules (tax rate, cart size) and the search logic (by Item ID and
+ * by description words), and hands out OrderSession objects that each represent
+ * one shopper's cart.
+ *
+ * The engine is thread-safe: any number of sessions may run concurrently against
+ * the same inventory. Stock is kept in a StockStore: an InventoryLoader, whose
+ * changes can be logged to an InventoryWal; a ShardedInventory, which several
+ * engines can share; or a TieredCatalog, for catalogs too large for the heap.
+ *
+ * Completed orders are appended to the transaction log through a group-commit
+ * TransactionJournal, one whole order per record. The log is indexed by
+ * transaction ID and rotated daily or at 64 MB; read it back with
+ * TransactionReader. Cart lines are priced by a PromotionEngine whose rules can
+ * be replaced while the store runs.
+ */
+public class OrderEngine {
+    /** Tax rate in basis points, used for exact tax in cents */
+    public static final long TAX_RATE_BASIS_POINTS = 600; // 6% tax rate
+
+    /** Tax rate constant for price calculations */
+    public static final double TAX_RATE = TAX_RATE_BASIS_POINTS / (double) Money.BASIS_POINTS;
+
+    /** Maximum number of items allowed in a cart */
+    public static final int MAX_CART_SIZE = 5;
+
+    /** Default location of the transaction log */
+    public static final String TRANSACTIONS_FILE = "transactions.csv";
+
+    /** Size at which the transaction log is rotated to a new segment */
+    public static final long TRANSACTIONS_SEGMENT_BYTES = 64L * 1024 * 1024;
+
+    /** Age at which the transaction log is rotated to a new segment */
+    public static final Duration TRANSACTIONS_SEGMENT_AGE = Duration.ofDays(1);
+
+    /** Where the engine finds items and changes their stock */
+    private final StockStore stock;
+
+    /** Path of the transaction log that checkouts are appended to */
+    private final String transactionsPath;
+
+    /** Whether each journal batch is forced to disk before orders are reported durable */
+    private final boolean syncWrites;
+
+    /** The transaction journal, opened on the first checkout */
+    private TransactionJournal journal;
+
+    /** Prices cart lines; starts with the default quantity tiers */
+    private final PromotionEngine promotions = new PromotionEngine();
+
+    /**
+     * Creates an engine that logs transactions to transactions.csv, forcing each
+     * batch of orders to disk.
+     *
+     * @param loader The InventoryLoader instance containing the store's inventory data
+     */
+    public OrderEngine(InventoryLoader loader) {
+        this(loader, TRANSACTIONS_FILE, true);
+    }
+
+    /**
+     * Creates an engine that logs transactions to the given file, forcing each
+     * batch of orders to disk.
+     *
+     * @param loader The InventoryLoader instance containing the store's inventory data
+     * @param transactionsPath The transaction log to append checkouts to
+     */
+    public OrderEngine(InventoryLoader loader, String transactionsPath) {
+        this(loader, transactionsPath, true);
+    }
+
+    /**
+     * Creates an engine that logs transactions to the given file.
+     *
+     * @param loader The InventoryLoader instance containing the store's inventory data
+     * @param transactionsPath The transaction log to append checkouts to
+     * @param syncWrites Whether to fsync each journal batch before checkouts complete
+     */
+    public OrderEngine(InventoryLoader loader, String transactionsPath, boolean syncWrites) {
+        this(new LoaderStockStore(loader), transactionsPath, syncWrites);
+    }
+
+    /**
+     * Creates an engine that sells from a sharded inventory, which other engines
+     * may share, and logs transactions to the given file. Stock changes go through
+     * the shards' own logs, if the inventory has opened them.
+     *
+     * @param inventory The sharded inventory
+     * @param transactionsPath The transaction log to append checkouts to
+     * @param syncWrites Whether to fsync each journal batch before checkouts complete
+     */
+    public OrderEngine(ShardedInventory inventory, String transactionsPath, boolean syncWrites) {
+        this((StockStore) inventory, transactionsPath, syncWrites);
+    }
+
+    /**
+     * Creates an engine that sells from a tiered catalog, keeping only its hot items
+     * on the heap, and logs transactions to the given file. Stock is kept in the
+     * catalog file; description search is not available.
+     *
+     * @param catalog The catalog
+     * @param transactionsPath The transaction log to append checkouts to
+     * @param syncWrites Whether to fsync each journal batch before checkouts complete
+     */
+    public OrderEngine(TieredCatalog catalog, String transactionsPath, boolean syncWrites) {
+        this((StockStore) catalog, transactionsPath, syncWrites);
+    }
+
+    private OrderEngine(StockStore stock, String transactionsPath, boolean syncWrites) {
+        this.stock = stock;
+        this.transactionsPath = transactionsPath;
+        this.syncWrites = syncWrites;
+    }
+
+    /**
+     * @return The inventory this engine sells from, or null if it sells from a
+     *         sharded inventory or a tiered catalog
+     */
+    public InventoryLoader getInventoryLoader() {
+        return stock instanceof LoaderStockStore ? ((LoaderStockStore) stock).getLoader() : null;
+    }
+
+    /**
+     * @return The version clock to take snapshots of the engine's items from
+     */
+    public InventoryVersions getVersions() {
+        return stock.getVersions();
+    }
+
+    /**
+     * @return The promotions that price carts; replace its rules to change them at runtime
+     */
+    public PromotionEngine getPromotions() {
+        return promotions;
+    }
+
+    /**
+     * @return The sharded inventory this engine sells from, or null if it uses an InventoryLoader
+     */
+    public ShardedInventory getShardedInventory() {
+        return stock instanceof ShardedInventory ? (ShardedInventory) stock : null;
+    }
+
+    /**
+     * Routes every later stock change through a write-ahead log. Ignored by an
+     * engine on a sharded inventory, whose shards keep their own logs, or on a
+     * tiered catalog, which keeps stock in its file.
+     *
+     * @param wal The log, or null to stop logging stock changes
+     */
+    public void setStockLog(InventoryWal wal) {
+        if (stock instanceof LoaderStockStore) {
+            ((LoaderStockStore) stock).setWal(wal);
+        }
+    }
+
+    /**
+     * Looks up an item by its ID.
+     *
+     * @param itemId The Item ID
+     * @return The item, or null if it is not in the inventory
+     */
+    public InventoryItem findItem(String itemId) {
+        return stock.get(itemId);
+    }
+
+    /**
+     * Looks up an item and checks whether the requested quantity could be bought.
+     * Nothing is reserved.
+     *
+     * @param itemId The Item ID
+     * @param quantity The requested quantity, or 0 to only look up the item
+     * @return The outcome, with the price quote for the quantity on success; bundle
+     *         discounts are not quoted, since they depend on the rest of the cart
+     */
+    public LookupResult search(String itemId, int quantity) {
+        InventoryItem item = findItem(itemId);
+        if (item == null) {
+            return new LookupResult(LookupResult.Status.NOT_FOUND, null, quantity);
+        }
+        // Decide on one state, so the answer and the quote agree however the item changes
+        InventoryItem.State state = item.current();
+        int defaultDiscount = CartItem.getDiscountPercentage(quantity);
+        if (!state.isInStock()) {
+            return new LookupResult(LookupResult.Status.OUT_OF_STOCK, item, state, quantity, defaultDiscount);
+        }
+        if (quantity > state.getQuantity()) {
+            return new LookupResult(LookupResult.Status.INSUFFICIENT_STOCK, item, state, quantity, defaultDiscount);
+        }
+        int requested = Math.max(quantity, 0);
+        return new LookupResult(LookupResult.Status.OK, item, state, requested,
+            promotions.discountFor(item, requested, LocalDateTime.now()));
+    }
+
+    /**
+     * Finds items by words in their descriptions; the last word also matches as a
+     * prefix, so partial input works while typing.
+     *
+     * @param query The words to look for, e.g. "usb cable"
+     * @param limit The most items to return
+     * @return The matching items, best match first; none on a tiered catalog
+     */
+    public List<InventoryItem> searchDescriptions(String query, int limit) {
+        return stock.searchDescriptions(query, limit);
+    }
+
+    /**
+     * Starts a new shopping session with an empty cart.
+     *
+     * @return The new session
+     */
+    public OrderSession openSession() {
+        return new OrderSession(this);
+    }
+
+    /**
+     * Reserves stock for a cart, logging it if the store keeps a log.
+     *
+     * @param item The item
+     * @param quantity The number of units
+     * @return True if the stock was reserved
+     */
+    boolean reserveStock(InventoryItem item, int quantity) {
+        try {
+            return stock.reserve(item, quantity);
+        } catch (IOException e) {
+            System.err.println("Error writing inventory log: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Returns reserved stock to the inventory, logging it if the store keeps a log.
+     *
+     * @param item The item
+     * @param quantity The number of units
+     */
+    void releaseStock(InventoryItem item, int quantity) {
+        try {
+            stock.release(item, quantity);
+        } catch (IOException e) {
+            System.err.println("Error writing inventory log: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reserves stock for every line of an order, all or nothing.
+     *
+     * @param items The order's cart lines
+     * @return True if every line was reserved
+     */
+    boolean reserveOrder(List<CartItem> items) {
+        int[] amounts = new int[items.size()];
+        try {
+            return stock.reserveAll(itemsOf(items, amounts), amounts);
+        } catch (IOException e) {
+            System.err.println("Error writing inventory log: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Returns the reserved stock of a whole order, e.g. when it cannot be recorded.
+     *
+     * @param items The order's cart lines
+     */
+    void releaseOrder(List<CartItem> items) {
+        int[] amounts = new int[items.size()];
+        try {
+            stock.releaseAll(itemsOf(items, amounts), amounts);
+        } catch (IOException e) {
+            System.err.println("Error writing inventory log: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Commits the reserved stock of a whole order as sold, every line or none;
+     * see the StockStore for how it is made durable.
+     *
+     * This is done before the order is written to the transaction log, so a crash
+     * can never leave a recorded order whose stock comes back on recovery; if the
+     * order then cannot be recorded, uncommitOrder() puts the stock back.
+     *
+     * @param items The order's cart lines
+     * @return True if the stock is sold, false if it could not be logged; it is
+     *         then still reserved
+     */
+    boolean commitOrder(List<CartItem> items) {
+        int[] amounts = new int[items.size()];
+        try {
+            stock.commitAll(itemsOf(items, amounts), amounts);
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error writing inventory log: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Puts the sold stock of an order back in reserve, when commitOrder() succeeded
+     * but the order could not be recorded, so its cart holds the stock again.
+     *
+     * @param items The order's cart lines
+     */
+    void uncommitOrder(List<CartItem> items) {
+        int[] amounts = new int[items.size()];
+        try {
+            stock.uncommitAll(itemsOf(items, amounts), amounts);
+        } catch (IOException e) {
+            System.err.println("Error writing inventory log: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @param amounts Receives the quantity of each line
+     * @return The item of each line
+     */
+    private static List<InventoryItem> itemsOf(List<CartItem> items, int[] amounts) {
+        List<InventoryItem> stockItems = new ArrayList<>(items.size());
+        for (CartItem cartItem : items) {
+            amounts[stockItems.size()] = cartItem.getQuantity();
+            stockItems.add(cartItem.getItem());
+        }
+        return stockItems;
+    }
+
+    /**
+     * Queues a checked-out order for the transaction log.
+     *
+     * @param order The order to record
+     * @return A future that completes when the order's batch is durable, or
+     *         completes exceptionally if the log cannot be written
+     */
+    CompletableFuture<Void> recordOrder(Order order) {
+        String lines = order.toTransactionLines();
+        try {
+            return getJournal().append(lines, TransactionIndex.key(order.getTransactionId()));
+        } catch (IOException e) {
+            CompletableFuture<Void> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+    }
+
+    /**
+     * @return The transaction journal, opening it if this is the first checkout
+     * @throws IOException If the journal file cannot be opened
+     */
+    private synchronized TransactionJournal getJournal() throws IOException {
+        if (journal == null) {
+            journal = new TransactionJournal(transactionsPath, syncWrites,
+                TRANSACTIONS_SEGMENT_BYTES, TRANSACTIONS_SEGMENT_AGE);
+        }
+        return journal;
+    }
+
+    /**
+     * Writes any orders still queued for the transaction log and closes it.
+     *
+     * @throws IOException If the log cannot be closed
+     */
+    public synchronized void close() throws IOException {
+        if (journal != null) {
+            journal.close();
+            journal = null;
+        }
+    }
+
+    /**
+     * Formats a number as a currency string with $ and 2 decimal places.
+     *
+     * @param amount The amount to format
+     * @return A formatted currency string (e.g., "$10.99")
+     */
+    public static String formatCurrency(double amount) {
+        return Money.format(Money.ofDollars(amount));
+    }
+
+    /**
+     * Formats an amount in cents as a currency string with $ and 2 decimal places.
+     *
+     * @param cents The amount to format, in cents
+     * @return A formatted currency string (e.g., "$10.99")
+     */
+    public static String formatCents(long cents) {
+        return Money.format(cents);
+    }
+}
@@ -0,0 +1,327 @@
+/*
+    Name : Colin Kirby
+    Course : CNT 4714 - Spring 2025
+    Assignment Title : Project 1 - An Event-driven Enterprise Simulation
+    Date : Monday, January 20, 2025
+*/
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Regression benchmark suite for the order path: loading the inventory, looking
+ * items up, and everything checkout computes per cart line.
+ *
+ * Each benchmark is warmed up for a fixed time, then measured over several fixed-time
+ * iterations made of small batches. For each benchmark the suite reports:
+ * - throughput (ops/s) and average time per operation
+ * - p50 and p99 latency per operation, over the batch samples
+ * - bytes allocated per operation, and collections and GC time during measurement
+ *
+ * Results can be saved as a baseline and later compared against it; a benchmark
+ * that got slower or allocates more than the tolerance allows is reported as a
+ * regression and the process exits with status 1.
+ *
+ * Usage:
+ *   java OrderPathBenchmark [--quick] [--save baseline.csv] [--compare baseline.csv] [name-prefix]
+ */
+public class OrderPathBenchmark {
+    /** Measured iterations per benchmark */
+    private static final int ITERATIONS = 5;
+
+    /** Slowdown over the baseline reported as a regression */
+    private static final double TIME_TOLERANCE = 0.25;
+
+    /** Extra allocation over the baseline reported as a regression: a share plus a fixed slack in bytes per operation */
+    private static final double ALLOCATION_TOLERANCE = 0.05;
+    private static final double ALLOCATION_SLACK = 16;
+
+    /** A benchmarked operation; the operation index lets it vary its input */
+    interface Op {
+        long run(int index) throws Exception;
+    }
+
+    /** Measured figures of one benchmark */
+    static class Result {
+        final String name;
+        final double opsPerSecond;
+        final double nanosPerOp;
+        final double p50;
+        final double p99;
+        final double bytesPerOp;
+        final long gcCount;
+        final long gcMillis;
+
+        Result(String name, double opsPerSecond, double nanosPerOp, double p50, double p99,
+               double bytesPerOp, long gcCount, long gcMillis) {
+            this.name = name;
+            this.opsPerSecond = opsPerSecond;
+            this.nanosPerOp = nanosPerOp;
+            this.p50 = p50;
+            this.p99 = p99;
+            this.bytesPerOp = bytesPerOp;
+            this.gcCount = gcCount;
+            this.gcMillis = gcMillis;
+        }
+    }
+
+    /** Keeps results alive so the JIT cannot drop the measured work */
+    private static volatile long sink;
+
+    /** Warm-up time per benchmark */
+    private final long warmupNanos;
+
+    /** Time per measured iteration */
+    private final long iterationNanos;
+
+    /** Only benchmarks whose name starts with this run */
+    private final String filter;
+
+    /** Where the report goes; System.out itself is silenced so loads do not print */
+    private final PrintStream report = System.out;
+
+    /** Results in run order */
+    private final Map<String, Result> results = new LinkedHashMap<>();
+
+    private OrderPathBenchmark(boolean quick, String filter) {
+        this.warmupNanos = quick ? 200_000_000L : 2_000_000_000L;
+        this.iterationNanos = quick ? 200_000_000L : 1_000_000_000L;
+        this.filter = filter;
+    }
+
+    /**
+     * Runs the suite.
+     *
+     * @param args Options, see the class description
+     */
+    public static void main(String[] args) throws Exception {
+        boolean quick = false;
+        String save = null;
+        String compare = null;
+        String filter = "";
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--quick":   quick = true; break;
+                case "--save":    save = args[++i]; break;
+                case "--compare": compare = args[++i]; break;
+                default:          filter = args[i];
+            }
+        }
+
+        OrderPathBenchmark suite = new OrderPathBenchmark(quick, filter);
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        suite.runAll(quick);
+        if (save != null) {
+            suite.save(Paths.get(save));
+        }
+        if (compare != null && !suite.compare(Paths.get(compare))) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Runs every benchmark that matches the filter.
+     */
+    private void runAll(boolean quick) throws Exception {
+        report.printf("%-26s %14s %10s %10s %10s %10s %6s %8s%n",
+            "Benchmark", "ops/s", "ns/op", "p50 ns", "p99 ns", "B/op", "gc", "gc ms");
+
+        // Loading the inventory file at several sizes
+        int[] sizes = quick ? new int[] {10_000, 100_000} : new int[] {10_000, 100_000, 1_000_000};
+        for (int rows : sizes) {
+            String name = "load." + rows;
+            if (!name.startsWith(filter)) {
+                continue;
+            }
+            File file = NileBenchmark.generateInventory(rows);
+            try {
+                run(name, 1, i -> {
+                    InventoryLoader loader = new InventoryLoader();
+                    loader.loadInventory(file.getPath());
+                    return loader.getInventory().size();
+                });
+            } finally {
+                file.delete();
+            }
+        }
+
+        // Lookups against a 100k item inventory, as done by each search
+        File file = NileBenchmark.generateInventory(100_000);
+        InventoryLoader loader = new InventoryLoader();
+        loader.loadInventory(file.getPath());
+        file.delete();
+        OrderEngine engine = new OrderEngine(loader);
+        String[] ids = new String[1024];
+        Random random = new Random(42);
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = String.valueOf(100000 + random.nextInt(100_000));
+        }
+        run("lookup.byId", 1024, i -> engine.findItem(ids[i & 1023]).getQuantity());
+        run("lookup.search", 1024, i -> engine.search(ids[i & 1023], 1).getStatus().ordinal());
+
+        // Per-line checkout work on a full cart
+        List<CartItem> cart = new ArrayList<>();
+        int[] quantities = {1, 5, 10, 15, 3};
+        for (int i = 0; i < OrderEngine.MAX_CART_SIZE; i++) {
+            cart.add(new CartItem(engine.findItem(ids[i]), quantities[i], i + 1));
+        }
+        LocalDateTime time = LocalDateTime.of(2025, 1, 20, 23, 10, 55);
+        Order order = new Order(cart, time);
+
+        run("cart.discount", 1024, i -> CartItem.getDiscountPercentage(i & 31));
+        run("cart.lineTotal", 1024, i -> cart.get(i % cart.size()).getTotalCents());
+        run("cart.toString", 256, i -> cart.get(i % cart.size()).toString().length());
+        run("order.totals", 256, i -> new Order(cart, time).getTotalCents());
+        run("order.transactionLines", 64, i -> order.toTransactionLines().length());
+        run("order.invoice", 64, i -> order.toInvoice().length());
+
+        // Pricing the full cart against a large promotion set; last, since it changes the line discounts
+        List<Promotion> rules = new ArrayList<>(PromotionEngine.DEFAULT_RULES);
+        for (int i = 0; i < 100_000; i++) {
+            rules.add(Promotion.sku(String.valueOf(100000 + i), 1 + i % 20, i % 40));
+            rules.add(Promotion.category("item" + i, 2, i % 30));
+            rules.add(Promotion.bundle(Arrays.asList(ids[i & 1023], ids[(i + 1) & 1023]), 25));
+        }
+        PromotionEngine promotions = new PromotionEngine(rules);
+        run("cart.promotions", 256, i -> {
+            promotions.apply(cart, time);
+            return cart.get(i % cart.size()).getDiscountPercentage();
+        });
+    }
+
+    /**
+     * Warms up and measures one benchmark, prints its figures and records them.
+     *
+     * @param name The benchmark name
+     * @param batch The operations timed together as one latency sample
+     * @param op The operation
+     */
+    private void run(String name, int batch, Op op) throws Exception {
+        if (!name.startsWith(filter)) {
+            return;
+        }
+
+        long value = 0;
+        int index = 0;
+        long warmupEnd = System.nanoTime() + warmupNanos;
+        while (System.nanoTime() < warmupEnd) {
+            for (int i = 0; i < batch; i++) {
+                value += op.run(index++);
+            }
+        }
+        System.gc();
+
+        long[] samples = new long[1024];
+        int sampleCount = 0;
+        long operations = 0;
+        long elapsed = 0;
+        long gcCountBefore = gcCount();
+        long gcMillisBefore = gcMillis();
+        long bytesBefore = NileBenchmark.allocatedBytes();
+        for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+            long iterationEnd = System.nanoTime() + iterationNanos;
+            long now;
+            do {
+                long start = System.nanoTime();
+                for (int i = 0; i < batch; i++) {
+                    value += op.run(index++);
+                }
+                now = System.nanoTime();
+                elapsed += now - start;
+                operations += batch;
+                if (sampleCount == samples.length) {
+                    samples = Arrays.copyOf(samples, sampleCount * 2);
+                }
+                samples[sampleCount++] = now - start;
+            } while (now < iterationEnd);
+        }
+        long bytes = NileBenchmark.allocatedBytes() - bytesBefore;
+        sink = value;
+
+        Arrays.sort(samples, 0, sampleCount);
+        Result result = new Result(name,
+            operations / (elapsed / 1e9),
+            (double) elapsed / operations,
+            (double) samples[(int) (sampleCount * 0.50)] / batch,
+            (double) samples[Math.min(sampleCount - 1, (int) (sampleCount * 0.99))] / batch,
+            (double) bytes / operations,
+            gcCount() - gcCountBefore,
+            gcMillis() - gcMillisBefore);
+        results.put(name, result);
+        report.printf("%-26s %,14.0f %10.1f %10.1f %10.1f %10.1f %6d %8d%n",
+            name, result.opsPerSecond, result.nanosPerOp, result.p50, result.p99,
+            result.bytesPerOp, result.gcCount, result.gcMillis);
+    }
+
+    /**
+     * Writes the results as a baseline file: name, ns/op, B/op per line.
+     */
+    private void save(Path path) throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (Result result : results.values()) {
+            lines.add(String.format("%s,%.3f,%.3f", result.name, result.nanosPerOp, result.bytesPerOp));
+        }
+        Files.write(path, lines);
+        report.println("Baseline saved to " + path);
+    }
+
+    /**
+     * Compares the results against a baseline file and prints any regressions.
+     *
+     * @return True if nothing regressed
+     */
+    private boolean compare(Path path) throws IOException {
+        boolean ok = true;
+        for (String line : Files.readAllLines(path)) {
+            String[] fields = line.split(",");
+            if (fields.length != 3 || !results.containsKey(fields[0])) {
+                continue;
+            }
+            Result result = results.get(fields[0]);
+            double baselineNanos = Double.parseDouble(fields[1]);
+            double baselineBytes = Double.parseDouble(fields[2]);
+            if (result.nanosPerOp > baselineNanos * (1 + TIME_TOLERANCE)) {
+                report.printf("REGRESSION %s: %.1f ns/op, baseline %.1f ns/op%n",
+                    result.name, result.nanosPerOp, baselineNanos);
+                ok = false;
+            }
+            if (result.bytesPerOp > baselineBytes * (1 + ALLOCATION_TOLERANCE) + ALLOCATION_SLACK) {
+                report.printf("REGRESSION %s: %.1f B/op, baseline %.1f B/op%n",
+                    result.name, result.bytesPerOp, baselineBytes);
+                ok = false;
+            }
+        }
+        report.println(ok ? "No regressions against " + path : "Regressions found against " + path);
+        return ok;
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, bean.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, bean.getCollectionTime());
+        }
+        return millis;
+    }
+}
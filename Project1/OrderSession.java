@@ -0,0 +1,249 @@
+/*
+    Name : Colin Kirby
+    Course : CNT 4714 - Spring 2025
+    Assignment Title : Project 1 - An Event-driven Enterprise Simulation
+    Date : Monday, January 20, 2025
+*/
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * One shopper's cart and order, created by OrderEngine.openSession().
+ *
+ * Adding an item reserves its stock right away, deleting or emptying returns the
+ * stock, and checkout commits the stock as sold and then records the order. The
+ * cart is priced by the engine's promotions after every change and again at
+ * checkout. A session kept in a SessionStore expires if it is left unused, which
+ * returns its stock. All methods are synchronized, so a session may be driven
+ * from any thread.
+ */
+public class OrderSession {
+    /** The engine this session belongs to */
+    private final OrderEngine engine;
+
+    /** Items currently in the shopping cart */
+    private final ArrayList<CartItem> cart = new ArrayList<>();
+
+    /**
+     * The stages of an order
+     */
+    private enum State {
+        /** Items can be added and removed */
+        OPEN,
+        /** Checkout has started and the order is waiting for the transaction log */
+        CHECKING_OUT,
+        /** The order is recorded and its stock sold */
+        CHECKED_OUT,
+        /** The session was abandoned and its stock returned; nothing more can be done */
+        EXPIRED
+    }
+
+    /** The stage the current order is in */
+    private State state = State.OPEN;
+
+    /**
+     * Creates an empty session; use OrderEngine.openSession().
+     *
+     * @param engine The engine this session belongs to
+     */
+    OrderSession(OrderEngine engine) {
+        this.engine = engine;
+    }
+
+    /**
+     * Reserves stock for an item and adds it to the cart.
+     *
+     * @param itemId The Item ID
+     * @param quantity The number of units to add
+     * @return The outcome; the cart is unchanged unless the status is OK
+     */
+    public synchronized LookupResult addToCart(String itemId, int quantity) {
+        InventoryItem item = engine.findItem(itemId);
+        if (state != State.OPEN) {
+            return new LookupResult(LookupResult.Status.ORDER_CLOSED, item, quantity);
+        }
+        if (cart.size() >= OrderEngine.MAX_CART_SIZE) {
+            return new LookupResult(LookupResult.Status.CART_FULL, item, quantity);
+        }
+        if (quantity <= 0) {
+            return new LookupResult(LookupResult.Status.INVALID_QUANTITY, item, quantity);
+        }
+        if (item == null) {
+            return new LookupResult(LookupResult.Status.NOT_FOUND, null, quantity);
+        }
+        if (!item.isInStock()) {
+            return new LookupResult(LookupResult.Status.OUT_OF_STOCK, item, quantity);
+        }
+        // Reserve the stock atomically; this fails if another session took it first
+        if (!engine.reserveStock(item, quantity)) {
+            return new LookupResult(LookupResult.Status.INSUFFICIENT_STOCK, item, quantity);
+        }
+
+        // Add item to cart with current cart size + 1 as the item number
+        CartItem cartItem = new CartItem(item, quantity, cart.size() + 1);
+        cart.add(cartItem);
+        engine.getPromotions().apply(cart, LocalDateTime.now());
+        return new LookupResult(LookupResult.Status.OK, item, quantity, cartItem.getDiscountPercentage());
+    }
+
+    /**
+     * Removes the most recently added item and returns its stock to the inventory.
+     *
+     * @return The removed item, or null if the cart is empty or already checked out
+     */
+    public synchronized CartItem deleteLastItem() {
+        if (cart.isEmpty() || state != State.OPEN) {
+            return null;
+        }
+        CartItem lastItem = cart.remove(cart.size() - 1);
+        engine.releaseStock(lastItem.getItem(), lastItem.getQuantity());
+        engine.getPromotions().apply(cart, LocalDateTime.now());
+        return lastItem;
+    }
+
+    /**
+     * Clears the cart to start a new order. Stock held by an order that was
+     * never checked out is returned to the inventory. Does nothing while a
+     * checkout is waiting for the transaction log.
+     */
+    public synchronized void emptyCart() {
+        if (state == State.CHECKING_OUT || state == State.EXPIRED) {
+            return;
+        }
+        if (state == State.OPEN) {
+            for (CartItem cartItem : cart) {
+                engine.releaseStock(cartItem.getItem(), cartItem.getQuantity());
+            }
+        }
+        cart.clear();
+        state = State.OPEN;
+    }
+
+    /**
+     * Checks out the cart: commits the reserved stock as sold and queues the order
+     * for the transaction log. The stock is sold first, so a crash never leaves a
+     * recorded order whose stock comes back on restart. The cart cannot be changed
+     * while this is in progress. If the stock or the order cannot be logged the
+     * order reopens, with its stock reserved again, so it can be retried.
+     *
+     * @return A future that completes with the order once it is durable, or with
+     *         null if the cart is empty or already checked out; it completes
+     *         exceptionally if the stock log or transaction log cannot be written
+     */
+    public synchronized CompletableFuture<Order> checkout() {
+        if (cart.isEmpty() || state != State.OPEN) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        // Price the cart once more with the promotions in force at checkout
+        LocalDateTime now = LocalDateTime.now();
+        engine.getPromotions().apply(cart, now);
+        Order order = new Order(cart, now);
+        if (!engine.commitOrder(order.getItems())) {
+            CompletableFuture<Order> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new IOException("Inventory log could not be written"));
+            return failed;
+        }
+        state = State.CHECKING_OUT;
+        return engine.recordOrder(order).handle((done, error) -> finishCheckout(order, error));
+    }
+
+    /**
+     * Completes a checkout once the transaction log has answered.
+     *
+     * @param order The order being checked out
+     * @param error The journal failure, or null if the order is durable
+     * @return The order
+     */
+    private synchronized Order finishCheckout(Order order, Throwable error) {
+        if (error != null) {
+            // The order was not recorded, so its stock is not sold after all
+            engine.uncommitOrder(order.getItems());
+            state = State.OPEN;
+            throw error instanceof CompletionException ? (CompletionException) error : new CompletionException(error);
+        }
+        state = State.CHECKED_OUT;
+        return order;
+    }
+
+    /**
+     * @return A copy of the items currently in the cart
+     */
+    public synchronized List<CartItem> getCart() {
+        return new ArrayList<>(cart);
+    }
+
+    /**
+     * Ends an abandoned session: stock held by an order that was never checked out
+     * is returned to the inventory, and the session is closed for good. Used by
+     * SessionStore when a session's time to live runs out.
+     *
+     * @return True if the session is now expired, false if a checkout is waiting
+     *         for the transaction log and the session must be expired later
+     */
+    synchronized boolean expire() {
+        if (state == State.CHECKING_OUT) {
+            return false;
+        }
+        if (state == State.OPEN) {
+            for (CartItem cartItem : cart) {
+                engine.releaseStock(cartItem.getItem(), cartItem.getQuantity());
+            }
+        }
+        cart.clear();
+        cart.trimToSize();
+        state = State.EXPIRED;
+        return true;
+    }
+
+    /**
+     * @return True if the session expired and can no longer be used
+     */
+    public synchronized boolean isExpired() {
+        return state == State.EXPIRED;
+    }
+
+    /**
+     * @return The number of items in the cart
+     */
+    public synchronized int getCartSize() {
+        return cart.size();
+    }
+
+    /**
+     * @return True if the cart holds the maximum number of items
+     */
+    public synchronized boolean isCartFull() {
+        return cart.size() >= OrderEngine.MAX_CART_SIZE;
+    }
+
+    /**
+     * @return True if the cart has been checked out and not yet emptied
+     */
+    public synchronized boolean isCheckedOut() {
+        return state == State.CHECKED_OUT;
+    }
+
+    /**
+     * @return The sum of the discounted totals of all items in the cart, in cents
+     */
+    public synchronized long getSubtotalCents() {
+        long subtotal = 0;
+        for (CartItem cartItem : cart) {
+            subtotal += cartItem.getTotalCents();
+        }
+        return subtotal;
+    }
+
+    /**
+     * @return The sum of the discounted totals of all items in the cart
+     */
+    public synchronized double getSubtotal() {
+        return Money.toDollars(getSubtotalCents());
+    }
+}
@@ -0,0 +1,175 @@
+/*
+    Name : Colin Kirby
+    Course : CNT 4714 - Spring 2025
+    Assignment Title : Project 1 - An Event-driven Enterprise Simulation
+    Date : Monday, January 20, 2025
+*/
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * One discount rule of the store, evaluated by PromotionEngine.
+ *
+ * A promotion takes a percentage off a cart line when the line buys at least
+ * a minimum quantity and, depending on its type:
+ * - QUANTITY: any item
+ * - SKU: one Item ID
+ * - CATEGORY: any item whose description contains a word, e.g. "cable"
+ * - BUNDLE: every item of a set of Item IDs, when the cart holds all of them
+ *
+ * A promotion may be limited to a time window; it applies from its start
+ * (inclusive) until its end (exclusive). Promotions are immutable.
+ */
+public class Promotion {
+    /**
+     * What a promotion applies to
+     */
+    public enum Type {
+        /** Every item, by quantity */
+        QUANTITY,
+        /** One Item ID */
+        SKU,
+        /** Items whose description contains a word */
+        CATEGORY,
+        /** A set of Item IDs bought together */
+        BUNDLE
+    }
+
+    /** What the promotion applies to */
+    private final Type type;
+
+    /** The Item IDs of a SKU or BUNDLE promotion, or the lower-case word of a CATEGORY promotion */
+    private final String[] targets;
+
+    /** The discount in whole percent */
+    private final int percent;
+
+    /** The smallest line quantity the promotion applies to */
+    private final int minQuantity;
+
+    /** The first moment the promotion applies, or null for always */
+    private final LocalDateTime start;
+
+    /** The first moment the promotion no longer applies, or null for never */
+    private final LocalDateTime end;
+
+    private Promotion(Type type, String[] targets, int percent, int minQuantity,
+                      LocalDateTime start, LocalDateTime end) {
+        if (percent < 0 || percent > 100) {
+            throw new IllegalArgumentException("Discount must be between 0 and 100 percent: " + percent);
+        }
+        if (minQuantity < 1) {
+            throw new IllegalArgumentException("Minimum quantity must be at least 1: " + minQuantity);
+        }
+        if (start != null && end != null && !start.isBefore(end)) {
+            throw new IllegalArgumentException("Promotion ends before it starts: " + start + " to " + end);
+        }
+        this.type = type;
+        this.targets = targets;
+        this.percent = percent;
+        this.minQuantity = minQuantity;
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * @param minQuantity The smallest line quantity that gets the discount
+     * @param percent The discount in whole percent
+     * @return A quantity discount on every item
+     */
+    public static Promotion quantity(int minQuantity, int percent) {
+        return new Promotion(Type.QUANTITY, new String[0], percent, minQuantity, null, null);
+    }
+
+    /**
+     * @param itemID The Item ID
+     * @param minQuantity The smallest line quantity that gets the discount
+     * @param percent The discount in whole percent
+     * @return A discount on one item
+     */
+    public static Promotion sku(String itemID, int minQuantity, int percent) {
+        return new Promotion(Type.SKU, new String[] {itemID}, percent, minQuantity, null, null);
+    }
+
+    /**
+     * @param word A word of the item descriptions, matched case-insensitively
+     * @param minQuantity The smallest line quantity that gets the discount
+     * @param percent The discount in whole percent
+     * @return A discount on every item whose description contains the word
+     */
+    public static Promotion category(String word, int minQuantity, int percent) {
+        return new Promotion(Type.CATEGORY, new String[] {word.toLowerCase()}, percent, minQuantity, null, null);
+    }
+
+    /**
+     * @param itemIDs The Item IDs that must all be in the cart
+     * @param percent The discount in whole percent, given on each of those items
+     * @return A discount for buying the items together
+     */
+    public static Promotion bundle(List<String> itemIDs, int percent) {
+        if (itemIDs.size() < 2) {
+            throw new IllegalArgumentException("A bundle needs at least two items");
+        }
+        return new Promotion(Type.BUNDLE, itemIDs.toArray(new String[0]), percent, 1, null, null);
+    }
+
+    /**
+     * @param start The first moment the promotion applies, or null for always
+     * @param end The first moment the promotion no longer applies, or null for never
+     * @return A copy of this promotion limited to the given window
+     */
+    public Promotion during(LocalDateTime start, LocalDateTime end) {
+        return new Promotion(type, targets, percent, minQuantity, start, end);
+    }
+
+    /**
+     * @return What the promotion applies to
+     */
+    public Type getType() { return type; }
+
+    /**
+     * @return The Item IDs of a SKU or BUNDLE promotion, or the word of a CATEGORY promotion
+     */
+    public List<String> getTargets() { return Arrays.asList(targets.clone()); }
+
+    /**
+     * @return The discount in whole percent
+     */
+    public int getPercent() { return percent; }
+
+    /**
+     * @return The smallest line quantity the promotion applies to
+     */
+    public int getMinQuantity() { return minQuantity; }
+
+    /**
+     * @return The first moment the promotion applies, or null for always
+     */
+    public LocalDateTime getStart() { return start; }
+
+    /**
+     * @return The first moment the promotion no longer applies, or null for never
+     */
+    public LocalDateTime getEnd() { return end; }
+
+    /**
+     * @param time A moment
+     * @return True if the promotion applies at that moment
+     */
+    public boolean isActiveAt(LocalDateTime time) {
+        return (start == null || !time.isBefore(start)) && (end == null || time.isBefore(end));
+    }
+
+    /**
+     * @return The targets without copying, for the engine
+     */
+    String[] targets() { return targets; }
+
+    @Override
+    public String toString() {
+        return type + " " + String.join("+", targets) + " " + percent + "% from " + minQuantity
+            + (start != null || end != null ? " [" + start + ", " + end + ")" : "");
+    }
+}
@@ -0,0 +1,412 @@
+/*
+    Name : Colin Kirby
+    Course : CNT 4714 - Spring 2025
+    Assignment Title : Project 1 - An Event-driven Enterprise Simulation
+    Date : Monday, January 20, 2025
+*/
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Prices cart lines against the store's promotions.
+ *
+ * The promotions active at a moment are compiled into tier tables: one for the
+ * quantity tiers, and hash maps from Item ID, description word and bundle member
+ * to their own tables. A tier table holds the sorted minimum quantities, so a
+ * lookup is a binary search over the few thresholds and its size does not depend
+ * on how large a minimum is. Pricing a line is then a few hash lookups and
+ * binary searches, so the cost per line does not depend on how many promotions
+ * are loaded. Category rules match against the item's description words, which
+ * the item tokenizes once per description. A compiled rule set remembers the
+ * time window in which no promotion starts or ends, and is recompiled only
+ * when a line is priced outside it.
+ *
+ * Discounts do not stack: each line gets the largest percentage any promotion
+ * offers it, which is what the invoice and transaction log show.
+ *
+ * The rule set can be replaced at any time with setRules or loadRules; lines
+ * priced afterwards use the new rules, lines priced before keep their discount.
+ *
+ * Promotion file format, one promotion per line (# starts a comment):
+ *   type, target, percent, min quantity[, start, end]
+ *
+ *   quantity, *, 10, 5
+ *   sku, 22345532, 25, 1, 2025-01-20T00:00, 2025-01-27T00:00
+ *   category, cable, 15, 3
+ *   bundle, 22345532+678944, 20, 1
+ *
+ * The start and end are ISO date-times; either may be left empty. A file
+ * replaces the whole rule set, including the default quantity tiers.
+ */
+public class PromotionEngine {
+    /**
+     * The store's quantity discount tiers:
+     * - 20% off for 15 or more items
+     * - 15% off for 10-14 items
+     * - 10% off for 5-9 items
+     * - No discount for less than 5 items
+     */
+    public static final List<Promotion> DEFAULT_RULES = Collections.unmodifiableList(Arrays.asList(
+        Promotion.quantity(5, 10),
+        Promotion.quantity(10, 15),
+        Promotion.quantity(15, 20)));
+
+    /** The default tiers compiled once; they have no time window */
+    private static final RuleSet DEFAULT = RuleSet.compile(DEFAULT_RULES, LocalDateTime.now());
+
+    /** The promotions in force */
+    private volatile List<Promotion> rules;
+
+    /** The rules compiled for the current time window */
+    private volatile RuleSet compiled;
+
+    /**
+     * Creates an engine with the default quantity tiers.
+     */
+    public PromotionEngine() {
+        this(DEFAULT_RULES);
+    }
+
+    /**
+     * Creates an engine with the given promotions.
+     *
+     * @param rules The promotions
+     */
+    public PromotionEngine(Collection<Promotion> rules) {
+        setRules(rules);
+    }
+
+    /**
+     * Replaces the promotions. Safe to call while other threads price carts.
+     *
+     * @param rules The new promotions
+     */
+    public void setRules(Collection<Promotion> rules) {
+        List<Promotion> copy = Collections.unmodifiableList(new ArrayList<>(rules));
+        RuleSet next = RuleSet.compile(copy, LocalDateTime.now());
+        this.rules = copy;
+        this.compiled = next;
+    }
+
+    /**
+     * @return The promotions in force
+     */
+    public List<Promotion> getRules() {
+        return rules;
+    }
+
+    /**
+     * Replaces the promotions with those in a promotion file.
+     *
+     * @param path The promotion file
+     * @throws IOException If the file cannot be read or a line is not a valid promotion
+     */
+    public void loadRules(Path path) throws IOException {
+        setRules(parse(path));
+    }
+
+    /**
+     * Computes the discount for buying a quantity of one item on its own, as quoted
+     * by a search. Bundles are not considered, since they depend on the whole cart.
+     *
+     * @param item The item
+     * @param quantity The number of units
+     * @param time The moment of the quote
+     * @return The discount in whole percent
+     */
+    public int discountFor(InventoryItem item, int quantity, LocalDateTime time) {
+        return rulesAt(time).discount(item, quantity, null);
+    }
+
+    /**
+     * Prices every line of a cart, setting the discount of each CartItem.
+     *
+     * @param cart The cart lines
+     * @param time The moment of pricing, normally now or the checkout time
+     */
+    public void apply(List<CartItem> cart, LocalDateTime time) {
+        RuleSet ruleSet = rulesAt(time);
+        for (CartItem cartItem : cart) {
+            cartItem.setDiscountPercentage(ruleSet.discount(cartItem.getItem(), cartItem.getQuantity(), cart));
+        }
+    }
+
+    /**
+     * @param quantity The number of units on a line
+     * @return The discount of the default quantity tiers, in whole percent
+     */
+    static int defaultQuantityDiscount(int quantity) {
+        return Tiers.lookup(DEFAULT.quantityTiers, quantity);
+    }
+
+    /**
+     * @return The rules compiled for the given moment, compiling them if the
+     *         current set was compiled for another time window or older rules
+     */
+    private RuleSet rulesAt(LocalDateTime time) {
+        RuleSet ruleSet = compiled;
+        List<Promotion> current = rules;
+        if (ruleSet.source == current && ruleSet.covers(time)) {
+            return ruleSet;
+        }
+        ruleSet = RuleSet.compile(current, time);
+        compiled = ruleSet;
+        return ruleSet;
+    }
+
+    /**
+     * Reads a promotion file.
+     *
+     * @param path The promotion file
+     * @return The promotions in file order
+     * @throws IOException If the file cannot be read or a line is not a valid promotion
+     */
+    static List<Promotion> parse(Path path) throws IOException {
+        List<Promotion> promotions = new ArrayList<>();
+        int lineNumber = 0;
+        for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+            lineNumber++;
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            try {
+                promotions.add(parseLine(trimmed));
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                throw new IOException("Invalid promotion on line " + lineNumber + " of " + path + ": " + e.getMessage());
+            }
+        }
+        return promotions;
+    }
+
+    private static Promotion parseLine(String line) {
+        String[] fields = line.split(",", -1);
+        if (fields.length != 4 && fields.length != 6) {
+            throw new IllegalArgumentException("expected 4 or 6 fields");
+        }
+        String target = fields[1].trim();
+        int percent = Integer.parseInt(fields[2].trim());
+        int minQuantity = Integer.parseInt(fields[3].trim());
+
+        Promotion promotion;
+        switch (fields[0].trim().toLowerCase()) {
+            case "quantity": promotion = Promotion.quantity(minQuantity, percent); break;
+            case "sku":      promotion = Promotion.sku(target, minQuantity, percent); break;
+            case "category": promotion = Promotion.category(target, minQuantity, percent); break;
+            case "bundle":   promotion = Promotion.bundle(Arrays.asList(target.split("\\s*\\+\\s*")), percent); break;
+            default:         throw new IllegalArgumentException("unknown type " + fields[0].trim());
+        }
+
+        if (fields.length == 6) {
+            String start = fields[4].trim();
+            String end = fields[5].trim();
+            promotion = promotion.during(start.isEmpty() ? null : LocalDateTime.parse(start),
+                                         end.isEmpty() ? null : LocalDateTime.parse(end));
+        }
+        return promotion;
+    }
+
+    /**
+     * The best discount by line quantity: percents[i] applies from minimums[i] up
+     * to the next minimum, and the last entry to every larger quantity. Tables are
+     * never modified; raising one makes a copy.
+     */
+    private static final class Tiers {
+        /** The sorted, distinct minimum quantities */
+        final int[] minimums;
+
+        /** The discount from each minimum up, never lower than the one before */
+        final int[] percents;
+
+        private Tiers(int[] minimums, int[] percents) {
+            this.minimums = minimums;
+            this.percents = percents;
+        }
+
+        /**
+         * @return A copy of the table in which every quantity from the promotion's
+         *         minimum up gets at least its discount
+         */
+        static Tiers raise(Tiers table, Promotion promotion) {
+            int min = promotion.getMinQuantity();
+            if (table == null) {
+                table = new Tiers(new int[0], new int[0]);
+            }
+            int index = Arrays.binarySearch(table.minimums, min);
+            int[] minimums = table.minimums;
+            int[] percents = table.percents;
+            if (index < 0) {
+                // New threshold: it starts with the discount of the tier it splits
+                index = -index - 1;
+                minimums = new int[table.minimums.length + 1];
+                percents = new int[minimums.length];
+                System.arraycopy(table.minimums, 0, minimums, 0, index);
+                System.arraycopy(table.percents, 0, percents, 0, index);
+                System.arraycopy(table.minimums, index, minimums, index + 1, table.minimums.length - index);
+                System.arraycopy(table.percents, index, percents, index + 1, table.percents.length - index);
+                minimums[index] = min;
+                percents[index] = index > 0 ? percents[index - 1] : 0;
+            } else {
+                percents = percents.clone();
+            }
+            for (int i = index; i < percents.length; i++) {
+                percents[i] = Math.max(percents[i], promotion.getPercent());
+            }
+            return new Tiers(minimums, percents);
+        }
+
+        /**
+         * @return The discount the table gives a quantity, 0 if there is no table
+         *         or the quantity is below every minimum
+         */
+        static int lookup(Tiers table, int quantity) {
+            if (table == null) {
+                return 0;
+            }
+            int index = Arrays.binarySearch(table.minimums, quantity);
+            if (index < 0) {
+                index = -index - 2; // The largest minimum below the quantity
+            }
+            return index < 0 ? 0 : table.percents[index];
+        }
+    }
+
+    /**
+     * The promotions active in one time window, compiled into tier tables.
+     */
+    private static class RuleSet {
+        /** The rules this set was compiled from */
+        final List<Promotion> source;
+
+        /** The window in which the set is valid: [validFrom, validUntil) */
+        final LocalDateTime validFrom;
+        final LocalDateTime validUntil;
+
+        /** Discount by quantity for every item, or null if there are no quantity tiers */
+        Tiers quantityTiers;
+
+        /** Discount by quantity for single Item IDs */
+        final Map<String, Tiers> skuTiers = new HashMap<>();
+
+        /** Discount by quantity for description words */
+        final Map<String, Tiers> categoryTiers = new HashMap<>();
+
+        /** The bundles each Item ID belongs to */
+        final Map<String, Promotion[]> bundles = new HashMap<>();
+
+        private RuleSet(List<Promotion> source, LocalDateTime validFrom, LocalDateTime validUntil) {
+            this.source = source;
+            this.validFrom = validFrom;
+            this.validUntil = validUntil;
+        }
+
+        /**
+         * Compiles the promotions active at the given moment.
+         */
+        static RuleSet compile(List<Promotion> source, LocalDateTime time) {
+            // The window ends at the nearest start or end on either side of the moment
+            LocalDateTime from = LocalDateTime.MIN;
+            LocalDateTime until = LocalDateTime.MAX;
+            for (Promotion promotion : source) {
+                for (LocalDateTime edge : new LocalDateTime[] {promotion.getStart(), promotion.getEnd()}) {
+                    if (edge == null) {
+                        continue;
+                    }
+                    if (edge.isAfter(time)) {
+                        until = edge.isBefore(until) ? edge : until;
+                    } else {
+                        from = edge.isAfter(from) ? edge : from;
+                    }
+                }
+            }
+
+            RuleSet ruleSet = new RuleSet(source, from, until);
+            Map<String, List<Promotion>> bundles = new HashMap<>();
+            for (Promotion promotion : source) {
+                if (!promotion.isActiveAt(time)) {
+                    continue;
+                }
+                String[] targets = promotion.targets();
+                switch (promotion.getType()) {
+                    case QUANTITY:
+                        ruleSet.quantityTiers = Tiers.raise(ruleSet.quantityTiers, promotion);
+                        break;
+                    case SKU:
+                        ruleSet.skuTiers.put(targets[0], Tiers.raise(ruleSet.skuTiers.get(targets[0]), promotion));
+                        break;
+                    case CATEGORY:
+                        ruleSet.categoryTiers.put(targets[0], Tiers.raise(ruleSet.categoryTiers.get(targets[0]), promotion));
+                        break;
+                    case BUNDLE:
+                        for (String itemID : targets) {
+                            bundles.computeIfAbsent(itemID, id -> new ArrayList<>()).add(promotion);
+                        }
+                        break;
+                }
+            }
+            for (Map.Entry<String, List<Promotion>> entry : bundles.entrySet()) {
+                ruleSet.bundles.put(entry.getKey(), entry.getValue().toArray(new Promotion[0]));
+            }
+            return ruleSet;
+        }
+
+        boolean covers(LocalDateTime time) {
+            return !time.isBefore(validFrom) && time.isBefore(validUntil);
+        }
+
+        /**
+         * @param item The item on the line
+         * @param quantity The line quantity
+         * @param cart The whole cart, for bundles, or null to ignore bundles
+         * @return The best discount any active promotion gives the line
+         */
+        int discount(InventoryItem item, int quantity, List<CartItem> cart) {
+            int percent = Tiers.lookup(quantityTiers, quantity);
+            percent = Math.max(percent, Tiers.lookup(skuTiers.get(item.getItemID()), quantity));
+            if (!categoryTiers.isEmpty()) {
+                for (String word : item.descriptionWords()) {
+                    percent = Math.max(percent, Tiers.lookup(categoryTiers.get(word), quantity));
+                }
+            }
+            if (cart != null) {
+                Promotion[] candidates = bundles.get(item.getItemID());
+                if (candidates != null) {
+                    for (Promotion bundle : candidates) {
+                        if (bundle.getPercent() > percent && containsAll(cart, bundle.targets())) {
+                            percent = bundle.getPercent();
+                        }
+                    }
+                }
+            }
+            return percent;
+        }
+
+        private static boolean containsAll(List<CartItem> cart, String[] itemIDs) {
+            for (String itemID : itemIDs) {
+                boolean found = false;
+                for (CartItem cartItem : cart) {
+                    if (cartItem.getItem().getItemID().equals(itemID)) {
+                        found = true;
+                        break;
+                    }
+                }
+                if (!found) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
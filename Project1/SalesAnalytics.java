@@ -0,0 +1,633 @@
+/*
+    Name : Colin Kirby
+    Course : CNT 4714 - Spring 2025
+    Assignment Title : Project 1 - An Event-driven Enterprise Simulation
+    Date : Monday, January 20, 2025
+*/
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps running sales totals over the transaction log, so reports never rescan
+ * the history.
+ *
+ * The analytics follow the log like tail -f: each poll() reads only the lines
+ * appended since the last one, across rotated segments, and adds them to totals
+ * kept in memory:
+ * - revenue, units and lines per Item ID
+ * - revenue, orders, units and lines per day
+ * - revenue, units and lines per discount percentage
+ * - the items with the most units sold, kept in order as totals change
+ *
+ * Queries read these totals directly, so they take the same time however long
+ * the log is. checkpoint() saves the totals together with the log position they
+ * cover; the next start loads them and continues from there.
+ *
+ * Lines are read in the format Order.toTransactionLines() writes:
+ * ID, Item ID, "Description", Price, Qty, Discount rate, $Total, Month day, Year, Time
+ * Lines that do not match are counted and skipped.
+ */
+public class SalesAnalytics implements Closeable {
+    /** Identifies a checkpoint file */
+    private static final int MAGIC = 0x4E494C41; // "NILA"
+
+    /** Current checkpoint format version */
+    private static final int VERSION = 1;
+
+    /** Default number of best sellers kept in order */
+    public static final int DEFAULT_TOP_ITEMS = 100;
+
+    /** Fields after the description; counted from the end of a line, since descriptions may hold commas */
+    private static final int TRAILING_FIELDS = 7;
+
+    /**
+     * Revenue and volume of some part of the sales
+     */
+    public static final class Totals {
+        private long revenueCents;
+        private long units;
+        private long lines;
+        private long orders;
+
+        /**
+         * @return The revenue after discounts, in cents
+         */
+        public long getRevenueCents() { return revenueCents; }
+
+        /**
+         * @return The units sold
+         */
+        public long getUnits() { return units; }
+
+        /**
+         * @return The order lines
+         */
+        public long getLines() { return lines; }
+
+        /**
+         * @return The orders; counted for the whole log and per day only
+         */
+        public long getOrders() { return orders; }
+
+        private void add(long cents, int quantity) {
+            revenueCents += cents;
+            units += quantity;
+            lines++;
+        }
+
+        private Totals copy() {
+            Totals copy = new Totals();
+            copy.revenueCents = revenueCents;
+            copy.units = units;
+            copy.lines = lines;
+            copy.orders = orders;
+            return copy;
+        }
+
+        private void write(DataOutputStream out) throws IOException {
+            out.writeLong(revenueCents);
+            out.writeLong(units);
+            out.writeLong(lines);
+            out.writeLong(orders);
+        }
+
+        private static Totals read(DataInputStream in) throws IOException {
+            Totals totals = new Totals();
+            totals.revenueCents = in.readLong();
+            totals.units = in.readLong();
+            totals.lines = in.readLong();
+            totals.orders = in.readLong();
+            return totals;
+        }
+
+        @Override
+        public String toString() {
+            return Money.format(revenueCents) + ", " + units + " units, " + lines + " lines, " + orders + " orders";
+        }
+    }
+
+    /** The active transaction log, e.g. transactions.csv */
+    private final Path logPath;
+
+    /** Where checkpoints are saved */
+    private final Path checkpointPath;
+
+    /** Number of best sellers kept in order */
+    private final int topItemCount;
+
+    /** Segment being read: a sealed segment's number, or one past the last for the active file */
+    private long sequence;
+
+    /** Bytes of that segment already read */
+    private long offset;
+
+    /** Whether the line before the read position was blank, i.e. no order is in progress */
+    private boolean atOrderStart = true;
+
+    /** Totals of everything read */
+    private Totals overall = new Totals();
+
+    /** Totals per Item ID */
+    private final HashMap<String, Totals> items = new HashMap<>();
+
+    /** Totals per day, as yyyymmdd */
+    private final TreeMap<Integer, Totals> days = new TreeMap<>();
+
+    /** Totals per discount percentage */
+    private final TreeMap<Integer, Totals> discounts = new TreeMap<>();
+
+    /** The best sellers by units, most first; an item is ordered by its units when it was added */
+    private final TreeSet<String> topItems;
+
+    /** Lines that could not be read */
+    private long skippedLines;
+
+    /** Polls the log in the background, if started */
+    private ScheduledExecutorService poller;
+
+    /** Read buffer */
+    private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+
+    /**
+     * Opens the analytics of a transaction log, resuming from the checkpoint if
+     * there is one. Nothing is read from the log until poll().
+     *
+     * @param logPath The active transaction log, e.g. transactions.csv
+     * @param checkpointPath Where checkpoints are saved, e.g. transactions.analytics
+     * @param topItemCount Number of best sellers kept in order
+     * @throws IOException If the checkpoint or the log directory cannot be read
+     */
+    public SalesAnalytics(String logPath, String checkpointPath, int topItemCount) throws IOException {
+        this.logPath = Paths.get(logPath).toAbsolutePath();
+        this.checkpointPath = Paths.get(checkpointPath);
+        this.topItemCount = topItemCount;
+        this.topItems = new TreeSet<>(Comparator.comparingLong((String id) -> -items.get(id).units)
+            .thenComparing(Comparator.naturalOrder()));
+        TreeMap<Long, Path> sealed = TransactionJournal.sealedSegments(this.logPath);
+        this.sequence = sealed.isEmpty() ? 1 : sealed.firstKey();
+        if (Files.exists(this.checkpointPath)) {
+            load();
+        }
+    }
+
+    /**
+     * Reads every complete line appended to the log since the last poll.
+     *
+     * @return The number of lines read
+     * @throws IOException If the log cannot be read
+     */
+    public synchronized long poll() throws IOException {
+        long before = overall.lines + skippedLines;
+        while (true) {
+            TreeMap<Long, Path> sealed = TransactionJournal.sealedSegments(logPath);
+            Long next = sealed.ceilingKey(sequence);
+            if (next != null && next != sequence) {
+                // The segment was deleted; continue with the next one that exists
+                sequence = next;
+                offset = 0;
+            }
+
+            // Open the active file before checking for its sealed copy: if it is
+            // rotated after this, the channel still reads the same file
+            FileChannel channel = null;
+            if (next == null) {
+                try {
+                    channel = FileChannel.open(logPath, StandardOpenOption.READ);
+                } catch (NoSuchFileException e) {
+                    break;
+                }
+                Path rotated = TransactionJournal.segmentPath(logPath, sequence);
+                if (Files.exists(rotated)) {
+                    channel.close();
+                    continue;
+                }
+            } else {
+                channel = FileChannel.open(sealed.get(next), StandardOpenOption.READ);
+            }
+
+            try (FileChannel file = channel) {
+                if (file.size() < offset) {
+                    System.err.println("Transaction log " + logPath + " is shorter than the analytics checkpoint; "
+                        + "waiting for it to catch up");
+                    break;
+                }
+                read(file);
+                if (next == null) {
+                    break; // The active file; a partial last line is read once it is complete
+                }
+                if (offset < file.size()) {
+                    skippedLines++; // A sealed segment never grows, so its partial last line is lost
+                }
+            }
+            sequence++;
+            offset = 0;
+        }
+        return overall.lines + skippedLines - before;
+    }
+
+    /**
+     * Saves the totals and the log position they cover. The file is written to a
+     * temporary file first and then moved into place.
+     *
+     * @throws IOException If the checkpoint cannot be written
+     */
+    public synchronized void checkpoint() throws IOException {
+        Path temp = checkpointPath.resolveSibling(checkpointPath.getFileName() + ".tmp");
+        try (FileOutputStream file = new FileOutputStream(temp.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(sequence);
+            out.writeLong(offset);
+            out.writeBoolean(atOrderStart);
+            out.writeLong(skippedLines);
+            overall.write(out);
+            out.writeInt(items.size());
+            for (Map.Entry<String, Totals> item : items.entrySet()) {
+                out.writeUTF(item.getKey());
+                item.getValue().write(out);
+            }
+            writeTotals(out, days);
+            writeTotals(out, discounts);
+            out.flush();
+            file.getFD().sync();
+        }
+        Files.move(temp, checkpointPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Starts polling the log at a fixed interval on a background thread, saving a
+     * checkpoint after every poll that read something.
+     *
+     * @param interval The time between polls
+     * @param unit The unit of the interval
+     */
+    public synchronized void start(long interval, TimeUnit unit) {
+        if (poller != null) {
+            return;
+        }
+        poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "sales-analytics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        poller.scheduleWithFixedDelay(() -> {
+            try {
+                if (poll() > 0) {
+                    checkpoint();
+                }
+            } catch (IOException e) {
+                System.err.println("Error updating sales analytics: " + e.getMessage());
+            }
+        }, 0, interval, unit);
+    }
+
+    /**
+     * Stops background polling and saves a checkpoint.
+     *
+     * @throws IOException If the checkpoint cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        ScheduledExecutorService scheduler;
+        synchronized (this) {
+            scheduler = poller;
+            poller = null;
+        }
+        if (scheduler != null) {
+            scheduler.shutdown();
+            try {
+                scheduler.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        checkpoint();
+    }
+
+    /**
+     * @return The totals of everything read
+     */
+    public synchronized Totals getTotals() {
+        return overall.copy();
+    }
+
+    /**
+     * @param itemID The Item ID
+     * @return The item's totals; all zero if it was never sold
+     */
+    public synchronized Totals getItemTotals(String itemID) {
+        Totals totals = items.get(itemID);
+        return totals == null ? new Totals() : totals.copy();
+    }
+
+    /**
+     * @param from The first day (inclusive)
+     * @param to The last day (exclusive)
+     * @return The totals of each day with sales in the range, oldest first
+     */
+    public synchronized SortedMap<LocalDate, Totals> getDailyTotals(LocalDate from, LocalDate to) {
+        TreeMap<LocalDate, Totals> result = new TreeMap<>();
+        for (Map.Entry<Integer, Totals> day : days.subMap(dayKey(from), dayKey(to)).entrySet()) {
+            int key = day.getKey();
+            result.put(LocalDate.of(key / 10_000, key / 100 % 100, key % 100), day.getValue().copy());
+        }
+        return result;
+    }
+
+    /**
+     * @return The totals of each discount percentage that was given, 0 included
+     */
+    public synchronized SortedMap<Integer, Totals> getDiscountTotals() {
+        TreeMap<Integer, Totals> result = new TreeMap<>();
+        for (Map.Entry<Integer, Totals> discount : discounts.entrySet()) {
+            result.put(discount.getKey(), discount.getValue().copy());
+        }
+        return result;
+    }
+
+    /**
+     * @param count The number of items, at most the count given when opening
+     * @return The Item IDs that sold the most units, most first
+     */
+    public synchronized List<String> getTopItems(int count) {
+        List<String> result = new ArrayList<>(Math.min(count, topItems.size()));
+        for (String itemID : topItems) {
+            if (result.size() == count) {
+                break;
+            }
+            result.add(itemID);
+        }
+        return result;
+    }
+
+    /**
+     * @return The number of lines that could not be read
+     */
+    public synchronized long getSkippedLines() {
+        return skippedLines;
+    }
+
+    /**
+     * Reads the complete lines of a segment from the current offset.
+     */
+    private void read(FileChannel file) throws IOException {
+        byte[] line = new byte[256];
+        int lineLength = 0;
+        long position = offset;
+        while (true) {
+            buffer.clear();
+            int read = file.read(buffer, position);
+            if (read <= 0) {
+                return;
+            }
+            byte[] bytes = buffer.array();
+            for (int i = 0; i < read; i++) {
+                byte b = bytes[i];
+                if (b != '\n') {
+                    if (lineLength == line.length) {
+                        line = Arrays.copyOf(line, line.length * 2);
+                    }
+                    line[lineLength++] = b;
+                    continue;
+                }
+                addLine(line, lineLength);
+                lineLength = 0;
+                offset = position + i + 1;
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * Adds one line of the log to the totals.
+     */
+    private void addLine(byte[] line, int length) {
+        int end = length;
+        if (end > 0 && line[end - 1] == '\r') {
+            end--;
+        }
+        if (end == 0 || isBlank(line, end)) {
+            atOrderStart = true;
+            return;
+        }
+
+        // Locate the trailing fields from the end of the line
+        int[] commas = new int[TRAILING_FIELDS];
+        int found = 0;
+        for (int i = end - 1; i >= 0 && found < TRAILING_FIELDS; i--) {
+            if (line[i] == ',') {
+                commas[found++] = i;
+            }
+        }
+        int firstComma = indexOf(line, ',', 0, end);
+        int secondComma = firstComma < 0 ? -1 : indexOf(line, ',', firstComma + 1, end);
+        if (found < TRAILING_FIELDS || secondComma < 0 || secondComma >= commas[TRAILING_FIELDS - 1]) {
+            skippedLines++;
+            return;
+        }
+        // commas[6] ends the description; then price, qty, rate, total, date, year, time
+        int day = dayOf(line, 0, firstComma);
+        long quantity = parseCents(line, commas[5] + 1, commas[4]);
+        long rate = parseCents(line, commas[4] + 1, commas[3]);
+        long total = parseCents(line, commas[3] + 1, commas[2]);
+        if (day < 0 || quantity < 0 || quantity % 100 != 0 || rate < 0 || total < 0) {
+            skippedLines++;
+            return;
+        }
+        int units = (int) (quantity / 100);
+        String itemID = new String(line, firstComma + 1, secondComma - firstComma - 1, StandardCharsets.UTF_8).trim();
+
+        Totals dayTotals = days.computeIfAbsent(day, key -> new Totals());
+        if (atOrderStart) {
+            overall.orders++;
+            dayTotals.orders++;
+            atOrderStart = false;
+        }
+        overall.add(total, units);
+        dayTotals.add(total, units);
+        discounts.computeIfAbsent((int) rate, key -> new Totals()).add(total, units);
+
+        Totals itemTotals = items.get(itemID);
+        if (itemTotals == null) {
+            itemTotals = new Totals();
+            items.put(itemID, itemTotals);
+        } else {
+            topItems.remove(itemID);
+        }
+        itemTotals.add(total, units);
+        rank(itemID);
+    }
+
+    /**
+     * Places an item among the best sellers if its units now beat the last of them.
+     * Units only grow, so an item outside the list can only enter it this way.
+     */
+    private void rank(String itemID) {
+        if (topItems.size() < topItemCount) {
+            topItems.add(itemID);
+            return;
+        }
+        String last = topItems.last();
+        if (items.get(itemID).units > items.get(last).units) {
+            topItems.pollLast();
+            topItems.add(itemID);
+        }
+    }
+
+    /**
+     * @return The day of a transaction ID (ddMMyyyyHHmmss) as yyyymmdd, or -1
+     */
+    private static int dayOf(byte[] line, int from, int to) {
+        while (from < to && line[from] == ' ') {
+            from++;
+        }
+        if (to - from < 8) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = from; i < from + 8; i++) {
+            if (line[i] < '0' || line[i] > '9') {
+                return -1;
+            }
+            value = value * 10 + (line[i] - '0');
+        }
+        int dayOfMonth = value / 1_000_000;
+        int month = value / 10_000 % 100;
+        int year = value % 10_000;
+        if (month < 1 || month > 12 || dayOfMonth < 1 || dayOfMonth > 31) {
+            return -1;
+        }
+        return (year * 100 + month) * 100 + dayOfMonth;
+    }
+
+    /**
+     * Reads a decimal number such as "12", "0.15" or "$1234.50" as hundredths.
+     *
+     * @return The value times 100, or -1 if the field is not such a number
+     */
+    private static long parseCents(byte[] line, int from, int to) {
+        long value = 0;
+        int decimals = -1;
+        boolean digits = false;
+        for (int i = from; i < to; i++) {
+            byte b = line[i];
+            if (b >= '0' && b <= '9') {
+                if (decimals >= 2) {
+                    continue; // Rounded down past the cents, as the log never has more
+                }
+                value = value * 10 + (b - '0');
+                digits = true;
+                if (decimals >= 0) {
+                    decimals++;
+                }
+            } else if (b == '.' && decimals < 0) {
+                decimals = 0;
+            } else if (b != ' ' && b != '$') {
+                return -1;
+            }
+        }
+        if (!digits) {
+            return -1;
+        }
+        for (int d = Math.max(decimals, 0); d < 2; d++) {
+            value *= 10;
+        }
+        return value;
+    }
+
+    private static int indexOf(byte[] line, char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (line[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isBlank(byte[] line, int length) {
+        for (int i = 0; i < length; i++) {
+            if (line[i] != ' ' && line[i] != '\t') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int dayKey(LocalDate date) {
+        return (date.getYear() * 100 + date.getMonthValue()) * 100 + date.getDayOfMonth();
+    }
+
+    private static void writeTotals(DataOutputStream out, TreeMap<Integer, Totals> totals) throws IOException {
+        out.writeInt(totals.size());
+        for (Map.Entry<Integer, Totals> entry : totals.entrySet()) {
+            out.writeInt(entry.getKey());
+            entry.getValue().write(out);
+        }
+    }
+
+    private static void readTotals(DataInputStream in, TreeMap<Integer, Totals> totals) throws IOException {
+        for (int i = in.readInt(); i > 0; i--) {
+            int key = in.readInt();
+            totals.put(key, Totals.read(in));
+        }
+    }
+
+    /**
+     * Restores the totals and log position from the checkpoint.
+     */
+    private void load() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(checkpointPath), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a sales analytics checkpoint, or an unsupported version: " + checkpointPath);
+            }
+            sequence = in.readLong();
+            offset = in.readLong();
+            atOrderStart = in.readBoolean();
+            skippedLines = in.readLong();
+            overall = Totals.read(in);
+            for (int i = in.readInt(); i > 0; i--) {
+                String itemID = in.readUTF();
+                items.put(itemID, Totals.read(in));
+                rank(itemID);
+            }
+            readTotals(in, days);
+            readTotals(in, discounts);
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("Sales: %s over %,d days, %,d items, %,d skipped lines",
+            overall, days.size(), items.size(), skippedLines);
+    }
+}
@@ -0,0 +1,427 @@
+/*
+    Name : Colin Kirby
+    Course : CNT 4714 - Spring 2025
+    Assignment Title : Project 1 - An Event-driven Enterprise Simulation
+    Date : Monday, January 20, 2025
+*/
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Holds the shopping sessions of many shoppers and expires the ones left unused,
+ * returning the stock their carts reserved.
+ *
+ * Each session is known by a handle returned from open(). Looking a session up
+ * with get() counts as activity and pushes its expiry back by the time to live.
+ *
+ * Expiry is driven by a hierarchical timing wheel rather than a timer per
+ * session: 4 levels of 64 slots, each slot of a level spanning 64 slots of the
+ * level below, so one tick at level 0 up to 64^4 ticks at level 3. A session is
+ * filed in the slot of its deadline at the coarsest level needed and moves down a
+ * level each time the wheel reaches that slot, so opening, touching and expiring
+ * a session are all O(1). A touch only updates the deadline; the session is moved
+ * to its new slot when the wheel reaches the old one.
+ *
+ * To keep millions of sessions cheap, the store has no per-session node or map
+ * entry: a session's deadline and its links in the wheel live in primitive
+ * arrays indexed by the session's slot number, about 26 bytes per session on top
+ * of the OrderSession itself. A handle is the slot number plus a generation count,
+ * so a handle to an expired session never finds the session that reuses its slot.
+ *
+ * The store is thread-safe; its operations run under one lock. Ending a
+ * session is the exception: the sessions due to end are taken out of the wheel
+ * under the lock, and OrderSession.expire() is called on them after it is
+ * released, because a session stays locked while its checkout waits for the
+ * logs and must not hold up every other shopper's cart meanwhile.
+ */
+public class SessionStore {
+    /** Bits of the slot index at each level of the wheel */
+    private static final int SLOT_BITS = 6;
+
+    /** Slots per level */
+    private static final int SLOTS = 1 << SLOT_BITS;
+
+    /** Levels of the wheel */
+    private static final int LEVELS = 4;
+
+    /** Marks the end of a slot's list, or of the free list */
+    private static final int NONE = -1;
+
+    /** Wheel position of a slot taken out of the wheel while its session is being ended */
+    private static final short ENDING = -1;
+
+    /** Default time between two ticks of the wheel */
+    public static final Duration DEFAULT_TICK = Duration.ofSeconds(1);
+
+    /** The engine that opens the sessions */
+    private final OrderEngine engine;
+
+    /** Milliseconds per tick of the wheel */
+    private final long tickMillis;
+
+    /** Time to live of an unused session, in ticks */
+    private final long ttlTicks;
+
+    /** The current time in milliseconds */
+    private final LongSupplier clock;
+
+    /** The session in each slot, or null if the slot is free */
+    private OrderSession[] sessions;
+
+    /** The tick at which each slot's session expires */
+    private long[] deadlines;
+
+    /** Links of each slot in its wheel list; next also links the free list */
+    private int[] next;
+    private int[] prev;
+
+    /** Bumped whenever a slot is freed, to invalidate old handles */
+    private int[] generations;
+
+    /** Wheel position of each slot (level * SLOTS + slot), to unlink it */
+    private short[] buckets;
+
+    /** First slot filed in each bucket of the wheel */
+    private final int[] heads = new int[LEVELS * SLOTS];
+
+    /** First free slot, and the number of slots ever used */
+    private int free = NONE;
+    private int used;
+
+    /** Number of live sessions */
+    private int size;
+
+    /** The tick the wheel has advanced to */
+    private long currentTick;
+
+    /** Number of sessions expired so far */
+    private long expired;
+
+    /** Advances the wheel in the background, if started */
+    private ScheduledExecutorService ticker;
+
+    /**
+     * Creates a store whose wheel ticks once a second.
+     *
+     * @param engine The engine that opens the sessions
+     * @param ttl How long a session may go unused before it expires
+     */
+    public SessionStore(OrderEngine engine, Duration ttl) {
+        this(engine, ttl, DEFAULT_TICK, System::currentTimeMillis);
+    }
+
+    /**
+     * Creates a store.
+     *
+     * @param engine The engine that opens the sessions
+     * @param ttl How long a session may go unused before it expires
+     * @param tick The time between two ticks of the wheel; sessions expire up to one tick late
+     * @param clock The current time in milliseconds
+     */
+    public SessionStore(OrderEngine engine, Duration ttl, Duration tick, LongSupplier clock) {
+        if (tick.toMillis() < 1 || ttl.compareTo(tick) < 0) {
+            throw new IllegalArgumentException("The tick must be at least 1 ms and no longer than the time to live: "
+                + tick + ", " + ttl);
+        }
+        this.engine = engine;
+        this.tickMillis = tick.toMillis();
+        this.ttlTicks = (ttl.toMillis() + tickMillis - 1) / tickMillis;
+        this.clock = clock;
+        this.currentTick = clock.getAsLong() / tickMillis;
+        Arrays.fill(heads, NONE);
+        allocate(1024);
+    }
+
+    /**
+     * Opens a new session with an empty cart.
+     *
+     * @return The session's handle
+     */
+    public synchronized long open() {
+        if (free == NONE && used == sessions.length) {
+            allocate(sessions.length + (sessions.length >> 1));
+        }
+        int slot;
+        if (free != NONE) {
+            slot = free;
+            free = next[slot];
+        } else {
+            slot = used++;
+        }
+        sessions[slot] = engine.openSession();
+        deadlines[slot] = now() + ttlTicks;
+        file(slot);
+        size++;
+        return (long) generations[slot] << 32 | slot;
+    }
+
+    /**
+     * Looks up a session and marks it as in use, so it expires one time to live
+     * from now.
+     *
+     * @param handle The handle returned by open()
+     * @return The session, or null if it expired or was removed
+     */
+    public synchronized OrderSession get(long handle) {
+        int slot = slotOf(handle);
+        if (slot == NONE) {
+            return null;
+        }
+        deadlines[slot] = Math.max(deadlines[slot], now() + ttlTicks);
+        return sessions[slot];
+    }
+
+    /**
+     * Ends a session now, for example when the shopper leaves. Stock held by an
+     * order that was never checked out is returned. A session whose checkout is
+     * waiting for the transaction log is ended on the next tick instead.
+     *
+     * @param handle The handle returned by open()
+     * @return True if the session was found
+     */
+    public boolean remove(long handle) {
+        int slot;
+        OrderSession session;
+        synchronized (this) {
+            slot = slotOf(handle);
+            if (slot == NONE) {
+                return false;
+            }
+            if (buckets[slot] == ENDING) {
+                return true; // Already being ended by advance()
+            }
+            unfile(slot);
+            buckets[slot] = ENDING;
+            session = sessions[slot];
+        }
+        end(new int[] {slot}, new OrderSession[] {session}, 1);
+        return true;
+    }
+
+    /**
+     * Advances the wheel to the current time, expiring every session whose time
+     * to live ran out.
+     *
+     * @return The number of sessions expired
+     */
+    public int advance() {
+        return advance(clock.getAsLong());
+    }
+
+    /**
+     * Advances the wheel to the given time, expiring every session whose time to
+     * live ran out.
+     *
+     * @param nowMillis The current time in milliseconds
+     * @return The number of sessions expired
+     */
+    public int advance(long nowMillis) {
+        int[] due = new int[16];
+        OrderSession[] dueSessions = new OrderSession[16];
+        int count = 0;
+        synchronized (this) {
+            long target = nowMillis / tickMillis;
+            while (currentTick < target) {
+                if (size == 0) {
+                    currentTick = target;
+                    break;
+                }
+                currentTick++;
+
+                // At a level boundary, file the sessions of that level's next slot again,
+                // starting at the top so each lands in a slot not yet emptied this tick
+                int top = 0;
+                while (top < LEVELS - 1 && (currentTick & ((1L << (SLOT_BITS * (top + 1))) - 1)) == 0) {
+                    top++;
+                }
+                for (int level = top; level > 0; level--) {
+                    int bucket = level * SLOTS + (int) ((currentTick >>> (SLOT_BITS * level)) & (SLOTS - 1));
+                    for (int slot = take(bucket); slot != NONE; ) {
+                        int following = next[slot];
+                        file(slot);
+                        slot = following;
+                    }
+                }
+
+                for (int slot = take((int) (currentTick & (SLOTS - 1))); slot != NONE; ) {
+                    int following = next[slot];
+                    if (deadlines[slot] > currentTick) {
+                        file(slot); // Touched since it was filed
+                    } else {
+                        if (count == due.length) {
+                            due = Arrays.copyOf(due, count * 2);
+                            dueSessions = Arrays.copyOf(dueSessions, count * 2);
+                        }
+                        buckets[slot] = ENDING;
+                        due[count] = slot;
+                        dueSessions[count++] = sessions[slot];
+                    }
+                    slot = following;
+                }
+            }
+        }
+        return end(due, dueSessions, count);
+    }
+
+    /**
+     * Ends sessions taken out of the wheel, without holding the store's lock: a
+     * session that is still checking out goes back in the wheel for the next
+     * tick, or later if it was used meanwhile.
+     *
+     * @param slots The slots of the sessions, marked ENDING
+     * @param ending The sessions
+     * @param count The number of sessions
+     * @return The number of sessions ended
+     */
+    private int end(int[] slots, OrderSession[] ending, int count) {
+        boolean[] ended = new boolean[count];
+        for (int i = 0; i < count; i++) {
+            ended[i] = ending[i].expire();
+        }
+        int endedCount = 0;
+        synchronized (this) {
+            for (int i = 0; i < count; i++) {
+                int slot = slots[i];
+                if (ended[i]) {
+                    release(slot);
+                    endedCount++;
+                } else {
+                    deadlines[slot] = Math.max(deadlines[slot], currentTick + 1);
+                    file(slot);
+                }
+            }
+            expired += endedCount;
+        }
+        return endedCount;
+    }
+
+    /**
+     * Starts advancing the wheel once a tick on a background thread.
+     */
+    public synchronized void start() {
+        if (ticker != null) {
+            return;
+        }
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "session-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleWithFixedDelay(this::advance, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops advancing the wheel in the background.
+     */
+    public void stop() {
+        ScheduledExecutorService scheduler;
+        synchronized (this) {
+            scheduler = ticker;
+            ticker = null;
+        }
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+
+    /**
+     * @return The number of live sessions
+     */
+    public synchronized int size() { return size; }
+
+    /**
+     * @return The number of sessions expired so far
+     */
+    public synchronized long getExpiredCount() { return expired; }
+
+    /**
+     * @return The current tick, from the clock
+     */
+    private long now() {
+        return Math.max(currentTick, clock.getAsLong() / tickMillis);
+    }
+
+    /**
+     * @return The slot of a live session's handle, or NONE
+     */
+    private int slotOf(long handle) {
+        int slot = (int) handle;
+        if (slot < 0 || slot >= used || sessions[slot] == null || generations[slot] != (int) (handle >>> 32)) {
+            return NONE;
+        }
+        return slot;
+    }
+
+    /**
+     * Files a slot in the wheel at the coarsest level whose slots do not span its
+     * deadline; a deadline beyond the wheel is filed at the far end of the top
+     * level and filed again from there.
+     */
+    private void file(int slot) {
+        long delta = Math.max(0, deadlines[slot] - currentTick);
+        long at = currentTick + Math.min(delta, (1L << (SLOT_BITS * LEVELS)) - 1);
+        int level = 0;
+        while (level < LEVELS - 1 && (at >>> (SLOT_BITS * (level + 1))) != (currentTick >>> (SLOT_BITS * (level + 1)))) {
+            level++;
+        }
+        int bucket = level * SLOTS + (int) ((at >>> (SLOT_BITS * level)) & (SLOTS - 1));
+        int head = heads[bucket];
+        next[slot] = head;
+        prev[slot] = NONE;
+        if (head != NONE) {
+            prev[head] = slot;
+        }
+        heads[bucket] = slot;
+        buckets[slot] = (short) bucket;
+    }
+
+    /**
+     * Removes a slot from its wheel list.
+     */
+    private void unfile(int slot) {
+        if (prev[slot] != NONE) {
+            next[prev[slot]] = next[slot];
+        } else {
+            heads[buckets[slot]] = next[slot];
+        }
+        if (next[slot] != NONE) {
+            prev[next[slot]] = prev[slot];
+        }
+    }
+
+    /**
+     * Empties a bucket of the wheel.
+     *
+     * @return The first slot of its list, which is still linked through next
+     */
+    private int take(int bucket) {
+        int head = heads[bucket];
+        heads[bucket] = NONE;
+        return head;
+    }
+
+    /**
+     * Frees a slot whose session has ended; it is already out of the wheel.
+     */
+    private void release(int slot) {
+        sessions[slot] = null;
+        generations[slot]++;
+        next[slot] = free;
+        free = slot;
+        size--;
+    }
+
+    private void allocate(int capacity) {
+        sessions = sessions == null ? new OrderSession[capacity] : Arrays.copyOf(sessions, capacity);
+        deadlines = deadlines == null ? new long[capacity] : Arrays.copyOf(deadlines, capacity);
+        next = next == null ? new int[capacity] : Arrays.copyOf(next, capacity);
+        prev = prev == null ? new int[capacity] : Arrays.copyOf(prev, capacity);
+        generations = generations == null ? new int[capacity] : Arrays.copyOf(generations, capacity);
+        buckets = buckets == null ? new short[capacity] : Arrays.copyOf(buckets, capacity);
+    }
+}
@@ -0,0 +1,765 @@
+/*
+    Name : Colin Kirby
+    Course : CNT 4714 - Spring 2025
+    Assignment Title : Project 1 - An Event-driven Enterprise Simulation
+    Date : Monday, January 20, 2025
+*/
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * One logical inventory partitioned by Item ID hash across several shards, so that
+ * several storefronts (OrderEngine instances) can sell from it without a single
+ * point of contention.
+ *
+ * Each shard is a separate InventoryLoader with its own lock and, once logs are
+ * opened, its own InventoryWal ("inventory.shard0.wal.N", ...), so stock changes
+ * on different shards are written and synced in parallel.
+ *
+ * Every stock change takes the lock of the item's shard. An operation on several
+ * items takes the locks of all the shards involved, in ascending order so two
+ * such operations never deadlock, and completes on all of them before releasing
+ * any. reserveAll reserves every item or none.
+ *
+ * commitAll and uncommitAll on several shards are a two-phase commit. Each shard
+ * logs its part after a prepare record with a transaction ID, then the decision
+ * is made durable in a coordinator log ("inventory.coordinator"). Recovery
+ * applies a prepared part only if its transaction is in the coordinator log, so
+ * a crash never leaves an order sold on some shards and not on others.
+ *
+ * Reading a single item's stock needs no lock.
+ */
+public class ShardedInventory implements Closeable, StockStore {
+    /**
+     * One partition of the inventory
+     */
+    private static class Shard {
+        /** The shard's items and search index */
+        final InventoryLoader loader;
+
+        /** Held while the shard's stock changes */
+        final ReentrantLock lock = new ReentrantLock();
+
+        /** The shard's stock log, or null to keep stock in memory only */
+        volatile InventoryWal wal;
+
+        Shard(InventoryVersions versions) {
+            loader = new InventoryLoader(versions);
+        }
+    }
+
+    /**
+     * The commit decisions of transactions that span several shards. Each record
+     * is a long transaction ID and an int CRC32 of it; a torn record at the end
+     * is ignored. A transaction without a record was aborted.
+     */
+    private static final class CoordinatorLog implements Closeable {
+        /** Size of one record */
+        private static final int RECORD_BYTES = Long.BYTES + Integer.BYTES;
+
+        private final Path path;
+        private final boolean syncWrites;
+        private final CRC32 crc = new CRC32();
+        private FileChannel channel;
+
+        /** Bytes of whole records in the file */
+        private long size;
+
+        /** The next transaction ID; IDs are only reused after every log was checkpointed */
+        private long nextTransaction = 1;
+
+        /**
+         * Opens the log, emptied; only call once the shards' logs have been folded
+         * into checkpoints, so no prepared batch depends on the old decisions.
+         */
+        CoordinatorLog(Path path, boolean syncWrites) throws IOException {
+            this.path = path;
+            this.syncWrites = syncWrites;
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+            channel.force(true);
+        }
+
+        /**
+         * @return The IDs of the committed transactions in a coordinator log; empty if there is none
+         */
+        static Set<Long> read(Path path) throws IOException {
+            Set<Long> committed = new HashSet<>();
+            if (!Files.exists(path)) {
+                return committed;
+            }
+            ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(path));
+            CRC32 crc = new CRC32();
+            while (in.remaining() >= RECORD_BYTES) {
+                long transaction = in.getLong();
+                crc.reset();
+                crc.update(in.array(), in.position() - Long.BYTES, Long.BYTES);
+                if (in.getInt() != (int) crc.getValue()) {
+                    break; // Torn record at the end of the log
+                }
+                committed.add(transaction);
+            }
+            return committed;
+        }
+
+        synchronized long begin() {
+            return nextTransaction++;
+        }
+
+        /**
+         * Makes a transaction's commit decision durable.
+         *
+         * @throws IOException If it cannot be written; the transaction is then aborted
+         */
+        synchronized void commit(long transaction) throws IOException {
+            ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES);
+            record.putLong(transaction);
+            crc.reset();
+            crc.update(record.array(), 0, Long.BYTES);
+            record.putInt((int) crc.getValue()).flip();
+            try {
+                while (record.hasRemaining()) {
+                    channel.write(record, size + record.position());
+                }
+                if (syncWrites) {
+                    channel.force(false);
+                }
+            } catch (IOException e) {
+                try {
+                    channel.truncate(size); // Do not leave a decision the caller will not act on
+                } catch (IOException ignored) {
+                    // The original failure is reported
+                }
+                throw e;
+            }
+            size += RECORD_BYTES;
+        }
+
+        /**
+         * @return A position in the log; the decisions before it can be discarded
+         *         once every shard has been checkpointed after it was taken
+         */
+        synchronized long mark() {
+            return size;
+        }
+
+        /**
+         * Drops the decisions before a mark, keeping the ones after it.
+         */
+        synchronized void discardBefore(long mark) throws IOException {
+            ByteBuffer kept = ByteBuffer.allocate((int) (size - mark));
+            while (kept.hasRemaining()) {
+                if (channel.read(kept, mark + kept.position()) < 0) {
+                    break;
+                }
+            }
+            kept.flip();
+            Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (kept.hasRemaining()) {
+                    out.write(kept);
+                }
+                out.force(true);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            channel.close();
+            channel = FileChannel.open(path, StandardOpenOption.WRITE);
+            size -= mark;
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /** The shards, indexed by shardOf */
+    private final Shard[] shards;
+
+    /** The version clock all the shards' items share, so a snapshot spans every shard */
+    private final InventoryVersions versions = new InventoryVersions();
+
+    /** Decisions of transactions spanning several shards; null while stock is kept in memory only */
+    private volatile CoordinatorLog coordinator;
+
+    /** Runs periodic checkpoints, if started */
+    private ScheduledExecutorService checkpointer;
+
+    /**
+     * Creates an empty inventory.
+     *
+     * @param shardCount The number of shards
+     */
+    public ShardedInventory(int shardCount) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("At least one shard is needed: " + shardCount);
+        }
+        shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(versions);
+        }
+    }
+
+    /**
+     * Loads an inventory file in parallel and spreads its items over the shards.
+     *
+     * @param filePath The path to the CSV file containing inventory data
+     */
+    public void load(String filePath) {
+        InventoryLoader file = new InventoryLoader(versions);
+        file.loadInventoryParallel(filePath);
+
+        List<ConcurrentHashMap<String, InventoryItem>> parts = new ArrayList<>(shards.length);
+        int expected = Math.max(16, file.getInventory().size() / shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            parts.add(new ConcurrentHashMap<>(expected));
+        }
+        for (InventoryItem item : file.getInventory().values()) {
+            parts.get(shardOf(item.getItemID())).put(item.getItemID(), item);
+        }
+        for (int i = 0; i < shards.length; i++) {
+            shards[i].loader.setInventory(parts.get(i), file.getSourcePath(), file.getDescriptions());
+        }
+    }
+
+    /**
+     * Restores each shard's stock from its own checkpoint and log, applying only
+     * the transactions the coordinator log committed, then opens a new log per
+     * shard and an empty coordinator log so every later stock change is logged.
+     *
+     * @param basePath Path prefix of the files, e.g. "inventory"; shard i uses
+     *                 "inventory.shard{i}" as its own prefix
+     * @param syncWrites Whether to fsync commits and quantity changes
+     * @throws IOException If a shard's stock cannot be recovered or a log cannot be
+     *                     opened; stock is then kept in memory only, and if recovery
+     *                     failed the old files are left untouched
+     */
+    public void openLogs(Path basePath, boolean syncWrites) throws IOException {
+        Path coordinatorPath = basePath.resolveSibling(basePath.getFileName() + ".coordinator");
+        Set<Long> committed = CoordinatorLog.read(coordinatorPath);
+        try {
+            // Recover every shard before any new log replaces the old files
+            for (int i = 0; i < shards.length; i++) {
+                shards[i].loader.recoverStock(shardBase(basePath, i).toString(), committed);
+            }
+            for (int i = 0; i < shards.length; i++) {
+                shards[i].wal = new InventoryWal(shardBase(basePath, i), shards[i].loader, syncWrites);
+            }
+            coordinator = new CoordinatorLog(coordinatorPath, syncWrites);
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Starts checkpointing every shard's log at a fixed interval on a background
+     * thread, then dropping the coordinator decisions the checkpoints made obsolete.
+     *
+     * @param interval The time between checkpoints
+     * @param unit The unit of the interval
+     */
+    public synchronized void startCheckpoints(long interval, TimeUnit unit) {
+        if (checkpointer != null || coordinator == null) {
+            return;
+        }
+        checkpointer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "inventory-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        checkpointer.scheduleWithFixedDelay(() -> {
+            try {
+                checkpoint();
+            } catch (IOException e) {
+                System.err.println("Error writing inventory checkpoint: " + e.getMessage());
+            }
+        }, interval, interval, unit);
+    }
+
+    /**
+     * Checkpoints every shard's log, one shard at a time under its lock, so no
+     * transaction is between prepare and decision on it. A decision made before
+     * the first shard was checkpointed is then no longer needed by any log.
+     *
+     * @throws IOException If a checkpoint cannot be written; no decision is dropped
+     */
+    public void checkpoint() throws IOException {
+        CoordinatorLog log = coordinator;
+        if (log == null) {
+            return;
+        }
+        long obsolete = log.mark();
+        for (Shard shard : shards) {
+            shard.lock.lock();
+            try {
+                shard.wal.checkpoint();
+            } finally {
+                shard.lock.unlock();
+            }
+        }
+        log.discardBefore(obsolete);
+    }
+
+    /**
+     * @param basePath Path prefix of the inventory's files
+     * @param shard The shard index
+     * @return Path prefix of the shard's log and checkpoint files
+     */
+    static Path shardBase(Path basePath, int shard) {
+        return basePath.resolveSibling(basePath.getFileName() + ".shard" + shard);
+    }
+
+    /**
+     * @return The number of shards
+     */
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * Picks the shard of an Item ID. The hash is mixed first, because Item IDs are
+     * often numbers whose String hashes differ only in their low bits.
+     *
+     * @param itemID The Item ID
+     * @return The shard index
+     */
+    public int shardOf(String itemID) {
+        int h = itemID.hashCode() * 0x9E3779B9;
+        return ((h ^ (h >>> 16)) & 0x7FFFFFFF) % shards.length;
+    }
+
+    @Override
+    public InventoryVersions getVersions() {
+        return versions;
+    }
+
+    /**
+     * @param itemID The Item ID
+     * @return The item, or null if it is not in the inventory
+     */
+    @Override
+    public InventoryItem get(String itemID) {
+        return shards[shardOf(itemID)].loader.getInventory().get(itemID);
+    }
+
+    /**
+     * @return The number of items in all shards
+     */
+    public int size() {
+        int size = 0;
+        for (Shard shard : shards) {
+            size += shard.loader.getInventory().size();
+        }
+        return size;
+    }
+
+    /**
+     * @return Every item, shard by shard
+     */
+    public List<InventoryItem> items() {
+        List<InventoryItem> items = new ArrayList<>(size());
+        for (Shard shard : shards) {
+            items.addAll(shard.loader.getInventory().values());
+        }
+        return items;
+    }
+
+    /**
+     * Adds or replaces an item in its shard's map and search index, in place.
+     * Like InventoryLoader.putItem, the change is not logged: the shard logs hold
+     * stock changes, and listings come from the inventory file, so after a
+     * restart the item is as the file lists it, or gone if the file does not.
+     *
+     * @param item The item to store under its Item ID
+     */
+    public void put(InventoryItem item) {
+        shards[shardOf(item.getItemID())].loader.putItem(item);
+    }
+
+    /**
+     * Removes an item from its shard's map and search index, in place. Not
+     * logged, as for put: an item still in the inventory file is back after a
+     * restart.
+     *
+     * @param itemID The Item ID
+     */
+    public void remove(String itemID) {
+        shards[shardOf(itemID)].loader.removeItem(itemID);
+    }
+
+    /**
+     * Finds items by words in their descriptions in every shard. Each shard ranks
+     * its own matches; the results take the best of each shard in turn.
+     *
+     * @param query The words to look for
+     * @param limit The most items to return
+     * @return The matching items
+     */
+    @Override
+    public List<InventoryItem> searchDescriptions(String query, int limit) {
+        List<List<InventoryItem>> perShard = new ArrayList<>(shards.length);
+        for (Shard shard : shards) {
+            perShard.add(shard.loader.getSearchIndex().search(query, limit));
+        }
+        List<InventoryItem> results = new ArrayList<>(limit);
+        for (int rank = 0; results.size() < limit; rank++) {
+            boolean any = false;
+            for (List<InventoryItem> matches : perShard) {
+                if (rank < matches.size() && results.size() < limit) {
+                    results.add(matches.get(rank));
+                    any = true;
+                }
+            }
+            if (!any) {
+                break;
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Reserves stock of one item for a cart.
+     *
+     * @param item The item
+     * @param amount The number of units
+     * @return True if the stock was reserved
+     * @throws IOException If the reservation cannot be logged; it is then undone
+     */
+    @Override
+    public boolean reserve(InventoryItem item, int amount) throws IOException {
+        Shard shard = shards[shardOf(item.getItemID())];
+        shard.lock.lock();
+        try {
+            return shard.wal != null ? shard.wal.reserve(item, amount) : item.reserve(amount);
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+    /**
+     * Returns reserved stock of one item.
+     *
+     * @param item The item
+     * @param amount The number of units
+     * @throws IOException If the release cannot be logged
+     */
+    @Override
+    public void release(InventoryItem item, int amount) throws IOException {
+        Shard shard = shards[shardOf(item.getItemID())];
+        shard.lock.lock();
+        try {
+            if (shard.wal != null) {
+                shard.wal.release(item, amount);
+            } else {
+                item.release(amount);
+            }
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+    /**
+     * Commits reserved stock of one item as sold.
+     *
+     * @param item The item
+     * @param amount The number of units
+     * @throws IOException If the commit cannot be logged
+     */
+    public void commit(InventoryItem item, int amount) throws IOException {
+        commitAll(Collections.singletonList(item), new int[] {amount});
+    }
+
+    /**
+     * Reserves stock of several items, all or nothing: if any item is short, the
+     * reservations already made are returned before the shard locks are released,
+     * so no other operation ever sees part of the reservation.
+     *
+     * @param items The items; an item may appear more than once
+     * @param amounts The units to reserve, parallel to items
+     * @return True if every item was reserved
+     * @throws IOException If a reservation cannot be logged; all are then undone
+     */
+    @Override
+    public boolean reserveAll(List<InventoryItem> items, int[] amounts) throws IOException {
+        int[] locked = lockShards(items);
+        int reserved = 0;
+        try {
+            for (; reserved < items.size(); reserved++) {
+                InventoryItem item = items.get(reserved);
+                InventoryWal wal = shards[shardOf(item.getItemID())].wal;
+                if (!(wal != null ? wal.reserve(item, amounts[reserved]) : item.reserve(amounts[reserved]))) {
+                    break;
+                }
+            }
+            if (reserved == items.size()) {
+                return true;
+            }
+            undoReservations(items, amounts, reserved);
+            return false;
+        } catch (IOException e) {
+            undoReservations(items, amounts, reserved);
+            throw e;
+        } finally {
+            unlockShards(locked);
+        }
+    }
+
+    /**
+     * Commits reserved stock of several items as sold, every item or none. Every
+     * shard involved is locked; a single shard logs its part as one batch, and
+     * several shards commit it as one transaction of the coordinator log.
+     *
+     * @param items The items; an item may appear more than once
+     * @param amounts The units to commit, parallel to items
+     * @throws IOException If the sale cannot be logged; the stock is then still reserved
+     */
+    @Override
+    public void commitAll(List<InventoryItem> items, int[] amounts) throws IOException {
+        changeSold(items, amounts, false);
+    }
+
+    /**
+     * Puts sold stock of several items back in reserve, every item or none, for an
+     * order whose stock was committed but which could not be recorded.
+     *
+     * @param items The items; an item may appear more than once
+     * @param amounts The units to put back, parallel to items
+     * @throws IOException If the change cannot be logged
+     */
+    @Override
+    public void uncommitAll(List<InventoryItem> items, int[] amounts) throws IOException {
+        changeSold(items, amounts, true);
+    }
+
+    /**
+     * Commits or uncommits stock on every shard involved, with their locks held.
+     * On several logged shards, each shard prepares its part and the transaction
+     * is committed in the coordinator log; if any step fails, the parts already
+     * prepared are undone in memory and, having no decision, skipped by recovery.
+     */
+    private void changeSold(List<InventoryItem> items, int[] amounts, boolean uncommit) throws IOException {
+        int[] locked = lockShards(items);
+        try {
+            CoordinatorLog log = coordinator;
+            long transaction = log != null && locked.length > 1 ? log.begin() : 0;
+            List<List<InventoryItem>> parts = new ArrayList<>(locked.length);
+            List<int[]> partAmounts = new ArrayList<>(locked.length);
+            int prepared = 0;
+            try {
+                for (; prepared < locked.length; prepared++) {
+                    int[] partAmount = new int[items.size()];
+                    List<InventoryItem> part = partOf(locked[prepared], items, amounts, partAmount);
+                    parts.add(part);
+                    partAmounts.add(partAmount);
+                    changeShard(shards[locked[prepared]], transaction, part, partAmount, uncommit);
+                }
+                if (transaction != 0) {
+                    log.commit(transaction);
+                }
+            } catch (IOException | RuntimeException e) {
+                // The shard that failed has undone its own part
+                for (int i = 0; i < prepared; i++) {
+                    undoSold(parts.get(i), partAmounts.get(i), parts.get(i).size(), uncommit);
+                }
+                throw e;
+            }
+        } finally {
+            unlockShards(locked);
+        }
+    }
+
+    /**
+     * Commits or uncommits one shard's part, every item or none, through its log
+     * if it has one.
+     *
+     * @param transaction The transaction the part is prepared for, or 0 to log it as a plain batch
+     */
+    private static void changeShard(Shard shard, long transaction, List<InventoryItem> part, int[] amounts,
+                                    boolean uncommit) throws IOException {
+        InventoryWal wal = shard.wal;
+        if (wal == null) {
+            if (uncommit) {
+                InventoryItem.uncommitAll(part, amounts, part.size());
+            } else {
+                InventoryItem.commitAll(part, amounts);
+            }
+        } else if (transaction == 0) {
+            if (uncommit) {
+                wal.uncommitAll(part, amounts);
+            } else {
+                wal.commitAll(part, amounts);
+            }
+        } else if (uncommit) {
+            wal.prepareUncommit(transaction, part, amounts);
+        } else {
+            wal.prepareCommit(transaction, part, amounts);
+        }
+    }
+
+    /**
+     * Undoes, in memory, the first count changes of a part.
+     */
+    private static void undoSold(List<InventoryItem> part, int[] amounts, int count, boolean uncommit) {
+        for (int i = count - 1; i >= 0; i--) {
+            if (uncommit) {
+                part.get(i).commit(amounts[i]);
+            } else {
+                part.get(i).uncommit(amounts[i]);
+            }
+        }
+    }
+
+    /**
+     * Picks out the items of one shard.
+     *
+     * @param partAmounts Receives the amounts of the picked items, in order
+     * @return The items of the shard, in order
+     */
+    private List<InventoryItem> partOf(int shard, List<InventoryItem> items, int[] amounts, int[] partAmounts) {
+        List<InventoryItem> part = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            if (shardOf(items.get(i).getItemID()) == shard) {
+                partAmounts[part.size()] = amounts[i];
+                part.add(items.get(i));
+            }
+        }
+        return part;
+    }
+
+    /**
+     * Returns reserved stock of several items, as one step.
+     *
+     * @param items The items; an item may appear more than once
+     * @param amounts The units to release, parallel to items
+     * @throws IOException If a release cannot be logged
+     */
+    public void releaseAll(List<InventoryItem> items, int[] amounts) throws IOException {
+        int[] locked = lockShards(items);
+        try {
+            for (int i = 0; i < items.size(); i++) {
+                InventoryItem item = items.get(i);
+                InventoryWal wal = shards[shardOf(item.getItemID())].wal;
+                if (wal != null) {
+                    wal.release(item, amounts[i]);
+                } else {
+                    item.release(amounts[i]);
+                }
+            }
+        } finally {
+            unlockShards(locked);
+        }
+    }
+
+    /**
+     * Returns the first count reservations of a failed reserveAll; the shard locks are held.
+     */
+    private void undoReservations(List<InventoryItem> items, int[] amounts, int count) {
+        for (int i = count - 1; i >= 0; i--) {
+            InventoryItem item = items.get(i);
+            InventoryWal wal = shards[shardOf(item.getItemID())].wal;
+            try {
+                if (wal != null) {
+                    wal.release(item, amounts[i]);
+                } else {
+                    item.release(amounts[i]);
+                }
+            } catch (IOException e) {
+                // The release is applied in memory even when it cannot be logged
+                System.err.println("Error writing inventory log: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Locks the shards of the given items in ascending order.
+     *
+     * @return The locked shard indexes, ascending
+     */
+    private int[] lockShards(List<InventoryItem> items) {
+        int[] indexes = new int[items.size()];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = shardOf(items.get(i).getItemID());
+        }
+        Arrays.sort(indexes);
+        int distinct = 0;
+        for (int i = 0; i < indexes.length; i++) {
+            if (i == 0 || indexes[i] != indexes[i - 1]) {
+                indexes[distinct++] = indexes[i];
+            }
+        }
+        int[] locked = Arrays.copyOf(indexes, distinct);
+        for (int index : locked) {
+            shards[index].lock.lock();
+        }
+        return locked;
+    }
+
+    private void unlockShards(int[] locked) {
+        for (int i = locked.length - 1; i >= 0; i--) {
+            shards[locked[i]].lock.unlock();
+        }
+    }
+
+    /**
+     * Stops periodic checkpoints and closes every shard's log and the coordinator log.
+     *
+     * @throws IOException If a log cannot be written or closed; the others are still closed
+     */
+    @Override
+    public void close() throws IOException {
+        ScheduledExecutorService scheduler;
+        synchronized (this) {
+            scheduler = checkpointer;
+            checkpointer = null;
+        }
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+        IOException failure = null;
+        CoordinatorLog log = coordinator;
+        coordinator = null;
+        if (log != null) {
+            try {
+                log.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        for (Shard shard : shards) {
+            InventoryWal wal = shard.wal;
+            shard.wal = null;
+            if (wal == null) {
+                continue;
+            }
+            try {
+                wal.close();
+            } catch (IOException e) {
+                failure = failure == null ? e : failure;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
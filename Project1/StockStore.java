@@ -0,0 +1,96 @@
+/*
+    Name : Colin Kirby
+    Course : CNT 4714 - Spring 2025
+    Assignment Title : Project 1 - An Event-driven Enterprise Simulation
+    Date : Monday, January 20, 2025
+*/
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Where an OrderEngine finds its items and changes their stock. Implemented by
+ * LoaderStockStore (one InventoryLoader, optionally with an InventoryWal),
+ * ShardedInventory and TieredCatalog.
+ *
+ * The operations on several items are all or nothing: when one fails, the
+ * changes already made for the others are undone before it returns.
+ */
+interface StockStore {
+    /**
+     * @return The version clock the store's items are read from with snapshots
+     */
+    InventoryVersions getVersions();
+
+    /**
+     * @param itemID The Item ID
+     * @return The item, or null if it is not in the store
+     */
+    InventoryItem get(String itemID);
+
+    /**
+     * Finds items by words in their descriptions.
+     *
+     * @param query The words to look for
+     * @param limit The most items to return
+     * @return The matching items, best match first; empty if the store cannot search
+     */
+    List<InventoryItem> searchDescriptions(String query, int limit);
+
+    /**
+     * Reserves stock of one item for a cart.
+     *
+     * @param item The item
+     * @param amount The number of units
+     * @return True if the stock was reserved
+     * @throws IOException If the reservation cannot be logged; it is then undone
+     */
+    boolean reserve(InventoryItem item, int amount) throws IOException;
+
+    /**
+     * Returns reserved stock of one item.
+     *
+     * @param item The item
+     * @param amount The number of units
+     * @throws IOException If the release cannot be logged; it is applied all the same
+     */
+    void release(InventoryItem item, int amount) throws IOException;
+
+    /**
+     * Reserves stock of several items, every item or none.
+     *
+     * @param items The items; an item may appear more than once
+     * @param amounts The units to reserve, parallel to items
+     * @return True if every item was reserved
+     * @throws IOException If a reservation cannot be logged; all are then undone
+     */
+    boolean reserveAll(List<InventoryItem> items, int[] amounts) throws IOException;
+
+    /**
+     * Returns reserved stock of several items.
+     *
+     * @param items The items; an item may appear more than once
+     * @param amounts The units to release, parallel to items
+     * @throws IOException If a release cannot be logged; it is applied all the same
+     */
+    void releaseAll(List<InventoryItem> items, int[] amounts) throws IOException;
+
+    /**
+     * Commits reserved stock of several items as sold, every item or none.
+     *
+     * @param items The items; an item may appear more than once
+     * @param amounts The units to commit, parallel to items
+     * @throws IOException If the sale cannot be made durable; the stock is then still reserved
+     */
+    void commitAll(List<InventoryItem> items, int[] amounts) throws IOException;
+
+    /**
+     * Puts sold stock of several items back in reserve, for an order whose stock
+     * was committed but which could not be recorded.
+     *
+     * @param items The items; an item may appear more than once
+     * @param amounts The units to put back, parallel to items
+     * @throws IOException If the change cannot be logged; it is applied in memory all the same
+     */
+    void uncommitAll(List<InventoryItem> items, int[] amounts) throws IOException;
+}
@@ -0,0 +1,554 @@
+/*
+    Name : Colin Kirby
+    Course : CNT 4714 - Spring 2025
+    Assignment Title : Project 1 - An Event-driven Enterprise Simulation
+    Date : Monday, January 20, 2025
+*/
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves the store over HTTP with JSON responses, so it can run without the GUI,
+ * behind a load balancer. Built on the JDK's com.sun.net.httpserver.
+ *
+ * Requests:
+ *   GET    /items/{id}?quantity=n          look an item up, quoting n units (LookupResult)
+ *   GET    /items?q=words&limit=n          find items by description
+ *   POST   /carts                          open a cart; returns its ID
+ *   GET    /carts/{cart}                   the cart's items and subtotal
+ *   POST   /carts/{cart}/items             add an item: item=ID&quantity=n
+ *   DELETE /carts/{cart}/items/last        remove the most recently added item
+ *   POST   /carts/{cart}/checkout          check out; answers once the order is durable
+ *   POST   /carts/{cart}/empty             empty the cart to start a new order
+ *   DELETE /carts/{cart}                   close the cart, returning its stock
+ *
+ * Parameters come from the query string or, for POST, a form-encoded body. A
+ * lookup or add-to-cart answers with the LookupResult status: 200 for OK, 404 for
+ * NOT_FOUND, 400 for INVALID_QUANTITY and 409 for the other refusals. Money is
+ * given in dollars with two decimals.
+ *
+ * Each cart is an OrderSession kept in a SessionStore, so carts left unused
+ * expire and return their stock. Cart IDs are SessionStore handles; they are not
+ * secrets, and the server has no authentication of its own.
+ *
+ * Each request runs on its own virtual thread when the runtime has them (Java 21
+ * and later), so a checkout waiting for the transaction log holds no platform
+ * thread; older runtimes use a fixed pool of platform threads.
+ */
+public class StorefrontServer {
+    /** Platform threads serving requests when virtual threads are not available */
+    static final int PLATFORM_THREADS = 64;
+
+    /** Kept-alive connections the server holds open between requests */
+    static final int MAX_IDLE_CONNECTIONS = 10_000;
+
+    /** Time to live of an unused cart */
+    public static final Duration CART_TIME_TO_LIVE = Duration.ofMinutes(30);
+
+    /** Most items returned by a description search */
+    private static final int MAX_SEARCH_RESULTS = 100;
+
+    /** The engine the store sells through */
+    private final OrderEngine engine;
+
+    /** The open carts */
+    private final SessionStore carts;
+
+    /** The HTTP server */
+    private final HttpServer server;
+
+    /** Runs the requests */
+    private final ExecutorService executor;
+
+    /**
+     * Creates a server; call start() to accept requests.
+     *
+     * @param engine The engine the store sells through
+     * @param carts The store that keeps the open carts
+     * @param address The address to listen on; port 0 picks a free port
+     * @throws IOException If the address cannot be bound
+     */
+    public StorefrontServer(OrderEngine engine, SessionStore carts, InetSocketAddress address) throws IOException {
+        this.engine = engine;
+        this.carts = carts;
+        // The server writes the headers and the body of a response separately; with
+        // Nagle's algorithm on, the body then waits on the client's delayed ACK (about
+        // 40 ms) on every kept-alive connection. And past 200 idle connections it
+        // closes each one as its response is sent, under clients about to reuse it.
+        // Both settings are read once, by the first server created.
+        setDefault("sun.net.httpserver.nodelay", "true");
+        setDefault("sun.net.httpserver.maxIdleConnections", String.valueOf(MAX_IDLE_CONNECTIONS));
+        this.server = HttpServer.create(address, 0);
+        this.executor = newRequestExecutor();
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+    }
+
+    /**
+     * Sets a system property unless it was given on the command line.
+     */
+    private static void setDefault(String key, String value) {
+        if (System.getProperty(key) == null) {
+            System.setProperty(key, value);
+        }
+    }
+
+    /**
+     * Starts accepting requests.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops accepting requests, waits up to the given time for the ones in
+     * progress, and stops their threads.
+     *
+     * @param delaySeconds The most seconds to wait for requests in progress
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(delaySeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return The port the server listens on
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Creates the executor that runs the requests: one virtual thread per request
+     * when the runtime has them, a fixed pool of platform threads otherwise.
+     */
+    static ExecutorService newRequestExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return Executors.newFixedThreadPool(PLATFORM_THREADS, runnable -> {
+                Thread thread = new Thread(runnable, "storefront-request");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Routes a request by method and path, and answers errors in JSON.
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String[] path = exchange.getRequestURI().getPath().split("/");
+            String method = exchange.getRequestMethod();
+            Map<String, String> params = parameters(exchange);
+            if (params == null) {
+                error(exchange, 400, "Malformed parameters");
+            } else if (path.length >= 2 && path[1].equals("items")) {
+                if (!method.equals("GET") || path.length > 3) {
+                    error(exchange, path.length > 3 ? 404 : 405, "No such request");
+                } else if (path.length == 3) {
+                    lookup(exchange, path[2], params);
+                } else {
+                    search(exchange, params);
+                }
+            } else if (path.length >= 2 && path[1].equals("carts")) {
+                cart(exchange, method, path, params);
+            } else {
+                error(exchange, 404, "No such request");
+            }
+        } catch (NumberFormatException e) {
+            if (exchange.getResponseCode() < 0) {
+                error(exchange, 400, "Not a number: " + e.getMessage());
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Error serving " + exchange.getRequestURI() + ": " + e);
+            // Once the status line is out, closing the exchange is all that is left
+            if (exchange.getResponseCode() < 0) {
+                error(exchange, 500, "Internal error");
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * GET /items/{id}
+     */
+    private void lookup(HttpExchange exchange, String itemId, Map<String, String> params) throws IOException {
+        int quantity = Integer.parseInt(params.getOrDefault("quantity", "0"));
+        LookupResult result = engine.search(itemId, quantity);
+        StringBuilder json = new StringBuilder(256);
+        appendResult(json, result);
+        send(exchange, statusCode(result.getStatus()), json);
+    }
+
+    /**
+     * GET /items?q=words
+     */
+    private void search(HttpExchange exchange, Map<String, String> params) throws IOException {
+        String query = params.get("q");
+        if (query == null || query.trim().isEmpty()) {
+            error(exchange, 400, "Missing q");
+            return;
+        }
+        int limit = Math.min(MAX_SEARCH_RESULTS, Integer.parseInt(params.getOrDefault("limit", "10")));
+        List<InventoryItem> matches = engine.searchDescriptions(query, Math.max(1, limit));
+        StringBuilder json = new StringBuilder(64 + matches.size() * 128).append("{\"items\":[");
+        try (InventoryVersions.Snapshot snapshot = engine.getVersions().snapshot()) {
+            for (int i = 0; i < matches.size(); i++) {
+                if (i > 0) {
+                    json.append(',');
+                }
+                appendItem(json, matches.get(i).getItemID(), matches.get(i).at(snapshot));
+            }
+        }
+        send(exchange, 200, json.append("]}"));
+    }
+
+    /**
+     * Requests under /carts.
+     */
+    private void cart(HttpExchange exchange, String method, String[] path, Map<String, String> params)
+            throws IOException {
+        if (path.length == 2) {
+            if (!method.equals("POST")) {
+                error(exchange, 405, "Use POST to open a cart");
+                return;
+            }
+            long handle = carts.open();
+            send(exchange, 201, new StringBuilder("{\"cart\":\"").append(handle).append("\"}"));
+            return;
+        }
+
+        long handle;
+        try {
+            handle = Long.parseLong(path[2]);
+        } catch (NumberFormatException e) {
+            error(exchange, 404, "Cart not found");
+            return;
+        }
+        String action = path.length > 3 ? path[3] : "";
+        if (action.isEmpty() && method.equals("DELETE")) {
+            if (carts.remove(handle)) {
+                send(exchange, 200, new StringBuilder("{\"cart\":\"").append(handle).append("\",\"closed\":true}"));
+            } else {
+                error(exchange, 404, "Cart not found");
+            }
+            return;
+        }
+        OrderSession session = carts.get(handle);
+        if (session == null) {
+            error(exchange, 404, "Cart not found");
+            return;
+        }
+
+        String route = method + " " + action + (path.length > 4 ? "/" + path[4] : "");
+        switch (route) {
+            case "GET ":
+                send(exchange, 200, appendCart(new StringBuilder(512), session));
+                break;
+            case "POST items": {
+                String itemId = params.get("item");
+                if (itemId == null) {
+                    error(exchange, 400, "Missing item");
+                    return;
+                }
+                LookupResult result = session.addToCart(itemId, Integer.parseInt(params.getOrDefault("quantity", "1")));
+                StringBuilder json = new StringBuilder(256);
+                appendResult(json, result);
+                send(exchange, statusCode(result.getStatus()), json);
+                break;
+            }
+            case "DELETE items/last": {
+                CartItem removed = session.deleteLastItem();
+                if (removed == null) {
+                    error(exchange, 409, "The cart is empty or checked out");
+                    return;
+                }
+                StringBuilder json = new StringBuilder(256).append("{\"removed\":");
+                appendCartItem(json, removed);
+                send(exchange, 200, json.append('}'));
+                break;
+            }
+            case "POST checkout":
+                checkout(exchange, session);
+                break;
+            case "POST empty":
+                session.emptyCart();
+                send(exchange, 200, appendCart(new StringBuilder(128), session));
+                break;
+            default:
+                error(exchange, 404, "No such request");
+        }
+    }
+
+    /**
+     * POST /carts/{cart}/checkout; waits for the transaction log on the request's thread.
+     */
+    private void checkout(HttpExchange exchange, OrderSession session) throws IOException {
+        Order order;
+        try {
+            order = session.checkout().join();
+        } catch (CompletionException e) {
+            error(exchange, 503, "The order could not be recorded; try again");
+            return;
+        }
+        if (order == null) {
+            error(exchange, 409, "The cart is empty or already checked out");
+            return;
+        }
+        StringBuilder json = new StringBuilder(512).append("{\"transactionId\":\"").append(order.getTransactionId())
+            .append("\",\"items\":[");
+        List<CartItem> items = order.getItems();
+        for (int i = 0; i < items.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            appendCartItem(json, items.get(i));
+        }
+        Money.append(json.append("],\"subtotal\":"), order.getSubtotalCents());
+        Money.append(json.append(",\"tax\":"), order.getTaxCents());
+        Money.append(json.append(",\"total\":"), order.getTotalCents());
+        send(exchange, 200, json.append('}'));
+    }
+
+    /**
+     * @return The HTTP status of a lookup or add-to-cart outcome
+     */
+    private static int statusCode(LookupResult.Status status) {
+        switch (status) {
+            case OK: return 200;
+            case NOT_FOUND: return 404;
+            case INVALID_QUANTITY: return 400;
+            default: return 409;
+        }
+    }
+
+    private static void appendResult(StringBuilder json, LookupResult result) {
+        json.append("{\"status\":\"").append(result.getStatus()).append('"');
+        if (result.getItem() != null) {
+            appendItem(json.append(",\"item\":"), result.getItem().getItemID(), result.getState());
+        }
+        json.append(",\"quantity\":").append(result.getQuantity())
+            .append(",\"discount\":").append(result.getDiscountPercentage());
+        Money.append(json.append(",\"total\":"), result.getTotalCents());
+        json.append('}');
+    }
+
+    private static void appendItem(StringBuilder json, String itemId, InventoryItem.State state) {
+        appendString(json.append("{\"id\":"), itemId);
+        appendString(json.append(",\"description\":"), state.getDescription());
+        Money.append(json.append(",\"price\":"), state.getPriceCents());
+        json.append(",\"inStock\":").append(state.isInStock())
+            .append(",\"available\":").append(state.getQuantity()).append('}');
+    }
+
+    private static void appendCartItem(StringBuilder json, CartItem cartItem) {
+        InventoryItem item = cartItem.getItem();
+        json.append("{\"number\":").append(cartItem.getItemNumber());
+        appendString(json.append(",\"id\":"), item.getItemID());
+        appendString(json.append(",\"description\":"), cartItem.getDescription());
+        Money.append(json.append(",\"price\":"), cartItem.getUnitPriceCents());
+        json.append(",\"quantity\":").append(cartItem.getQuantity())
+            .append(",\"discount\":").append(cartItem.getDiscountPercentage());
+        Money.append(json.append(",\"total\":"), cartItem.getTotalCents());
+        json.append('}');
+    }
+
+    private static StringBuilder appendCart(StringBuilder json, OrderSession session) {
+        json.append("{\"items\":[");
+        List<CartItem> items = session.getCart();
+        long subtotal = 0;
+        for (int i = 0; i < items.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            appendCartItem(json, items.get(i));
+            subtotal += items.get(i).getTotalCents();
+        }
+        Money.append(json.append("],\"subtotal\":"), subtotal);
+        return json.append(",\"checkedOut\":").append(session.isCheckedOut()).append('}');
+    }
+
+    /**
+     * Appends a JSON string literal, escaping quotes, backslashes and control characters.
+     */
+    static void appendString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+
+    private static void error(HttpExchange exchange, int code, String message) throws IOException {
+        StringBuilder json = new StringBuilder(64).append("{\"error\":");
+        appendString(json, message);
+        send(exchange, code, json.append('}'));
+    }
+
+    /**
+     * Sends a JSON response. Every response has a body: the JDK server drops a
+     * kept-alive connection after a 204, and the client's next request on it fails.
+     */
+    private static void send(HttpExchange exchange, int code, StringBuilder json) throws IOException {
+        byte[] body = json.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(code, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Reads the query string and, for a form-encoded POST, the body.
+     *
+     * @return The parameters, or null if one is not validly percent-encoded
+     */
+    private static Map<String, String> parameters(HttpExchange exchange) throws IOException {
+        Map<String, String> params = new HashMap<>();
+        if (!parse(exchange.getRequestURI().getRawQuery(), params)) {
+            return null;
+        }
+        String type = exchange.getRequestHeaders().getFirst("Content-Type");
+        if (exchange.getRequestMethod().equals("POST") && type != null
+                && type.startsWith("application/x-www-form-urlencoded")) {
+            try (InputStream in = exchange.getRequestBody()) {
+                if (!parse(new String(in.readAllBytes(), StandardCharsets.UTF_8), params)) {
+                    return null;
+                }
+            }
+        }
+        return params;
+    }
+
+    /**
+     * @return False if a name or value is not validly percent-encoded
+     */
+    private static boolean parse(String encoded, Map<String, String> params) {
+        if (encoded == null || encoded.isEmpty()) {
+            return true;
+        }
+        for (String pair : encoded.split("&")) {
+            int equals = pair.indexOf('=');
+            String name = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            try {
+                params.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+            } catch (IllegalArgumentException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Runs the store as a server: the inventory is loaded, its stock logged and
+     * its file watched as in Main, and carts expire after CART_TIME_TO_LIVE. With
+     * a shard count above 1 the store sells from a ShardedInventory, as in Main.
+     *
+     * Usage: java StorefrontServer [port [shards]]
+     */
+    public static void main(String[] args) throws IOException {
+        int port;
+        int shardCount;
+        try {
+            port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+            shardCount = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        } catch (NumberFormatException e) {
+            port = -1; // Not a number; reported below like a port out of range
+            shardCount = 1;
+        }
+        if (port < 0 || port > 0xFFFF) {
+            System.err.println("Usage: java StorefrontServer [port [shards]]");
+            return;
+        }
+
+        OrderEngine engine;
+        InventoryWal wal = null;
+        if (shardCount > 1) {
+            engine = new OrderEngine(Main.openShards(shardCount), OrderEngine.TRANSACTIONS_FILE, true);
+        } else {
+            InventoryLoader loader = new InventoryLoader();
+            loader.loadInventoryWithSnapshot("inventory.csv", "inventory.snapshot");
+            boolean stockRecovered = loader.recoverStock("inventory");
+
+            engine = new OrderEngine(loader);
+            if (stockRecovered) {
+                try {
+                    wal = new InventoryWal(Paths.get("inventory"), loader, true);
+                    wal.startCheckpoints(1, TimeUnit.MINUTES);
+                    engine.setStockLog(wal);
+                } catch (IOException e) {
+                    System.err.println("Error opening inventory log: " + e.getMessage());
+                }
+            } else {
+                System.err.println("Error: Inventory stock not recovered; the inventory log is kept and stock changes are not logged.");
+            }
+            try {
+                new InventoryWatcher(Paths.get("inventory.csv"), loader, wal).start();
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.println("Error watching inventory file: " + e.getMessage());
+            }
+        }
+        if (Files.exists(Paths.get("promotions.csv"))) {
+            try {
+                engine.getPromotions().loadRules(Paths.get("promotions.csv"));
+            } catch (IOException e) {
+                System.err.println("Error loading promotions: " + e.getMessage());
+            }
+        }
+
+        SessionStore carts = new SessionStore(engine, CART_TIME_TO_LIVE);
+        carts.start();
+        StorefrontServer server = new StorefrontServer(engine, carts, new InetSocketAddress(port));
+        InventoryWal stockLog = wal;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop(5);
+            carts.stop();
+            try {
+                engine.close();
+                if (stockLog != null) {
+                    stockLog.close();
+                }
+            } catch (IOException e) {
+                System.err.println("Error closing logs: " + e.getMessage());
+            }
+        }));
+        server.start();
+        System.out.println("Storefront listening on port " + server.getPort());
+    }
+}
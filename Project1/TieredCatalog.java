@@ -0,0 +1,668 @@
+/*
+    Name : Colin Kirby
+    Course : CNT 4714 - Spring 2025
+    Assignment Title : Project 1 - An Event-driven Enterprise Simulation
+    Date : Monday, January 20, 2025
+*/
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An inventory for catalogs too large to keep on the heap, with a fixed heap budget.
+ *
+ * Items live in two tiers:
+ * - Hot: up to a configured number of InventoryItem objects, kept in least
+ *   recently used order
+ * - Cold: every item, in a catalog file sorted by Item ID and memory-mapped, so
+ *   the operating system pages it in and out instead of the garbage collector
+ *
+ * A lookup that misses the hot tier binary-searches the sorted index of the file
+ * and admits the item, evicting the least recently used one. An evicted item's
+ * stock and price are written back into its record in the file. Items holding
+ * reserved stock are never evicted, since a cart depends on them.
+ *
+ * The file is also where stock survives a restart: a commit, uncommit or quantity
+ * change writes the item's record and forces it to disk before it returns. The
+ * lines of one order are forced one after another, so a crash in the middle of
+ * commitAll can leave only some of them sold.
+ *
+ * A Bloom filter of every Item ID is kept on the heap (about 10 bits per item), so
+ * a lookup of an ID that is not in the catalog is nearly always answered without
+ * reading the file.
+ *
+ * Stock is changed through the catalog by Item ID, always on the item currently in
+ * the hot tier, so a caller still holding an item object that has since been
+ * evicted cannot lose an update. The catalog serializes its operations on one lock.
+ * Items cannot be added or removed; rebuild the file with build() instead.
+ *
+ * File layout (big-endian):
+ * - int magic ("NILT"), int version, int item count, int Bloom filter offset,
+ *   int Bloom filter length in longs, int Bloom hash count, int index offset
+ * - per item, in file order: short ID length, ID bytes (UTF-8), int description
+ *   length, description bytes (UTF-8), byte in-stock flag, int quantity, long price
+ *   in cents (the same record as InventorySnapshot)
+ * - the Bloom filter bits
+ * - per item, sorted by the unsigned bytes of its ID: int offset of its record
+ */
+public class TieredCatalog implements Closeable, StockStore {
+    /** Identifies a catalog file */
+    private static final int MAGIC = 0x4E494C54; // "NILT"
+
+    /** Current format version */
+    private static final int VERSION = 1;
+
+    /** Size of the file header */
+    private static final int HEADER_BYTES = 7 * Integer.BYTES;
+
+    /** Bloom filter bits per item; about a 1% false positive rate */
+    private static final int BLOOM_BITS_PER_ITEM = 10;
+
+    /** Bloom hash functions for BLOOM_BITS_PER_ITEM bits per item */
+    private static final int BLOOM_HASHES = 7;
+
+    /** Size of a record's in-stock flag, quantity and price */
+    private static final int STOCK_BYTES = 1 + Integer.BYTES + Long.BYTES;
+
+    /**
+     * A hot item and where its stock is stored in the file
+     */
+    private static class Entry {
+        final InventoryItem item;
+
+        /** File position of the record's in-stock flag, quantity and price */
+        final int stockOffset;
+
+        Entry(InventoryItem item, int stockOffset) {
+            this.item = item;
+            this.stockOffset = stockOffset;
+        }
+    }
+
+    /** The open catalog file */
+    private final FileChannel channel;
+
+    /** The whole catalog file, mapped for reading and writing back stock */
+    private final MappedByteBuffer map;
+
+    /** Number of items in the catalog */
+    private final int size;
+
+    /** Offset of the sorted record offsets */
+    private final int indexOffset;
+
+    /** The Bloom filter of every Item ID */
+    private final long[] bloom;
+    private final int bloomHashes;
+
+    /** Most items kept on the heap */
+    private final int hotCapacity;
+
+    /** Hot items by Item ID, least recently used first */
+    private final LinkedHashMap<String, Entry> hot;
+
+    /** The version clock of the catalog's items */
+    private final InventoryVersions versions = new InventoryVersions();
+
+    /** The descriptions of the items read into the hot tier */
+    private DescriptionArena descriptions = new DescriptionArena();
+
+    /** Lookup statistics */
+    private long hotHits;
+    private long coldReads;
+    private final LongAdder bloomRejects = new LongAdder();
+    private long misses;
+    private long evictions;
+
+    /**
+     * Opens a catalog file.
+     *
+     * @param path The catalog file written by build()
+     * @param hotCapacity The most items kept on the heap
+     * @throws IOException If the file cannot be opened or is not a catalog file
+     */
+    public TieredCatalog(Path path, int hotCapacity) throws IOException {
+        if (hotCapacity < 1) {
+            throw new IllegalArgumentException("The hot tier needs room for at least one item: " + hotCapacity);
+        }
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (channel.size() < HEADER_BYTES || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Not a catalog file: " + path);
+            }
+            map = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            if (map.getInt(0) != MAGIC || map.getInt(4) != VERSION) {
+                throw new IOException("Not a catalog file, or an unsupported version: " + path);
+            }
+            size = map.getInt(8);
+            int bloomOffset = map.getInt(12);
+            bloom = new long[map.getInt(16)];
+            bloomHashes = map.getInt(20);
+            indexOffset = map.getInt(24);
+            map.duplicate().position(bloomOffset).asLongBuffer().get(bloom);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        this.hotCapacity = hotCapacity;
+        this.hot = new LinkedHashMap<>(Math.min(hotCapacity, 1 << 16), 0.75f, true);
+    }
+
+    /**
+     * Writes a catalog file from an inventory CSV file. Rows are streamed into the
+     * file as they are parsed; only the Item IDs and record offsets are held in
+     * memory, to sort them. If an Item ID appears more than once, the last row wins,
+     * as in InventoryLoader.
+     *
+     * @param csvPath The inventory CSV file
+     * @param path The catalog file to create or replace
+     * @throws IOException If a file cannot be read or written, or the catalog
+     *                     would be larger than 2 GB
+     */
+    public static void build(Path csvPath, Path path) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        List<byte[]> ids = new ArrayList<>();
+        int[][] offsets = {new int[1024]};
+        try (FileChannel csv = FileChannel.open(csvPath, StandardOpenOption.READ);
+             FileOutputStream file = new FileOutputStream(temp.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+            out.write(new byte[HEADER_BYTES]);
+            IOException[] failure = new IOException[1];
+            new InventoryCsvParser().parse(csv, 0, csv.size(), (itemID, description, inStock, quantity, price) -> {
+                if (failure[0] != null) {
+                    return;
+                }
+                try {
+                    byte[] id = itemID.getBytes(StandardCharsets.UTF_8);
+                    byte[] text = description.getBytes(StandardCharsets.UTF_8);
+                    if ((long) out.size() + 2 + id.length + 4 + text.length + 13 >= Integer.MAX_VALUE) {
+                        throw new IOException("Catalog is too large for one file: " + csvPath);
+                    }
+                    if (ids.size() == offsets[0].length) {
+                        offsets[0] = Arrays.copyOf(offsets[0], offsets[0].length * 2);
+                    }
+                    offsets[0][ids.size()] = out.size();
+                    ids.add(id);
+                    out.writeShort(id.length);
+                    out.write(id);
+                    out.writeInt(text.length);
+                    out.write(text);
+                    out.writeByte(inStock ? 1 : 0);
+                    out.writeInt(quantity);
+                    out.writeLong(Money.ofDollars(price));
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            });
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+
+            // Sort the records by ID; for duplicate IDs only the last row is kept
+            Integer[] order = new Integer[ids.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> {
+                int c = Arrays.compareUnsigned(ids.get(a), ids.get(b));
+                return c != 0 ? c : Integer.compare(a, b);
+            });
+            int count = 0;
+            for (int i = 0; i < order.length; i++) {
+                if (i + 1 < order.length && Arrays.equals(ids.get(order[i]), ids.get(order[i + 1]))) {
+                    continue;
+                }
+                order[count++] = order[i];
+            }
+
+            long[] bits = new long[Math.max(1, (int) (((long) count * BLOOM_BITS_PER_ITEM + 63) >>> 6))];
+            if ((long) out.size() + bits.length * 8L + count * 4L > Integer.MAX_VALUE) {
+                throw new IOException("Catalog is too large for one file: " + csvPath);
+            }
+            for (int i = 0; i < count; i++) {
+                bloomAdd(bits, BLOOM_HASHES, new String(ids.get(order[i]), StandardCharsets.UTF_8));
+            }
+            int bloomOffset = out.size();
+            for (long word : bits) {
+                out.writeLong(word);
+            }
+            int indexOffset = out.size();
+            for (int i = 0; i < count; i++) {
+                out.writeInt(offsets[0][order[i]]);
+            }
+            out.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putInt(count).putInt(bloomOffset)
+                  .putInt(bits.length).putInt(BLOOM_HASHES).putInt(indexOffset).flip();
+            file.getChannel().write(header, 0);
+            file.getChannel().force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public InventoryVersions getVersions() {
+        return versions;
+    }
+
+    /**
+     * Looks up an item, reading it from the file into the hot tier if needed.
+     *
+     * @param itemID The Item ID
+     * @return The item, or null if it is not in the catalog
+     */
+    @Override
+    public InventoryItem get(String itemID) {
+        if (!bloomContains(bloom, bloomHashes, itemID)) {
+            bloomRejects.increment();
+            return null;
+        }
+        synchronized (this) {
+            Entry entry = resident(itemID);
+            return entry == null ? null : entry.item;
+        }
+    }
+
+    /**
+     * @param itemID The Item ID
+     * @return True if the item is in the catalog; usually answered without reading the file
+     */
+    public boolean contains(String itemID) {
+        return get(itemID) != null;
+    }
+
+    /**
+     * Reserves stock of an item for a cart.
+     *
+     * @param itemID The Item ID
+     * @param amount The number of units
+     * @return True if the stock was reserved, false if there is not enough or the
+     *         item is not in the catalog
+     */
+    public synchronized boolean reserve(String itemID, int amount) {
+        Entry entry = resident(itemID);
+        return entry != null && entry.item.reserve(amount);
+    }
+
+    /**
+     * Returns reserved stock of an item.
+     *
+     * @param itemID The Item ID
+     * @param amount The number of units
+     */
+    public synchronized void release(String itemID, int amount) {
+        Entry entry = resident(itemID);
+        if (entry != null) {
+            entry.item.release(amount);
+        }
+    }
+
+    /**
+     * Commits reserved stock of an item as sold and forces its record to disk.
+     *
+     * @param itemID The Item ID
+     * @param amount The number of units
+     * @throws IOException If the record cannot be forced to disk; the stock is then still reserved
+     */
+    public synchronized void commit(String itemID, int amount) throws IOException {
+        Entry entry = resident(itemID);
+        if (entry != null) {
+            entry.item.commit(amount);
+            try {
+                writeThrough(entry);
+            } catch (IOException e) {
+                entry.item.uncommit(amount);
+                writeBack(entry);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Puts sold stock of an item back in reserve, for an order that could not be
+     * recorded, and forces its record to disk.
+     *
+     * @param itemID The Item ID
+     * @param amount The number of units
+     * @throws IOException If the record cannot be forced to disk; the stock is reserved in memory all the same
+     */
+    public synchronized void uncommit(String itemID, int amount) throws IOException {
+        Entry entry = resident(itemID);
+        if (entry != null) {
+            entry.item.uncommit(amount);
+            writeThrough(entry);
+        }
+    }
+
+    /**
+     * The catalog keeps no description index, so it cannot be searched.
+     *
+     * @return An empty list
+     */
+    @Override
+    public List<InventoryItem> searchDescriptions(String query, int limit) {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public boolean reserve(InventoryItem item, int amount) {
+        return reserve(item.getItemID(), amount);
+    }
+
+    @Override
+    public void release(InventoryItem item, int amount) {
+        release(item.getItemID(), amount);
+    }
+
+    @Override
+    public synchronized boolean reserveAll(List<InventoryItem> items, int[] amounts) {
+        for (int i = 0; i < items.size(); i++) {
+            if (!reserve(items.get(i).getItemID(), amounts[i])) {
+                for (int j = i - 1; j >= 0; j--) {
+                    release(items.get(j).getItemID(), amounts[j]);
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized void releaseAll(List<InventoryItem> items, int[] amounts) {
+        for (int i = 0; i < items.size(); i++) {
+            release(items.get(i).getItemID(), amounts[i]);
+        }
+    }
+
+    @Override
+    public synchronized void commitAll(List<InventoryItem> items, int[] amounts) throws IOException {
+        int committed = 0;
+        try {
+            for (; committed < items.size(); committed++) {
+                commit(items.get(committed).getItemID(), amounts[committed]);
+            }
+        } catch (IOException | RuntimeException e) {
+            for (int i = committed - 1; i >= 0; i--) {
+                try {
+                    uncommit(items.get(i).getItemID(), amounts[i]);
+                } catch (IOException undo) {
+                    e.addSuppressed(undo);
+                }
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public synchronized void uncommitAll(List<InventoryItem> items, int[] amounts) throws IOException {
+        IOException failure = null;
+        for (int i = 0; i < items.size(); i++) {
+            try {
+                uncommit(items.get(i).getItemID(), amounts[i]);
+            } catch (IOException e) {
+                failure = failure == null ? e : failure;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Sets the available quantity of an item, for restocks, and forces its record to disk.
+     *
+     * @param itemID The Item ID
+     * @param quantity The new quantity
+     * @throws IOException If the record cannot be forced to disk; the quantity is set in memory all the same
+     */
+    public synchronized void setQuantity(String itemID, int quantity) throws IOException {
+        Entry entry = resident(itemID);
+        if (entry != null) {
+            entry.item.setQuantity(quantity);
+            writeThrough(entry);
+        }
+    }
+
+    /**
+     * @return The number of items in the catalog
+     */
+    public int size() { return size; }
+
+    /**
+     * @return The most items kept on the heap
+     */
+    public int getHotCapacity() { return hotCapacity; }
+
+    /**
+     * @return The number of items on the heap now; above the capacity only while
+     *         items holding reservations fill it
+     */
+    public synchronized int getHotSize() { return hot.size(); }
+
+    /**
+     * Writes the stock of every hot item back into the file and forces it to disk.
+     * Reserved units are written as still on hand, because open carts do not
+     * survive a restart.
+     */
+    public synchronized void flush() {
+        for (Entry entry : hot.values()) {
+            writeBack(entry);
+        }
+        map.force();
+    }
+
+    /**
+     * Flushes the catalog and closes the file.
+     *
+     * @throws IOException If the file cannot be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        flush();
+        hot.clear();
+        channel.close();
+    }
+
+    /**
+     * @return The hot entry of an item, read from the file and admitted if it is cold,
+     *         or null if the item is not in the catalog; the lock is held
+     */
+    private Entry resident(String itemID) {
+        Entry entry = hot.get(itemID);
+        if (entry != null) {
+            hotHits++;
+            return entry;
+        }
+        int record = findRecord(itemID.getBytes(StandardCharsets.UTF_8));
+        if (record < 0) {
+            misses++;
+            return null;
+        }
+        coldReads++;
+        entry = readRecord(itemID, record);
+        hot.put(itemID, entry);
+        if (hot.size() > hotCapacity) {
+            evict(entry);
+        }
+        return entry;
+    }
+
+    /**
+     * Evicts least recently used items without reservations until the hot tier is
+     * back within its capacity, or only items with reservations are left.
+     *
+     * @param admitted The entry just admitted, which the caller is about to use
+     */
+    private void evict(Entry admitted) {
+        Iterator<Entry> eldest = hot.values().iterator();
+        while (hot.size() > hotCapacity && eldest.hasNext()) {
+            Entry entry = eldest.next();
+            if (entry != admitted && entry.item.getReservedQuantity() == 0) {
+                writeBack(entry);
+                eldest.remove();
+                evictions++;
+            }
+        }
+        // Evicted items leave their descriptions behind; start a new arena once they are most of it
+        if (descriptions.getDescriptionCount() > 2 * hot.size() + 64) {
+            descriptions = new DescriptionArena();
+            for (Entry entry : hot.values()) {
+                entry.item.moveDescription(descriptions);
+            }
+        }
+    }
+
+    /**
+     * Writes an item's in-stock flag, quantity and price into its record.
+     */
+    private void writeBack(Entry entry) {
+        InventoryItem item = entry.item;
+        map.put(entry.stockOffset, (byte) (item.isListedInStock() ? 1 : 0));
+        map.putInt(entry.stockOffset + 1, item.getQuantity() + item.getReservedQuantity());
+        map.putLong(entry.stockOffset + 5, item.getPriceCents());
+    }
+
+    /**
+     * Writes an item's record and forces it to disk.
+     */
+    private void writeThrough(Entry entry) throws IOException {
+        writeBack(entry);
+        try {
+            map.force(entry.stockOffset, STOCK_BYTES);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Builds an item from its record.
+     */
+    private Entry readRecord(String itemID, int record) {
+        int descriptionAt = record + 2 + (map.getShort(record) & 0xFFFF);
+        int descriptionLength = map.getInt(descriptionAt);
+        byte[] description = new byte[descriptionLength];
+        map.get(descriptionAt + 4, description);
+        int stockOffset = descriptionAt + 4 + descriptionLength;
+        InventoryItem item = new InventoryItem(versions, descriptions, itemID, new String(description, StandardCharsets.UTF_8),
+            map.get(stockOffset) != 0, map.getInt(stockOffset + 1), map.getLong(stockOffset + 5));
+        return new Entry(item, stockOffset);
+    }
+
+    /**
+     * Binary-searches the sorted index for an ID.
+     *
+     * @return The offset of the item's record, or -1 if it is not in the file
+     */
+    private int findRecord(byte[] id) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int record = map.getInt(indexOffset + middle * Integer.BYTES);
+            int c = compareId(record, id);
+            if (c < 0) {
+                low = middle + 1;
+            } else if (c > 0) {
+                high = middle - 1;
+            } else {
+                return record;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Compares the ID of a record with an ID, by unsigned bytes as build() sorts them.
+     */
+    private int compareId(int record, byte[] id) {
+        int length = map.getShort(record) & 0xFFFF;
+        int common = Math.min(length, id.length);
+        for (int i = 0; i < common; i++) {
+            int c = Integer.compare(map.get(record + 2 + i) & 0xFF, id[i] & 0xFF);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return Integer.compare(length, id.length);
+    }
+
+    private static void bloomAdd(long[] bits, int hashes, String itemID) {
+        long hash = hash(itemID);
+        long bitCount = (long) bits.length << 6;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Long.remainderUnsigned(hash + i * (hash >>> 32 | 1), bitCount);
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    private static boolean bloomContains(long[] bits, int hashes, String itemID) {
+        long hash = hash(itemID);
+        long bitCount = (long) bits.length << 6;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Long.remainderUnsigned(hash + i * (hash >>> 32 | 1), bitCount);
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long hash(String itemID) {
+        // FNV-1a over the characters, then the MurmurHash3 finalizer
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < itemID.length(); i++) {
+            h = (h ^ itemID.charAt(i)) * 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb3fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Builds a catalog file from an inventory file; Main sells from inventory.catalog
+     * whenever it exists.
+     *
+     * Usage: java TieredCatalog [inventory.csv] [inventory.catalog]
+     */
+    public static void main(String[] args) throws IOException {
+        Path csvPath = Paths.get(args.length > 0 ? args[0] : "inventory.csv");
+        Path path = Paths.get(args.length > 1 ? args[1] : "inventory.catalog");
+        long start = System.nanoTime();
+        build(csvPath, path);
+        try (TieredCatalog catalog = new TieredCatalog(path, 1)) {
+            System.out.printf("Wrote %,d items to %s in %.0f ms%n",
+                catalog.size(), path, (System.nanoTime() - start) / 1e6);
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("Catalog: %,d items, %,d hot of %,d; %,d hot hits, %,d file reads, "
+                + "%,d rejected by the Bloom filter, %,d other misses, %,d evictions",
+            size, hot.size(), hotCapacity, hotHits, coldReads, bloomRejects.sum(), misses, evictions);
+    }
+}
@@ -0,0 +1,629 @@
+/*
+    Name : Colin Kirby
+    Course : CNT 4714 - Spring 2025
+    Assignment Title : Project 1 - An Event-driven Enterprise Simulation
+    Date : Monday, January 20, 2025
+*/
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * A compact, column-oriented copy of the transaction history for analytical
+ * scans, written by export() and read by scan().
+ *
+ * Each order line becomes a row with seven columns: time, Item ID, description,
+ * unit price, quantity, discount percentage and line total. Rows are sorted by
+ * month, then Item ID, then time, and stored in blocks of up to BLOCK_ROWS rows
+ * that never span two months. Each column of a block is encoded on its own:
+ * - Item ID and description: codes into dictionaries kept once per file (Item
+ *   IDs sorted, so codes compare like the IDs), run-length encoded
+ * - time: seconds, as the difference from the previous row
+ * - price: cents, as the difference from the previous row
+ * - quantity, discount and total: whole numbers and cents as variable-length integers
+ *
+ * The footer keeps the smallest and largest time and Item ID code of every block.
+ * A scan for one item or a time range reads only the blocks whose ranges can
+ * contain matching rows; since each month is sorted by Item ID, one item's rows
+ * for a month sit in one or two blocks.
+ *
+ * File layout (big-endian): int magic ("NILX"), int version, long footer offset,
+ * the blocks, then the footer: the Item ID and description dictionaries, and per
+ * block its row count, time range, Item ID code range, offset and column lengths.
+ */
+public class TransactionArchive implements Closeable {
+    /** Identifies an archive file */
+    private static final int MAGIC = 0x4E494C58; // "NILX"
+
+    /** Current format version */
+    private static final int VERSION = 1;
+
+    /** Size of the file header */
+    private static final int HEADER_BYTES = 16;
+
+    /** Most rows in one block */
+    static final int BLOCK_ROWS = 8192;
+
+    /** Number of columns */
+    private static final int COLUMNS = 7;
+
+    /** Fields after the description; counted from the end of a line, since descriptions may hold commas */
+    private static final int TRAILING_FIELDS = 7;
+
+    /**
+     * Receives the rows of a scan.
+     */
+    public interface RowHandler {
+        void row(LocalDateTime time, String itemID, String description, long priceCents, int quantity,
+                 int discountPercent, long totalCents);
+    }
+
+    /** Summary of one block, from the footer */
+    private static class Block {
+        int rows;
+        long minTime;
+        long maxTime;
+        int minItem;
+        int maxItem;
+        long offset;
+        final int[] columnLengths = new int[COLUMNS];
+
+        int length() {
+            int length = 0;
+            for (int column : columnLengths) {
+                length += column;
+            }
+            return length;
+        }
+    }
+
+    /** The open archive file */
+    private final FileChannel channel;
+
+    /** Item IDs, sorted; a row's Item ID code indexes this */
+    private final String[] itemIDs;
+
+    /** Descriptions; a row's description code indexes this */
+    private final String[] descriptions;
+
+    /** The blocks in file order */
+    private final Block[] blocks;
+
+    /** Number of blocks read by scans so far */
+    private long blocksRead;
+
+    /**
+     * Opens an archive written by export().
+     *
+     * @param path The archive file
+     * @throws IOException If the file cannot be read or is not an archive
+     */
+    public TransactionArchive(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            channel.read(header, 0);
+            header.flip();
+            if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Not a transaction archive, or an unsupported version: " + path);
+            }
+            long footerOffset = header.getLong();
+            ByteBuffer footer = ByteBuffer.allocate((int) (channel.size() - footerOffset));
+            while (footer.hasRemaining() && channel.read(footer, footerOffset + footer.position()) > 0) {
+                // Read the whole footer
+            }
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(footer.array()));
+            itemIDs = readStrings(in);
+            descriptions = readStrings(in);
+            blocks = new Block[in.readInt()];
+            for (int i = 0; i < blocks.length; i++) {
+                Block block = new Block();
+                block.rows = in.readInt();
+                block.minTime = in.readLong();
+                block.maxTime = in.readLong();
+                block.minItem = in.readInt();
+                block.maxItem = in.readInt();
+                block.offset = in.readLong();
+                for (int c = 0; c < COLUMNS; c++) {
+                    block.columnLengths[c] = in.readInt();
+                }
+                blocks[i] = block;
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Converts the whole transaction log, every sealed segment and the active
+     * file, into an archive. The rows are sorted in memory, about 50 bytes each.
+     *
+     * @param logPath The active transaction log, e.g. transactions.csv
+     * @param path The archive file to create or replace
+     * @return The number of rows written; lines that cannot be read are skipped
+     * @throws IOException If a file cannot be read or written
+     */
+    public static long export(String logPath, Path path) throws IOException {
+        Path active = Paths.get(logPath).toAbsolutePath();
+        List<Path> files = new ArrayList<>(TransactionJournal.sealedSegments(active).values());
+        if (Files.exists(active)) {
+            files.add(active);
+        }
+
+        Rows rows = new Rows();
+        long skipped = 0;
+        for (Path file : files) {
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.trim().isEmpty() && !rows.add(line)) {
+                        skipped++;
+                    }
+                }
+            }
+        }
+        if (skipped > 0) {
+            System.err.println("Skipped " + skipped + " unreadable transaction lines");
+        }
+        rows.write(path);
+        return rows.size;
+    }
+
+    /**
+     * Reads the rows of one item, or of all items, in a time range. Only blocks
+     * whose time and Item ID ranges overlap the request are read.
+     *
+     * @param itemID The Item ID, or null for every item
+     * @param from The start of the range (inclusive)
+     * @param to The end of the range (exclusive)
+     * @param handler Receives each matching row, by month, Item ID and time
+     * @throws IOException If the file cannot be read
+     */
+    public void scan(String itemID, LocalDateTime from, LocalDateTime to, RowHandler handler) throws IOException {
+        int item = -1;
+        if (itemID != null) {
+            item = Arrays.binarySearch(itemIDs, itemID);
+            if (item < 0) {
+                return;
+            }
+        }
+        long fromTime = from.toEpochSecond(ZoneOffset.UTC);
+        long toTime = to.toEpochSecond(ZoneOffset.UTC);
+        ByteBuffer buffer = ByteBuffer.allocate(0);
+        for (Block block : blocks) {
+            if (block.maxTime < fromTime || block.minTime >= toTime
+                    || (item >= 0 && (item < block.minItem || item > block.maxItem))) {
+                continue;
+            }
+            int length = block.length();
+            if (buffer.capacity() < length) {
+                buffer = ByteBuffer.allocate(length);
+            }
+            buffer.clear().limit(length);
+            while (buffer.hasRemaining() && channel.read(buffer, block.offset + buffer.position()) > 0) {
+                // Read the whole block
+            }
+            synchronized (this) {
+                blocksRead++;
+            }
+            decode(block, buffer.array(), item, fromTime, toTime, handler);
+        }
+    }
+
+    /**
+     * Decodes a block and hands its matching rows to the handler.
+     */
+    private void decode(Block block, byte[] bytes, int item, long fromTime, long toTime, RowHandler handler) {
+        Decoder[] columns = new Decoder[COLUMNS];
+        int position = 0;
+        for (int c = 0; c < COLUMNS; c++) {
+            columns[c] = new Decoder(bytes, position);
+            position += block.columnLengths[c];
+        }
+        Decoder times = columns[0];
+        Decoder items = columns[1];
+        Decoder texts = columns[2];
+        Decoder prices = columns[3];
+        Decoder quantities = columns[4];
+        Decoder discounts = columns[5];
+        Decoder totals = columns[6];
+
+        long time = 0;
+        long price = 0;
+        for (int row = 0; row < block.rows; row++) {
+            time += times.readSigned();
+            int itemCode = items.readRun();
+            int textCode = texts.readRun();
+            price += prices.readSigned();
+            int quantity = (int) quantities.readUnsigned();
+            int discount = (int) discounts.readUnsigned();
+            long total = totals.readUnsigned();
+            if ((item < 0 || itemCode == item) && time >= fromTime && time < toTime) {
+                handler.row(LocalDateTime.ofEpochSecond(time, 0, ZoneOffset.UTC), itemIDs[itemCode],
+                    descriptions[textCode], price, quantity, discount, total);
+            }
+        }
+    }
+
+    /**
+     * @return The number of blocks in the archive
+     */
+    public int getBlockCount() {
+        return blocks.length;
+    }
+
+    /**
+     * @return The number of blocks read by scans so far
+     */
+    public synchronized long getBlocksRead() {
+        return blocksRead;
+    }
+
+    /**
+     * @return The number of rows in the archive
+     */
+    public long getRowCount() {
+        long rows = 0;
+        for (Block block : blocks) {
+            rows += block.rows;
+        }
+        return rows;
+    }
+
+    /**
+     * Closes the archive file.
+     *
+     * @throws IOException If the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Exports transactions.csv to transactions.archive, or the given files.
+     *
+     * Usage: java TransactionArchive [transactions.csv] [transactions.archive]
+     */
+    public static void main(String[] args) throws IOException {
+        String logPath = args.length > 0 ? args[0] : OrderEngine.TRANSACTIONS_FILE;
+        Path path = Paths.get(args.length > 1 ? args[1] : "transactions.archive");
+        long start = System.nanoTime();
+        long rows = export(logPath, path);
+        System.out.printf("Wrote %,d rows to %s (%,d bytes) in %.0f ms%n",
+            rows, path, Files.size(path), (System.nanoTime() - start) / 1e6);
+    }
+
+    private static String[] readStrings(DataInputStream in) throws IOException {
+        String[] strings = new String[in.readInt()];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = in.readUTF();
+        }
+        return strings;
+    }
+
+    /**
+     * The rows of an export, gathered in columns before sorting
+     */
+    private static class Rows {
+        int size;
+        long[] times = new long[1024];
+        String[] items = new String[1024];
+        String[] texts = new String[1024];
+        long[] prices = new long[1024];
+        int[] quantities = new int[1024];
+        byte[] discounts = new byte[1024];
+        long[] totals = new long[1024];
+
+        /** One String per distinct Item ID and description, shared by their rows */
+        final HashMap<String, String> strings = new HashMap<>();
+
+        /**
+         * Parses one transaction line and adds it.
+         *
+         * @return False if the line is not a transaction line
+         */
+        boolean add(String line) {
+            int[] commas = new int[TRAILING_FIELDS];
+            int found = 0;
+            for (int i = line.length() - 1; i >= 0 && found < TRAILING_FIELDS; i--) {
+                if (line.charAt(i) == ',') {
+                    commas[found++] = i;
+                }
+            }
+            int firstComma = line.indexOf(',');
+            int secondComma = firstComma < 0 ? -1 : line.indexOf(',', firstComma + 1);
+            if (found < TRAILING_FIELDS || secondComma < 0 || secondComma >= commas[TRAILING_FIELDS - 1]) {
+                return false;
+            }
+            try {
+                String id = line.substring(0, firstComma).trim();
+                LocalDateTime time = LocalDateTime.of(
+                    Integer.parseInt(id.substring(4, 8)), Integer.parseInt(id.substring(2, 4)),
+                    Integer.parseInt(id.substring(0, 2)), Integer.parseInt(id.substring(8, 10)),
+                    Integer.parseInt(id.substring(10, 12)), Integer.parseInt(id.substring(12, 14)));
+                String text = line.substring(secondComma + 1, commas[6]).trim();
+                if (text.length() >= 2 && text.startsWith("\"") && text.endsWith("\"")) {
+                    text = text.substring(1, text.length() - 1);
+                }
+                long price = Money.ofDollars(Double.parseDouble(line.substring(commas[6] + 1, commas[5]).trim()));
+                int quantity = Integer.parseInt(line.substring(commas[5] + 1, commas[4]).trim());
+                double rate = Double.parseDouble(line.substring(commas[4] + 1, commas[3]).trim());
+                long total = Money.ofDollars(Double.parseDouble(
+                    line.substring(commas[3] + 1, commas[2]).trim().replace("$", "")));
+                if (id.length() != 14 || quantity < 0 || price < 0 || total < 0) {
+                    return false;
+                }
+
+                if (size == times.length) {
+                    grow();
+                }
+                times[size] = time.toEpochSecond(ZoneOffset.UTC);
+                items[size] = strings.computeIfAbsent(line.substring(firstComma + 1, secondComma).trim(), s -> s);
+                texts[size] = strings.computeIfAbsent(text, s -> s);
+                prices[size] = price;
+                quantities[size] = quantity;
+                discounts[size] = (byte) Math.round(rate * 100);
+                totals[size] = total;
+                size++;
+                return true;
+            } catch (RuntimeException e) {
+                return false; // A malformed number or date
+            }
+        }
+
+        private void grow() {
+            int capacity = times.length * 2;
+            times = Arrays.copyOf(times, capacity);
+            items = Arrays.copyOf(items, capacity);
+            texts = Arrays.copyOf(texts, capacity);
+            prices = Arrays.copyOf(prices, capacity);
+            quantities = Arrays.copyOf(quantities, capacity);
+            discounts = Arrays.copyOf(discounts, capacity);
+            totals = Arrays.copyOf(totals, capacity);
+        }
+
+        /**
+         * Sorts the rows and writes them as an archive.
+         */
+        void write(Path path) throws IOException {
+            // Dictionaries: Item IDs sorted so their codes keep the order; descriptions as met
+            HashSet<String> distinct = new HashSet<>(Arrays.asList(items).subList(0, size));
+            String[] itemIDs = distinct.toArray(new String[0]);
+            Arrays.sort(itemIDs);
+            HashMap<String, Integer> itemCodes = new HashMap<>();
+            for (int i = 0; i < itemIDs.length; i++) {
+                itemCodes.put(itemIDs[i], i);
+            }
+            int[] itemCode = new int[size];
+            for (int i = 0; i < size; i++) {
+                itemCode[i] = itemCodes.get(items[i]);
+            }
+
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> {
+                int c = Long.compare(month(times[a]), month(times[b]));
+                if (c == 0) {
+                    c = Integer.compare(itemCode[a], itemCode[b]);
+                }
+                return c != 0 ? c : Long.compare(times[a], times[b]);
+            });
+
+            HashMap<String, Integer> textCodes = new HashMap<>();
+            List<String> textDictionary = new ArrayList<>();
+            List<Block> written = new ArrayList<>();
+            Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+            try (FileOutputStream file = new FileOutputStream(temp.toFile());
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+                out.write(new byte[HEADER_BYTES]);
+                long position = HEADER_BYTES;
+                Encoder[] columns = new Encoder[COLUMNS];
+                for (int c = 0; c < COLUMNS; c++) {
+                    columns[c] = new Encoder();
+                }
+
+                int start = 0;
+                while (start < size) {
+                    int end = start + 1;
+                    long month = month(times[order[start]]);
+                    while (end < size && end - start < BLOCK_ROWS && month(times[order[end]]) == month) {
+                        end++;
+                    }
+
+                    Block block = new Block();
+                    block.rows = end - start;
+                    block.minTime = Long.MAX_VALUE;
+                    block.maxTime = Long.MIN_VALUE;
+                    block.minItem = itemCode[order[start]];
+                    block.maxItem = itemCode[order[end - 1]];
+                    block.offset = position;
+                    for (Encoder column : columns) {
+                        column.reset();
+                    }
+                    long previousTime = 0;
+                    long previousPrice = 0;
+                    for (int r = start; r < end; r++) {
+                        int i = order[r];
+                        block.minTime = Math.min(block.minTime, times[i]);
+                        block.maxTime = Math.max(block.maxTime, times[i]);
+                        columns[0].writeSigned(times[i] - previousTime);
+                        columns[1].writeRun(itemCode[i]);
+                        columns[2].writeRun(textCodes.computeIfAbsent(texts[i], text -> {
+                            textDictionary.add(text);
+                            return textDictionary.size() - 1;
+                        }));
+                        columns[3].writeSigned(prices[i] - previousPrice);
+                        columns[4].writeUnsigned(quantities[i]);
+                        columns[5].writeUnsigned(discounts[i]);
+                        columns[6].writeUnsigned(totals[i]);
+                        previousTime = times[i];
+                        previousPrice = prices[i];
+                    }
+                    for (int c = 0; c < COLUMNS; c++) {
+                        columns[c].finish();
+                        block.columnLengths[c] = columns[c].size();
+                        columns[c].writeTo(out);
+                        position += columns[c].size();
+                    }
+                    written.add(block);
+                    start = end;
+                }
+
+                long footerOffset = position;
+                writeStrings(out, itemIDs);
+                writeStrings(out, textDictionary.toArray(new String[0]));
+                out.writeInt(written.size());
+                for (Block block : written) {
+                    out.writeInt(block.rows);
+                    out.writeLong(block.minTime);
+                    out.writeLong(block.maxTime);
+                    out.writeInt(block.minItem);
+                    out.writeInt(block.maxItem);
+                    out.writeLong(block.offset);
+                    for (int length : block.columnLengths) {
+                        out.writeInt(length);
+                    }
+                }
+                out.flush();
+
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+                header.putInt(MAGIC).putInt(VERSION).putLong(footerOffset).flip();
+                file.getChannel().write(header, 0);
+                file.getChannel().force(true);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        /**
+         * @return The month of a time in seconds, as months since 1970
+         */
+        private static long month(long time) {
+            LocalDateTime date = LocalDateTime.ofEpochSecond(time, 0, ZoneOffset.UTC);
+            return (date.getYear() - 1970) * 12L + date.getMonthValue() - 1;
+        }
+
+        private static void writeStrings(DataOutputStream out, String[] strings) throws IOException {
+            out.writeInt(strings.length);
+            for (String string : strings) {
+                out.writeUTF(string);
+            }
+        }
+    }
+
+    /**
+     * Writes one column of a block: variable-length integers, 7 bits per byte,
+     * and runs of repeated codes as (code, length) pairs.
+     */
+    private static class Encoder extends ByteArrayOutputStream {
+        private int runCode = -1;
+        private int runLength;
+
+        void writeUnsigned(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) (value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        void writeSigned(long value) {
+            writeUnsigned((value << 1) ^ (value >> 63)); // Zigzag, so small negatives stay short
+        }
+
+        void writeRun(int code) {
+            if (code == runCode) {
+                runLength++;
+                return;
+            }
+            finish();
+            runCode = code;
+            runLength = 1;
+        }
+
+        /**
+         * Writes the pending run, if any.
+         */
+        void finish() {
+            if (runLength > 0) {
+                writeUnsigned(runCode);
+                writeUnsigned(runLength);
+            }
+            runCode = -1;
+            runLength = 0;
+        }
+
+        @Override
+        public void reset() {
+            super.reset();
+            runCode = -1;
+            runLength = 0;
+        }
+    }
+
+    /**
+     * Reads one column of a block written by Encoder.
+     */
+    private static class Decoder {
+        private final byte[] bytes;
+        private int position;
+        private int runCode;
+        private long runLeft;
+
+        Decoder(byte[] bytes, int position) {
+            this.bytes = bytes;
+            this.position = position;
+        }
+
+        long readUnsigned() {
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = bytes[position++];
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+
+        long readSigned() {
+            long value = readUnsigned();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        int readRun() {
+            if (runLeft == 0) {
+                runCode = (int) readUnsigned();
+                runLeft = readUnsigned();
+            }
+            runLeft--;
+            return runCode;
+        }
+    }
+}
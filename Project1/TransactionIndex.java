@@ -0,0 +1,422 @@
+/*
+    Name : Colin Kirby
+    Course : CNT 4714 - Spring 2025
+    Assignment Title : Project 1 - An Event-driven Enterprise Simulation
+    Date : Monday, January 20, 2025
+*/
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+/**
+ * Sidecar index of one transactions.csv segment: for every order in the segment,
+ * its transaction time and the byte offset of its first line.
+ *
+ * Transaction IDs are ddMMyyyyHHmmss, which does not sort by time, so the index
+ * stores each ID as the number yyyyMMddHHmmss instead. Several orders may share
+ * a key (the ID only has one-second resolution).
+ *
+ * The index file sits next to its segment with ".idx" appended to the name and
+ * holds 16-byte entries: long key, long offset. The journal writes the index
+ * after the segment data, so after a crash the index may be missing entries at
+ * the end; the journal's repair() scans the tail of the segment to add them, and
+ * load() finds them the same way without writing anything.
+ */
+public class TransactionIndex {
+    /** Bytes per index entry */
+    static final int ENTRY_SIZE = 16;
+
+    /** Length of a transaction ID (ddMMyyyyHHmmss) */
+    private static final int ID_LENGTH = 14;
+
+    /** Size of the buffer a segment is scanned through */
+    private static final int SCAN_BUFFER_SIZE = 1 << 20;
+
+    /** Entry keys in ascending order */
+    private final long[] keys;
+
+    /** Segment offsets, parallel to keys */
+    private final long[] offsets;
+
+    private TransactionIndex(long[] keys, long[] offsets) {
+        this.keys = keys;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Loads the index of a segment. If the index is missing or behind the segment
+     * data, the missing entries are found by scanning the data, in memory only:
+     * the index file of the active segment belongs to the journal writer, so a
+     * reader never writes it.
+     *
+     * @param segment The segment file
+     * @return The index, sorted by key
+     * @throws IOException If the segment or index cannot be read
+     */
+    public static TransactionIndex load(Path segment) throws IOException {
+        Path indexFile = indexPath(segment);
+        try (FileChannel data = FileChannel.open(segment, StandardOpenOption.READ)) {
+            // Whole entries only; the writer may be in the middle of appending one
+            long[] keys = new long[0];
+            long[] offsets = new long[0];
+            int count = 0;
+            if (Files.exists(indexFile)) {
+                try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+                    count = (int) (channel.size() / ENTRY_SIZE);
+                    keys = new long[count];
+                    offsets = new long[count];
+                    ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, (long) count * ENTRY_SIZE);
+                    for (int i = 0; i < count; i++) {
+                        keys[i] = buffer.getLong();
+                        offsets[i] = buffer.getLong();
+                    }
+                }
+            }
+
+            // Rescan from the last indexed order, which is then skipped
+            long skipOffset = count > 0 ? offsets[count - 1] : -1;
+            if (skipOffset >= data.size()) {
+                // The index belongs to older data (e.g. a rotation was interrupted)
+                count = 0;
+                skipOffset = -1;
+            }
+            long[] record = new long[2];
+            Scanner scanner = new Scanner(data, Math.max(skipOffset, 0));
+            while (scanner.next(record)) {
+                if (record[1] == skipOffset) {
+                    continue;
+                }
+                if (count == keys.length) {
+                    keys = Arrays.copyOf(keys, Math.max(16, count * 2));
+                    offsets = Arrays.copyOf(offsets, keys.length);
+                }
+                keys[count] = record[0];
+                offsets[count] = record[1];
+                count++;
+            }
+            if (count < keys.length) {
+                keys = Arrays.copyOf(keys, count);
+                offsets = Arrays.copyOf(offsets, count);
+            }
+
+            boolean sorted = true;
+            for (int i = 1; i < count && sorted; i++) {
+                sorted = keys[i - 1] <= keys[i];
+            }
+            if (!sorted) {
+                // Orders from concurrent checkouts can reach the log slightly out of order
+                sortByKey(keys, offsets);
+            }
+            return new TransactionIndex(keys, offsets);
+        }
+    }
+
+    /**
+     * Brings the index of a segment up to date with the segment data, creating it
+     * if it does not exist. Any torn entry at the end of the index is dropped. Only
+     * the journal calls this, before it starts appending to the segment.
+     *
+     * @param segment The segment file
+     * @return The segment size that the index now covers
+     * @throws IOException If the files cannot be read or written
+     */
+    static long repair(Path segment) throws IOException {
+        Path indexFile = indexPath(segment);
+        try (FileChannel data = FileChannel.open(segment, StandardOpenOption.READ);
+             FileChannel index = FileChannel.open(indexFile,
+                 StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long entries = index.size() / ENTRY_SIZE;
+            index.truncate(entries * ENTRY_SIZE);
+
+            // Rescan from the last indexed order, which is then skipped
+            long scanFrom = 0;
+            long skipOffset = -1;
+            if (entries > 0) {
+                ByteBuffer last = ByteBuffer.allocate(ENTRY_SIZE);
+                index.read(last, (entries - 1) * ENTRY_SIZE);
+                last.flip();
+                last.getLong();
+                skipOffset = last.getLong();
+                scanFrom = skipOffset;
+            }
+            if (skipOffset >= data.size()) {
+                // The index belongs to older data (e.g. a rotation was interrupted); rebuild it
+                index.truncate(0);
+                scanFrom = 0;
+                skipOffset = -1;
+            }
+
+            ByteBuffer out = ByteBuffer.allocate(ENTRY_SIZE * 4096);
+            index.position(index.size());
+            long[] record = new long[2];
+            Scanner scanner = new Scanner(data, scanFrom);
+            while (scanner.next(record)) {
+                if (record[1] == skipOffset) {
+                    continue;
+                }
+                if (!out.hasRemaining()) {
+                    out.flip();
+                    while (out.hasRemaining()) {
+                        index.write(out);
+                    }
+                    out.clear();
+                }
+                out.putLong(record[0]);
+                out.putLong(record[1]);
+            }
+            out.flip();
+            while (out.hasRemaining()) {
+                index.write(out);
+            }
+            return data.size();
+        }
+    }
+
+    /**
+     * Reads a segment forward once, through one large buffer, and reports the
+     * orders in it. A line starts an order if it starts with a transaction ID and
+     * follows a blank line or the start of the segment.
+     */
+    private static final class Scanner {
+        /** The segment file */
+        private final FileChannel data;
+
+        /** The segment size when the scan started; data appended later is not scanned */
+        private long size;
+
+        /** A window on the segment; array index 0 is at bufferStart */
+        private final ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+
+        /** The segment position of the start of the buffer */
+        private long bufferStart;
+
+        /** The start of the next line to scan */
+        private long position;
+
+        /** Whether the line before position is blank, so an order can start there */
+        private boolean afterBlankLine;
+
+        /**
+         * @param data The segment file
+         * @param position Where to start scanning; must be at the start of a line
+         */
+        Scanner(FileChannel data, long position) throws IOException {
+            this.data = data;
+            this.size = data.size();
+            this.position = position;
+            if (position < 2) {
+                buffer.limit(0);
+                afterBlankLine = true;
+            } else {
+                fill(position - 2);
+                afterBlankLine = buffer.limit() >= 2 && buffer.get(0) == '\n' && buffer.get(1) == '\n';
+            }
+        }
+
+        /**
+         * Finds the next order.
+         *
+         * @param record Receives {key, offset} of the order found
+         * @return False at the end of the segment
+         */
+        boolean next(long[] record) throws IOException {
+            byte[] bytes = buffer.array();
+            while (position < size) {
+                long lineStart = position;
+                int at = (int) (lineStart - bufferStart);
+                if (at < 0 || at + ID_LENGTH > buffer.limit()) {
+                    // Keep the whole ID in the buffer, unless the segment ends first
+                    fill(lineStart);
+                    at = 0;
+                }
+                long key = at + ID_LENGTH <= buffer.limit() ? key(bytes, at) : -1;
+
+                // Find the end of the line, reading on if it is longer than the buffer
+                long lineEnd = -1;
+                while (lineEnd < 0) {
+                    int limit = buffer.limit();
+                    for (int i = at; i < limit; i++) {
+                        if (bytes[i] == '\n') {
+                            lineEnd = bufferStart + i;
+                            break;
+                        }
+                    }
+                    if (lineEnd < 0) {
+                        long next = bufferStart + limit;
+                        if (next >= size || !fill(next)) {
+                            lineEnd = size;
+                        }
+                        at = 0;
+                    }
+                }
+
+                boolean orderStart = afterBlankLine;
+                afterBlankLine = lineEnd == lineStart;
+                position = Math.min(lineEnd + 1, size);
+                if (key >= 0 && orderStart) {
+                    record[0] = key;
+                    record[1] = lineStart;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Moves the buffer to start at a segment position and fills it.
+         *
+         * @return False if nothing could be read there, i.e. the segment was truncated
+         */
+        private boolean fill(long from) throws IOException {
+            buffer.clear();
+            long end = Math.min(size, from + buffer.capacity());
+            while (from + buffer.position() < end) {
+                if (data.read(buffer, from + buffer.position()) < 0) {
+                    // Shorter than when the scan started
+                    size = from + buffer.position();
+                    break;
+                }
+            }
+            buffer.flip();
+            bufferStart = from;
+            return buffer.hasRemaining();
+        }
+    }
+
+    /**
+     * Converts the transaction ID at a position in a byte array to a sortable key.
+     *
+     * @return The key, or -1 if the bytes there are not a transaction ID
+     */
+    private static long key(byte[] id, int start) {
+        for (int i = 0; i < ID_LENGTH; i++) {
+            byte b = id[start + i];
+            if (b < '0' || b > '9') {
+                return -1;
+            }
+        }
+        long day = digits(id, start, 2);
+        long month = digits(id, start + 2, 2);
+        long yearAndTime = digits(id, start + 4, 10);
+        long year = yearAndTime / 1_000_000;
+        return ((year * 100 + month) * 100 + day) * 1_000_000 + yearAndTime % 1_000_000;
+    }
+
+    private static long digits(byte[] bytes, int from, int count) {
+        long value = 0;
+        for (int i = 0; i < count; i++) {
+            value = value * 10 + (bytes[from + i] - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Converts a transaction ID (ddMMyyyyHHmmss) to its index key (yyyyMMddHHmmss).
+     *
+     * @param transactionId The transaction ID
+     * @return The key, or -1 if the ID is not in the expected format
+     */
+    public static long key(String transactionId) {
+        if (transactionId.length() != ID_LENGTH) {
+            return -1;
+        }
+        return key(transactionId.getBytes(java.nio.charset.StandardCharsets.US_ASCII), 0);
+    }
+
+    /**
+     * @param time A point in time
+     * @return The index key of a transaction at that time (to the second)
+     */
+    public static long key(LocalDateTime time) {
+        return ((time.getYear() * 100L + time.getMonthValue()) * 100 + time.getDayOfMonth()) * 1_000_000
+            + time.getHour() * 10_000L + time.getMinute() * 100L + time.getSecond();
+    }
+
+    /**
+     * @param segment A segment file
+     * @return The path of its index file
+     */
+    public static Path indexPath(Path segment) {
+        return segment.resolveSibling(segment.getFileName() + ".idx");
+    }
+
+    /**
+     * @return The number of orders in the index
+     */
+    public int size() {
+        return keys.length;
+    }
+
+    /**
+     * @return The smallest key in the index, or Long.MAX_VALUE if it is empty
+     */
+    public long firstKey() {
+        return keys.length == 0 ? Long.MAX_VALUE : keys[0];
+    }
+
+    /**
+     * @return The largest key in the index, or Long.MIN_VALUE if it is empty
+     */
+    public long lastKey() {
+        return keys.length == 0 ? Long.MIN_VALUE : keys[keys.length - 1];
+    }
+
+    /**
+     * @param key A key
+     * @return The position of the first entry with a key at or above the given key
+     */
+    public int lowerBound(long key) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @param position An entry position
+     * @return The key of that entry
+     */
+    public long keyAt(int position) {
+        return keys[position];
+    }
+
+    /**
+     * @param position An entry position
+     * @return The segment offset of that entry's order
+     */
+    public long offsetAt(int position) {
+        return offsets[position];
+    }
+
+    /**
+     * Sorts both arrays by key; equal keys keep their file order.
+     */
+    private static void sortByKey(long[] keys, long[] offsets) {
+        Integer[] order = new Integer[keys.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> keys[a] != keys[b] ? Long.compare(keys[a], keys[b]) : Long.compare(offsets[a], offsets[b]));
+        long[] sortedKeys = new long[keys.length];
+        long[] sortedOffsets = new long[keys.length];
+        for (int i = 0; i < order.length; i++) {
+            sortedKeys[i] = keys[order[i]];
+            sortedOffsets[i] = offsets[order[i]];
+        }
+        System.arraycopy(sortedKeys, 0, keys, 0, keys.length);
+        System.arraycopy(sortedOffsets, 0, offsets, 0, offsets.length);
+    }
+}
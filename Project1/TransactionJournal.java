@@ -0,0 +1,447 @@
+/*
+    Name : Colin Kirby
+    Course : CNT 4714 - Spring 2025
+    Assignment Title : Project 1 - An Event-driven Enterprise Simulation
+    Date : Monday, January 20, 2025
+*/
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Append-only journal for transactions.csv with group commit.
+ *
+ * Callers hand records to append() and get a future back right away. A single
+ * background writer thread takes every record that is waiting, writes the whole
+ * batch with one channel write, optionally forces it to disk, and then hands the
+ * futures of the batch to a second thread to complete, so whatever the callers
+ * chain onto them never delays the next batch. Under load, many orders share one
+ * write and one fsync.
+ *
+ * Records appended with an index key also get an entry in the segment's
+ * TransactionIndex, written after the data. The journal can rotate its file by
+ * size and by age: the active file (e.g. transactions.csv) is renamed to the next
+ * sealed segment (transactions.000001.csv, transactions.000002.csv, ...) together
+ * with its index, and a new active file is started. TransactionReader reads the
+ * segments back through their indexes.
+ *
+ * If a failed rotation leaves no file to write to, the journal fails: every
+ * queued and later record completes exceptionally with the cause.
+ */
+public class TransactionJournal implements Closeable {
+    /** Most records written in one batch */
+    private static final int MAX_BATCH_RECORDS = 4096;
+
+    /** Number of digits in a sealed segment's sequence number */
+    private static final int SEQUENCE_DIGITS = 6;
+
+    /** A record waiting to be written, and the future to complete once it is durable */
+    private static class Entry {
+        final byte[] bytes;
+        final long key;
+        final CompletableFuture<Void> done;
+
+        Entry(byte[] bytes, long key, CompletableFuture<Void> done) {
+            this.bytes = bytes;
+            this.key = key;
+            this.done = done;
+        }
+    }
+
+    /** Marks the end of the queue when the journal is closed */
+    private static final Entry CLOSE = new Entry(new byte[0], -1, null);
+
+    /** The active journal file */
+    private final Path path;
+
+    /** Size at which the active file is rotated */
+    private final long maxSegmentBytes;
+
+    /** Age at which the active file is rotated, in nanoseconds */
+    private final long maxSegmentAgeNanos;
+
+    /** The active journal file, opened for appending; used only by the writer thread after construction */
+    private FileChannel channel;
+
+    /** The index of the active file, opened for appending */
+    private FileChannel indexChannel;
+
+    /** Current size of the active file */
+    private long segmentSize;
+
+    /** When the active file was opened, from System.nanoTime() */
+    private long segmentOpened;
+
+    /** Whether every batch is forced to disk before its futures complete */
+    private final boolean syncEachBatch;
+
+    /** Records waiting for the writer thread */
+    private final BlockingQueue<Entry> queue = new LinkedBlockingQueue<>();
+
+    /** The background writer */
+    private final Thread writer;
+
+    /** Completes the futures of written batches, off the writer thread */
+    private final ExecutorService completions;
+
+    /** Reused batch buffer */
+    private ByteBuffer batchBuffer = ByteBuffer.allocateDirect(1 << 16);
+
+    /** Reused buffer for the index entries of a batch */
+    private ByteBuffer indexBuffer = ByteBuffer.allocateDirect(TransactionIndex.ENTRY_SIZE * 1024);
+
+    /** Set once close() has been called; guarded by queue, so nothing is queued after CLOSE */
+    private boolean closed = false;
+
+    /** Why the journal can no longer be written, or null while it is working; guarded by queue */
+    private IOException failure;
+
+    /**
+     * Opens (or creates) a journal file that is never rotated and starts its writer thread.
+     *
+     * @param path The file to append to
+     * @param syncEachBatch Whether to fsync each batch before reporting it durable
+     * @throws IOException If the file cannot be opened
+     */
+    public TransactionJournal(String path, boolean syncEachBatch) throws IOException {
+        this(path, syncEachBatch, Long.MAX_VALUE, null);
+    }
+
+    /**
+     * Opens (or creates) a journal file and starts its writer thread. The index of
+     * an existing file is brought up to date first.
+     *
+     * @param path The active file to append to
+     * @param syncEachBatch Whether to fsync each batch before reporting it durable
+     * @param maxSegmentBytes Size at which the file is rotated
+     * @param maxSegmentAge Age at which the file is rotated, or null to rotate by size only
+     * @throws IOException If the file or its index cannot be opened
+     */
+    public TransactionJournal(String path, boolean syncEachBatch, long maxSegmentBytes, Duration maxSegmentAge)
+            throws IOException {
+        this.path = Paths.get(path).toAbsolutePath();
+        this.syncEachBatch = syncEachBatch;
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.maxSegmentAgeNanos = maxSegmentAge == null ? Long.MAX_VALUE : maxSegmentAge.toNanos();
+        openSegment();
+        this.completions = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "transaction-journal-completions");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.writer = new Thread(this::writeLoop, "transaction-journal");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Queues text to be appended to the journal.
+     *
+     * @param text The record text, including its line endings
+     * @return A future that completes once the batch holding the record has been
+     *         written (and forced to disk if syncing is on), or completes
+     *         exceptionally if the write failed
+     */
+    public CompletableFuture<Void> append(String text) {
+        return append(text, -1);
+    }
+
+    /**
+     * Queues an order to be appended to the journal and indexed.
+     *
+     * @param text The record text, including its line endings
+     * @param key The index key of the record (see TransactionIndex.key), or -1 to not index it
+     * @return A future that completes once the batch holding the record has been
+     *         written (and forced to disk if syncing is on), or completes
+     *         exceptionally if the write failed
+     */
+    public CompletableFuture<Void> append(String text, long key) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        Entry entry = new Entry(text.getBytes(StandardCharsets.UTF_8), key, done);
+        synchronized (queue) {
+            if (closed || failure != null) {
+                done.completeExceptionally(closed ? new IOException("Transaction journal is closed") : failure);
+                return done;
+            }
+            queue.add(entry);
+        }
+        return done;
+    }
+
+    /**
+     * Writes everything already queued, stops the writer thread and closes the file.
+     *
+     * @throws IOException If the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (queue) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            queue.add(CLOSE);
+        }
+        try {
+            writer.join();
+            completions.shutdown();
+            completions.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+        indexChannel.close();
+    }
+
+    /**
+     * Body of the writer thread: waits for records, then writes them in batches.
+     */
+    private void writeLoop() {
+        List<Entry> batch = new ArrayList<>();
+        boolean running = true;
+        while (running) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                break;
+            }
+            queue.drainTo(batch, MAX_BATCH_RECORDS - 1);
+
+            int closeIndex = batch.indexOf(CLOSE);
+            if (closeIndex >= 0) {
+                // Everything queued before close() still gets written
+                running = false;
+                batch.remove(closeIndex);
+                queue.drainTo(batch);
+                batch.remove(CLOSE);
+            }
+
+            writeBatch(batch);
+            batch.clear();
+        }
+
+        // Nothing more will be written; fail whatever is left rather than leave it waiting
+        IOException stopped;
+        synchronized (queue) {
+            stopped = failure != null ? failure : new IOException("Transaction journal is closed");
+            queue.drainTo(batch);
+            batch.remove(CLOSE);
+        }
+        completeAll(batch, stopped);
+    }
+
+    /**
+     * Writes one batch with a single channel write and completes its futures.
+     */
+    private void writeBatch(List<Entry> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        int size = 0;
+        for (Entry entry : batch) {
+            size += entry.bytes.length;
+        }
+        if (batchBuffer.capacity() < size) {
+            batchBuffer = ByteBuffer.allocateDirect(Math.max(size, batchBuffer.capacity() * 2));
+        }
+        if (indexBuffer.capacity() < batch.size() * TransactionIndex.ENTRY_SIZE) {
+            indexBuffer = ByteBuffer.allocateDirect(batch.size() * TransactionIndex.ENTRY_SIZE);
+        }
+        batchBuffer.clear();
+        indexBuffer.clear();
+        for (Entry entry : batch) {
+            if (entry.key >= 0) {
+                indexBuffer.putLong(entry.key);
+                indexBuffer.putLong(segmentSize + batchBuffer.position());
+            }
+            batchBuffer.put(entry.bytes);
+        }
+        batchBuffer.flip();
+        indexBuffer.flip();
+
+        IOException stopped = failure();
+        if (stopped != null) {
+            completeAll(batch, stopped);
+            return;
+        }
+
+        long written = 0;
+        try {
+            while (batchBuffer.hasRemaining()) {
+                written += channel.write(batchBuffer);
+            }
+            if (syncEachBatch) {
+                channel.force(false);
+            }
+            segmentSize += size;
+            completeAll(batch, null);
+        } catch (IOException e) {
+            // The batch is reported as failed, so take back whatever part of it reached the file
+            try {
+                channel.truncate(segmentSize);
+            } catch (IOException truncateError) {
+                segmentSize += written;
+            }
+            completeAll(batch, e);
+            return;
+        }
+
+        // The index can always be rebuilt from the data, so it is neither synced nor fatal
+        try {
+            while (indexBuffer.hasRemaining()) {
+                indexChannel.write(indexBuffer);
+            }
+        } catch (IOException e) {
+            System.err.println("Error updating transaction index: " + e.getMessage());
+        }
+
+        if (segmentSize >= maxSegmentBytes || System.nanoTime() - segmentOpened >= maxSegmentAgeNanos) {
+            try {
+                rotate();
+            } catch (IOException e) {
+                reopenAfterFailedRotation(e);
+            }
+        }
+    }
+
+    /**
+     * Hands the futures of a batch to the completion thread.
+     *
+     * @param error The failure to complete them with, or null if the batch is durable
+     */
+    private void completeAll(List<Entry> batch, IOException error) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<CompletableFuture<Void>> futures = new ArrayList<>(batch.size());
+        for (Entry entry : batch) {
+            futures.add(entry.done);
+        }
+        completions.execute(() -> {
+            for (CompletableFuture<Void> done : futures) {
+                if (error == null) {
+                    done.complete(null);
+                } else {
+                    done.completeExceptionally(error);
+                }
+            }
+        });
+    }
+
+    /**
+     * After a rotation failed, goes on appending to whichever active file is left:
+     * the old one if it was not moved, or a new one if it was. If even that cannot
+     * be opened, the journal fails.
+     */
+    private void reopenAfterFailedRotation(IOException cause) {
+        System.err.println("Error rotating transaction log: " + cause.getMessage());
+        try {
+            channel.close();
+            indexChannel.close();
+            openSegment();
+        } catch (IOException e) {
+            System.err.println("Error reopening transaction log, no more orders can be recorded: " + e.getMessage());
+            IOException failed = new IOException("Transaction journal failed: " + e.getMessage(), e);
+            synchronized (queue) {
+                failure = failed;
+            }
+        }
+    }
+
+    /**
+     * @return Why the journal can no longer be written, or null while it is working
+     */
+    private IOException failure() {
+        synchronized (queue) {
+            return failure;
+        }
+    }
+
+    /**
+     * Opens the active file and its index, repairing the index if it is behind.
+     */
+    private void openSegment() throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        segmentSize = TransactionIndex.repair(path);
+        indexChannel = FileChannel.open(TransactionIndex.indexPath(path),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        segmentOpened = System.nanoTime();
+    }
+
+    /**
+     * Seals the active file as the next numbered segment and starts a new one.
+     * The index is moved first: if the process stops in between, the active
+     * file's index is simply rebuilt on the next start.
+     */
+    private void rotate() throws IOException {
+        channel.close();
+        indexChannel.close();
+
+        long sequence = sealedSegments(path).isEmpty() ? 1 : sealedSegments(path).lastKey() + 1;
+        Path sealed = segmentPath(path, sequence);
+        Files.move(TransactionIndex.indexPath(path), TransactionIndex.indexPath(sealed),
+            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.move(path, sealed, StandardCopyOption.ATOMIC_MOVE);
+        openSegment();
+    }
+
+    /**
+     * @param active The active journal file, e.g. transactions.csv
+     * @param sequence A segment number
+     * @return The sealed segment with that number, e.g. transactions.000001.csv
+     */
+    static Path segmentPath(Path active, long sequence) {
+        String name = active.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String stem = dot > 0 ? name.substring(0, dot) : name;
+        String extension = dot > 0 ? name.substring(dot) : "";
+        return active.resolveSibling(String.format("%s.%0" + SEQUENCE_DIGITS + "d%s", stem, sequence, extension));
+    }
+
+    /**
+     * Lists the sealed segments of a journal.
+     *
+     * @param active The active journal file
+     * @return The sealed segments keyed by sequence number
+     * @throws IOException If the directory cannot be listed
+     */
+    static TreeMap<Long, Path> sealedSegments(Path active) throws IOException {
+        active = active.toAbsolutePath();
+        String name = active.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String stem = dot > 0 ? name.substring(0, dot) : name;
+        String extension = dot > 0 ? name.substring(dot) : "";
+
+        TreeMap<Long, Path> segments = new TreeMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(active.getParent(), stem + ".*" + extension)) {
+            for (Path file : files) {
+                String fileName = file.getFileName().toString();
+                String number = fileName.substring(stem.length() + 1, fileName.length() - extension.length());
+                if (number.length() == SEQUENCE_DIGITS && number.chars().allMatch(Character::isDigit)) {
+                    segments.put(Long.parseLong(number), file);
+                }
+            }
+        }
+        return segments;
+    }
+}
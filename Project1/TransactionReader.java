@@ -0,0 +1,171 @@
+/*
+    Name : Colin Kirby
+    Course : CNT 4714 - Spring 2025
+    Assignment Title : Project 1 - An Event-driven Enterprise Simulation
+    Date : Monday, January 20, 2025
+*/
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads orders back from the transaction log through the segment indexes, so a
+ * lookup by transaction ID or a date-range read seeks straight to the matching
+ * orders instead of scanning the whole log.
+ *
+ * The reader sees the segments that exist when it is opened. Each order is
+ * returned as its transaction lines, without the blank line that separates it
+ * from the next order.
+ */
+public class TransactionReader implements Closeable {
+    /** One segment of the log with its index */
+    private static class Segment {
+        final FileChannel channel;
+        final TransactionIndex index;
+
+        Segment(FileChannel channel, TransactionIndex index) {
+            this.channel = channel;
+            this.index = index;
+        }
+    }
+
+    /** The segments, oldest first; the active file is last */
+    private final List<Segment> segments = new ArrayList<>();
+
+    /**
+     * Opens every segment of a transaction log. Indexes that are missing or behind
+     * their segment are completed in memory; the files are left to the journal.
+     *
+     * @param path The active log file, e.g. transactions.csv
+     * @throws IOException If a segment or index cannot be read
+     */
+    public TransactionReader(String path) throws IOException {
+        Path active = Paths.get(path).toAbsolutePath();
+        List<Path> files = new ArrayList<>(TransactionJournal.sealedSegments(active).values());
+        if (Files.exists(active)) {
+            files.add(active);
+        }
+        try {
+            for (Path file : files) {
+                TransactionIndex index = TransactionIndex.load(file);
+                segments.add(new Segment(FileChannel.open(file, StandardOpenOption.READ), index));
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Finds every order with the given transaction ID.
+     *
+     * @param transactionId The transaction ID (ddMMyyyyHHmmss)
+     * @return The matching orders; usually one, empty if there is none
+     * @throws IOException If a segment cannot be read
+     */
+    public List<String> find(String transactionId) throws IOException {
+        long key = TransactionIndex.key(transactionId);
+        if (key < 0) {
+            return new ArrayList<>();
+        }
+        return readKeys(key, key + 1);
+    }
+
+    /**
+     * Reads the orders checked out in a time range.
+     *
+     * @param from The start of the range (inclusive)
+     * @param to The end of the range (exclusive)
+     * @return The orders, in key order within each segment and segments oldest first
+     * @throws IOException If a segment cannot be read
+     */
+    public List<String> read(LocalDateTime from, LocalDateTime to) throws IOException {
+        return readKeys(TransactionIndex.key(from), TransactionIndex.key(to));
+    }
+
+    /**
+     * @return The number of orders in all segments
+     */
+    public long getOrderCount() {
+        long count = 0;
+        for (Segment segment : segments) {
+            count += segment.index.size();
+        }
+        return count;
+    }
+
+    /**
+     * @return The number of segments, including the active file
+     */
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * Reads the orders whose keys fall in [fromKey, toKey).
+     */
+    private List<String> readKeys(long fromKey, long toKey) throws IOException {
+        List<String> orders = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        for (Segment segment : segments) {
+            TransactionIndex index = segment.index;
+            if (index.lastKey() < fromKey || index.firstKey() >= toKey) {
+                continue; // Segment entirely outside the range
+            }
+            for (int i = index.lowerBound(fromKey); i < index.size() && index.keyAt(i) < toKey; i++) {
+                orders.add(readOrder(segment.channel, index.offsetAt(i), buffer));
+            }
+        }
+        return orders;
+    }
+
+    /**
+     * Reads one order: the lines from its offset up to the next blank line.
+     */
+    private static String readOrder(FileChannel channel, long offset, ByteBuffer buffer) throws IOException {
+        ByteArrayOutputStream order = new ByteArrayOutputStream(256);
+        byte previous = 0;
+        long position = offset;
+        while (true) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                byte b = buffer.get(i);
+                if (b == '\n' && previous == '\n') {
+                    return order.toString(StandardCharsets.UTF_8.name());
+                }
+                order.write(b);
+                previous = b;
+            }
+            position += read;
+        }
+        return order.toString(StandardCharsets.UTF_8.name());
+    }
+
+    /**
+     * Closes all segment files.
+     *
+     * @throws IOException If a file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        for (Segment segment : segments) {
+            segment.channel.close();
+        }
+        segments.clear();
+    }
+}